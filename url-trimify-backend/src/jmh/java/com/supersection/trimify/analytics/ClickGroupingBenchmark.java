@@ -0,0 +1,86 @@
+package com.supersection.trimify.analytics;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.supersection.trimify.model.ClickEvent;
+import com.supersection.trimify.model.DailyUserClicks;
+
+/**
+ * The in-memory half of {@code getTotalClicksByUserAndDate} over a year of
+ * clicks: the original stream grouping over every loaded {@link ClickEvent},
+ * against folding the 365 daily rollup rows that replace it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClickGroupingBenchmark {
+
+  private static final int DAYS = 365;
+
+  @Param({ "10000", "1000000" })
+  public int clicks;
+
+  private List<ClickEvent> clickEvents;
+  private List<DailyUserClicks> rollups;
+
+  @Setup
+  public void setUp() {
+    LocalDateTime start = LocalDate.now().minusDays(DAYS).atStartOfDay();
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    clickEvents = new ArrayList<>(clicks);
+    for (int i = 0; i < clicks; i++) {
+      ClickEvent clickEvent = new ClickEvent();
+      clickEvent.setId((long) i);
+      clickEvent.setClickDate(start.plusSeconds(random.nextLong(DAYS * 86_400L)));
+      clickEvents.add(clickEvent);
+    }
+
+    rollups = new ArrayList<>(DAYS);
+    clickEvents.stream()
+        .collect(Collectors.groupingBy(click -> click.getClickDate().toLocalDate(), Collectors.counting()))
+        .forEach((day, count) -> {
+          DailyUserClicks rollup = new DailyUserClicks();
+          rollup.setUserId(1L);
+          rollup.setClickDay(day);
+          rollup.setClicks(count);
+          rollups.add(rollup);
+        });
+  }
+
+  /** The grouping the service did before daily rollups. */
+  @Benchmark
+  public Map<LocalDate, Long> legacyGroupingByDate() {
+    return clickEvents.stream()
+        .collect(Collectors.groupingBy(click -> click.getClickDate().toLocalDate(), Collectors.counting()));
+  }
+
+  @Benchmark
+  public Map<LocalDate, Long> rollupFold() {
+    Map<LocalDate, Long> clicksByDay = new TreeMap<>();
+    rollups.forEach(rollup -> clicksByDay.put(rollup.getClickDay(), rollup.getClicks()));
+    return clicksByDay;
+  }
+}
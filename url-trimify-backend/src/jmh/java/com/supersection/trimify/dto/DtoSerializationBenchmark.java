@@ -0,0 +1,91 @@
+package com.supersection.trimify.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Jackson serialization of the API response bodies at realistic sizes: a page
+ * of links, a year of per-day analytics, and a year of user totals. The
+ * mapper is configured like Spring Boot's default one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DtoSerializationBenchmark {
+
+  private static final int DAYS = 365;
+
+  @Param({ "50", "1000" })
+  public int pageSize;
+
+  private ObjectMapper objectMapper;
+  private List<UrlMappingDTO> urls;
+  private List<ClickEventDTO> clicksByDate;
+  private Map<LocalDate, Long> totalClicks;
+
+  @Setup
+  public void setUp() {
+    objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    urls = new ArrayList<>(pageSize);
+    LocalDateTime createdAt = LocalDateTime.now();
+    for (int i = 0; i < pageSize; i++) {
+      UrlMappingDTO dto = new UrlMappingDTO();
+      dto.setId((long) i);
+      dto.setOriginalUrl("https://example.com/articles/" + i + "?ref=newsletter");
+      dto.setShortUrl("aZ3k" + (1000 + i));
+      dto.setClickCount(i * 17);
+      dto.setCreatedAt(createdAt.minusMinutes(i));
+      dto.setUsername("benchmark");
+      urls.add(dto);
+    }
+
+    clicksByDate = new ArrayList<>(DAYS);
+    totalClicks = new TreeMap<>();
+    LocalDate today = LocalDate.now();
+    for (int i = 0; i < DAYS; i++) {
+      LocalDate day = today.minusDays(DAYS - i);
+      clicksByDate.add(new ClickEventDTO(day, (long) i * 31, (long) i * 17));
+      totalClicks.put(day, (long) i * 97);
+    }
+  }
+
+  @Benchmark
+  public byte[] urlMappingPage() throws JsonProcessingException {
+    return objectMapper.writeValueAsBytes(urls);
+  }
+
+  @Benchmark
+  public byte[] clickEventsForYear() throws JsonProcessingException {
+    return objectMapper.writeValueAsBytes(clicksByDate);
+  }
+
+  @Benchmark
+  public byte[] totalClicksForYear() throws JsonProcessingException {
+    return objectMapper.writeValueAsBytes(totalClicks);
+  }
+}
@@ -0,0 +1,84 @@
+package com.supersection.trimify.security.jwt;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.SecretKey;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import com.supersection.trimify.service.UserDetailsImpl;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Token issuing and verification as done per login and per authenticated
+ * request. {@code legacyValidateThenParse} reproduces the original filter,
+ * which rebuilt the key and parsed the token twice.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtBenchmark {
+
+  private static final String SECRET = "a49e5a8fd2518482f06cd9aabc838cd67011c856be3b34cb307b97c2db701318"
+      + "ce34fc1b0b9cf6a7ff2053e178395007b22917294f85b90a43212fbf5e28d373";
+
+  private static final int EXPIRATION_MS = 36_000_000;
+
+  private JwtUtils cachingJwtUtils;
+  private JwtUtils uncachedJwtUtils;
+  private UserDetailsImpl userDetails;
+  private String token;
+
+  @Setup
+  public void setUp() {
+    cachingJwtUtils = new JwtUtils(new SimpleMeterRegistry(), SECRET, EXPIRATION_MS, 10_000);
+    uncachedJwtUtils = new JwtUtils(new SimpleMeterRegistry(), SECRET, EXPIRATION_MS, 0);
+    userDetails = new UserDetailsImpl(
+        42L, "benchmark", "benchmark@example.com", "", List.of(new SimpleGrantedAuthority("ROLE_USER")));
+    token = cachingJwtUtils.generateJwtToken(userDetails);
+    cachingJwtUtils.parseVerifiedClaims(token);
+  }
+
+  @Benchmark
+  public String generateJwtToken() {
+    return cachingJwtUtils.generateJwtToken(userDetails);
+  }
+
+  @Benchmark
+  public Claims parseVerifiedClaimsUncached() {
+    return uncachedJwtUtils.parseVerifiedClaims(token);
+  }
+
+  @Benchmark
+  public Claims parseVerifiedClaimsCached() {
+    return cachingJwtUtils.parseVerifiedClaims(token);
+  }
+
+  /** The original {@code validateJwtToken} followed by {@code getUsernameFromJwtToken}. */
+  @Benchmark
+  public String legacyValidateThenParse() {
+    SecretKey validationKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET));
+    Jwts.parser().verifyWith(validationKey).build().parseSignedClaims(token);
+    SecretKey parsingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET));
+    return Jwts.parser().verifyWith(parsingKey).build().parseSignedClaims(token).getPayload().getSubject();
+  }
+}
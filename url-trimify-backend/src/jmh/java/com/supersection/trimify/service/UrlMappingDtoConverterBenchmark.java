@@ -0,0 +1,99 @@
+package com.supersection.trimify.service;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.supersection.trimify.click.ClickCounterService;
+import com.supersection.trimify.click.ClickRecord;
+import com.supersection.trimify.dto.UrlMappingDTO;
+import com.supersection.trimify.dto.UrlMappingSummary;
+import com.supersection.trimify.model.UrlMapping;
+import com.supersection.trimify.model.User;
+
+/**
+ * DTO conversion on the link list path, from a hydrated entity and from the
+ * projection used by keyset pages. Pending click counts are read from a
+ * counter map holding 10,000 active links.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UrlMappingDtoConverterBenchmark {
+
+  private static final int ACTIVE_LINKS = 10_000;
+
+  private UrlMappingDtoConverter converter;
+  private UrlMapping urlMapping;
+  private UrlMappingSummary summary;
+
+  @Setup
+  public void setUp() {
+    ClickCounterService clickCounterService = new ClickCounterService(null, null);
+    for (long id = 1; id <= ACTIVE_LINKS; id++) {
+      clickCounterService.onClick(new ClickRecord(id, 1, System.currentTimeMillis(), id));
+    }
+    converter = new UrlMappingDtoConverter(clickCounterService);
+
+    User user = new User();
+    user.setId(1L);
+    user.setUsername("benchmark");
+    urlMapping = new UrlMapping();
+    urlMapping.setId(4_242L);
+    urlMapping.setOriginalUrl("https://example.com/articles/2025/06/a-reasonably-long-path?ref=newsletter");
+    urlMapping.setShortUrl("aZ3kQ9x");
+    urlMapping.setClickCount(1_234);
+    urlMapping.setCreatedAt(LocalDateTime.now());
+    urlMapping.setUser(user);
+
+    summary = new UrlMappingSummary() {
+      @Override
+      public Long getId() {
+        return urlMapping.getId();
+      }
+
+      @Override
+      public String getOriginalUrl() {
+        return urlMapping.getOriginalUrl();
+      }
+
+      @Override
+      public String getShortUrl() {
+        return urlMapping.getShortUrl();
+      }
+
+      @Override
+      public int getClickCount() {
+        return urlMapping.getClickCount();
+      }
+
+      @Override
+      public LocalDateTime getCreatedAt() {
+        return urlMapping.getCreatedAt();
+      }
+    };
+  }
+
+  @Benchmark
+  public UrlMappingDTO convertEntityToDto() {
+    return converter.convert(urlMapping, "benchmark");
+  }
+
+  @Benchmark
+  public UrlMappingDTO convertSummaryToDto() {
+    return converter.convert(summary, "benchmark");
+  }
+}
@@ -0,0 +1,105 @@
+package com.supersection.trimify.shortcode;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the original per-call {@code new Random()} generator with the
+ * pluggable generators. The leased allocator uses an in-memory
+ * {@link IdBlockSource} with a simulated round trip per lease, so the numbers
+ * include the amortised lease cost.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ShortCodeGeneratorBenchmark {
+
+  private static final String CHARACTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+  private static final long SIMULATED_LEASE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private ShortCodeGenerator random;
+  private ShortCodeGenerator sequence;
+  private ShortCodeGenerator scrambledSequence;
+  private ShortCodeGenerator variableLengthSequence;
+
+  @Setup
+  public void setUp() {
+    random = new RandomShortCodeGenerator(7);
+    sequence = new SequenceShortCodeGenerator(allocator(), 7, null);
+    scrambledSequence = new SequenceShortCodeGenerator(
+        allocator(), 7, new CodePermutation(Base62.space(7), 0x5DEECE66DL));
+    variableLengthSequence = new SequenceShortCodeGenerator(allocator(), 0, null);
+  }
+
+  private static LeasedIdAllocator allocator() {
+    AtomicLong nextValue = new AtomicLong(1);
+    IdBlockSource source = (name, size) -> {
+      long deadline = System.nanoTime() + SIMULATED_LEASE_NANOS;
+      while (System.nanoTime() < deadline) {
+        Thread.onSpinWait();
+      }
+      return nextValue.getAndAdd(size);
+    };
+    return new LeasedIdAllocator(source, "benchmark", 10_000);
+  }
+
+  /** The generator as it was before the pluggable subsystem. */
+  @Benchmark
+  public String legacyNewRandomPerCall() {
+    Random random = new Random();
+    StringBuilder shortUrl = new StringBuilder(8);
+    for (int i = 0; i < 8; i++) {
+      shortUrl.append(CHARACTERS.charAt(random.nextInt(CHARACTERS.length())));
+    }
+    return shortUrl.toString();
+  }
+
+  @Benchmark
+  public String random() {
+    return random.nextCode();
+  }
+
+  @Benchmark
+  public String sequence() {
+    return sequence.nextCode();
+  }
+
+  @Benchmark
+  public String scrambledSequence() {
+    return scrambledSequence.nextCode();
+  }
+
+  @Benchmark
+  public String variableLengthSequence() {
+    return variableLengthSequence.nextCode();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public String legacyNewRandomPerCallContended() {
+    return legacyNewRandomPerCall();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public String scrambledSequenceContended() {
+    return scrambledSequence.nextCode();
+  }
+}
@@ -0,0 +1,359 @@
+package com.supersection.trimify.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.supersection.trimify.UrlTrimifyBackendApplication;
+import com.supersection.trimify.redirect.RedirectServer;
+
+/**
+ * Starts the application in-process against an in-memory H2 database in
+ * MySQL mode, seeds it, and drives a closed-loop mixed workload over HTTP.
+ * Latency per operation is recorded in HdrHistograms, summarized on stdout and
+ * written as {@code .hgrm} percentile distributions.
+ *
+ * <p>Harness options ({@code --name=value}): {@code users}, {@code links},
+ * {@code clicks}, {@code threads}, {@code client-threads} ({@code platform}
+ * or {@code virtual}, for thousands of concurrent clients), {@code warmup},
+ * {@code duration}, {@code mix} (e.g.
+ * {@code redirect:95,create:3,analytics:1,myurls:1,totalclicks:0}),
+ * {@code zipf} (popularity exponent) and {@code report-dir}. Any other
+ * option is passed to the application, e.g.
+ * {@code --spring.threads.virtual.enabled=true}. With
+ * {@code --trimify.redirect-server.enabled=true} redirects are sent to the
+ * standalone redirect server instead of the Spring endpoint.
+ *
+ * <p>Responses shed by a saturated bulkhead ({@code 503}) are counted apart
+ * from other errors, so runs comparing platform and virtual request threads
+ * show whether latency was kept by rejecting work.
+ */
+public final class LoadTest {
+
+  enum Operation { REDIRECT, CREATE, ANALYTICS, MYURLS, TOTALCLICKS }
+
+  private static final Map<String, String> HARNESS_DEFAULTS = new LinkedHashMap<>();
+
+  static {
+    HARNESS_DEFAULTS.put("users", "100");
+    HARNESS_DEFAULTS.put("links", "100000");
+    HARNESS_DEFAULTS.put("clicks", "1000000");
+    HARNESS_DEFAULTS.put("threads", "64");
+    HARNESS_DEFAULTS.put("client-threads", "platform");
+    HARNESS_DEFAULTS.put("warmup", "15s");
+    HARNESS_DEFAULTS.put("duration", "60s");
+    HARNESS_DEFAULTS.put("mix", "redirect:95,create:3,analytics:1,myurls:1");
+    HARNESS_DEFAULTS.put("zipf", "0.99");
+    HARNESS_DEFAULTS.put("report-dir", "target/loadtest");
+  }
+
+  private static final Map<String, String> APPLICATION_DEFAULTS = new LinkedHashMap<>();
+
+  static {
+    APPLICATION_DEFAULTS.put("spring.datasource.url",
+        "jdbc:h2:mem:loadtest;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=VALUE,USER;DB_CLOSE_DELAY=-1");
+    APPLICATION_DEFAULTS.put("spring.datasource.username", "sa");
+    APPLICATION_DEFAULTS.put("spring.datasource.password", "");
+    // application.yml pins the MySQL dialect
+    APPLICATION_DEFAULTS.put("spring.jpa.properties.hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+    APPLICATION_DEFAULTS.put("spring.jpa.hibernate.ddl-auto", "create");
+    APPLICATION_DEFAULTS.put("spring.main.banner-mode", "off");
+    APPLICATION_DEFAULTS.put("server.port", "0");
+    APPLICATION_DEFAULTS.put("trimify.redirect-server.port", "0");
+    // Each run seeds a fresh in-memory database, so a snapshot would describe another one
+    APPLICATION_DEFAULTS.put("trimify.redirect-server.snapshot.enabled", "false");
+    APPLICATION_DEFAULTS.put("logging.level.root", "WARN");
+    APPLICATION_DEFAULTS.put("logging.level.org.springframework.security", "WARN");
+    APPLICATION_DEFAULTS.put("logging.level.com.supersection.trimify", "WARN");
+    // The seeder rebuilds rollups itself once the clicks are in
+    APPLICATION_DEFAULTS.put("trimify.rollups.backfill-on-startup", "false");
+    // Codes of a throwaway database need no secret key
+    APPLICATION_DEFAULTS.put("trimify.shortcode.scramble-key", "6148914691236517205");
+  }
+
+  private LoadTest() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = new LinkedHashMap<>(HARNESS_DEFAULTS);
+    Map<String, String> applicationProperties = new LinkedHashMap<>(APPLICATION_DEFAULTS);
+    for (String arg : args) {
+      if (!arg.startsWith("--") || !arg.contains("=")) {
+        throw new IllegalArgumentException("Expected --name=value but got " + arg);
+      }
+      String name = arg.substring(2, arg.indexOf('='));
+      String value = arg.substring(arg.indexOf('=') + 1);
+      (HARNESS_DEFAULTS.containsKey(name) ? options : applicationProperties).put(name, value);
+    }
+
+    String[] applicationArgs = applicationProperties.entrySet().stream()
+        .map(property -> "--" + property.getKey() + "=" + property.getValue())
+        .toArray(String[]::new);
+    ConfigurableApplicationContext context = SpringApplication.run(UrlTrimifyBackendApplication.class, applicationArgs);
+    int exitCode = 0;
+    try {
+      run(context, options, applicationProperties);
+    } catch (Exception e) {
+      e.printStackTrace();
+      exitCode = 1;
+    } finally {
+      context.close();
+    }
+    System.exit(exitCode);
+  }
+
+  private static void run(
+      ConfigurableApplicationContext context, Map<String, String> options, Map<String, String> applicationProperties
+  ) throws Exception {
+    int users = Integer.parseInt(options.get("users"));
+    int links = Integer.parseInt(options.get("links"));
+    long clicks = Long.parseLong(options.get("clicks"));
+    int threads = Integer.parseInt(options.get("threads"));
+    boolean virtualClients = "virtual".equals(options.get("client-threads"));
+    Duration warmup = DurationStyle.detectAndParse(options.get("warmup"));
+    Duration duration = DurationStyle.detectAndParse(options.get("duration"));
+    Map<Operation, Integer> mix = parseMix(options.get("mix"));
+    ZipfianSampler popularity = new ZipfianSampler(links, Double.parseDouble(options.get("zipf")), 42);
+
+    System.out.printf("Seeding %,d users, %,d links and %,d clicks...%n", users, links, clicks);
+    long seedStart = System.nanoTime();
+    Seeder.SeedData seedData = new Seeder(context).seed(users, links, clicks, popularity);
+    System.out.printf("Seeded in %,d ms%n", (System.nanoTime() - seedStart) / 1_000_000);
+
+    int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+    RedirectServer redirectServer = context.getBeanProvider(RedirectServer.class).getIfAvailable();
+    int redirectPort = redirectServer != null ? redirectServer.getPort() : port;
+    Workload workload = new Workload(
+        "http://localhost:" + port, "http://localhost:" + redirectPort, seedData, popularity, mix);
+
+    System.out.printf("Running %d %s threads: %s warmup, %s measured, mix %s%n",
+        threads, virtualClients ? "virtual" : "platform", warmup, duration, mix);
+    long warmupEnd = System.nanoTime() + warmup.toNanos();
+    long end = warmupEnd + duration.toNanos();
+    List<Thread> workers = new ArrayList<>(threads);
+    for (int i = 0; i < threads; i++) {
+      Thread.Builder builder = virtualClients ? Thread.ofVirtual() : Thread.ofPlatform();
+      workers.add(builder.name("load-" + i).start(() -> workload.drive(end)));
+    }
+    Thread.sleep(warmup.toMillis());
+    workload.reset();
+    for (Thread worker : workers) {
+      worker.join();
+    }
+
+    report(workload, duration, Path.of(options.get("report-dir")), options, applicationProperties);
+  }
+
+  private static Map<Operation, Integer> parseMix(String mix) {
+    Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+    for (String entry : mix.split(",")) {
+      String[] parts = entry.split(":");
+      weights.put(Operation.valueOf(parts[0].trim().toUpperCase()), Integer.parseInt(parts[1].trim()));
+    }
+    return weights;
+  }
+
+  private static void report(
+      Workload workload, Duration duration, Path reportDir,
+      Map<String, String> options, Map<String, String> applicationProperties
+  ) throws IOException {
+    Files.createDirectories(reportDir);
+    // Drop histograms of operations that are not part of this run's mix
+    try (DirectoryStream<Path> previous = Files.newDirectoryStream(reportDir, "*.hgrm")) {
+      for (Path file : previous) {
+        Files.delete(file);
+      }
+    }
+    double seconds = duration.toMillis() / 1000.0;
+    Histogram total = new Histogram(3);
+
+    System.out.println();
+    System.out.printf("%-11s %10s %10s %8s %8s %9s %9s %9s %9s%n",
+        "operation", "requests", "req/s", "errors", "shed", "p50 ms", "p99 ms", "p999 ms", "max ms");
+    for (Operation operation : Operation.values()) {
+      Histogram histogram = workload.histogram(operation);
+      if (histogram.getTotalCount() == 0) {
+        continue;
+      }
+      total.add(histogram);
+      printRow(operation.name().toLowerCase(), histogram,
+          workload.errors(operation), workload.shed(operation), seconds);
+      writeDistribution(reportDir.resolve(operation.name().toLowerCase() + ".hgrm"), histogram);
+    }
+    printRow("all", total, workload.totalErrors(), workload.totalShed(), seconds);
+    writeDistribution(reportDir.resolve("all.hgrm"), total);
+
+    System.out.println();
+    System.out.println("Options: " + options);
+    System.out.println("Application overrides: " + applicationProperties.entrySet().stream()
+        .filter(property -> !APPLICATION_DEFAULTS.containsKey(property.getKey())
+            || !APPLICATION_DEFAULTS.get(property.getKey()).equals(property.getValue()))
+        .toList());
+    System.out.println("Histograms written to " + reportDir.toAbsolutePath());
+  }
+
+  private static void printRow(String name, Histogram histogram, long errors, long shed, double seconds) {
+    System.out.printf("%-11s %,10d %,10.0f %,8d %,8d %9.2f %9.2f %9.2f %9.2f%n",
+        name, histogram.getTotalCount(), histogram.getTotalCount() / seconds, errors, shed,
+        histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(99) / 1000.0,
+        histogram.getValueAtPercentile(99.9) / 1000.0, histogram.getMaxValue() / 1000.0);
+  }
+
+  private static void writeDistribution(Path file, Histogram histogram) throws IOException {
+    try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+      // Recorded in microseconds, reported in milliseconds
+      histogram.outputPercentileDistribution(out, 1000.0);
+    }
+  }
+
+  /** Closed-loop workload shared by all worker threads. */
+  static final class Workload {
+
+    private final String baseUrl;
+    private final String redirectBaseUrl;
+    private final Seeder.SeedData seedData;
+    private final ZipfianSampler popularity;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final HttpClient httpClient = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .followRedirects(HttpClient.Redirect.NEVER)
+        .connectTimeout(Duration.ofSeconds(5))
+        .build();
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> shed = new EnumMap<>(Operation.class);
+    private final AtomicLong created = new AtomicLong();
+    private final String analyticsRange;
+    private final String totalClicksRange;
+
+    Workload(
+        String baseUrl, String redirectBaseUrl, Seeder.SeedData seedData,
+        ZipfianSampler popularity, Map<Operation, Integer> mix
+    ) {
+      this.baseUrl = baseUrl;
+      this.redirectBaseUrl = redirectBaseUrl;
+      this.seedData = seedData;
+      this.popularity = popularity;
+      this.operations = mix.keySet().toArray(Operation[]::new);
+      this.cumulativeWeights = new int[operations.length];
+      int sum = 0;
+      for (int i = 0; i < operations.length; i++) {
+        sum += mix.get(operations[i]);
+        cumulativeWeights[i] = sum;
+      }
+      for (Operation operation : Operation.values()) {
+        recorders.put(operation, new Recorder(3));
+        errors.put(operation, new LongAdder());
+        shed.put(operation, new LongAdder());
+      }
+      LocalDate today = LocalDate.now();
+      this.analyticsRange = "?startDate=" + today.minusDays(30) + "T00:00:00&endDate=" + today + "T23:59:59";
+      this.totalClicksRange = "?startDate=" + today.minusDays(30) + "&endDate=" + today;
+    }
+
+    void drive(long endNanos) {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      while (System.nanoTime() < endNanos) {
+        int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int i = 0;
+        while (pick >= cumulativeWeights[i]) {
+          i++;
+        }
+        Operation operation = operations[i];
+
+        long start = System.nanoTime();
+        int status;
+        try {
+          status = execute(operation, random);
+        } catch (IOException e) {
+          status = -1;
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+        recorders.get(operation).recordValue(Math.max(1, (System.nanoTime() - start) / 1_000));
+        if (status == 503) {
+          shed.get(operation).increment();
+        } else if (status != (operation == Operation.REDIRECT ? 302 : 200)) {
+          errors.get(operation).increment();
+        }
+      }
+    }
+
+    /**
+     * @return the response status.
+     */
+    private int execute(Operation operation, ThreadLocalRandom random) throws IOException, InterruptedException {
+      int link = popularity.next();
+      String ownerToken = seedData.tokens()[seedData.linkOwners()[link]];
+      HttpRequest request = switch (operation) {
+        case REDIRECT -> HttpRequest.newBuilder(URI.create(redirectBaseUrl + "/" + seedData.codes()[link]))
+            .GET().build();
+        case CREATE -> HttpRequest.newBuilder(URI.create(baseUrl + "/api/urls/trimify"))
+            .header("Authorization", "Bearer " + seedData.tokens()[random.nextInt(seedData.tokens().length)])
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(
+                "{\"originalUrl\":\"https://example.com/loadtest/new/" + created.incrementAndGet() + "\"}"))
+            .build();
+        case ANALYTICS -> HttpRequest.newBuilder(
+                URI.create(baseUrl + "/api/urls/analytics/" + seedData.codes()[link] + analyticsRange))
+            .header("Authorization", "Bearer " + ownerToken).GET().build();
+        case MYURLS -> HttpRequest.newBuilder(URI.create(baseUrl + "/api/urls/myurls"))
+            .header("Authorization", "Bearer " + ownerToken).GET().build();
+        case TOTALCLICKS -> HttpRequest.newBuilder(URI.create(baseUrl + "/api/urls/totalClicks" + totalClicksRange))
+            .header("Authorization", "Bearer " + ownerToken).GET().build();
+      };
+      return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    void reset() {
+      recorders.values().forEach(Recorder::reset);
+      errors.values().forEach(LongAdder::reset);
+      shed.values().forEach(LongAdder::reset);
+    }
+
+    Histogram histogram(Operation operation) {
+      return recorders.get(operation).getIntervalHistogram();
+    }
+
+    long errors(Operation operation) {
+      return errors.get(operation).sum();
+    }
+
+    long totalErrors() {
+      return errors.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    long shed(Operation operation) {
+      return shed.get(operation).sum();
+    }
+
+    long totalShed() {
+      return shed.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+  }
+}
@@ -0,0 +1,127 @@
+package com.supersection.trimify.loadtest;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.supersection.trimify.analytics.ClickRollupService;
+import com.supersection.trimify.model.UrlMapping;
+import com.supersection.trimify.model.User;
+import com.supersection.trimify.redirect.ShortCodeFilter;
+import com.supersection.trimify.repository.UrlMappingRepository;
+import com.supersection.trimify.security.jwt.JwtUtils;
+import com.supersection.trimify.service.UserDetailsImpl;
+import com.supersection.trimify.shortcode.ShortCodeGenerator;
+
+/**
+ * Fills the embedded database through the application's own beans, bypassing
+ * HTTP: users, links spread round-robin over the users, and clicks over the
+ * past {@value #CLICK_DAYS} days with the same popularity skew as the
+ * workload. Rollups and the short code filter are rebuilt afterwards.
+ */
+final class Seeder {
+
+  private static final int CLICK_DAYS = 30;
+  private static final int BATCH_SIZE = 5_000;
+
+  record SeedData(String[] tokens, String[] codes, int[] linkOwners) {
+  }
+
+  private final ApplicationContext context;
+  private final JdbcTemplate jdbcTemplate;
+
+  Seeder(ApplicationContext context) {
+    this.context = context;
+    this.jdbcTemplate = context.getBean(JdbcTemplate.class);
+  }
+
+  SeedData seed(int users, int links, long clicks, ZipfianSampler popularity) {
+    String[] tokens = seedUsers(users);
+    List<Long> userIds = jdbcTemplate.queryForList("SELECT id FROM users ORDER BY id", Long.class);
+    String[] codes = new String[links];
+    int[] linkOwners = new int[links];
+    long[] linkIds = seedLinks(userIds, codes, linkOwners);
+    seedClicks(linkIds, clicks, popularity);
+
+    context.getBean(ClickRollupService.class).backfillPending();
+    context.getBean(ShortCodeFilter.class).build();
+    return new SeedData(tokens, codes, linkOwners);
+  }
+
+  private String[] seedUsers(int users) {
+    String password = context.getBean(PasswordEncoder.class).encode("password1");
+    List<Object[]> rows = new ArrayList<>(users);
+    for (int i = 0; i < users; i++) {
+      rows.add(new Object[] { "loadtest" + i + "@example.com", "loadtest" + i, password, "ROLE_USER", true });
+    }
+    jdbcTemplate.batchUpdate(
+        "INSERT INTO users (email, username, password, role, enabled) VALUES (?, ?, ?, ?, ?)", rows);
+
+    JwtUtils jwtUtils = context.getBean(JwtUtils.class);
+    List<Long> userIds = jdbcTemplate.queryForList("SELECT id FROM users ORDER BY id", Long.class);
+    String[] tokens = new String[users];
+    for (int i = 0; i < users; i++) {
+      tokens[i] = jwtUtils.generateJwtToken(new UserDetailsImpl(
+          userIds.get(i), "loadtest" + i, null, null, List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+    }
+    return tokens;
+  }
+
+  private long[] seedLinks(List<Long> userIds, String[] codes, int[] linkOwners) {
+    ShortCodeGenerator shortCodeGenerator = context.getBean(ShortCodeGenerator.class);
+    UrlMappingRepository urlMappingRepository = context.getBean(UrlMappingRepository.class);
+    long[] linkIds = new long[codes.length];
+    LocalDateTime createdAt = LocalDateTime.now().minusDays(CLICK_DAYS + 1);
+
+    List<UrlMapping> batch = new ArrayList<>(BATCH_SIZE);
+    for (int i = 0; i < codes.length; i++) {
+      linkOwners[i] = i % userIds.size();
+      User owner = new User();
+      owner.setId(userIds.get(linkOwners[i]));
+
+      UrlMapping urlMapping = new UrlMapping();
+      urlMapping.setOriginalUrl("https://example.com/loadtest/" + i);
+      urlMapping.setShortUrl(shortCodeGenerator.nextCode());
+      urlMapping.setUser(owner);
+      urlMapping.setCreatedAt(createdAt.plusSeconds(i));
+      batch.add(urlMapping);
+
+      if (batch.size() == BATCH_SIZE || i == codes.length - 1) {
+        urlMappingRepository.insertAll(batch);
+        int first = i - batch.size() + 1;
+        for (int j = 0; j < batch.size(); j++) {
+          codes[first + j] = batch.get(j).getShortUrl();
+          linkIds[first + j] = batch.get(j).getId();
+        }
+        batch.clear();
+      }
+    }
+    return linkIds;
+  }
+
+  private void seedClicks(long[] linkIds, long clicks, ZipfianSampler popularity) {
+    LocalDateTime start = LocalDate.now().minusDays(CLICK_DAYS).atStartOfDay();
+    long span = CLICK_DAYS * 86_400L;
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+
+    List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+    for (long i = 0; i < clicks; i++) {
+      Timestamp clickDate = Timestamp.valueOf(start.plusSeconds(random.nextLong(span)));
+      batch.add(new Object[] { clickDate, linkIds[popularity.next()] });
+      if (batch.size() == BATCH_SIZE || i == clicks - 1) {
+        jdbcTemplate.batchUpdate("INSERT INTO click_event (click_date, url_mapping_id) VALUES (?, ?)", batch);
+        batch.clear();
+      }
+    }
+    jdbcTemplate.update("UPDATE url_mapping m SET click_count = "
+        + "(SELECT COUNT(*) FROM click_event c WHERE c.url_mapping_id = m.id)");
+  }
+}
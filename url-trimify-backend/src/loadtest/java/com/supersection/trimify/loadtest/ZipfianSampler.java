@@ -0,0 +1,48 @@
+package com.supersection.trimify.loadtest;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Samples indexes in {@code [0, n)} where the item of rank {@code k} is picked
+ * with probability proportional to {@code 1 / k^s}. Ranks are shuffled onto
+ * indexes so popular items are not clustered at low ids.
+ */
+final class ZipfianSampler {
+
+  private final double[] cumulative;
+  private final int[] indexOfRank;
+
+  ZipfianSampler(int n, double exponent, long seed) {
+    cumulative = new double[n];
+    double sum = 0;
+    for (int rank = 0; rank < n; rank++) {
+      sum += 1 / Math.pow(rank + 1, exponent);
+      cumulative[rank] = sum;
+    }
+    for (int rank = 0; rank < n; rank++) {
+      cumulative[rank] /= sum;
+    }
+
+    indexOfRank = new int[n];
+    for (int i = 0; i < n; i++) {
+      indexOfRank[i] = i;
+    }
+    Random random = new Random(seed);
+    for (int i = n - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      int swap = indexOfRank[i];
+      indexOfRank[i] = indexOfRank[j];
+      indexOfRank[j] = swap;
+    }
+  }
+
+  int next() {
+    int rank = Arrays.binarySearch(cumulative, ThreadLocalRandom.current().nextDouble());
+    if (rank < 0) {
+      rank = -rank - 1;
+    }
+    return indexOfRank[Math.min(rank, indexOfRank.length - 1)];
+  }
+}
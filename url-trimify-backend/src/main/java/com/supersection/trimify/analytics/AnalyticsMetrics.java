@@ -0,0 +1,61 @@
+package com.supersection.trimify.analytics;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Duration and rows scanned per analytics query. Rows are what the query had
+ * to read, rollup rows or raw clicks, so a slow query can be told apart from a
+ * large one.
+ */
+@Component
+public class AnalyticsMetrics {
+
+  public static final String LINK_CLICKS = "link_clicks";
+  public static final String LINK_HISTOGRAM = "link_histogram";
+  public static final String USER_CLICKS = "user_clicks";
+  public static final String LINK_VISITORS = "link_visitors";
+  public static final String USER_VISITORS = "user_visitors";
+  public static final String EXPORT = "export";
+
+  private static final List<String> QUERIES =
+      List.of(LINK_CLICKS, LINK_HISTOGRAM, USER_CLICKS, LINK_VISITORS, USER_VISITORS, EXPORT);
+
+  private record Meters(Timer duration, DistributionSummary rows) {
+  }
+
+  private final Map<String, Meters> meters = new HashMap<>();
+
+  public AnalyticsMetrics(MeterRegistry meterRegistry) {
+    for (String query : QUERIES) {
+      Timer duration = Timer.builder("trimify.analytics.query")
+          .description("Analytics query duration")
+          .tag("query", query)
+          .register(meterRegistry);
+      DistributionSummary rows = DistributionSummary.builder("trimify.analytics.rows")
+          .description("Rows read to answer an analytics query")
+          .baseUnit("rows")
+          .tag("query", query)
+          .register(meterRegistry);
+      meters.put(query, new Meters(duration, rows));
+    }
+  }
+
+  /** @param query one of the query constants */
+  public void record(String query, long startNanos, long rowsScanned) {
+    Meters queryMeters = meters.get(query);
+    if (queryMeters == null) {
+      throw new IllegalArgumentException("Unknown analytics query " + query);
+    }
+    queryMeters.duration().record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    queryMeters.rows().record(rowsScanned);
+  }
+}
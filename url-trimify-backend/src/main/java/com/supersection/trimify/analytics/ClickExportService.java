@@ -0,0 +1,138 @@
+package com.supersection.trimify.analytics;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import com.supersection.trimify.dto.ClickExportProjection;
+import com.supersection.trimify.repository.ClickEventRepository;
+
+/**
+ * Writes the raw clicks of one link to a stream.
+ *
+ * <p>Rows are read in keyset pages ordered by click time and id, which the
+ * {@code (url_mapping_id, click_date)} index serves directly, so every page
+ * is one index seek, memory use is bounded by the page size and no
+ * connection or transaction is held between pages while the client is
+ * reading.
+ */
+@Service
+public class ClickExportService {
+
+  private final ClickEventRepository clickEventRepository;
+  private final AnalyticsMetrics analyticsMetrics;
+  private final int pageSize;
+
+  public ClickExportService(
+      ClickEventRepository clickEventRepository,
+      AnalyticsMetrics analyticsMetrics,
+      @Value("${trimify.export.page-size}") int pageSize
+  ) {
+    this.clickEventRepository = clickEventRepository;
+    this.analyticsMetrics = analyticsMetrics;
+    this.pageSize = pageSize;
+  }
+
+  public void export(
+      Long urlMappingId, LocalDateTime start, LocalDateTime end,
+      ExportFormat format, boolean gzip, OutputStream outputStream
+  ) throws IOException {
+    OutputStream target = gzip ? new GZIPOutputStream(outputStream, 64 * 1024) : outputStream;
+    Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), 64 * 1024);
+
+    if (format == ExportFormat.CSV) {
+      writer.write("id,clickDate\n");
+    }
+
+    long started = System.nanoTime();
+    long rows = 0;
+    // Every id is positive, so the first page starts at the first click at start
+    LocalDateTime lastClickDate = start;
+    long lastId = 0;
+    List<ClickExportProjection> page;
+    do {
+      page = clickEventRepository.findExportPage(urlMappingId, end, lastClickDate, lastId, Limit.of(pageSize));
+      for (ClickExportProjection click : page) {
+        writeRow(writer, format, click);
+        lastClickDate = click.getClickDate();
+        lastId = click.getId();
+      }
+      rows += page.size();
+      // Hand each page to the client rather than buffering the whole export
+      writer.flush();
+    } while (page.size() == pageSize);
+
+    if (target instanceof GZIPOutputStream gzipStream) {
+      gzipStream.finish();
+    }
+    writer.flush();
+    // Includes the time the client took to read, which bounds how long the export held a thread
+    analyticsMetrics.record(AnalyticsMetrics.EXPORT, started, rows);
+  }
+
+  /**
+   * Whether an {@code Accept-Encoding} header allows a gzip response: gzip
+   * or {@code *} is listed without {@code q=0}, and gzip is not refused
+   * explicitly while {@code *} allows it.
+   */
+  public static boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+    double gzipQuality = -1;
+    double anyQuality = -1;
+    for (String coding : acceptEncoding.split(",")) {
+      String[] params = coding.split(";");
+      String name = params[0].trim().toLowerCase(Locale.ROOT);
+      if (name.equals("gzip") || name.equals("x-gzip")) {
+        gzipQuality = Math.max(gzipQuality, quality(params));
+      } else if (name.equals("*")) {
+        anyQuality = Math.max(anyQuality, quality(params));
+      }
+    }
+    return gzipQuality >= 0 ? gzipQuality > 0 : anyQuality > 0;
+  }
+
+  /** The {@code q} parameter of a coding, 1 if absent; malformed values refuse it. */
+  private static double quality(String[] params) {
+    for (int i = 1; i < params.length; i++) {
+      String param = params[i].trim();
+      if (param.length() > 2 && param.regionMatches(true, 0, "q=", 0, 2)) {
+        try {
+          double quality = Double.parseDouble(param.substring(2).trim());
+          return quality >= 0 && quality <= 1 ? quality : 0;
+        } catch (NumberFormatException e) {
+          return 0;
+        }
+      }
+    }
+    return 1;
+  }
+
+  private static void writeRow(Writer writer, ExportFormat format, ClickExportProjection click) throws IOException {
+    // Ids and ISO timestamps never need quoting or escaping
+    if (format == ExportFormat.CSV) {
+      writer.write(Long.toString(click.getId()));
+      writer.write(',');
+      writer.write(click.getClickDate().toString());
+      writer.write('\n');
+    } else {
+      writer.write("{\"id\":");
+      writer.write(Long.toString(click.getId()));
+      writer.write(",\"clickDate\":\"");
+      writer.write(click.getClickDate().toString());
+      writer.write("\"}\n");
+    }
+  }
+}
@@ -0,0 +1,386 @@
+package com.supersection.trimify.analytics;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import com.supersection.trimify.click.ClickRecord;
+import com.supersection.trimify.redirect.IdGaps;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Every {@code click_event} held in memory as one {@link ClickTimeline} per
+ * link, so click counts and histograms over arbitrary ranges are answered
+ * without loading rows.
+ *
+ * <p>Loaded in id order on a background thread after startup, then tailed by
+ * id like the redirect index, so clicks written by any node show up within
+ * one refresh interval. Every id the tail skips is re-read until it shows up,
+ * since click writers on other nodes, the click log replayer and callers
+ * writing synchronously commit out of order: on every refresh for the first
+ * minute, then once a minute for an hour, longer than any click transaction
+ * can stay open. Only ids of rolled-back batches are still missing by then.
+ * Every click read is also handed to the {@link ClickTailListener}s, so
+ * in-memory views like trending links see the clicks of the whole cluster.
+ *
+ * <p>Timelines are kept within a memory budget. Once it is exceeded, the
+ * links least recently clicked or queried are dropped and from then on
+ * answered from the database; {@code null} from a query means exactly that.
+ * Times are compared to the second. Clicks of months dropped from a
+ * partitioned {@code click_event} are dropped here too, see
+ * {@link #dropBefore}.
+ */
+@Component
+public class ClickIndex implements MeterBinder {
+
+  private static final Logger log = LoggerFactory.getLogger(ClickIndex.class);
+
+  private static final int PAGE_SIZE = 10_000;
+
+  // Left join: clicks of links deleted without a foreign key are still counted
+  private static final String COLUMNS = "c.id, c.url_mapping_id, c.click_date, m.user_id"
+      + " FROM click_event c LEFT JOIN url_mapping m ON m.id = c.url_mapping_id";
+
+  private static final String SELECT_PAGE = "SELECT " + COLUMNS + " WHERE c.id > ? ORDER BY c.id LIMIT ?";
+
+  private static final String SELECT_IDS = "SELECT " + COLUMNS + " WHERE c.id IN (%s)";
+
+  private static final int MAX_GAP_IDS = 100_000;
+  private static final int GAP_IDS_PER_QUERY = 1_000;
+  private static final Duration RECENT_GAP = Duration.ofMinutes(1);
+  private static final Duration LATE_GAP_INTERVAL = Duration.ofMinutes(1);
+  private static final Duration GAP_TIMEOUT = Duration.ofHours(1);
+
+  /** Dropping a little more than needed keeps eviction from running on every refresh. */
+  private static final double EVICT_TO = 0.9;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final List<ClickTailListener> listeners;
+  private final boolean enabled;
+  private final long memoryBudget;
+
+  private final ConcurrentHashMap<Long, ClickTimeline> timelines = new ConcurrentHashMap<>();
+  private final Set<Long> spilled = ConcurrentHashMap.newKeySet();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  private volatile boolean ready;
+  private volatile long memoryBytes;
+  private volatile long lastRefreshMillis;
+
+  // Guarded by this
+  /** Created at the first click read: ids below it are older than anything in flight. */
+  private IdGaps gaps;
+  private long droppedBefore = Long.MIN_VALUE;
+  private List<ClickRecord> tailed = new ArrayList<>();
+
+  public ClickIndex(
+      JdbcTemplate jdbcTemplate,
+      List<ClickTailListener> listeners,
+      @Value("${trimify.click-index.enabled}") boolean enabled,
+      @Value("${trimify.click-index.memory-budget}") DataSize memoryBudget
+  ) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.listeners = listeners;
+    this.enabled = enabled;
+    this.memoryBudget = memoryBudget.toBytes();
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void loadOnStartup() {
+    if (enabled) {
+      Thread load = new Thread(this::load, "click-index-load");
+      load.setDaemon(true);
+      load.start();
+    }
+  }
+
+  public synchronized void load() {
+    long started = System.nanoTime();
+    try {
+      catchUp();
+      ready = true;
+      log.info("Click index loaded with {} links in {} ({} spilled) in {} ms",
+          timelines.size(), DataSize.ofBytes(memoryBytes), spilled.size(), (System.nanoTime() - started) / 1_000_000);
+    } catch (RuntimeException e) {
+      log.error("Failed to load the click index, click queries stay on the database", e);
+    }
+  }
+
+  /** Checks readiness before locking, so the scheduler never waits out the initial load. */
+  @Scheduled(fixedDelayString = "${trimify.click-index.refresh-interval}")
+  public void refresh() {
+    if (!ready) {
+      return;
+    }
+    synchronized (this) {
+      try {
+        catchUp();
+        fillGaps();
+      } catch (RuntimeException e) {
+        log.warn("Click index refresh failed at id {}, retrying", highWaterId(), e);
+      }
+    }
+  }
+
+  /**
+   * Drops the clicks before {@code time}, once the months before it are
+   * dropped from {@code click_event}. Clicks read later are kept whatever
+   * their time, as they are in the table.
+   */
+  public void dropBefore(LocalDateTime time) {
+    // Like refresh, never waits out the initial load; the next call after it drops them
+    if (!ready) {
+      return;
+    }
+    synchronized (this) {
+      long second = toSecond(time);
+      if (second <= droppedBefore) {
+        return;
+      }
+      droppedBefore = second;
+      long dropped = 0;
+      for (Map.Entry<Long, ClickTimeline> entry : timelines.entrySet()) {
+        ClickTimeline timeline = entry.getValue();
+        long before = timeline.sizeInBytes();
+        dropped += timeline.removeBefore(second);
+        memoryBytes += timeline.sizeInBytes() - before;
+        if (timeline.size() == 0) {
+          timelines.remove(entry.getKey());
+          memoryBytes -= timeline.sizeInBytes();
+        }
+      }
+      log.info("Dropped {} clicks before {} from the click index", dropped, time);
+    }
+  }
+
+  /**
+   * @return the clicks on the link in {@code [from, to]}, or {@code null} if
+   *     the link has to be queried in the database.
+   */
+  public Long count(long urlMappingId, LocalDateTime from, LocalDateTime to) {
+    ClickTimeline timeline = timeline(urlMappingId);
+    if (timeline == null) {
+      return spilledOrNotReady(urlMappingId) ? null : 0L;
+    }
+    return timeline.count(toSecond(from), toSecond(to));
+  }
+
+  /**
+   * @return the clicks on the link per {@code bucket}, the first starting at
+   *     {@code from} and the last containing {@code to}, or {@code null} if
+   *     the link has to be queried in the database.
+   */
+  public long[] histogram(long urlMappingId, LocalDateTime from, LocalDateTime to, Duration bucket) {
+    ClickTimeline timeline = timeline(urlMappingId);
+    if (timeline == null && spilledOrNotReady(urlMappingId)) {
+      return null;
+    }
+    long start = toSecond(from);
+    long end = toSecond(to);
+    long bucketSeconds = bucket.toSeconds();
+    long[] counts = new long[Math.toIntExact((end - start) / bucketSeconds + 1)];
+    if (timeline != null) {
+      timeline.histogram(start, end, bucketSeconds, counts);
+    }
+    return counts;
+  }
+
+  private ClickTimeline timeline(long urlMappingId) {
+    if (!ready) {
+      return null;
+    }
+    ClickTimeline timeline = timelines.get(urlMappingId);
+    if (timeline != null) {
+      timeline.touch(toSecond(LocalDateTime.now()));
+      hits.increment();
+    }
+    return timeline;
+  }
+
+  /** Also counts the query: a link neither indexed nor spilled has no clicks. */
+  private boolean spilledOrNotReady(long urlMappingId) {
+    if (!ready || spilled.contains(urlMappingId)) {
+      misses.increment();
+      return true;
+    }
+    hits.increment();
+    return false;
+  }
+
+  /** Reads every click above the high-water mark. */
+  private void catchUp() {
+    int rows;
+    do {
+      rows = jdbcTemplate.query(SELECT_PAGE, (ResultSetExtractor<Integer>) this::addPage, highWaterId(), PAGE_SIZE);
+      notifyListeners();
+      evictIfOverBudget();
+    } while (rows == PAGE_SIZE);
+    lastRefreshMillis = System.currentTimeMillis();
+  }
+
+  private long highWaterId() {
+    return gaps != null ? gaps.highWaterId() : 0;
+  }
+
+  private int addPage(ResultSet rs) throws SQLException {
+    int rows = 0;
+    long now = System.currentTimeMillis();
+    while (rs.next()) {
+      long id = rs.getLong("id");
+      if (gaps == null) {
+        gaps = new IdGaps(id - 1, MAX_GAP_IDS, GAP_TIMEOUT, RECENT_GAP, LATE_GAP_INTERVAL);
+      }
+      gaps.advance(id, now);
+      add(rs);
+      rows++;
+    }
+    return rows;
+  }
+
+  /**
+   * Re-reads ids skipped by the tail: the ones missed within the last minute
+   * on every refresh, older ones once a minute until they time out.
+   */
+  private void fillGaps() {
+    if (gaps == null) {
+      return;
+    }
+    List<Long> ids = gaps.pending(Integer.MAX_VALUE, System.currentTimeMillis());
+    for (int from = 0; from < ids.size(); from += GAP_IDS_PER_QUERY) {
+      readGaps(ids.subList(from, Math.min(ids.size(), from + GAP_IDS_PER_QUERY)));
+    }
+    notifyListeners();
+  }
+
+  private void readGaps(List<Long> ids) {
+    String sql = String.format(SELECT_IDS, String.join(",", Collections.nCopies(ids.size(), "?")));
+    jdbcTemplate.query(sql, rs -> {
+      if (gaps.found(rs.getLong("id"))) {
+        add(rs);
+      }
+    }, ids.toArray());
+  }
+
+  private void add(ResultSet rs) throws SQLException {
+    long urlMappingId = rs.getLong("url_mapping_id");
+    Timestamp clickDate = rs.getTimestamp("click_date");
+    if (!listeners.isEmpty()) {
+      tailed.add(new ClickRecord(urlMappingId, rs.getLong("user_id"), clickDate.getTime(), 0));
+    }
+    if (spilled.contains(urlMappingId)) {
+      return;
+    }
+    // Only this thread adds timelines
+    ClickTimeline timeline = timelines.get(urlMappingId);
+    long before = 0;
+    if (timeline == null) {
+      timeline = new ClickTimeline();
+      timelines.put(urlMappingId, timeline);
+    } else {
+      before = timeline.sizeInBytes();
+    }
+    timeline.add(toSecond(clickDate.toLocalDateTime()));
+    memoryBytes += timeline.sizeInBytes() - before;
+  }
+
+  private void notifyListeners() {
+    if (tailed.isEmpty()) {
+      return;
+    }
+    List<ClickRecord> clicks = tailed;
+    tailed = new ArrayList<>();
+    for (ClickTailListener listener : listeners) {
+      try {
+        listener.onClicks(clicks);
+      } catch (RuntimeException e) {
+        log.warn("Click tail listener {} failed on {} clicks", listener.getClass().getSimpleName(), clicks.size(), e);
+      }
+    }
+  }
+
+  private void evictIfOverBudget() {
+    if (memoryBytes <= memoryBudget) {
+      return;
+    }
+    List<Map.Entry<Long, ClickTimeline>> coldestFirst = new ArrayList<>(timelines.entrySet());
+    coldestFirst.sort(Comparator.comparingLong(entry -> entry.getValue().getLastUsed()));
+    long target = (long) (memoryBudget * EVICT_TO);
+    for (Map.Entry<Long, ClickTimeline> entry : coldestFirst) {
+      if (memoryBytes <= target) {
+        break;
+      }
+      // Spilled first, so a concurrent query never sees the link as clickless
+      spilled.add(entry.getKey());
+      timelines.remove(entry.getKey());
+      memoryBytes -= entry.getValue().sizeInBytes();
+    }
+    log.info("Click index over its {} budget, {} links now answered from the database",
+        DataSize.ofBytes(memoryBudget), spilled.size());
+  }
+
+  /** Seconds of local time, the same clock {@code click_date} is written in. */
+  private static long toSecond(LocalDateTime time) {
+    return time.toEpochSecond(ZoneOffset.UTC);
+  }
+
+  public boolean isReady() {
+    return ready;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    if (!enabled) {
+      return;
+    }
+    Gauge.builder("trimify.click.index.links", timelines, Map::size)
+        .description("Links whose clicks are held by the click index")
+        .register(registry);
+    Gauge.builder("trimify.click.index.spilled", spilled, Set::size)
+        .description("Links dropped from the click index to stay within its memory budget")
+        .register(registry);
+    Gauge.builder("trimify.click.index.memory", this, index -> index.memoryBytes)
+        .description("Memory held by the click index")
+        .baseUnit("bytes")
+        .register(registry);
+    Gauge.builder("trimify.click.index.staleness", this,
+            index -> index.ready ? (System.currentTimeMillis() - index.lastRefreshMillis) / 1000.0 : 0)
+        .description("Seconds since the click index last caught up with the table")
+        .baseUnit("seconds")
+        .register(registry);
+    FunctionCounter.builder("trimify.click.index.queries", hits, LongAdder::sum)
+        .description("Click queries answered by the click index or the database")
+        .tag("result", "hit")
+        .register(registry);
+    FunctionCounter.builder("trimify.click.index.queries", misses, LongAdder::sum)
+        .description("Click queries answered by the click index or the database")
+        .tag("result", "miss")
+        .register(registry);
+  }
+}
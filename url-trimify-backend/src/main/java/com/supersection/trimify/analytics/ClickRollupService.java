@@ -0,0 +1,213 @@
+package com.supersection.trimify.analytics;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.supersection.trimify.click.ClickRecord;
+import com.supersection.trimify.model.DailyLinkClicks;
+import com.supersection.trimify.model.DailyUserClicks;
+import com.supersection.trimify.repository.ClickEventRepository;
+import com.supersection.trimify.repository.DailyLinkClicksRepository;
+import com.supersection.trimify.repository.DailyUserClicksRepository;
+
+/**
+ * Maintains per-link and per-user daily click counts so analytics are answered
+ * in time proportional to the number of days rather than clicks.
+ *
+ * <p>Rollups are updated incrementally in the same transaction that inserts a
+ * batch of {@code click_event} rows. A backfill recomputes whole past days from
+ * {@code click_event}; it runs on startup for history that predates the
+ * rollups, and nightly for the previous day to absorb late or replayed clicks.
+ * Recomputing a day replaces its rollups, so the backfill is idempotent.
+ */
+@Service
+public class ClickRollupService {
+
+  private static final Logger log = LoggerFactory.getLogger(ClickRollupService.class);
+
+  private static final String CHECKPOINT = "daily_clicks";
+
+  private static final String UPSERT_LINK_CLICKS =
+      "INSERT INTO daily_link_clicks (url_mapping_id, click_day, clicks) VALUES (?, ?, ?) "
+          + "ON DUPLICATE KEY UPDATE clicks = clicks + VALUES(clicks)";
+
+  private static final String UPSERT_USER_CLICKS =
+      "INSERT INTO daily_user_clicks (user_id, click_day, clicks) VALUES (?, ?, ?) "
+          + "ON DUPLICATE KEY UPDATE clicks = clicks + VALUES(clicks)";
+
+  private static final String RECOMPUTE_LINK_CLICKS =
+      "INSERT INTO daily_link_clicks (url_mapping_id, click_day, clicks) "
+          + "SELECT url_mapping_id, ?, COUNT(*) FROM click_event "
+          + "WHERE click_date >= ? AND click_date < ? GROUP BY url_mapping_id";
+
+  private static final String RECOMPUTE_USER_CLICKS =
+      "INSERT INTO daily_user_clicks (user_id, click_day, clicks) "
+          + "SELECT m.user_id, ?, COUNT(*) FROM click_event c JOIN url_mapping m ON m.id = c.url_mapping_id "
+          + "WHERE c.click_date >= ? AND c.click_date < ? GROUP BY m.user_id";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final DailyLinkClicksRepository dailyLinkClicksRepository;
+  private final DailyUserClicksRepository dailyUserClicksRepository;
+  private final ClickEventRepository clickEventRepository;
+  private final boolean backfillOnStartup;
+
+  public ClickRollupService(
+      JdbcTemplate jdbcTemplate,
+      TransactionTemplate transactionTemplate,
+      DailyLinkClicksRepository dailyLinkClicksRepository,
+      DailyUserClicksRepository dailyUserClicksRepository,
+      ClickEventRepository clickEventRepository,
+      @Value("${trimify.rollups.backfill-on-startup}") boolean backfillOnStartup
+  ) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = transactionTemplate;
+    this.dailyLinkClicksRepository = dailyLinkClicksRepository;
+    this.dailyUserClicksRepository = dailyUserClicksRepository;
+    this.clickEventRepository = clickEventRepository;
+    this.backfillOnStartup = backfillOnStartup;
+  }
+
+  /**
+   * Adds a batch of clicks to the rollups. Must run in the transaction that
+   * inserts the corresponding {@code click_event} rows.
+   */
+  public void apply(List<ClickRecord> clicks) {
+    // Sorted so concurrent writers always lock rollup rows in the same order
+    Map<DailyLinkClicks.Key, Long> linkClicks = new TreeMap<>(Comparator
+        .comparing(DailyLinkClicks.Key::getUrlMappingId).thenComparing(DailyLinkClicks.Key::getClickDay));
+    Map<DailyUserClicks.Key, Long> userClicks = new TreeMap<>(Comparator
+        .comparing(DailyUserClicks.Key::getUserId).thenComparing(DailyUserClicks.Key::getClickDay));
+
+    for (ClickRecord click : clicks) {
+      LocalDate day = click.clickDate().toLocalDate();
+      linkClicks.merge(new DailyLinkClicks.Key(click.urlMappingId(), day), 1L, Long::sum);
+      userClicks.merge(new DailyUserClicks.Key(click.userId(), day), 1L, Long::sum);
+    }
+
+    List<Object[]> linkRows = new ArrayList<>(linkClicks.size());
+    linkClicks.forEach((key, count) ->
+        linkRows.add(new Object[] { key.getUrlMappingId(), Date.valueOf(key.getClickDay()), count }));
+    List<Object[]> userRows = new ArrayList<>(userClicks.size());
+    userClicks.forEach((key, count) ->
+        userRows.add(new Object[] { key.getUserId(), Date.valueOf(key.getClickDay()), count }));
+
+    jdbcTemplate.batchUpdate(UPSERT_LINK_CLICKS, linkRows);
+    jdbcTemplate.batchUpdate(UPSERT_USER_CLICKS, userRows);
+  }
+
+  /**
+   * Clicks per day on one link, for days in {@code [startDay, endDay]} with at
+   * least one click.
+   */
+  public Map<LocalDate, Long> getLinkClicksByDay(long urlMappingId, LocalDate startDay, LocalDate endDay) {
+    Map<LocalDate, Long> clicksByDay = new TreeMap<>();
+    if (startDay.isAfter(endDay)) {
+      return clicksByDay;
+    }
+    dailyLinkClicksRepository.findByUrlMappingIdAndClickDayBetweenOrderByClickDay(urlMappingId, startDay, endDay)
+        .forEach(rollup -> clicksByDay.put(rollup.getClickDay(), rollup.getClicks()));
+    return clicksByDay;
+  }
+
+  /**
+   * Clicks per day on all links of one user, for days in
+   * {@code [startDay, endDay]} with at least one click.
+   */
+  public Map<LocalDate, Long> getUserClicksByDay(long userId, LocalDate startDay, LocalDate endDay) {
+    Map<LocalDate, Long> clicksByDay = new TreeMap<>();
+    dailyUserClicksRepository.findByUserIdAndClickDayBetweenOrderByClickDay(userId, startDay, endDay)
+        .forEach(rollup -> clicksByDay.put(rollup.getClickDay(), rollup.getClicks()));
+    return clicksByDay;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void backfillOnStartup() {
+    if (backfillOnStartup) {
+      Thread backfill = new Thread(this::backfillPending, "rollup-backfill");
+      backfill.setDaemon(true);
+      backfill.start();
+    }
+  }
+
+  @Scheduled(cron = "${trimify.rollups.reconcile-cron}")
+  public void reconcile() {
+    backfillPending();
+  }
+
+  /**
+   * Recomputes every day after the checkpoint up to and including yesterday,
+   * advancing the checkpoint one day at a time so an interrupted run resumes
+   * where it stopped.
+   */
+  public synchronized void backfillPending() {
+    LocalDate yesterday = LocalDate.now().minusDays(1);
+    LocalDate day = nextDayToBackfill();
+    if (day == null || day.isAfter(yesterday)) {
+      return;
+    }
+
+    log.info("Backfilling click rollups from {} to {}", day, yesterday);
+    for (; !day.isAfter(yesterday); day = day.plusDays(1)) {
+      recomputeDay(day);
+    }
+    log.info("Click rollups complete through {}", yesterday);
+  }
+
+  private LocalDate nextDayToBackfill() {
+    LocalDate completedThrough = getCompletedThrough();
+    if (completedThrough != null) {
+      return completedThrough.plusDays(1);
+    }
+    LocalDateTime earliest = clickEventRepository.findEarliestClickDate();
+    return earliest != null ? earliest.toLocalDate() : null;
+  }
+
+  /**
+   * @return the last day the backfill has recomputed from {@code click_event},
+   *     or {@code null} before the first backfill. Later changes to earlier
+   *     days no longer reach the rollups.
+   */
+  public LocalDate getCompletedThrough() {
+    List<LocalDate> completedThrough = jdbcTemplate.queryForList(
+        "SELECT completed_through FROM rollup_checkpoint WHERE name = ?", LocalDate.class, CHECKPOINT);
+    return completedThrough.isEmpty() ? null : completedThrough.get(0);
+  }
+
+  private void recomputeDay(LocalDate day) {
+    Date clickDay = Date.valueOf(day);
+    Timestamp from = Timestamp.valueOf(day.atStartOfDay());
+    Timestamp to = Timestamp.valueOf(day.plusDays(1).atStartOfDay());
+
+    transactionTemplate.executeWithoutResult(status -> {
+      jdbcTemplate.update("DELETE FROM daily_link_clicks WHERE click_day = ?", clickDay);
+      jdbcTemplate.update(RECOMPUTE_LINK_CLICKS, clickDay, from, to);
+      jdbcTemplate.update("DELETE FROM daily_user_clicks WHERE click_day = ?", clickDay);
+      jdbcTemplate.update(RECOMPUTE_USER_CLICKS, clickDay, from, to);
+
+      int updated = jdbcTemplate.update(
+          "UPDATE rollup_checkpoint SET completed_through = ? WHERE name = ?", clickDay, CHECKPOINT);
+      if (updated == 0) {
+        jdbcTemplate.update(
+            "INSERT INTO rollup_checkpoint (name, completed_through) VALUES (?, ?)", CHECKPOINT, clickDay);
+      }
+    });
+  }
+}
@@ -0,0 +1,18 @@
+package com.supersection.trimify.analytics;
+
+import java.util.List;
+
+import com.supersection.trimify.click.ClickRecord;
+
+/**
+ * In-memory consumer of the clicks committed to {@code click_event} by any
+ * node, notified by {@link ClickIndex} from its tail, including the history
+ * read on startup. Clicks arrive roughly in id order, late ones up to an hour
+ * late, so implementations place them by {@link ClickRecord#clickedAt()} and
+ * skip the ones they have no use for. {@link ClickRecord#visitor()} is not
+ * stored and always 0.
+ */
+public interface ClickTailListener {
+
+  void onClicks(List<ClickRecord> clicks);
+}
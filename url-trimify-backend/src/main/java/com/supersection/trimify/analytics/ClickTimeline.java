@@ -0,0 +1,306 @@
+package com.supersection.trimify.analytics;
+
+import java.util.Arrays;
+
+/**
+ * The click times of one link as a sorted column of seconds, split into
+ * chunks of about {@value #CHUNK_SIZE} clicks.
+ *
+ * <p>Each chunk stores its clicks as offsets from its first second: 16 bits
+ * per click once the chunk is sealed if it spans less than about 18 hours,
+ * which any link with a few thousand clicks a day does, and 32 bits
+ * otherwise. Chunks are ordered and do not overlap, so a range is counted
+ * with two binary searches per chunk it touches. Clicks normally arrive in
+ * order and are appended to the last chunk; a late click is inserted into
+ * the chunk covering it.
+ *
+ * <p>Thread-safe: one writer and any number of readers share the lock.
+ */
+final class ClickTimeline {
+
+  static final int CHUNK_SIZE = 4096;
+
+  private static final int NARROW_SPAN = 1 << 16;
+  private static final long OBJECT_BYTES = 48;
+
+  private Chunk[] chunks = new Chunk[1];
+  private int chunkCount;
+  private long size;
+  private long bytes = OBJECT_BYTES;
+
+  /** Most recent click or query, in the same seconds as the clicks. */
+  private volatile long lastUsed;
+
+  synchronized void add(long second) {
+    if (chunkCount == 0) {
+      appendChunk(new Chunk(second));
+    } else {
+      int index = chunkFor(second);
+      Chunk chunk = chunks[index];
+      boolean last = index == chunkCount - 1;
+      if (last && chunk.size >= CHUNK_SIZE && second >= chunk.max()) {
+        bytes -= chunk.sizeInBytes();
+        chunk.seal();
+        bytes += chunk.sizeInBytes();
+        appendChunk(new Chunk(second));
+      } else {
+        bytes -= chunk.sizeInBytes();
+        chunk.insert(second);
+        if (chunk.size >= 2 * CHUNK_SIZE) {
+          split(index);
+        } else {
+          if (!last) {
+            chunk.seal();
+          }
+          bytes += chunk.sizeInBytes();
+        }
+      }
+    }
+    size++;
+    touch(second);
+  }
+
+  /** @return the clicks in {@code [from, to]}. */
+  synchronized long count(long from, long to) {
+    long count = 0;
+    for (int i = firstChunkReaching(from); i < chunkCount && chunks[i].base <= to; i++) {
+      Chunk chunk = chunks[i];
+      count += chunk.lowerBound(to + 1, 0, chunk.size) - chunk.lowerBound(from, 0, chunk.size);
+    }
+    return count;
+  }
+
+  /**
+   * Adds the clicks in {@code [from, to]} to {@code counts}, bucket {@code i}
+   * covering {@code bucketSeconds} from {@code from + i * bucketSeconds}.
+   * Each non-empty bucket of a chunk costs one binary search, however many
+   * clicks it holds.
+   */
+  synchronized void histogram(long from, long to, long bucketSeconds, long[] counts) {
+    for (int i = firstChunkReaching(from); i < chunkCount && chunks[i].base <= to; i++) {
+      Chunk chunk = chunks[i];
+      int end = chunk.lowerBound(to + 1, 0, chunk.size);
+      int position = chunk.lowerBound(from, 0, end);
+      while (position < end) {
+        long bucket = (chunk.get(position) - from) / bucketSeconds;
+        int next = chunk.lowerBound(from + (bucket + 1) * bucketSeconds, position, end);
+        counts[(int) bucket] += next - position;
+        position = next;
+      }
+    }
+  }
+
+  /** Drops the clicks before {@code second}, returning how many. */
+  synchronized long removeBefore(long second) {
+    int first = firstChunkReaching(second);
+    long removed = 0;
+    for (int i = 0; i < first; i++) {
+      removed += chunks[i].size;
+      bytes -= chunks[i].sizeInBytes();
+    }
+    System.arraycopy(chunks, first, chunks, 0, chunkCount - first);
+    Arrays.fill(chunks, chunkCount - first, chunkCount, null);
+    chunkCount -= first;
+
+    if (chunkCount > 0) {
+      Chunk chunk = chunks[0];
+      int at = chunk.lowerBound(second, 0, chunk.size);
+      if (at > 0) {
+        bytes -= chunk.sizeInBytes();
+        Chunk rest = chunk.splitOff(at);
+        if (chunkCount > 1) {
+          rest.seal();
+        }
+        chunks[0] = rest;
+        bytes += rest.sizeInBytes();
+        removed += at;
+      }
+    }
+    size -= removed;
+    return removed;
+  }
+
+  synchronized long size() {
+    return size;
+  }
+
+  synchronized long sizeInBytes() {
+    return bytes;
+  }
+
+  long getLastUsed() {
+    return lastUsed;
+  }
+
+  void touch(long second) {
+    if (second > lastUsed) {
+      lastUsed = second;
+    }
+  }
+
+  /** @return the last chunk starting at or before {@code second}, or the first chunk. */
+  private int chunkFor(long second) {
+    int low = 0;
+    int high = chunkCount - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (chunks[mid].base <= second) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+
+  /** @return the first chunk ending at or after {@code second}, possibly {@code chunkCount}. */
+  private int firstChunkReaching(long second) {
+    int low = 0;
+    int high = chunkCount;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (chunks[mid].max() < second) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private void appendChunk(Chunk chunk) {
+    if (chunkCount == chunks.length) {
+      bytes += 4L * chunks.length;
+      chunks = Arrays.copyOf(chunks, chunks.length * 2);
+    }
+    chunks[chunkCount++] = chunk;
+    bytes += chunk.sizeInBytes();
+  }
+
+  private void split(int index) {
+    Chunk chunk = chunks[index];
+    Chunk right = chunk.splitOff(chunk.size / 2);
+    chunk.seal();
+    if (index < chunkCount - 1) {
+      right.seal();
+    }
+    if (chunkCount == chunks.length) {
+      bytes += 4L * chunks.length;
+      chunks = Arrays.copyOf(chunks, chunks.length * 2);
+    }
+    System.arraycopy(chunks, index + 1, chunks, index + 2, chunkCount - index - 1);
+    chunks[index + 1] = right;
+    chunkCount++;
+    bytes += chunk.sizeInBytes() + right.sizeInBytes();
+  }
+
+  /**
+   * Sorted seconds stored as offsets from {@link #base}, the smallest. Open
+   * chunks use growable 32-bit offsets; sealing narrows them when possible.
+   */
+  private static final class Chunk {
+
+    private static final long OBJECT_BYTES = 40;
+
+    long base;
+    int size;
+    int[] wide;
+    char[] narrow;
+
+    Chunk(long first) {
+      this.base = first;
+      this.wide = new int[16];
+      this.size = 1;
+    }
+
+    private Chunk(long base, int[] wide, int size) {
+      this.base = base;
+      this.wide = wide;
+      this.size = size;
+    }
+
+    long get(int index) {
+      return base + (narrow != null ? narrow[index] : wide[index]);
+    }
+
+    long max() {
+      return get(size - 1);
+    }
+
+    /** @return the first index in {@code [from, to)} holding at least {@code second}, or {@code to}. */
+    int lowerBound(long second, int from, int to) {
+      int low = from;
+      int high = to;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (get(mid) < second) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+
+    void insert(long second) {
+      widen(size + 1);
+      if (second < base) {
+        int shift = Math.toIntExact(base - second);
+        for (int i = 0; i < size; i++) {
+          wide[i] += shift;
+        }
+        base = second;
+      }
+      // After any equal seconds, so in-order clicks never shift anything
+      int at = lowerBound(second + 1, 0, size);
+      System.arraycopy(wide, at, wide, at + 1, size - at);
+      wide[at] = Math.toIntExact(second - base);
+      size++;
+    }
+
+    /** Moves the clicks from {@code index} on into a new chunk. */
+    Chunk splitOff(int index) {
+      widen(size);
+      long rightBase = get(index);
+      int[] right = new int[Math.max(16, size - index)];
+      for (int i = index; i < size; i++) {
+        right[i - index] = (int) (base + wide[i] - rightBase);
+      }
+      Chunk chunk = new Chunk(rightBase, right, size - index);
+      size = index;
+      return chunk;
+    }
+
+    /** Trims the offsets and narrows them to 16 bits if the span allows. */
+    void seal() {
+      if (narrow != null) {
+        return;
+      }
+      if (max() - base < NARROW_SPAN) {
+        narrow = new char[size];
+        for (int i = 0; i < size; i++) {
+          narrow[i] = (char) wide[i];
+        }
+        wide = null;
+      } else if (wide.length != size) {
+        wide = Arrays.copyOf(wide, size);
+      }
+    }
+
+    long sizeInBytes() {
+      return OBJECT_BYTES + (narrow != null ? 2L * narrow.length : 4L * wide.length);
+    }
+
+    private void widen(int capacity) {
+      if (narrow != null) {
+        wide = new int[Math.max(capacity, size)];
+        for (int i = 0; i < size; i++) {
+          wide[i] = narrow[i];
+        }
+        narrow = null;
+      } else if (wide.length < capacity) {
+        wide = Arrays.copyOf(wide, Math.max(capacity, wide.length * 2));
+      }
+    }
+  }
+}
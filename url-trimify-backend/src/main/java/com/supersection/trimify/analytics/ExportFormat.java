@@ -0,0 +1,33 @@
+package com.supersection.trimify.analytics;
+
+import java.util.Locale;
+
+public enum ExportFormat {
+
+  NDJSON("application/x-ndjson", "ndjson"),
+  CSV("text/csv", "csv");
+
+  private final String contentType;
+  private final String extension;
+
+  ExportFormat(String contentType, String extension) {
+    this.contentType = contentType;
+    this.extension = extension;
+  }
+
+  public String getContentType() {
+    return contentType;
+  }
+
+  public String getExtension() {
+    return extension;
+  }
+
+  public static ExportFormat from(String value) {
+    try {
+      return valueOf(value.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unsupported export format: " + value);
+    }
+  }
+}
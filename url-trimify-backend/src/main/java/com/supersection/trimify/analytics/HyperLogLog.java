@@ -0,0 +1,165 @@
+package com.supersection.trimify.analytics;
+
+/**
+ * HyperLogLog sketch of distinct 64-bit hashes with 2^14 registers, for a
+ * standard error of about 0.8%.
+ *
+ * <p>Inputs must already be uniformly distributed hashes, such as visitor
+ * fingerprints. The estimate uses Ertl's improved estimator, which stays
+ * unbiased from empty through large cardinalities without correction tables.
+ *
+ * <p>Serialized sketches are sparse, 3 bytes per non-empty register, until
+ * that exceeds the 12 KB of the dense form with 6-bit registers. Most
+ * link-days have few visitors and take a few hundred bytes.
+ */
+public final class HyperLogLog {
+
+  private static final int P = 14;
+  private static final int M = 1 << P;
+  /** Largest register value: the rank of a hash whose low 64 - P bits are all zero. */
+  private static final int Q = 64 - P;
+
+  private static final byte SPARSE = 1;
+  private static final byte DENSE = 2;
+  private static final int HEADER_BYTES = 2;
+  private static final int DENSE_BYTES = M * 6 / 8;
+
+  /** Upper bound on the serialized size. */
+  public static final int MAX_BYTES = HEADER_BYTES + DENSE_BYTES;
+
+  private static final double ALPHA_INF = 0.5 / Math.log(2);
+
+  private final byte[] registers = new byte[M];
+
+  /**
+   * @return whether the sketch changed, i.e. whether it may need saving.
+   */
+  public boolean add(long hash) {
+    int index = (int) (hash >>> Q);
+    byte rank = (byte) (Math.min(Long.numberOfLeadingZeros(hash << P), Q) + 1);
+    if (registers[index] < rank) {
+      registers[index] = rank;
+      return true;
+    }
+    return false;
+  }
+
+  /** Folds {@code other} into this sketch, giving the sketch of the union. */
+  public void merge(HyperLogLog other) {
+    for (int i = 0; i < M; i++) {
+      if (registers[i] < other.registers[i]) {
+        registers[i] = other.registers[i];
+      }
+    }
+  }
+
+  public long estimate() {
+    int[] histogram = new int[Q + 2];
+    for (byte register : registers) {
+      histogram[register]++;
+    }
+    double z = M * tau(1 - (double) histogram[Q + 1] / M);
+    for (int k = Q; k >= 1; k--) {
+      z = 0.5 * (z + histogram[k]);
+    }
+    z += M * sigma((double) histogram[0] / M);
+    return Math.round(ALPHA_INF * M * M / z);
+  }
+
+  public byte[] toBytes() {
+    int used = 0;
+    for (byte register : registers) {
+      if (register != 0) {
+        used++;
+      }
+    }
+
+    if (3 * used < DENSE_BYTES) {
+      byte[] bytes = new byte[HEADER_BYTES + 3 * used];
+      bytes[0] = SPARSE;
+      bytes[1] = P;
+      int offset = HEADER_BYTES;
+      for (int i = 0; i < M; i++) {
+        if (registers[i] != 0) {
+          bytes[offset++] = (byte) (i >>> 8);
+          bytes[offset++] = (byte) i;
+          bytes[offset++] = registers[i];
+        }
+      }
+      return bytes;
+    }
+
+    // Four 6-bit registers per three bytes
+    byte[] bytes = new byte[MAX_BYTES];
+    bytes[0] = DENSE;
+    bytes[1] = P;
+    for (int i = 0, offset = HEADER_BYTES; i < M; i += 4, offset += 3) {
+      int packed = registers[i] << 18 | registers[i + 1] << 12 | registers[i + 2] << 6 | registers[i + 3];
+      bytes[offset] = (byte) (packed >>> 16);
+      bytes[offset + 1] = (byte) (packed >>> 8);
+      bytes[offset + 2] = (byte) packed;
+    }
+    return bytes;
+  }
+
+  /**
+   * @throws IllegalArgumentException if the bytes are not a sketch written by
+   *     {@link #toBytes()}.
+   */
+  public static HyperLogLog fromBytes(byte[] bytes) {
+    if (bytes.length < HEADER_BYTES || bytes[1] != P) {
+      throw new IllegalArgumentException("Not a HyperLogLog sketch with precision " + P);
+    }
+    HyperLogLog sketch = new HyperLogLog();
+    byte[] registers = sketch.registers;
+    if (bytes[0] == SPARSE && (bytes.length - HEADER_BYTES) % 3 == 0) {
+      for (int offset = HEADER_BYTES; offset < bytes.length; offset += 3) {
+        int index = (bytes[offset] & 0xFF) << 8 | (bytes[offset + 1] & 0xFF);
+        registers[index & (M - 1)] = (byte) Math.min(bytes[offset + 2], Q + 1);
+      }
+    } else if (bytes[0] == DENSE && bytes.length == MAX_BYTES) {
+      for (int i = 0, offset = HEADER_BYTES; i < M; i += 4, offset += 3) {
+        int packed = (bytes[offset] & 0xFF) << 16 | (bytes[offset + 1] & 0xFF) << 8 | (bytes[offset + 2] & 0xFF);
+        registers[i] = (byte) (packed >>> 18 & 0x3F);
+        registers[i + 1] = (byte) (packed >>> 12 & 0x3F);
+        registers[i + 2] = (byte) (packed >>> 6 & 0x3F);
+        registers[i + 3] = (byte) (packed & 0x3F);
+      }
+    } else {
+      throw new IllegalArgumentException("Malformed HyperLogLog sketch of " + bytes.length + " bytes");
+    }
+    return sketch;
+  }
+
+  private static double sigma(double x) {
+    if (x == 1) {
+      return Double.POSITIVE_INFINITY;
+    }
+    double y = 1;
+    double z = x;
+    double previous;
+    do {
+      x *= x;
+      previous = z;
+      z += x * y;
+      y += y;
+    } while (z != previous);
+    return z;
+  }
+
+  private static double tau(double x) {
+    if (x == 0 || x == 1) {
+      return 0;
+    }
+    double y = 1;
+    double z = 1 - x;
+    double previous;
+    do {
+      x = Math.sqrt(x);
+      previous = z;
+      y *= 0.5;
+      z -= (1 - x) * (1 - x) * y;
+    } while (z != previous);
+    return z / 3;
+  }
+}
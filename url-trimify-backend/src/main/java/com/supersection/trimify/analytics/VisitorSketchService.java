@@ -0,0 +1,259 @@
+package com.supersection.trimify.analytics;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.supersection.trimify.click.ClickRecord;
+import com.supersection.trimify.dto.UniqueVisitorsDTO;
+import com.supersection.trimify.repository.DailyLinkVisitorsRepository;
+import com.supersection.trimify.repository.DailyUserVisitorsRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Maintains {@link HyperLogLog} sketches of the visitors per link and per user
+ * per day, so unique visitors over any range of days are estimated by merging
+ * one sketch per day.
+ *
+ * <p>Visitors of written clicks are collected in memory and merged into the
+ * stored sketches every flush interval, off the click write path and outside
+ * its transaction. A sketch row is first created with {@code INSERT IGNORE},
+ * so concurrent first writes never race on a missing row; existing rows are
+ * then locked in key order, merged and written back only if a register
+ * changed, which for repeat visitors it mostly does not. Adding a visitor
+ * twice is a no-op, so a flush that fails is simply retried with its visitors
+ * and replayed batches need no special handling. Visitors are not kept in
+ * {@code click_event}, so unlike the rollups sketches cannot be recomputed,
+ * and visitors still in memory when a node crashes are lost.
+ */
+@Service
+public class VisitorSketchService {
+
+  private static final Logger log = LoggerFactory.getLogger(VisitorSketchService.class);
+
+  /** Statements for one sketch table. */
+  private record Table(String name, String insertIgnore, String selectForUpdate, String update) {
+
+    Table(String name, String idColumn) {
+      this(name,
+          "INSERT IGNORE INTO " + name + " (" + idColumn + ", click_day, sketch) VALUES (?, ?, ?)",
+          "SELECT sketch FROM " + name + " WHERE " + idColumn + " = ? AND click_day = ? FOR UPDATE",
+          "UPDATE " + name + " SET sketch = ? WHERE " + idColumn + " = ? AND click_day = ?");
+    }
+  }
+
+  private static final Table LINK_SKETCHES = new Table("daily_link_visitors", "url_mapping_id");
+  private static final Table USER_SKETCHES = new Table("daily_user_visitors", "user_id");
+
+  /** Existing sketches merged per transaction, bounding how long row locks are held. */
+  private static final int MERGE_CHUNK = 100;
+
+  /** Visitors held between flushes, 8 bytes each; beyond it new visitors are dropped. */
+  private static final int MAX_PENDING = 1_000_000;
+
+  /** A link or user id and a day. */
+  private record Key(long id, LocalDate day) {
+  }
+
+  // Sorted so concurrent writers always lock sketch rows in the same order
+  private static final Comparator<Key> KEY_ORDER = Comparator.comparingLong(Key::id).thenComparing(Key::day);
+
+  /** Visitor hashes of one key, appended to a growing array. */
+  private static final class Visitors {
+
+    long[] hashes = new long[4];
+    int size;
+
+    void add(long hash) {
+      if (size == hashes.length) {
+        hashes = Arrays.copyOf(hashes, size * 2);
+      }
+      hashes[size++] = hash;
+    }
+
+    void addAll(Visitors other) {
+      for (int i = 0; i < other.size; i++) {
+        add(other.hashes[i]);
+      }
+    }
+
+    /** @return whether {@code sketch} changed. */
+    boolean addTo(HyperLogLog sketch) {
+      boolean changed = false;
+      for (int i = 0; i < size; i++) {
+        changed |= sketch.add(hashes[i]);
+      }
+      return changed;
+    }
+  }
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final DailyLinkVisitorsRepository dailyLinkVisitorsRepository;
+  private final DailyUserVisitorsRepository dailyUserVisitorsRepository;
+
+  // Guarded by this
+  private Map<Key, Visitors> pendingLinks = new HashMap<>();
+  private Map<Key, Visitors> pendingUsers = new HashMap<>();
+  private int pending;
+  private long droppedSinceFlush;
+
+  public VisitorSketchService(
+      JdbcTemplate jdbcTemplate,
+      TransactionTemplate transactionTemplate,
+      DailyLinkVisitorsRepository dailyLinkVisitorsRepository,
+      DailyUserVisitorsRepository dailyUserVisitorsRepository
+  ) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = transactionTemplate;
+    this.dailyLinkVisitorsRepository = dailyLinkVisitorsRepository;
+    this.dailyUserVisitorsRepository = dailyUserVisitorsRepository;
+  }
+
+  /** Queues the visitors of a batch of written clicks for the next flush. */
+  public synchronized void add(List<ClickRecord> clicks) {
+    for (int i = 0; i < clicks.size(); i++) {
+      if (pending >= MAX_PENDING) {
+        droppedSinceFlush += clicks.size() - i;
+        return;
+      }
+      ClickRecord click = clicks.get(i);
+      LocalDate day = click.clickDate().toLocalDate();
+      pendingLinks.computeIfAbsent(new Key(click.urlMappingId(), day), key -> new Visitors()).add(click.visitor());
+      pendingUsers.computeIfAbsent(new Key(click.userId(), day), key -> new Visitors()).add(click.visitor());
+      pending++;
+    }
+  }
+
+  /** Merges the queued visitors into the stored sketches. */
+  @PreDestroy
+  @Scheduled(fixedDelayString = "${trimify.visitors.flush-interval}")
+  public void flush() {
+    Map<Key, Visitors> links;
+    Map<Key, Visitors> users;
+    synchronized (this) {
+      if (pending == 0) {
+        return;
+      }
+      if (droppedSinceFlush > 0) {
+        log.warn("Visitor sketches fell behind, dropped the visitors of {} clicks", droppedSinceFlush);
+        droppedSinceFlush = 0;
+      }
+      links = pendingLinks;
+      users = pendingUsers;
+      pendingLinks = new HashMap<>();
+      pendingUsers = new HashMap<>();
+      pending = 0;
+    }
+    try {
+      write(LINK_SKETCHES, links);
+      links = Map.of();
+      write(USER_SKETCHES, users);
+    } catch (RuntimeException e) {
+      log.warn("Failed to flush visitor sketches, retrying on the next flush", e);
+      requeue(links, users);
+    }
+  }
+
+  /** Puts visitors that failed to flush back in front of the ones queued since. */
+  /**
+   * Queues the visitors of a failed flush again, unless they no longer fit.
+   * Every click has one user visitor, so those count the clicks; the link
+   * visitors are empty if they were already written.
+   */
+  private synchronized void requeue(Map<Key, Visitors> links, Map<Key, Visitors> users) {
+    int clicks = 0;
+    for (Visitors visitors : users.values()) {
+      clicks += visitors.size;
+    }
+    if (pending + clicks > MAX_PENDING) {
+      droppedSinceFlush += clicks;
+      return;
+    }
+    links.forEach((key, hashes) -> pendingLinks.computeIfAbsent(key, k -> new Visitors()).addAll(hashes));
+    users.forEach((key, hashes) -> pendingUsers.computeIfAbsent(key, k -> new Visitors()).addAll(hashes));
+    pending += clicks;
+  }
+
+  /**
+   * Creates the sketches that do not exist yet, then locks and merges the
+   * others a chunk at a time, expanding one sketch at a time in memory.
+   */
+  private void write(Table table, Map<Key, Visitors> visitors) {
+    Map<Key, Visitors> sorted = new TreeMap<>(KEY_ORDER);
+    sorted.putAll(visitors);
+
+    List<Key> existing = new ArrayList<>();
+    sorted.forEach((key, hashes) -> {
+      HyperLogLog sketch = new HyperLogLog();
+      hashes.addTo(sketch);
+      // Own statement and transaction: a duplicate only takes a shared lock until it returns
+      if (jdbcTemplate.update(table.insertIgnore(), key.id(), Date.valueOf(key.day()), sketch.toBytes()) == 0) {
+        existing.add(key);
+      }
+    });
+
+    for (int from = 0; from < existing.size(); from += MERGE_CHUNK) {
+      List<Key> chunk = existing.subList(from, Math.min(existing.size(), from + MERGE_CHUNK));
+      transactionTemplate.executeWithoutResult(status -> {
+        List<Object[]> updates = new ArrayList<>();
+        for (Key key : chunk) {
+          Date day = Date.valueOf(key.day());
+          byte[] stored = jdbcTemplate.queryForObject(table.selectForUpdate(), byte[].class, key.id(), day);
+          HyperLogLog sketch = HyperLogLog.fromBytes(stored);
+          if (sorted.get(key).addTo(sketch)) {
+            updates.add(new Object[] { sketch.toBytes(), key.id(), day });
+          }
+        }
+        jdbcTemplate.batchUpdate(table.update(), updates);
+      });
+    }
+  }
+
+  /**
+   * Estimated unique visitors to one link per day, and over all of
+   * {@code [startDay, endDay]}.
+   */
+  public UniqueVisitorsDTO getLinkVisitors(long urlMappingId, LocalDate startDay, LocalDate endDay) {
+    Map<LocalDate, byte[]> sketches = new TreeMap<>();
+    dailyLinkVisitorsRepository.findByUrlMappingIdAndClickDayBetweenOrderByClickDay(urlMappingId, startDay, endDay)
+        .forEach(row -> sketches.put(row.getClickDay(), row.getSketch()));
+    return summarize(sketches);
+  }
+
+  /**
+   * Estimated unique visitors to any link of one user per day, and over all
+   * of {@code [startDay, endDay]}.
+   */
+  public UniqueVisitorsDTO getUserVisitors(long userId, LocalDate startDay, LocalDate endDay) {
+    Map<LocalDate, byte[]> sketches = new TreeMap<>();
+    dailyUserVisitorsRepository.findByUserIdAndClickDayBetweenOrderByClickDay(userId, startDay, endDay)
+        .forEach(row -> sketches.put(row.getClickDay(), row.getSketch()));
+    return summarize(sketches);
+  }
+
+  private static UniqueVisitorsDTO summarize(Map<LocalDate, byte[]> sketches) {
+    Map<LocalDate, Long> byDay = new TreeMap<>();
+    HyperLogLog union = new HyperLogLog();
+    sketches.forEach((day, bytes) -> {
+      HyperLogLog sketch = HyperLogLog.fromBytes(bytes);
+      byDay.put(day, sketch.estimate());
+      union.merge(sketch);
+    });
+    return new UniqueVisitorsDTO(byDay, union.estimate());
+  }
+}
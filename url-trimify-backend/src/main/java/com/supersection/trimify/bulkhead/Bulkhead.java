@@ -0,0 +1,96 @@
+package com.supersection.trimify.bulkhead;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Caps how many requests of one kind run at once. A request that cannot get a
+ * permit within {@code maxWait} is rejected rather than queued, so a burst on
+ * one kind of traffic sheds its own excess instead of tying up the threads
+ * and connections every other kind depends on.
+ */
+public class Bulkhead implements MeterBinder {
+
+  private final String name;
+  private final int maxConcurrent;
+  private final long maxWaitNanos;
+  private final Semaphore permits;
+
+  private final LongAdder rejected = new LongAdder();
+
+  public Bulkhead(String name, int maxConcurrent, Duration maxWait) {
+    if (maxConcurrent < 1) {
+      throw new IllegalArgumentException("Bulkhead " + name + " needs at least one permit: " + maxConcurrent);
+    }
+    this.name = name;
+    this.maxConcurrent = maxConcurrent;
+    this.maxWaitNanos = maxWait.toNanos();
+    this.permits = new Semaphore(maxConcurrent);
+  }
+
+  /**
+   * @return {@code true} if a permit was taken and must be returned with {@link #release()}.
+   */
+  public boolean tryAcquire() {
+    boolean acquired;
+    if (maxWaitNanos == 0) {
+      acquired = permits.tryAcquire();
+    } else {
+      try {
+        acquired = permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        acquired = false;
+      }
+    }
+    if (!acquired) {
+      rejected.increment();
+    }
+    return acquired;
+  }
+
+  public void release() {
+    permits.release();
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getActive() {
+    return maxConcurrent - permits.availablePermits();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("trimify.bulkhead.active", this, Bulkhead::getActive)
+        .description("Requests currently holding a bulkhead permit")
+        .tag("bulkhead", name)
+        .register(registry);
+    Gauge.builder("trimify.bulkhead.max.concurrent", this, bulkhead -> bulkhead.maxConcurrent)
+        .tag("bulkhead", name)
+        .register(registry);
+    FunctionCounter.builder("trimify.bulkhead.rejected", rejected, LongAdder::sum)
+        .description("Requests shed because the bulkhead was saturated")
+        .tag("bulkhead", name)
+        .register(registry);
+  }
+
+  public Map<String, Object> describe() {
+    Map<String, Object> description = new LinkedHashMap<>();
+    description.put("maxConcurrent", maxConcurrent);
+    description.put("maxWaitMillis", TimeUnit.NANOSECONDS.toMillis(maxWaitNanos));
+    description.put("active", getActive());
+    description.put("rejected", rejected.sum());
+    return description;
+  }
+}
@@ -0,0 +1,50 @@
+package com.supersection.trimify.bulkhead;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+
+@Configuration
+public class BulkheadConfig {
+
+  @Bean
+  public Bulkhead redirectBulkhead(
+      @Value("${trimify.bulkheads.redirect.max-concurrent}") int maxConcurrent,
+      @Value("${trimify.bulkheads.redirect.max-wait}") Duration maxWait
+  ) {
+    return new Bulkhead("redirect", maxConcurrent, maxWait);
+  }
+
+  @Bean
+  public Bulkhead crudBulkhead(
+      @Value("${trimify.bulkheads.crud.max-concurrent}") int maxConcurrent,
+      @Value("${trimify.bulkheads.crud.max-wait}") Duration maxWait
+  ) {
+    return new Bulkhead("crud", maxConcurrent, maxWait);
+  }
+
+  @Bean
+  public Bulkhead analyticsBulkhead(
+      @Value("${trimify.bulkheads.analytics.max-concurrent}") int maxConcurrent,
+      @Value("${trimify.bulkheads.analytics.max-wait}") Duration maxWait
+  ) {
+    return new Bulkhead("analytics", maxConcurrent, maxWait);
+  }
+
+  @Bean
+  public FilterRegistrationBean<BulkheadFilter> bulkheadFilter(
+      Bulkhead redirectBulkhead, Bulkhead crudBulkhead, Bulkhead analyticsBulkhead,
+      @Value("${trimify.bulkheads.retry-after}") Duration retryAfter
+  ) {
+    FilterRegistrationBean<BulkheadFilter> registration = new FilterRegistrationBean<>(
+        new BulkheadFilter(redirectBulkhead, crudBulkhead, analyticsBulkhead, retryAfter));
+    // Shed before Spring Security spends time verifying the token of a request that will be rejected
+    registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 10);
+    return registration;
+  }
+}
@@ -0,0 +1,121 @@
+package com.supersection.trimify.bulkhead;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Routes each request to the bulkhead for its kind of traffic and answers
+ * {@code 503} with {@code Retry-After} when that bulkhead is saturated.
+ *
+ * <p>Runs ahead of Spring Security so shed requests cost no token
+ * verification. A request that goes async (streamed exports) keeps its permit
+ * until the response completes, not just until the first dispatch returns.
+ */
+public class BulkheadFilter extends OncePerRequestFilter {
+
+  private static final String API_URLS = "/api/urls/";
+  private static final String ANALYTICS = API_URLS + "analytics/";
+  private static final String TOTAL_CLICKS = API_URLS + "totalClicks";
+  private static final String UNIQUE_VISITORS = API_URLS + "uniqueVisitors";
+  private static final String LIVE = "/live";
+
+  private final Bulkhead redirect;
+  private final Bulkhead crud;
+  private final Bulkhead analytics;
+  private final String retryAfterSeconds;
+
+  public BulkheadFilter(Bulkhead redirect, Bulkhead crud, Bulkhead analytics, Duration retryAfter) {
+    this.redirect = redirect;
+    this.crud = crud;
+    this.analytics = analytics;
+    // Rounded up, so clients never come back before the configured delay
+    this.retryAfterSeconds = Long.toString(Math.max(1, (retryAfter.toMillis() + 999) / 1000));
+  }
+
+  @Override
+  protected void doFilterInternal(
+      HttpServletRequest request, HttpServletResponse response, FilterChain filterChain
+  ) throws ServletException, IOException {
+    Bulkhead bulkhead = route(request);
+    if (bulkhead == null) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+
+    if (!bulkhead.tryAcquire()) {
+      response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+      response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+      return;
+    }
+
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      if (request.isAsyncStarted()) {
+        request.getAsyncContext().addListener(new ReleaseOnComplete(bulkhead));
+      } else {
+        bulkhead.release();
+      }
+    }
+  }
+
+  /**
+   * @return the bulkhead guarding this request, or {@code null} for traffic
+   *     that is not bulkheaded (auth, actuator, stats, live streams).
+   */
+  Bulkhead route(HttpServletRequest request) {
+    String path = request.getRequestURI().substring(request.getContextPath().length());
+    if (path.startsWith(ANALYTICS) && path.endsWith(LIVE)) {
+      // Long-lived but holding no connection; capped by trimify.live.max-subscribers
+      return null;
+    }
+    if (path.startsWith(API_URLS)) {
+      return path.startsWith(ANALYTICS) || path.equals(TOTAL_CLICKS) || path.equals(UNIQUE_VISITORS)
+          ? analytics : crud;
+    }
+    // Redirects are the only single-segment GETs
+    if (HttpMethod.GET.matches(request.getMethod()) && path.length() > 1 && path.indexOf('/', 1) < 0) {
+      return redirect;
+    }
+    return null;
+  }
+
+  private static final class ReleaseOnComplete implements AsyncListener {
+
+    private final Bulkhead bulkhead;
+
+    private ReleaseOnComplete(Bulkhead bulkhead) {
+      this.bulkhead = bulkhead;
+    }
+
+    /** Also fires after a timeout or error, so it is the one place to release. */
+    @Override
+    public void onComplete(AsyncEvent event) {
+      bulkhead.release();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+    }
+  }
+}
@@ -0,0 +1,230 @@
+package com.supersection.trimify.click;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip-compressed columnar file of archived {@code click_event} rows, one per
+ * retired partition.
+ *
+ * <p>Layout inside the gzip stream, big-endian:
+ * <pre>
+ *   header  magic(8) version(4) partition(UTF)
+ *   block   rows(4) ids  linkIds  seconds  micros
+ *   ...
+ *   end     0(4) totalRows(8)
+ * </pre>
+ * Each column of a block is {@code rows} variable-length integers: ids and
+ * click seconds as zig-zag deltas from the previous row, link ids and the
+ * microseconds of each click as they are. Sorted ids and near-sorted times
+ * shrink to a byte or two per row before compression.
+ */
+public final class ClickArchive {
+
+  private static final long MAGIC = 0x5452494D434C4B31L; // "TRIMCLK1"
+  private static final int VERSION = 1;
+  private static final int BLOCK_ROWS = 65_536;
+
+  /** Receives archived rows in the order they were written. */
+  @FunctionalInterface
+  public interface RowHandler {
+    void row(long id, long urlMappingId, LocalDateTime clickDate) throws IOException;
+  }
+
+  private ClickArchive() {
+  }
+
+  /**
+   * Writes rows to a temporary file next to the target, which only replaces
+   * the target once {@link #commit()} has synced it, so a crash never leaves
+   * a truncated archive behind.
+   */
+  public static final class Writer implements Closeable {
+
+    private final Path target;
+    private final Path temporary;
+    private final FileChannel channel;
+    private final GZIPOutputStream gzip;
+    private final DataOutputStream out;
+
+    private final long[] ids = new long[BLOCK_ROWS];
+    private final long[] linkIds = new long[BLOCK_ROWS];
+    private final long[] seconds = new long[BLOCK_ROWS];
+    private final int[] micros = new int[BLOCK_ROWS];
+    private int buffered;
+    private long rows;
+    private boolean committed;
+
+    public Writer(Path target, String partition) throws IOException {
+      this.target = target;
+      Path parent = target.toAbsolutePath().getParent();
+      Files.createDirectories(parent);
+      this.temporary = Files.createTempFile(parent, target.getFileName().toString(), ".tmp");
+      this.channel = FileChannel.open(temporary, StandardOpenOption.WRITE);
+      this.gzip = new GZIPOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), 1 << 16);
+      this.out = new DataOutputStream(gzip);
+      out.writeLong(MAGIC);
+      out.writeInt(VERSION);
+      out.writeUTF(partition);
+    }
+
+    public void append(long id, long urlMappingId, LocalDateTime clickDate) throws IOException {
+      ids[buffered] = id;
+      linkIds[buffered] = urlMappingId;
+      seconds[buffered] = clickDate.toEpochSecond(ZoneOffset.UTC);
+      micros[buffered] = clickDate.getNano() / 1_000;
+      if (++buffered == BLOCK_ROWS) {
+        flushBlock();
+      }
+    }
+
+    public long getRows() {
+      return rows + buffered;
+    }
+
+    /** Finishes the archive and moves it into place. */
+    public void commit() throws IOException {
+      flushBlock();
+      out.writeInt(0);
+      out.writeLong(rows);
+      // Closing the stream would close the channel before it is synced
+      gzip.finish();
+      out.flush();
+      channel.force(true);
+      channel.close();
+      Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      committed = true;
+    }
+
+    /** Discards the archive unless it was committed. */
+    @Override
+    public void close() throws IOException {
+      if (!committed) {
+        channel.close();
+        Files.deleteIfExists(temporary);
+      }
+    }
+
+    private void flushBlock() throws IOException {
+      if (buffered == 0) {
+        return;
+      }
+      out.writeInt(buffered);
+      long previous = 0;
+      for (int i = 0; i < buffered; i++) {
+        writeVarLong(out, zigZag(ids[i] - previous));
+        previous = ids[i];
+      }
+      for (int i = 0; i < buffered; i++) {
+        writeVarLong(out, linkIds[i]);
+      }
+      previous = 0;
+      for (int i = 0; i < buffered; i++) {
+        writeVarLong(out, zigZag(seconds[i] - previous));
+        previous = seconds[i];
+      }
+      for (int i = 0; i < buffered; i++) {
+        writeVarLong(out, micros[i]);
+      }
+      rows += buffered;
+      buffered = 0;
+    }
+  }
+
+  /**
+   * Reads every row of an archive.
+   *
+   * @return the partition the archive was written from.
+   * @throws IOException if the file is not a complete archive.
+   */
+  public static String read(Path path, RowHandler handler) throws IOException {
+    try (DataInputStream in = new DataInputStream(
+        new GZIPInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16), 1 << 16))) {
+      if (in.readLong() != MAGIC || in.readInt() != VERSION) {
+        throw new IOException(path + " is not a click archive");
+      }
+      String partition = in.readUTF();
+
+      long[] ids = new long[BLOCK_ROWS];
+      long[] linkIds = new long[BLOCK_ROWS];
+      long[] seconds = new long[BLOCK_ROWS];
+      long rows = 0;
+      int blockRows;
+      while ((blockRows = in.readInt()) != 0) {
+        if (blockRows < 0 || blockRows > BLOCK_ROWS) {
+          throw new IOException("Corrupt block of " + blockRows + " rows in " + path);
+        }
+        long previous = 0;
+        for (int i = 0; i < blockRows; i++) {
+          previous += unZigZag(readVarLong(in));
+          ids[i] = previous;
+        }
+        for (int i = 0; i < blockRows; i++) {
+          linkIds[i] = readVarLong(in);
+        }
+        previous = 0;
+        for (int i = 0; i < blockRows; i++) {
+          previous += unZigZag(readVarLong(in));
+          seconds[i] = previous;
+        }
+        for (int i = 0; i < blockRows; i++) {
+          int nanos = Math.toIntExact(readVarLong(in) * 1_000);
+          handler.row(ids[i], linkIds[i], LocalDateTime.ofEpochSecond(seconds[i], nanos, ZoneOffset.UTC));
+        }
+        rows += blockRows;
+      }
+      if (in.readLong() != rows) {
+        throw new IOException("Row count mismatch in " + path);
+      }
+      return partition;
+    }
+  }
+
+  private static long zigZag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private static long unZigZag(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private static void writeVarLong(OutputStream out, long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      out.write((int) (value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.write((int) value);
+  }
+
+  private static long readVarLong(InputStream in) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = in.read();
+      if (b < 0) {
+        throw new EOFException();
+      }
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed variable-length integer");
+  }
+}
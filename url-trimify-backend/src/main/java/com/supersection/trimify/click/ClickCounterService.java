@@ -0,0 +1,163 @@
+package com.supersection.trimify.click;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Keeps per-link click counts in memory and periodically flushes them to
+ * {@code url_mapping.click_count} as aggregated deltas.
+ *
+ * <p>Each link gets a {@link LongAdder}, so concurrent clicks on the same viral
+ * link never contend on a row lock or lose updates. Links that stay idle for a
+ * whole flush interval are retired from the map; a retired counter is checked
+ * once more on the next flush to pick up any increment that raced with its
+ * removal.
+ *
+ * <p>Each flush writes its deltas in one transaction, so a failed flush is
+ * retried whole and no link is counted twice. Deltas move from the counters
+ * to in flight and, once committed or failed, out of in flight under a lock
+ * that {@link #getPendingCount} shares, so it never sees a delta in both
+ * places or in neither.
+ */
+@Service
+public class ClickCounterService implements ClickListener, MeterBinder {
+
+  private static final Logger log = LoggerFactory.getLogger(ClickCounterService.class);
+
+  private static final String INCREMENT_CLICK_COUNT =
+      "UPDATE url_mapping SET click_count = click_count + ? WHERE id = ?";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+
+  private final ReadWriteLock inFlightLock = new ReentrantReadWriteLock();
+  private final ConcurrentHashMap<Long, LongAdder> pending = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<Long, Long> inFlight = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<Long, Boolean> idle = new ConcurrentHashMap<>();
+  private Map<Long, LongAdder> retired = Map.of();
+
+  public ClickCounterService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = transactionTemplate;
+  }
+
+  @Override
+  public void onClick(ClickRecord click) {
+    pending.computeIfAbsent(click.urlMappingId(), id -> new LongAdder()).increment();
+  }
+
+  /**
+   * Returns the clicks on the given link that are not yet reflected in
+   * {@code url_mapping.click_count}.
+   */
+  public long getPendingCount(long urlMappingId) {
+    inFlightLock.readLock().lock();
+    try {
+      LongAdder adder = pending.get(urlMappingId);
+      long count = adder != null ? adder.sum() : 0;
+      return count + inFlight.getOrDefault(urlMappingId, 0L);
+    } finally {
+      inFlightLock.readLock().unlock();
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${trimify.clicks.counter-flush-interval}")
+  public synchronized void flush() {
+    // Sorted so concurrent flushes on several nodes lock rows in the same order
+    Map<Long, Long> deltas = new TreeMap<>();
+    inFlightLock.writeLock().lock();
+    try {
+      retired.forEach((id, adder) -> addDelta(deltas, id, adder.sumThenReset()));
+
+      Map<Long, LongAdder> newlyRetired = new ConcurrentHashMap<>();
+      pending.forEach((id, adder) -> {
+        long delta = adder.sumThenReset();
+        if (delta != 0) {
+          addDelta(deltas, id, delta);
+          idle.remove(id);
+        } else if (idle.putIfAbsent(id, Boolean.TRUE) != null && pending.remove(id, adder)) {
+          idle.remove(id);
+          newlyRetired.put(id, adder);
+        }
+      });
+      retired = newlyRetired;
+    } finally {
+      inFlightLock.writeLock().unlock();
+    }
+
+    if (deltas.isEmpty()) {
+      return;
+    }
+
+    boolean committed = false;
+    try {
+      List<Object[]> rows = new ArrayList<>(deltas.size());
+      deltas.forEach((id, delta) -> rows.add(new Object[] { delta, id }));
+      transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INCREMENT_CLICK_COUNT, rows));
+      committed = true;
+    } catch (RuntimeException e) {
+      log.error("Failed to flush click counts for {} links, will retry", deltas.size(), e);
+    } finally {
+      land(deltas, committed);
+    }
+  }
+
+  private void addDelta(Map<Long, Long> deltas, long id, long delta) {
+    if (delta != 0) {
+      deltas.merge(id, delta, Long::sum);
+      inFlight.merge(id, delta, Long::sum);
+    }
+  }
+
+  /** Takes this flush's deltas out of flight, back into the counters unless they were committed. */
+  private void land(Map<Long, Long> deltas, boolean committed) {
+    inFlightLock.writeLock().lock();
+    try {
+      deltas.forEach((id, delta) -> {
+        inFlight.computeIfPresent(id, (key, count) -> {
+          long left = count - delta;
+          return left == 0 ? null : left;
+        });
+        if (!committed) {
+          pending.computeIfAbsent(id, key -> new LongAdder()).add(delta);
+        }
+      });
+    } finally {
+      inFlightLock.writeLock().unlock();
+    }
+  }
+
+  @PreDestroy
+  void flushOnShutdown() {
+    flush();
+  }
+
+  public int getTrackedLinkCount() {
+    return pending.size();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("trimify.clicks.counters.links", pending, Map::size)
+        .description("Links with an in-memory click counter awaiting flush")
+        .register(registry);
+  }
+}
@@ -0,0 +1,60 @@
+package com.supersection.trimify.click;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.supersection.trimify.analytics.ClickRollupService;
+import com.supersection.trimify.analytics.VisitorSketchService;
+
+/**
+ * Persists batches of clicks as a single JDBC batch insert into
+ * {@code click_event} and folds them into the daily rollups in the same
+ * transaction. Once committed, their visitors are queued for the visitor
+ * sketches. Click counts are maintained separately by
+ * {@link ClickCounterService}.
+ */
+@Component
+public class ClickEventWriter {
+
+  private static final String INSERT_CLICK_EVENT =
+      "INSERT INTO click_event (click_date, url_mapping_id) VALUES (?, ?)";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final ClickRollupService clickRollupService;
+  private final VisitorSketchService visitorSketchService;
+
+  public ClickEventWriter(
+      JdbcTemplate jdbcTemplate,
+      TransactionTemplate transactionTemplate,
+      ClickRollupService clickRollupService,
+      VisitorSketchService visitorSketchService
+  ) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = transactionTemplate;
+    this.clickRollupService = clickRollupService;
+    this.visitorSketchService = visitorSketchService;
+  }
+
+  public void write(List<ClickRecord> clicks) {
+    if (clicks.isEmpty()) {
+      return;
+    }
+
+    List<Object[]> clickEventRows = new ArrayList<>(clicks.size());
+    for (ClickRecord click : clicks) {
+      clickEventRows.add(new Object[] { Timestamp.valueOf(click.clickDate()), click.urlMappingId() });
+    }
+
+    transactionTemplate.executeWithoutResult(status -> {
+      jdbcTemplate.batchUpdate(INSERT_CLICK_EVENT, clickEventRows);
+      clickRollupService.apply(clicks);
+    });
+    visitorSketchService.add(clicks);
+  }
+}
@@ -0,0 +1,293 @@
+package com.supersection.trimify.click;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.stereotype.Service;
+
+import com.supersection.trimify.redirect.RedirectTarget;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Takes clicks off the redirect path. {@link #record(RedirectTarget, long)} notifies
+ * the in-memory {@link ClickListener}s and enqueues the click into a bounded
+ * lock-free buffer; a single background writer drains it in batches through
+ * {@link ClickEventWriter}. When the buffer is full the configured
+ * {@link OverflowPolicy} decides whether to drop, wait or write synchronously.
+ * On shutdown everything still buffered is flushed.
+ *
+ * <p>Listeners see every click, including ones later dropped by the overflow
+ * policy, so click counts stay exact even when raw events are shed.
+ *
+ * <p>A failed batch is retried while the database is unreachable. Any other
+ * failure is retried a few times, then the batch is split in halves until
+ * the clicks that cannot be written are isolated and dead-lettered, so one
+ * bad row never stalls the writer and backs up the redirect path.
+ *
+ * <p>When the durable {@link ClickLog} is enabled, clicks are appended to it
+ * instead of the buffer and reach the database through
+ * {@link ClickLogReplayer}. The buffer remains the fallback if the log stops
+ * being writable.
+ */
+@Service
+public class ClickIngestionService implements MeterBinder {
+
+  private static final Logger log = LoggerFactory.getLogger(ClickIngestionService.class);
+
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+  private static final long RETRY_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(1);
+  private static final int MAX_BATCH_ATTEMPTS = 3;
+
+  private final ClickEventWriter clickEventWriter;
+  private final List<ClickListener> clickListeners;
+  private final ClickLog clickLog;
+  private final RingBuffer<ClickRecord> buffer;
+  private final int batchSize;
+  private final long flushIntervalNanos;
+  private final OverflowPolicy overflowPolicy;
+  private final long blockTimeoutNanos;
+  private final Duration shutdownTimeout;
+
+  private final LongAdder accepted = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+  private final LongAdder written = new LongAdder();
+  private final LongAdder deadLettered = new LongAdder();
+  private final LongAdder failedBatches = new LongAdder();
+
+  private volatile boolean running;
+  private Thread writerThread;
+  // Owned by the writer thread
+  private int batchAttempts;
+
+  public ClickIngestionService(
+      ClickEventWriter clickEventWriter,
+      List<ClickListener> clickListeners,
+      ClickLog clickLog,
+      @Value("${trimify.clicks.buffer-capacity}") int bufferCapacity,
+      @Value("${trimify.clicks.batch-size}") int batchSize,
+      @Value("${trimify.clicks.flush-interval}") Duration flushInterval,
+      @Value("${trimify.clicks.overflow-policy}") OverflowPolicy overflowPolicy,
+      @Value("${trimify.clicks.block-timeout}") Duration blockTimeout,
+      @Value("${trimify.clicks.shutdown-timeout}") Duration shutdownTimeout
+  ) {
+    this.clickEventWriter = clickEventWriter;
+    this.clickListeners = clickListeners;
+    this.clickLog = clickLog;
+    this.buffer = new RingBuffer<>(bufferCapacity);
+    this.batchSize = batchSize;
+    this.flushIntervalNanos = flushInterval.toNanos();
+    this.overflowPolicy = overflowPolicy;
+    this.blockTimeoutNanos = blockTimeout.toNanos();
+    this.shutdownTimeout = shutdownTimeout;
+  }
+
+  @PostConstruct
+  void start() {
+    running = true;
+    writerThread = new Thread(this::drainLoop, "click-writer");
+    writerThread.setDaemon(true);
+    writerThread.start();
+  }
+
+  @PreDestroy
+  void stop() throws InterruptedException {
+    running = false;
+    LockSupport.unpark(writerThread);
+    writerThread.join(shutdownTimeout.toMillis());
+    if (writerThread.isAlive()) {
+      log.warn("Click writer did not finish within {}, {} clicks left unflushed", shutdownTimeout, buffer.size());
+    }
+  }
+
+  /**
+   * Records a click on the given target without touching the database.
+   *
+   * @param visitor fingerprint of the visitor, from {@link VisitorFingerprint}
+   */
+  public void record(RedirectTarget target, long visitor) {
+    ClickRecord click = new ClickRecord(target.id(), target.userId(), System.currentTimeMillis(), visitor);
+    for (ClickListener listener : clickListeners) {
+      listener.onClick(click);
+    }
+
+    if (clickLog.isWritable()) {
+      try {
+        clickLog.append(click);
+        accepted.increment();
+        return;
+      } catch (IllegalStateException e) {
+        // Closed or failed since the check; buffer it instead
+      }
+    }
+    if (!running) {
+      writeNow(click);
+      return;
+    }
+    if (buffer.offer(click)) {
+      accepted.increment();
+      return;
+    }
+
+    switch (overflowPolicy) {
+      case DROP_NEWEST -> dropped.increment();
+      case DROP_OLDEST -> {
+        if (buffer.poll() != null) {
+          dropped.increment();
+        }
+        if (buffer.offer(click)) {
+          accepted.increment();
+        } else {
+          dropped.increment();
+        }
+      }
+      case BLOCK -> offerWithTimeout(click);
+      case CALLER_RUNS -> writeNow(click);
+    }
+  }
+
+  private void offerWithTimeout(ClickRecord click) {
+    long deadline = System.nanoTime() + blockTimeoutNanos;
+    while (System.nanoTime() < deadline) {
+      LockSupport.parkNanos(IDLE_PARK_NANOS);
+      if (buffer.offer(click)) {
+        accepted.increment();
+        return;
+      }
+    }
+    dropped.increment();
+  }
+
+  private void writeNow(ClickRecord click) {
+    try {
+      clickEventWriter.write(List.of(click));
+      accepted.increment();
+      written.increment();
+    } catch (RuntimeException e) {
+      dropped.increment();
+      log.error("Failed to persist click on url mapping {}", click.urlMappingId(), e);
+    }
+  }
+
+  private void drainLoop() {
+    List<ClickRecord> batch = new ArrayList<>(batchSize);
+    long firstBufferedAt = 0;
+
+    while (running || buffer.size() > 0 || !batch.isEmpty()) {
+      int before = batch.size();
+      buffer.drainTo(batch, batchSize - before);
+      if (before == 0 && !batch.isEmpty()) {
+        firstBufferedAt = System.nanoTime();
+      }
+
+      boolean due = batch.size() >= batchSize
+          || !running
+          || (!batch.isEmpty() && System.nanoTime() - firstBufferedAt >= flushIntervalNanos);
+
+      if (due && !batch.isEmpty()) {
+        flush(batch);
+      } else if (batch.size() == before) {
+        LockSupport.parkNanos(IDLE_PARK_NANOS);
+      }
+    }
+  }
+
+  private void flush(List<ClickRecord> batch) {
+    try {
+      clickEventWriter.write(batch);
+      written.add(batch.size());
+      batch.clear();
+      batchAttempts = 0;
+    } catch (RuntimeException e) {
+      failedBatches.increment();
+      if (!running) {
+        log.error("Dropping {} clicks during shutdown after write failure", batch.size(), e);
+        dropped.add(batch.size());
+        batch.clear();
+        return;
+      }
+      if (++batchAttempts < MAX_BATCH_ATTEMPTS || e instanceof DataAccessResourceFailureException) {
+        log.error("Failed to persist batch of {} clicks, retrying", batch.size(), e);
+        LockSupport.parkNanos(RETRY_BACKOFF_NANOS);
+        return;
+      }
+      log.error("Failed to persist batch of {} clicks {} times, splitting it", batch.size(), batchAttempts, e);
+      batchAttempts = 0;
+      writeIsolatingFailures(batch);
+      batch.clear();
+    }
+  }
+
+  /** Writes the clicks in ever smaller batches, dead-lettering each one that fails on its own. */
+  private void writeIsolatingFailures(List<ClickRecord> clicks) {
+    try {
+      clickEventWriter.write(clicks);
+      written.add(clicks.size());
+    } catch (RuntimeException e) {
+      if (clicks.size() == 1) {
+        deadLettered.increment();
+        log.error("Dead-lettering click {}", clicks.getFirst(), e);
+        return;
+      }
+      int half = clicks.size() / 2;
+      writeIsolatingFailures(clicks.subList(0, half));
+      writeIsolatingFailures(clicks.subList(half, clicks.size()));
+    }
+  }
+
+  public int getBufferedCount() {
+    return buffer.size();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("trimify.clicks.buffer.size", buffer, RingBuffer::size)
+        .description("Clicks waiting in the ingestion buffer")
+        .register(registry);
+    Gauge.builder("trimify.clicks.buffer.capacity", buffer, RingBuffer::capacity)
+        .register(registry);
+    clickCounter(registry, "accepted", accepted);
+    clickCounter(registry, "written", written);
+    clickCounter(registry, "dropped", dropped);
+    clickCounter(registry, "dead_lettered", deadLettered);
+    FunctionCounter.builder("trimify.clicks.failed.batches", failedBatches, LongAdder::sum)
+        .description("Click batches that failed to persist and were retried or split")
+        .register(registry);
+  }
+
+  private static void clickCounter(MeterRegistry registry, String state, LongAdder adder) {
+    FunctionCounter.builder("trimify.clicks", adder, LongAdder::sum)
+        .description("Clicks by ingestion state")
+        .tag("state", state)
+        .register(registry);
+  }
+
+  public Map<String, Object> describe() {
+    Map<String, Object> description = new LinkedHashMap<>();
+    description.put("durableLog", clickLog.isWritable());
+    description.put("overflowPolicy", overflowPolicy);
+    description.put("bufferCapacity", buffer.capacity());
+    description.put("buffered", buffer.size());
+    description.put("accepted", accepted.sum());
+    description.put("written", written.sum());
+    description.put("dropped", dropped.sum());
+    description.put("deadLettered", deadLettered.sum());
+    description.put("failedBatches", failedBatches.sum());
+    return description;
+  }
+}
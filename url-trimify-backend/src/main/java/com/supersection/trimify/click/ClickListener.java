@@ -0,0 +1,10 @@
+package com.supersection.trimify.click;
+
+/**
+ * In-memory consumer of clicks, notified synchronously on the redirect path by
+ * {@link ClickIngestionService}. Implementations must be cheap and non-blocking.
+ */
+public interface ClickListener {
+
+  void onClick(ClickRecord click);
+}
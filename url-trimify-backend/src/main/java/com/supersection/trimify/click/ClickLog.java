@@ -0,0 +1,358 @@
+package com.supersection.trimify.click;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Append-only local log of clicks, so clicks accepted on the redirect path
+ * survive a crash before they reach the database.
+ *
+ * <p>Clicks are fixed-width 32-byte records (mapping id, user id, epoch
+ * millis, visitor hash) in numbered segment files, rolled once a segment reaches the
+ * configured size. Each segment starts with a header of the same width
+ * holding a magic number, the format version and the record width, checked
+ * before a segment is read so a log written in another format is never
+ * replayed as clicks. {@link #append(ClickRecord)} returns once the click has
+ * been forced to disk. Appends use group commit: while one caller writes and
+ * forces a batch, later callers accumulate in the next one, so a single
+ * {@code fsync} covers every click that arrived during the previous one.
+ *
+ * <p>{@link ClickLogReplayer} drains segments into {@code click_event} and
+ * deletes them once committed, and opens the log once the application is
+ * ready.
+ */
+@Component
+public class ClickLog implements MeterBinder {
+
+  private static final Logger log = LoggerFactory.getLogger(ClickLog.class);
+
+  static final int RECORD_BYTES = 32;
+  static final int HEADER_BYTES = RECORD_BYTES;
+
+  private static final int MAGIC = 0x54434c47; // "TCLG"
+  private static final short VERSION = 1;
+
+  private static final int BATCH_RECORDS = 4096;
+  private static final String SEGMENT_PREFIX = "clicks-";
+  private static final String SEGMENT_SUFFIX = ".log";
+
+  /** Durable end of the log: everything before {@code bytes} in {@code segment}. */
+  record Position(long segment, long bytes) {
+  }
+
+  private final boolean enabled;
+  private final Path directory;
+  private final long segmentBytes;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition flushed = lock.newCondition();
+  private final LongAdder commits = new LongAdder();
+  private final LongAdder appended = new LongAdder();
+
+  // Guarded by lock
+  private ByteBuffer filling = ByteBuffer.allocateDirect(BATCH_RECORDS * RECORD_BYTES);
+  private ByteBuffer spare = ByteBuffer.allocateDirect(BATCH_RECORDS * RECORD_BYTES);
+  private boolean flushing;
+  private long lastTicket;
+  private long durableTicket;
+  private Position durable;
+
+  // Owned by whichever caller is flushing
+  private FileChannel channel;
+  private long segment;
+
+  private volatile boolean open;
+  private volatile boolean failed;
+
+  public ClickLog(
+      @Value("${trimify.clicks.log.enabled}") boolean enabled,
+      @Value("${trimify.clicks.log.directory}") Path directory,
+      @Value("${trimify.clicks.log.segment-size}") DataSize segmentSize
+  ) {
+    this.enabled = enabled;
+    this.directory = directory;
+    this.segmentBytes = segmentSize.toBytes() / RECORD_BYTES * RECORD_BYTES;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /** @return whether clicks can be appended; {@code false} before opening, after closing or after a write failure. */
+  public boolean isWritable() {
+    return open && !failed;
+  }
+
+  /**
+   * Starts a new segment numbered after every existing one and after
+   * {@code afterSegment}, so numbers keep increasing even once every old
+   * segment has been replayed and deleted.
+   */
+  void open(long afterSegment) throws IOException {
+    Files.createDirectories(directory);
+    List<Long> existing = segments();
+    long last = existing.isEmpty() ? afterSegment : Math.max(afterSegment, existing.getLast());
+    lock.lock();
+    try {
+      segment = last + 1;
+      channel = openSegment(segment);
+      durable = new Position(segment, HEADER_BYTES);
+      open = true;
+    } finally {
+      lock.unlock();
+    }
+    log.info("Click log open at {} with {} segments to replay", segmentPath(segment), existing.size());
+  }
+
+  /**
+   * Appends a click and waits until it is on disk.
+   *
+   * @throws IllegalStateException if the log is not writable; the caller
+   *     should record the click some other way.
+   */
+  public void append(ClickRecord click) {
+    lock.lock();
+    try {
+      while (isWritable() && !filling.hasRemaining()) {
+        flushed.awaitUninterruptibly();
+      }
+      checkWritable();
+      filling.putLong(click.urlMappingId()).putLong(click.userId()).putLong(click.clickedAt()).putLong(click.visitor());
+      long ticket = ++lastTicket;
+
+      while (durableTicket < ticket) {
+        checkWritable();
+        if (flushing) {
+          flushed.awaitUninterruptibly();
+        } else {
+          commit();
+        }
+      }
+      appended.increment();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Writes and forces the filling batch, releasing the lock meanwhile so the
+   * next batch can fill up. Called with the lock held.
+   */
+  private void commit() {
+    ByteBuffer batch = filling;
+    filling = spare;
+    spare = null;
+    flushing = true;
+    long ticket = lastTicket;
+    // Callers waiting for room can fill the fresh buffer while this one is written
+    flushed.signalAll();
+    lock.unlock();
+
+    IOException failure = null;
+    Position written = null;
+    try {
+      batch.flip();
+      while (batch.hasRemaining()) {
+        channel.write(batch);
+      }
+      channel.force(false);
+      long position = channel.position();
+      if (position >= segmentBytes) {
+        channel.close();
+        channel = openSegment(++segment);
+        position = HEADER_BYTES;
+      }
+      written = new Position(segment, position);
+    } catch (IOException e) {
+      failure = e;
+    } finally {
+      lock.lock();
+      batch.clear();
+      spare = batch;
+      flushing = false;
+      if (failure == null) {
+        durableTicket = ticket;
+        durable = written;
+        commits.increment();
+      } else {
+        // The segment may end in a partial record; stop appending to it
+        failed = true;
+        log.error("Click log write failed, falling back to in-memory buffering", failure);
+      }
+      flushed.signalAll();
+    }
+  }
+
+  private void checkWritable() {
+    if (!isWritable()) {
+      throw new IllegalStateException("Click log is not writable");
+    }
+  }
+
+  Position durablePosition() {
+    lock.lock();
+    try {
+      return durable;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** @return the numbers of all segments on disk, oldest first. */
+  List<Long> segments() throws IOException {
+    List<Long> segments = new ArrayList<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        segments.add(Long.parseLong(name, SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length(), 10));
+      }
+    }
+    Collections.sort(segments);
+    return segments;
+  }
+
+  /**
+   * @return the length of a segment no longer written to, ignoring a torn
+   *     record at the end; {@link #HEADER_BYTES} for a segment torn before
+   *     its header was written.
+   * @throws IOException if the segment has a header of another format.
+   */
+  long sealedLength(long segment) throws IOException {
+    Path path = segmentPath(segment);
+    long size = Files.size(path);
+    if (size < HEADER_BYTES) {
+      return HEADER_BYTES;
+    }
+    try (FileChannel reader = FileChannel.open(path, StandardOpenOption.READ)) {
+      checkHeader(reader, path);
+    }
+    return HEADER_BYTES + (size - HEADER_BYTES) / RECORD_BYTES * RECORD_BYTES;
+  }
+
+  /**
+   * Reads up to {@code maxRecords} clicks from {@code from} but not past
+   * {@code to}.
+   *
+   * @return the position after the last click read.
+   * @throws IOException if the segment has a header of another format.
+   */
+  long read(long segment, long from, long to, List<ClickRecord> into, int maxRecords) throws IOException {
+    int length = (int) Math.min((long) maxRecords * RECORD_BYTES, to - from);
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    Path path = segmentPath(segment);
+    try (FileChannel reader = FileChannel.open(path, StandardOpenOption.READ)) {
+      checkHeader(reader, path);
+      while (buffer.hasRemaining()) {
+        if (reader.read(buffer, from + buffer.position()) < 0) {
+          break;
+        }
+      }
+    }
+    buffer.flip();
+    while (buffer.remaining() >= RECORD_BYTES) {
+      into.add(new ClickRecord(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong()));
+    }
+    return from + buffer.position();
+  }
+
+  void delete(long segment) throws IOException {
+    Files.deleteIfExists(segmentPath(segment));
+  }
+
+  @PreDestroy
+  void close() throws IOException {
+    lock.lock();
+    try {
+      open = false;
+      while (flushing) {
+        flushed.awaitUninterruptibly();
+      }
+      flushed.signalAll();
+      if (channel != null) {
+        channel.close();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Creates a segment and writes its header, leaving the channel positioned after it. */
+  private FileChannel openSegment(long number) throws IOException {
+    FileChannel created =
+        FileChannel.open(segmentPath(number), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    try {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putShort(VERSION).putShort((short) RECORD_BYTES);
+      header.clear();
+      while (header.hasRemaining()) {
+        created.write(header);
+      }
+      created.force(true);
+      return created;
+    } catch (IOException e) {
+      created.close();
+      throw e;
+    }
+  }
+
+  private static void checkHeader(FileChannel reader, Path path) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+    while (header.hasRemaining()) {
+      if (reader.read(header, header.position()) < 0) {
+        break;
+      }
+    }
+    header.flip();
+    if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+      throw new IOException(path + " is not a click log segment");
+    }
+    short version = header.getShort();
+    short recordBytes = header.getShort();
+    if (version != VERSION || recordBytes != RECORD_BYTES) {
+      throw new IOException(path + " has click log format version " + version + " with " + recordBytes
+          + "-byte records, expected version " + VERSION + " with " + RECORD_BYTES);
+    }
+  }
+
+  private Path segmentPath(long number) {
+    return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    if (!enabled) {
+      return;
+    }
+    FunctionCounter.builder("trimify.clicks.log.appended", appended, LongAdder::sum)
+        .description("Clicks made durable in the local click log")
+        .register(registry);
+    FunctionCounter.builder("trimify.clicks.log.commits", commits, LongAdder::sum)
+        .description("Group commits to the local click log; appended divided by commits is the group size")
+        .register(registry);
+    Gauge.builder("trimify.clicks.log.failed", this, clickLog -> clickLog.failed ? 1 : 0)
+        .description("Whether the click log stopped after a write failure")
+        .register(registry);
+  }
+}
@@ -0,0 +1,152 @@
+package com.supersection.trimify.click;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Drains the {@link ClickLog} into {@code click_event} through
+ * {@link ClickEventWriter}.
+ *
+ * <p>Each batch is inserted in the same transaction that advances this node's
+ * row in {@code click_log_checkpoint}, so a crash between the insert and the
+ * segment deletion never replays a click twice. Segments the log has moved
+ * past are deleted once fully committed; the active one is read up to its
+ * durable end.
+ */
+@Component
+public class ClickLogReplayer implements MeterBinder {
+
+  private static final Logger log = LoggerFactory.getLogger(ClickLogReplayer.class);
+
+  private final ClickLog clickLog;
+  private final ClickEventWriter clickEventWriter;
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final String name;
+  private final int batchSize;
+
+  private final LongAdder replayed = new LongAdder();
+
+  // Guarded by this
+  private boolean started;
+  private long segment;
+  private long position;
+
+  public ClickLogReplayer(
+      ClickLog clickLog,
+      ClickEventWriter clickEventWriter,
+      JdbcTemplate jdbcTemplate,
+      TransactionTemplate transactionTemplate,
+      @Value("${trimify.clicks.log.name}") String name,
+      @Value("${trimify.clicks.batch-size}") int batchSize
+  ) {
+    this.clickLog = clickLog;
+    this.clickEventWriter = clickEventWriter;
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = transactionTemplate;
+    this.name = name;
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Opens the log once the schema is in place. Clicks before that go through
+   * the in-memory buffer.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public synchronized void start() throws IOException {
+    if (!clickLog.isEnabled()) {
+      return;
+    }
+    List<Map<String, Object>> checkpoint = jdbcTemplate.queryForList(
+        "SELECT segment, position FROM click_log_checkpoint WHERE name = ?", name);
+    if (!checkpoint.isEmpty()) {
+      segment = ((Number) checkpoint.get(0).get("segment")).longValue();
+      position = ((Number) checkpoint.get(0).get("position")).longValue();
+    }
+    clickLog.open(segment);
+    started = true;
+  }
+
+  /** Gives the clicks logged during shutdown a last chance to reach the database. */
+  @PreDestroy
+  @Scheduled(fixedDelayString = "${trimify.clicks.log.replay-interval}")
+  public synchronized void replay() {
+    if (!started) {
+      return;
+    }
+    try {
+      ClickLog.Position durable = clickLog.durablePosition();
+      for (long current : clickLog.segments()) {
+        if (current > durable.segment()) {
+          break;
+        }
+        boolean sealed = current < durable.segment();
+        if (current >= segment) {
+          long from = current == segment ? position : ClickLog.HEADER_BYTES;
+          replaySegment(current, from, sealed ? clickLog.sealedLength(current) : durable.bytes());
+        }
+        if (sealed) {
+          clickLog.delete(current);
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      log.error("Click log replay failed at segment {} position {}, retrying", segment, position, e);
+    }
+  }
+
+  private void replaySegment(long current, long from, long to) throws IOException {
+    List<ClickRecord> batch = new ArrayList<>(batchSize);
+    while (from < to) {
+      batch.clear();
+      long next = clickLog.read(current, from, to, batch, batchSize);
+      if (batch.isEmpty()) {
+        throw new IOException("Click log segment " + current + " ends before position " + to);
+      }
+      transactionTemplate.executeWithoutResult(status -> {
+        clickEventWriter.write(batch);
+        saveCheckpoint(current, next);
+      });
+      segment = current;
+      position = next;
+      from = next;
+      replayed.add(batch.size());
+    }
+  }
+
+  private void saveCheckpoint(long current, long next) {
+    int updated = jdbcTemplate.update(
+        "UPDATE click_log_checkpoint SET segment = ?, position = ? WHERE name = ?", current, next, name);
+    if (updated == 0) {
+      jdbcTemplate.update(
+          "INSERT INTO click_log_checkpoint (name, segment, position) VALUES (?, ?, ?)", name, current, next);
+    }
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    if (!clickLog.isEnabled()) {
+      return;
+    }
+    FunctionCounter.builder("trimify.clicks.log.replayed", replayed, LongAdder::sum)
+        .description("Clicks replayed from the local click log into the database")
+        .register(registry);
+  }
+}
@@ -0,0 +1,289 @@
+package com.supersection.trimify.click;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.supersection.trimify.analytics.ClickIndex;
+import com.supersection.trimify.analytics.ClickRollupService;
+
+/**
+ * Keeps {@code click_event} partitioned by month on MySQL, with partitions
+ * created ahead of time and, under a retention policy, expired months written
+ * to a {@link ClickArchive} and dropped.
+ *
+ * <p>Dropping a month is a metadata change instead of a mass delete, and
+ * analytics queries, which bound {@code click_date}, are pruned to the months
+ * in range. Queries by id are not: the {@link ClickIndex} tail and the
+ * archiving of a month seek the primary key of every partition, since clicks
+ * replayed from the click log can be of any date. The earliest click, read
+ * before partitioning and before the first rollup backfill, is a scan of
+ * every partition. MySQL requires the partitioning column in the primary key and
+ * allows no foreign keys on partitioned tables, so the first run drops the
+ * foreign key to {@code url_mapping}, makes the key {@code (id, click_date)}
+ * and repartitions the table. Those statements copy the table; on a large
+ * one, run them in a maintenance window or with an online schema change tool.
+ * The entity keeps its foreign key for unpartitioned deployments, so from
+ * then on Hibernate's schema update logs a warning at startup when MySQL
+ * refuses to add it back.
+ *
+ * <p>A month is only dropped once it is past the retention period and the
+ * daily rollups are complete through its end, so the daily counts of
+ * archived months stay available. Every node drops the clicks of dropped
+ * months from its click index.
+ *
+ * <p>Only one node maintains the table at a time, the one holding a MySQL
+ * named lock; the others skip the run.
+ */
+@Component
+@ConditionalOnProperty(name = "trimify.clicks.partitioning.enabled", havingValue = "true")
+public class ClickPartitionManager {
+
+  private static final Logger log = LoggerFactory.getLogger(ClickPartitionManager.class);
+
+  private static final String TABLE = "click_event";
+  private static final String CATCH_ALL = "pmax";
+  private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+  private static final int PAGE_SIZE = 10_000;
+  private static final String LOCK_NAME = "trimify.click_partitions";
+
+  private static final String SELECT_PARTITIONS =
+      "SELECT PARTITION_NAME FROM information_schema.PARTITIONS "
+          + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL "
+          + "ORDER BY PARTITION_ORDINAL_POSITION";
+
+  private static final String SELECT_FOREIGN_KEYS =
+      "SELECT CONSTRAINT_NAME FROM information_schema.TABLE_CONSTRAINTS "
+          + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND CONSTRAINT_TYPE = 'FOREIGN KEY'";
+
+  private record ArchivedClick(long id, long urlMappingId, LocalDateTime clickDate) {
+  }
+
+  private final DataSource dataSource;
+  private final JdbcTemplate jdbcTemplate;
+  private final ClickRollupService clickRollupService;
+  private final ClickIndex clickIndex;
+  private final int monthsAhead;
+  private final int retentionMonths;
+  private final Path archiveDirectory;
+
+  public ClickPartitionManager(
+      DataSource dataSource,
+      JdbcTemplate jdbcTemplate,
+      ClickRollupService clickRollupService,
+      ClickIndex clickIndex,
+      @Value("${trimify.clicks.partitioning.months-ahead}") int monthsAhead,
+      @Value("${trimify.clicks.partitioning.retention-months}") int retentionMonths,
+      @Value("${trimify.clicks.partitioning.archive-directory}") Path archiveDirectory
+  ) {
+    this.dataSource = dataSource;
+    this.jdbcTemplate = jdbcTemplate;
+    this.clickRollupService = clickRollupService;
+    this.clickIndex = clickIndex;
+    this.monthsAhead = monthsAhead;
+    this.retentionMonths = retentionMonths;
+    this.archiveDirectory = archiveDirectory;
+  }
+
+  /** Runs after the schema is in place, off the main thread since a first run copies the table. */
+  @EventListener(ApplicationReadyEvent.class)
+  public void maintainOnStartup() {
+    Thread maintain = new Thread(this::maintain, "click-partitions");
+    maintain.setDaemon(true);
+    maintain.start();
+  }
+
+  @Scheduled(cron = "${trimify.clicks.partitioning.cron}")
+  public synchronized void maintain() {
+    // The lock is held by the session of its own connection until released
+    try (Connection connection = dataSource.getConnection()) {
+      JdbcTemplate lock = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+      Integer locked = lock.queryForObject("SELECT GET_LOCK(?, 0)", Integer.class, LOCK_NAME);
+      if (locked == null || locked != 1) {
+        log.info("Click partitions are being maintained by another node, skipping this run");
+        return;
+      }
+      try {
+        YearMonth current = YearMonth.now();
+        List<YearMonth> months = partitionedMonths();
+        if (months == null) {
+          partition(current);
+          months = partitionedMonths();
+        }
+        addPartitions(months, current.plusMonths(monthsAhead));
+        if (retentionMonths > 0) {
+          retire(months, current.minusMonths(retentionMonths));
+        }
+      } finally {
+        lock.queryForObject("SELECT RELEASE_LOCK(?)", Integer.class, LOCK_NAME);
+      }
+    } catch (IOException | SQLException | RuntimeException e) {
+      log.error("Click partition maintenance failed, retrying on the next run", e);
+    }
+    dropRetiredClicks();
+  }
+
+  /**
+   * Drops the clicks of the months before the oldest partition from the click
+   * index, whichever node dropped them.
+   */
+  @Scheduled(fixedDelayString = "${trimify.clicks.partitioning.index-sync-interval}")
+  public void dropRetiredClicks() {
+    if (retentionMonths <= 0) {
+      return;
+    }
+    try {
+      List<YearMonth> months = partitionedMonths();
+      if (months != null && !months.isEmpty()) {
+        clickIndex.dropBefore(months.get(0).atDay(1).atStartOfDay());
+      }
+    } catch (RuntimeException e) {
+      log.warn("Failed to read the click partitions, retrying", e);
+    }
+  }
+
+  /**
+   * @return the months with their own partition in order, or {@code null}
+   *     if the table is not partitioned yet.
+   */
+  private List<YearMonth> partitionedMonths() {
+    List<String> names = jdbcTemplate.queryForList(SELECT_PARTITIONS, String.class, TABLE);
+    if (names.isEmpty()) {
+      return null;
+    }
+    List<YearMonth> months = new ArrayList<>();
+    for (String name : names) {
+      if (!name.equals(CATCH_ALL)) {
+        months.add(YearMonth.parse(name, PARTITION_NAME));
+      }
+    }
+    return months;
+  }
+
+  private void partition(YearMonth current) {
+    LocalDateTime earliest =
+        jdbcTemplate.queryForObject("SELECT MIN(click_date) FROM " + TABLE, LocalDateTime.class);
+    YearMonth first = earliest != null ? YearMonth.from(earliest) : current;
+    long started = System.nanoTime();
+    log.info("Partitioning {} by month from {}", TABLE, first);
+
+    for (String foreignKey : jdbcTemplate.queryForList(SELECT_FOREIGN_KEYS, String.class, TABLE)) {
+      jdbcTemplate.execute("ALTER TABLE " + TABLE + " DROP FOREIGN KEY " + foreignKey);
+    }
+    jdbcTemplate.execute("ALTER TABLE " + TABLE
+        + " MODIFY click_date DATETIME(6) NOT NULL, DROP PRIMARY KEY, ADD PRIMARY KEY (id, click_date)");
+
+    List<String> definitions = new ArrayList<>();
+    for (YearMonth month = first; !month.isAfter(current); month = month.plusMonths(1)) {
+      definitions.add(definition(month));
+    }
+    definitions.add(catchAll());
+    jdbcTemplate.execute("ALTER TABLE " + TABLE + " PARTITION BY RANGE COLUMNS (click_date) ("
+        + String.join(", ", definitions) + ")");
+    log.info("Partitioned {} into {} months in {} ms",
+        TABLE, definitions.size() - 1, (System.nanoTime() - started) / 1_000_000);
+  }
+
+  /**
+   * Splits the months up to {@code through} off the catch-all partition,
+   * which is empty unless clocks ran ahead.
+   */
+  private void addPartitions(List<YearMonth> months, YearMonth through) {
+    YearMonth next = months.isEmpty() ? YearMonth.now() : months.get(months.size() - 1).plusMonths(1);
+    if (next.isAfter(through)) {
+      return;
+    }
+    List<String> definitions = new ArrayList<>();
+    for (YearMonth month = next; !month.isAfter(through); month = month.plusMonths(1)) {
+      definitions.add(definition(month));
+      months.add(month);
+    }
+    definitions.add(catchAll());
+    jdbcTemplate.execute("ALTER TABLE " + TABLE + " REORGANIZE PARTITION " + CATCH_ALL + " INTO ("
+        + String.join(", ", definitions) + ")");
+    log.info("Added {} partitions through {}", definitions.size() - 1, through);
+  }
+
+  /** Archives and drops the months before {@code oldestKept}, oldest first. */
+  private void retire(List<YearMonth> months, YearMonth oldestKept) throws IOException {
+    LocalDate rolledUpThrough = clickRollupService.getCompletedThrough();
+    List<YearMonth> expired = months.stream().filter(month -> month.isBefore(oldestKept)).toList();
+    for (YearMonth month : expired) {
+      if (rolledUpThrough == null || rolledUpThrough.isBefore(month.atEndOfMonth())) {
+        log.warn("Keeping click partition {} until the daily rollups are complete through {}",
+            month, month.atEndOfMonth());
+        return;
+      }
+      String partition = month.format(PARTITION_NAME);
+      long started = System.nanoTime();
+      long archived = archive(partition);
+      Long remaining = jdbcTemplate.queryForObject(
+          "SELECT COUNT(*) FROM " + TABLE + " PARTITION (" + partition + ")", Long.class);
+      if (remaining == null || remaining != archived) {
+        log.warn("Click partition {} changed while archiving ({} of {} rows), retrying on the next run",
+            partition, archived, remaining);
+        return;
+      }
+      jdbcTemplate.execute("ALTER TABLE " + TABLE + " DROP PARTITION " + partition);
+      months.remove(month);
+      log.info("Archived {} clicks of {} to {} and dropped the partition in {} ms",
+          archived, month, archiveDirectory, (System.nanoTime() - started) / 1_000_000);
+    }
+  }
+
+  /**
+   * Writes every row of a partition to its archive file, in id order.
+   *
+   * @return the rows written.
+   */
+  private long archive(String partition) throws IOException {
+    Path target = archiveDirectory.resolve(TABLE + "-" + partition + ".bin.gz");
+    String selectPage = "SELECT id, url_mapping_id, click_date FROM " + TABLE + " PARTITION (" + partition + ")"
+        + " WHERE id > ? ORDER BY id LIMIT ?";
+    try (ClickArchive.Writer writer = new ClickArchive.Writer(target, partition)) {
+      long lastId = 0;
+      int rows;
+      do {
+        List<ArchivedClick> page = jdbcTemplate.query(selectPage, (rs, rowNum) -> new ArchivedClick(
+            rs.getLong("id"), rs.getLong("url_mapping_id"), rs.getTimestamp("click_date").toLocalDateTime()
+        ), lastId, PAGE_SIZE);
+        for (ArchivedClick click : page) {
+          writer.append(click.id(), click.urlMappingId(), click.clickDate());
+          lastId = click.id();
+        }
+        rows = page.size();
+      } while (rows == PAGE_SIZE);
+      writer.commit();
+      return writer.getRows();
+    }
+  }
+
+  private static String definition(YearMonth month) {
+    return "PARTITION " + month.format(PARTITION_NAME)
+        + " VALUES LESS THAN ('" + month.plusMonths(1).atDay(1) + "')";
+  }
+
+  private static String catchAll() {
+    return "PARTITION " + CATCH_ALL + " VALUES LESS THAN (MAXVALUE)";
+  }
+}
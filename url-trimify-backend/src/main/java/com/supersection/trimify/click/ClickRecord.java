@@ -0,0 +1,21 @@
+package com.supersection.trimify.click;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * A single click captured on the redirect path, before it is persisted as a
+ * {@code ClickEvent} row.
+ *
+ * @param urlMappingId id of the clicked {@code UrlMapping}
+ * @param userId       id of the user owning the mapping
+ * @param clickedAt    click time in epoch milliseconds
+ * @param visitor      salted hash identifying the visitor, see {@link VisitorFingerprint}
+ */
+public record ClickRecord(long urlMappingId, long userId, long clickedAt, long visitor) {
+
+  public LocalDateTime clickDate() {
+    return LocalDateTime.ofInstant(Instant.ofEpochMilli(clickedAt), ZoneId.systemDefault());
+  }
+}
@@ -0,0 +1,19 @@
+package com.supersection.trimify.click;
+
+/**
+ * What {@link ClickIngestionService} does with a click when its buffer is full.
+ */
+public enum OverflowPolicy {
+
+  /** Discard the incoming click. */
+  DROP_NEWEST,
+
+  /** Discard the oldest buffered click to make room for the incoming one. */
+  DROP_OLDEST,
+
+  /** Wait up to the configured block timeout for space, then discard the incoming click. */
+  BLOCK,
+
+  /** Persist the click synchronously on the calling thread. */
+  CALLER_RUNS
+}
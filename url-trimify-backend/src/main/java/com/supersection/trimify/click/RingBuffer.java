@@ -0,0 +1,107 @@
+package com.supersection.trimify.click;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free multi-producer/multi-consumer queue (Vyukov's array-based
+ * design). Every slot carries a sequence number, so producers and consumers
+ * only contend on a single CAS and never allocate.
+ */
+final class RingBuffer<E> {
+
+  private final int mask;
+  private final Object[] elements;
+  private final AtomicLongArray sequences;
+  private final AtomicLong head = new AtomicLong();
+  private final AtomicLong tail = new AtomicLong();
+
+  RingBuffer(int requestedCapacity) {
+    if (requestedCapacity < 2) {
+      throw new IllegalArgumentException("Capacity must be at least 2: " + requestedCapacity);
+    }
+    int capacity = Integer.highestOneBit(requestedCapacity - 1) << 1;
+    this.mask = capacity - 1;
+    this.elements = new Object[capacity];
+    this.sequences = new AtomicLongArray(capacity);
+    for (int i = 0; i < capacity; i++) {
+      sequences.set(i, i);
+    }
+  }
+
+  /**
+   * @return {@code false} if the buffer is full.
+   */
+  boolean offer(E element) {
+    long position = tail.get();
+    int index;
+    while (true) {
+      index = (int) (position & mask);
+      long difference = sequences.getAcquire(index) - position;
+      if (difference == 0) {
+        if (tail.compareAndSet(position, position + 1)) {
+          break;
+        }
+        position = tail.get();
+      } else if (difference < 0) {
+        return false;
+      } else {
+        position = tail.get();
+      }
+    }
+    elements[index] = element;
+    sequences.setRelease(index, position + 1);
+    return true;
+  }
+
+  /**
+   * @return the oldest element, or {@code null} if the buffer is empty.
+   */
+  @SuppressWarnings("unchecked")
+  E poll() {
+    long position = head.get();
+    int index;
+    while (true) {
+      index = (int) (position & mask);
+      long difference = sequences.getAcquire(index) - (position + 1);
+      if (difference == 0) {
+        if (head.compareAndSet(position, position + 1)) {
+          break;
+        }
+        position = head.get();
+      } else if (difference < 0) {
+        return null;
+      } else {
+        position = head.get();
+      }
+    }
+    E element = (E) elements[index];
+    elements[index] = null;
+    sequences.setRelease(index, position + mask + 1);
+    return element;
+  }
+
+  /**
+   * Moves up to {@code limit} elements into {@code sink}.
+   *
+   * @return the number of elements moved.
+   */
+  int drainTo(List<? super E> sink, int limit) {
+    int drained = 0;
+    E element;
+    while (drained < limit && (element = poll()) != null) {
+      sink.add(element);
+      drained++;
+    }
+    return drained;
+  }
+
+  int size() {
+    return (int) Math.max(0, tail.get() - head.get());
+  }
+
+  int capacity() {
+    return mask + 1;
+  }
+}
@@ -0,0 +1,47 @@
+package com.supersection.trimify.click;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Identifies a visitor by a salted hash of their address and user agent, so
+ * unique visitors can be counted without storing either.
+ *
+ * <p>The salt must stay the same across nodes and restarts, or the same
+ * visitor counts once per salt. Behind a proxy the address is only the
+ * client's if the proxy is trusted: through
+ * {@code server.forward-headers-strategy} on the Spring redirect endpoint and
+ * {@code trimify.redirect-server.trusted-proxies} on the redirect server.
+ */
+@Component
+public class VisitorFingerprint {
+
+  private final byte[] salt;
+
+  public VisitorFingerprint(@Value("${trimify.visitors.salt}") String salt) {
+    this.salt = salt.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * @return the first 64 bits of SHA-256 over the salt, address and user agent.
+   */
+  public long of(String remoteAddress, String userAgent) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is required of every JVM", e);
+    }
+    digest.update(salt);
+    digest.update((byte) 0);
+    digest.update(String.valueOf(remoteAddress).getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+    digest.update(String.valueOf(userAgent).getBytes(StandardCharsets.UTF_8));
+    return ByteBuffer.wrap(digest.digest()).getLong();
+  }
+}
@@ -0,0 +1,26 @@
+package com.supersection.trimify.controller;
+
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+
+
+@Configuration
+public class EtagConfig {
+
+  /**
+   * ETags for the JSON read endpoints, so a client polling a dashboard gets a
+   * bodiless 304 when nothing changed. Streamed exports opt out in the
+   * controller, since the filter buffers the whole body to hash it.
+   */
+  @Bean
+  public FilterRegistrationBean<ShallowEtagHeaderFilter> shallowEtagHeaderFilter() {
+    FilterRegistrationBean<ShallowEtagHeaderFilter> registration =
+        new FilterRegistrationBean<>(new ShallowEtagHeaderFilter());
+    registration.addUrlPatterns(
+        "/api/urls/myurls", "/api/urls/analytics/*", "/api/urls/totalClicks", "/api/urls/uniqueVisitors",
+        "/api/urls/redirect-policy/*");
+    return registration;
+  }
+}
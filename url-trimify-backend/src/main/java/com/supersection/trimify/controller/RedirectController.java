@@ -1,11 +1,15 @@
 package com.supersection.trimify.controller;
 
 
-import com.supersection.trimify.model.UrlMapping;
+import com.supersection.trimify.click.VisitorFingerprint;
+import com.supersection.trimify.redirect.RedirectMetrics;
+import com.supersection.trimify.redirect.RedirectPolicy;
+import com.supersection.trimify.redirect.RedirectTarget;
+import com.supersection.trimify.redirect.ShortCodeFilter;
 import com.supersection.trimify.service.UrlMappingService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -16,16 +20,28 @@ import org.springframework.web.bind.annotation.RestController;
 public class RedirectController {
 
   private final UrlMappingService urlMappingService;
+  private final ShortCodeFilter shortCodeFilter;
+  private final RedirectMetrics redirectMetrics;
+  private final VisitorFingerprint visitorFingerprint;
 
   @GetMapping("/{shortUrl}")
-  public ResponseEntity<Void> redirectToUrl(@PathVariable String shortUrl) {
-    UrlMapping urlMapping = urlMappingService.getOriginalUrl(shortUrl);
+  public ResponseEntity<Void> redirectToUrl(@PathVariable String shortUrl, HttpServletRequest request) {
+    // Definitely unknown codes never reach the cache or the database
+    if (!shortCodeFilter.mightExist(shortUrl)) {
+      redirectMetrics.filterRejected();
+      return ResponseEntity.notFound().build();
+    }
+
+    long visitor = visitorFingerprint.of(request.getRemoteAddr(), request.getHeader(HttpHeaders.USER_AGENT));
+    RedirectTarget target = urlMappingService.getOriginalUrl(shortUrl, visitor);
 
-    if (urlMapping != null) {
-      // Redirect to the original URL
+    if (target != null) {
+      // Redirect to the original URL with the link's status code and cacheability
+      RedirectPolicy policy = target.policy();
       HttpHeaders httpHeaders = new HttpHeaders();
-      httpHeaders.add("Location", urlMapping.getOriginalUrl());
-      return ResponseEntity.status(HttpStatus.FOUND).headers(httpHeaders).build();
+      httpHeaders.add("Location", target.originalUrl());
+      httpHeaders.add(HttpHeaders.CACHE_CONTROL, policy.cacheControl());
+      return ResponseEntity.status(policy.status()).headers(httpHeaders).build();
 
     } else {
       return ResponseEntity.notFound().build();
@@ -0,0 +1,99 @@
+package com.supersection.trimify.controller;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.supersection.trimify.bulkhead.Bulkhead;
+import com.supersection.trimify.click.ClickIngestionService;
+import com.supersection.trimify.redirect.RedirectCache;
+import com.supersection.trimify.redirect.ShortCodeFilter;
+import com.supersection.trimify.security.jwt.JwtUtils;
+
+
+@RestController
+@RequestMapping("/api/stats")
+public class StatsController {
+
+  private final RedirectCache redirectCache;
+  private final ClickIngestionService clickIngestionService;
+  private final ShortCodeFilter shortCodeFilter;
+  private final JwtUtils jwtUtils;
+  private final List<Bulkhead> bulkheads;
+
+  public StatsController(
+      RedirectCache redirectCache, ClickIngestionService clickIngestionService,
+      ShortCodeFilter shortCodeFilter, JwtUtils jwtUtils, List<Bulkhead> bulkheads
+  ) {
+    this.redirectCache = redirectCache;
+    this.clickIngestionService = clickIngestionService;
+    this.shortCodeFilter = shortCodeFilter;
+    this.jwtUtils = jwtUtils;
+    this.bulkheads = bulkheads;
+  }
+
+  /**
+   * Reports size, hit/miss and eviction statistics of the redirect cache.
+   *
+   * @return A ResponseEntity containing the cache statistics.
+   */
+  @GetMapping("/redirect-cache")
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<Map<String, Object>> getRedirectCacheStats() {
+    return ResponseEntity.ok(redirectCache.describe());
+  }
+
+  /**
+   * Reports buffer occupancy and accepted/written/dropped counts of the click
+   * ingestion pipeline.
+   *
+   * @return A ResponseEntity containing the pipeline statistics.
+   */
+  @GetMapping("/clicks")
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<Map<String, Object>> getClickIngestionStats() {
+    return ResponseEntity.ok(clickIngestionService.describe());
+  }
+
+  /**
+   * Reports the sizing, memory footprint and rejection count of the short code
+   * Bloom filter.
+   *
+   * @return A ResponseEntity containing the filter statistics.
+   */
+  @GetMapping("/redirect-filter")
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<Map<String, Object>> getRedirectFilterStats() {
+    return ResponseEntity.ok(shortCodeFilter.describe());
+  }
+
+  /**
+   * Reports size and hit/miss statistics of the verified token cache.
+   *
+   * @return A ResponseEntity containing the cache statistics.
+   */
+  @GetMapping("/token-cache")
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<Map<String, Object>> getTokenCacheStats() {
+    return ResponseEntity.ok(jwtUtils.describe());
+  }
+
+  /**
+   * Reports the limit, current occupancy and rejection count of each bulkhead.
+   *
+   * @return A ResponseEntity containing the bulkhead statistics by name.
+   */
+  @GetMapping("/bulkheads")
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<Map<String, Object>> getBulkheadStats() {
+    Map<String, Object> stats = new LinkedHashMap<>();
+    bulkheads.forEach(bulkhead -> stats.put(bulkhead.getName(), bulkhead.describe()));
+    return ResponseEntity.ok(stats);
+  }
+}
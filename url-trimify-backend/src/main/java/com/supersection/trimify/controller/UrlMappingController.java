@@ -1,67 +1,175 @@
 package com.supersection.trimify.controller;
 
-import java.security.Principal;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiFunction;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.supersection.trimify.analytics.ClickExportService;
+import com.supersection.trimify.analytics.ExportFormat;
+import com.supersection.trimify.dto.ClickBucketDTO;
 import com.supersection.trimify.dto.ClickEventDTO;
+import com.supersection.trimify.dto.RedirectPolicyRequest;
+import com.supersection.trimify.dto.TrendingLinkDTO;
+import com.supersection.trimify.dto.UniqueVisitorsDTO;
 import com.supersection.trimify.dto.UrlMappingDTO;
-import com.supersection.trimify.model.User;
+import com.supersection.trimify.dto.UrlMappingPage;
+import com.supersection.trimify.live.LiveClickService;
+import com.supersection.trimify.model.UrlMapping;
+import com.supersection.trimify.redirect.RedirectPolicy;
+import com.supersection.trimify.service.BulkShortenService;
 import com.supersection.trimify.service.UrlMappingService;
-import com.supersection.trimify.service.UserService;
+import com.supersection.trimify.service.UserDetailsImpl;
+import com.supersection.trimify.trending.TrendingLink;
+import com.supersection.trimify.trending.TrendingService;
+import com.supersection.trimify.trending.TrendingWindow;
+
+import jakarta.servlet.http.HttpServletRequest;
 
 
 @RestController
 @RequestMapping("/api/urls")
 public class UrlMappingController {
 
+  static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+  // Per-user data that changes with every click: cacheable by the browser, but revalidated by ETag each time
+  private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+  // Bounds used when an export range is open-ended; both fit MySQL DATETIME
+  private static final LocalDateTime EXPORT_MIN_DATE = LocalDateTime.of(1970, 1, 1, 0, 0);
+  private static final LocalDateTime EXPORT_MAX_DATE = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
   private final UrlMappingService urlMappingService;
-  private final UserService userService;
+  private final ClickExportService clickExportService;
+  private final BulkShortenService bulkShortenService;
+  private final TrendingService trendingService;
+  private final LiveClickService liveClickService;
+  private final int defaultPageSize;
+  private final int maxPageSize;
+  private final int maxHistogramBuckets;
 
-  public UrlMappingController(UrlMappingService urlMappingService, UserService userService) {
+  public UrlMappingController(
+      UrlMappingService urlMappingService, ClickExportService clickExportService,
+      BulkShortenService bulkShortenService, TrendingService trendingService,
+      LiveClickService liveClickService,
+      @Value("${trimify.myurls.default-page-size}") int defaultPageSize,
+      @Value("${trimify.myurls.max-page-size}") int maxPageSize,
+      @Value("${trimify.histogram.max-buckets}") int maxHistogramBuckets
+  ) {
     this.urlMappingService = urlMappingService;
-    this.userService = userService;
+    this.clickExportService = clickExportService;
+    this.bulkShortenService = bulkShortenService;
+    this.trendingService = trendingService;
+    this.liveClickService = liveClickService;
+    this.defaultPageSize = defaultPageSize;
+    this.maxPageSize = maxPageSize;
+    this.maxHistogramBuckets = maxHistogramBuckets;
   }
 
   /**
    * Creates a short URL for the given original URL.
    *
    * @param request   A map containing the original URL under the key "originalUrl".
-   * @param principal The authenticated user principal.
-   * @return A ResponseEntity containing the created UrlMappingDTO.
+   * @param user      The authenticated user principal.
+   * @return A ResponseEntity containing the created UrlMappingDTO, or 400 if
+   *     the original URL is missing or blank.
    */
   @PostMapping("/trimify")
   @PreAuthorize("hasRole('USER')")
   public ResponseEntity<UrlMappingDTO> createShortUrl(
-      @RequestBody Map<String, String> request, Principal principal
+      @RequestBody Map<String, String> request, @AuthenticationPrincipal UserDetailsImpl user
   ) {
     String originalUrl = request.get("originalUrl");
-    User user = userService.findByUsername(principal.getName());
+    // Checked before dedup normalizes and hashes it
+    if (originalUrl == null || originalUrl.isBlank()) {
+      return ResponseEntity.badRequest().build();
+    }
 
     UrlMappingDTO urlMappingDTO = urlMappingService.createShortUrl(originalUrl, user);
     return ResponseEntity.ok(urlMappingDTO);
   }
 
 
+  /**
+   * Creates short URLs in bulk. The body is a JSON array or NDJSON stream of
+   * URLs (or {@code {"originalUrl": ...}} objects); results are streamed back
+   * as NDJSON, one line per item, as each chunk is persisted.
+   *
+   * @param user    The authenticated user principal.
+   * @param request The request whose body is read as it arrives.
+   * @return A ResponseEntity streaming one result per input item.
+   */
+  @PostMapping(
+      value = "/trimify/batch",
+      consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+  @PreAuthorize("hasRole('USER')")
+  public ResponseEntity<StreamingResponseBody> createShortUrls(
+      @AuthenticationPrincipal UserDetailsImpl user, HttpServletRequest request
+  ) {
+    StreamingResponseBody body = outputStream ->
+        bulkShortenService.shorten(request.getInputStream(), user, outputStream);
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+  }
+
+
+  /**
+   * Lists the caller's links one keyset page at a time. When more links
+   * follow, the cursor for the next page is returned in the
+   * {@value #NEXT_CURSOR_HEADER} header.
+   *
+   * @param limit     Page size, capped at {@code trimify.myurls.max-page-size}.
+   * @param sort      {@code createdAt} (default) or {@code clickCount}.
+   * @param direction {@code desc} (default) or {@code asc}.
+   */
   @GetMapping("/myurls")
   @PreAuthorize("hasRole('USER')")
-  public ResponseEntity<List<UrlMappingDTO>> getMyUrls(Principal principal) {
-    User user = userService.findByUsername(principal.getName());
-    List<UrlMappingDTO> urls = urlMappingService.getUrlsByUser(user);
-    return ResponseEntity.ok(urls);
+  public ResponseEntity<List<UrlMappingDTO>> getMyUrls(
+      @AuthenticationPrincipal UserDetailsImpl user,
+      @RequestParam(value = "cursor", required = false) String cursor,
+      @RequestParam(value = "limit", required = false) Integer limit,
+      @RequestParam(value = "sort", defaultValue = "createdAt") String sort,
+      @RequestParam(value = "direction", defaultValue = "desc") String direction
+  ) {
+    int pageSize = Math.clamp(limit != null ? limit : defaultPageSize, 1, maxPageSize);
+    UrlMappingPage page;
+    try {
+      page = urlMappingService.getUrlsByUser(user, cursor, pageSize, sort, direction);
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().build();
+    }
+
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok().cacheControl(REVALIDATE);
+    if (page.getNextCursor() != null) {
+      response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+    }
+    return response.body(page.getUrls());
   }
 
 
@@ -76,14 +184,147 @@ public class UrlMappingController {
     LocalDateTime start = LocalDateTime.parse(startDate, formatter);
     LocalDateTime end = LocalDateTime.parse(endDate, formatter);
     List<ClickEventDTO> clickEventAnalytics = urlMappingService.getClickEventsByDate(shortUrl, start, end);
-    return ResponseEntity.ok(clickEventAnalytics);
+    return ResponseEntity.ok().cacheControl(REVALIDATE).body(clickEventAnalytics);
+  }
+
+
+  /**
+   * Clicks on one of the caller's links per {@code bucket}, such as
+   * {@code 1h} or {@code 15m}, from {@code startDate} through {@code endDate}.
+   */
+  @GetMapping("/analytics/{shortUrl}/histogram")
+  @PreAuthorize("hasRole('USER')")
+  public ResponseEntity<List<ClickBucketDTO>> getUrlClickHistogram(
+      @AuthenticationPrincipal UserDetailsImpl user,
+      @PathVariable String shortUrl,
+      @RequestParam("startDate") String startDate,
+      @RequestParam("endDate") String endDate,
+      @RequestParam(value = "bucket", defaultValue = "1h") String bucket
+  ) {
+    Duration bucketSize;
+    try {
+      bucketSize = DurationStyle.detectAndParse(bucket);
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().build();
+    }
+    DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+    LocalDateTime start = LocalDateTime.parse(startDate, formatter);
+    LocalDateTime end = LocalDateTime.parse(endDate, formatter);
+    if (bucketSize.toSeconds() < 1 || end.isBefore(start)
+        || Duration.between(start, end).toSeconds() / bucketSize.toSeconds() >= maxHistogramBuckets) {
+      return ResponseEntity.badRequest().build();
+    }
+
+    UrlMapping urlMapping = urlMappingService.getOwnedUrlMapping(shortUrl, user.getId());
+    if (urlMapping == null) {
+      return ResponseEntity.notFound().build();
+    }
+    List<ClickBucketDTO> histogram = urlMappingService.getClickHistogram(urlMapping, start, end, bucketSize);
+    return ResponseEntity.ok().cacheControl(REVALIDATE).body(histogram);
+  }
+
+
+  /**
+   * Streams the raw clicks of one of the caller's links as NDJSON or CSV.
+   * The response is gzip-encoded when the client accepts it.
+   */
+  @GetMapping("/analytics/{shortUrl}/export")
+  @PreAuthorize("hasRole('USER')")
+  public ResponseEntity<StreamingResponseBody> exportUrlClicks(
+      @AuthenticationPrincipal UserDetailsImpl user,
+      @PathVariable String shortUrl,
+      @RequestParam(value = "startDate", required = false) String startDate,
+      @RequestParam(value = "endDate", required = false) String endDate,
+      @RequestParam(value = "format", defaultValue = "ndjson") String format,
+      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+      HttpServletRequest request
+  ) {
+    // Hashing for an ETag would buffer the whole export in memory
+    ShallowEtagHeaderFilter.disableContentCaching(request);
+
+    ExportFormat exportFormat;
+    try {
+      exportFormat = ExportFormat.from(format);
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().build();
+    }
+    DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+    LocalDateTime start = startDate != null ? LocalDateTime.parse(startDate, formatter) : EXPORT_MIN_DATE;
+    LocalDateTime end = endDate != null ? LocalDateTime.parse(endDate, formatter) : EXPORT_MAX_DATE;
+
+    UrlMapping urlMapping = urlMappingService.getOwnedUrlMapping(shortUrl, user.getId());
+    if (urlMapping == null) {
+      return ResponseEntity.notFound().build();
+    }
+
+    Long urlMappingId = urlMapping.getId();
+    boolean gzip = ClickExportService.acceptsGzip(acceptEncoding);
+    StreamingResponseBody body = outputStream ->
+        clickExportService.export(urlMappingId, start, end, exportFormat, gzip, outputStream);
+
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+        .header(HttpHeaders.CONTENT_TYPE, exportFormat.getContentType())
+        .header(HttpHeaders.CONTENT_DISPOSITION,
+            "attachment; filename=\"" + shortUrl + "-clicks." + exportFormat.getExtension() + "\"")
+        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    if (gzip) {
+      response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+    }
+    return response.body(body);
+  }
+
+
+  /**
+   * Streams the clicks of one of the caller's links over the last minute
+   * and hour as server-sent {@code clicks} events, replacing polling of
+   * {@link #getUrlAnalytics}.
+   */
+  @GetMapping(value = "/analytics/{shortUrl}/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  @PreAuthorize("hasRole('USER')")
+  public ResponseEntity<SseEmitter> streamUrlClicks(
+      @AuthenticationPrincipal UserDetailsImpl user,
+      @PathVariable String shortUrl,
+      HttpServletRequest request
+  ) {
+    // Hashing for an ETag would hold back every event until the stream ends
+    ShallowEtagHeaderFilter.disableContentCaching(request);
+
+    UrlMapping urlMapping = urlMappingService.getOwnedUrlMapping(shortUrl, user.getId());
+    if (urlMapping == null) {
+      return ResponseEntity.notFound().build();
+    }
+    SseEmitter emitter = liveClickService.subscribe(urlMapping.getId());
+    if (emitter == null) {
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+    }
+    return ResponseEntity.ok(emitter);
   }
 
 
   @GetMapping("/totalClicks")
   @PreAuthorize("hasRole('USER')")
   public ResponseEntity<Map<LocalDate, Long>> getTotalClicksByDate(
-      Principal principal,
+      @AuthenticationPrincipal UserDetailsImpl user,
+      @RequestParam("startDate") String startDate,
+      @RequestParam("endDate") String endDate
+  ) {
+    DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE;
+    LocalDate start = LocalDate.parse(startDate, formatter);
+    LocalDate end = LocalDate.parse(endDate, formatter);
+
+    Map<LocalDate, Long> totalClicks = urlMappingService.getTotalClicksByUserAndDate(user.getId(), start, end);
+    return ResponseEntity.ok().cacheControl(REVALIDATE).body(totalClicks);
+  }
+
+
+  /**
+   * Estimated unique visitors across all of the caller's links, per day and
+   * over the whole range.
+   */
+  @GetMapping("/uniqueVisitors")
+  @PreAuthorize("hasRole('USER')")
+  public ResponseEntity<UniqueVisitorsDTO> getUniqueVisitors(
+      @AuthenticationPrincipal UserDetailsImpl user,
       @RequestParam("startDate") String startDate,
       @RequestParam("endDate") String endDate
   ) {
@@ -91,9 +332,130 @@ public class UrlMappingController {
     LocalDate start = LocalDate.parse(startDate, formatter);
     LocalDate end = LocalDate.parse(endDate, formatter);
 
-    User user = userService.findByUsername(principal.getName());
-    Map<LocalDate, Long> totalClicks = urlMappingService.getTotalClicksByUserAndDate(user, start, end);
-    return ResponseEntity.ok(totalClicks);
+    UniqueVisitorsDTO visitors = urlMappingService.getUniqueVisitorsByUser(user.getId(), start, end);
+    return ResponseEntity.ok().cacheControl(REVALIDATE).body(visitors);
+  }
+
+
+  /**
+   * Estimated unique visitors to one of the caller's links, per day and over
+   * the whole range.
+   */
+  @GetMapping("/analytics/{shortUrl}/visitors")
+  @PreAuthorize("hasRole('USER')")
+  public ResponseEntity<UniqueVisitorsDTO> getUrlUniqueVisitors(
+      @AuthenticationPrincipal UserDetailsImpl user,
+      @PathVariable String shortUrl,
+      @RequestParam("startDate") String startDate,
+      @RequestParam("endDate") String endDate
+  ) {
+    UrlMapping urlMapping = urlMappingService.getOwnedUrlMapping(shortUrl, user.getId());
+    if (urlMapping == null) {
+      return ResponseEntity.notFound().build();
+    }
+    DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE;
+    LocalDate start = LocalDate.parse(startDate, formatter);
+    LocalDate end = LocalDate.parse(endDate, formatter);
+
+    UniqueVisitorsDTO visitors = urlMappingService.getUniqueVisitors(urlMapping, start, end);
+    return ResponseEntity.ok().cacheControl(REVALIDATE).body(visitors);
+  }
+
+
+  /**
+   * The caller's most clicked links over the last 5m, 1h or 24h, from
+   * in-memory sketches of this node's redirects.
+   */
+  @GetMapping("/trending")
+  @PreAuthorize("hasRole('USER')")
+  public ResponseEntity<List<TrendingLinkDTO>> getTrending(
+      @AuthenticationPrincipal UserDetailsImpl user,
+      @RequestParam(value = "window", defaultValue = "1h") String window,
+      @RequestParam(value = "limit", defaultValue = "10") int limit
+  ) {
+    return trending(window, limit,
+        (trendingWindow, max) -> trendingService.topForUser(trendingWindow, user.getId(), max));
+  }
+
+
+  /**
+   * The most clicked links of all users.
+   */
+  @GetMapping(value = "/trending", params = "scope=all")
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<List<TrendingLinkDTO>> getTrendingOverall(
+      @RequestParam(value = "window", defaultValue = "1h") String window,
+      @RequestParam(value = "limit", defaultValue = "10") int limit
+  ) {
+    return trending(window, limit, trendingService::top);
+  }
+
+
+  /**
+   * Ranks the links of {@code window} with {@code top}, or answers 400 if the
+   * window is unknown or the limit is not positive.
+   */
+  private ResponseEntity<List<TrendingLinkDTO>> trending(
+      String window, int limit, BiFunction<TrendingWindow, Integer, List<TrendingLink>> top
+  ) {
+    TrendingWindow trendingWindow;
+    try {
+      trendingWindow = TrendingWindow.from(window);
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().build();
+    }
+    if (limit < 1) {
+      return ResponseEntity.badRequest().build();
+    }
+    List<TrendingLink> links = top.apply(trendingWindow, limit);
+    return ResponseEntity.ok().cacheControl(REVALIDATE).body(trendingService.resolve(links));
+  }
+
+
+  /**
+   * Returns the redirect policy of one of the caller's links. Conditional
+   * requests are answered with 304 while the policy is unchanged.
+   */
+  @GetMapping("/redirect-policy/{shortUrl}")
+  @PreAuthorize("hasRole('USER')")
+  public ResponseEntity<RedirectPolicy> getRedirectPolicy(
+      @AuthenticationPrincipal UserDetailsImpl user, @PathVariable String shortUrl
+  ) {
+    UrlMapping urlMapping = urlMappingService.getOwnedUrlMapping(shortUrl, user.getId());
+    if (urlMapping == null) {
+      return ResponseEntity.notFound().build();
+    }
+
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok().cacheControl(REVALIDATE);
+    LocalDateTime updatedAt = urlMapping.getUpdatedAt() != null ? urlMapping.getUpdatedAt() : urlMapping.getCreatedAt();
+    if (updatedAt != null) {
+      response.lastModified(updatedAt.atZone(ZoneId.systemDefault()));
+    }
+    return response.body(urlMapping.getRedirectPolicy());
+  }
+
+
+  /**
+   * Sets the status code, cache lifetime and click tracking mode used when
+   * redirecting one of the caller's links. Omitted fields are reset to their
+   * defaults (an uncached 302 with accurate tracking).
+   */
+  @PutMapping("/redirect-policy/{shortUrl}")
+  @PreAuthorize("hasRole('USER')")
+  public ResponseEntity<RedirectPolicy> updateRedirectPolicy(
+      @AuthenticationPrincipal UserDetailsImpl user,
+      @PathVariable String shortUrl,
+      @RequestBody RedirectPolicyRequest request
+  ) {
+    RedirectPolicy policy;
+    try {
+      policy = RedirectPolicy.of(request.getStatus(), request.getMaxAgeSeconds(), request.getTracking());
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().build();
+    }
+
+    RedirectPolicy updated = urlMappingService.updateRedirectPolicy(shortUrl, user.getId(), policy);
+    return updated != null ? ResponseEntity.ok(updated) : ResponseEntity.notFound().build();
   }
 
 }
@@ -0,0 +1,16 @@
+package com.supersection.trimify.dedup;
+
+/**
+ * Scope within which shortening an already shortened URL returns the existing
+ * mapping instead of creating a new one. Mappings created before
+ * {@code url_hash} existed are only found once {@link UrlHashBackfill} has
+ * hashed them.
+ */
+public enum DedupMode {
+  /** Every request creates a new mapping. */
+  OFF,
+  /** Reuse a mapping the same user created for the same normalized URL. */
+  PER_USER,
+  /** Reuse any mapping for the same normalized URL, whoever created it. */
+  GLOBAL
+}
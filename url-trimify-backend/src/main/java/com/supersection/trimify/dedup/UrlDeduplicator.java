@@ -0,0 +1,83 @@
+package com.supersection.trimify.dedup;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.supersection.trimify.model.UrlMapping;
+import com.supersection.trimify.repository.UrlMappingRepository;
+
+/**
+ * Finds mappings that already exist for a URL, according to the configured
+ * {@link DedupMode}.
+ *
+ * <p>Candidates are looked up by the indexed {@code url_hash} and then
+ * confirmed by comparing normalized URLs, so a hash collision can never return
+ * the wrong link. Deduplication is best effort: two concurrent requests for
+ * the same new URL may both create a mapping.
+ */
+@Component
+public class UrlDeduplicator {
+
+  private final UrlMappingRepository urlMappingRepository;
+  private final UrlNormalizer urlNormalizer;
+  private final DedupMode mode;
+
+  public UrlDeduplicator(
+      UrlMappingRepository urlMappingRepository,
+      UrlNormalizer urlNormalizer,
+      @Value("${trimify.dedup.mode}") DedupMode mode
+  ) {
+    this.urlMappingRepository = urlMappingRepository;
+    this.urlNormalizer = urlNormalizer;
+    this.mode = mode;
+  }
+
+  public boolean isEnabled() {
+    return mode != DedupMode.OFF;
+  }
+
+  public String normalize(String originalUrl) {
+    return urlNormalizer.normalize(originalUrl);
+  }
+
+  /** The fingerprint stored with every new mapping, whether or not dedup is enabled. */
+  public long hash(String originalUrl) {
+    return urlNormalizer.hash(originalUrl);
+  }
+
+  /**
+   * @return the oldest existing mapping for each of {@code originalUrls} that
+   *     has one, keyed by normalized URL. Empty if dedup is off.
+   */
+  public Map<String, UrlMapping> findExisting(Collection<String> originalUrls, Long userId) {
+    Map<String, UrlMapping> existing = new HashMap<>();
+    if (!isEnabled() || originalUrls.isEmpty()) {
+      return existing;
+    }
+
+    Set<String> normalizedUrls = new HashSet<>();
+    Set<Long> urlHashes = new HashSet<>();
+    for (String originalUrl : originalUrls) {
+      normalizedUrls.add(urlNormalizer.normalize(originalUrl));
+      urlHashes.add(urlNormalizer.hash(originalUrl));
+    }
+
+    List<UrlMapping> candidates = mode == DedupMode.PER_USER
+        ? urlMappingRepository.findByUserIdAndUrlHashIn(userId, urlHashes)
+        : urlMappingRepository.findByUrlHashIn(urlHashes);
+    for (UrlMapping candidate : candidates) {
+      String normalized = urlNormalizer.normalize(candidate.getOriginalUrl());
+      if (normalizedUrls.contains(normalized)) {
+        existing.putIfAbsent(normalized, candidate);
+      }
+    }
+    return existing;
+  }
+}
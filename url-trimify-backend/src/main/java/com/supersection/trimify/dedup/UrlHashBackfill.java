@@ -0,0 +1,94 @@
+package com.supersection.trimify.dedup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fills in {@code url_mapping.url_hash} for mappings created before it
+ * existed, which deduplication would otherwise never find.
+ *
+ * <p>Runs once on a background thread after startup. Only the id range that
+ * still has hashes missing, found through the {@code url_hash} index, is
+ * walked in id order, one batch per page, so a finished backfill costs one
+ * query per start. Every node computes the same hashes, so nodes starting
+ * together only repeat each other's work.
+ */
+@Component
+public class UrlHashBackfill {
+
+  private static final Logger log = LoggerFactory.getLogger(UrlHashBackfill.class);
+
+  private static final int PAGE_SIZE = 1_000;
+
+  private static final String SELECT_RANGE =
+      "SELECT MIN(id) AS first_id, MAX(id) AS last_id FROM url_mapping WHERE url_hash IS NULL";
+
+  private static final String SELECT_PAGE = "SELECT id, original_url FROM url_mapping"
+      + " WHERE id >= ? AND id <= ? AND url_hash IS NULL ORDER BY id LIMIT ?";
+
+  private static final String UPDATE_HASH = "UPDATE url_mapping SET url_hash = ? WHERE id = ? AND url_hash IS NULL";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final UrlNormalizer urlNormalizer;
+  private final boolean backfillOnStartup;
+
+  public UrlHashBackfill(
+      JdbcTemplate jdbcTemplate,
+      UrlNormalizer urlNormalizer,
+      @Value("${trimify.dedup.backfill-on-startup}") boolean backfillOnStartup
+  ) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.urlNormalizer = urlNormalizer;
+    this.backfillOnStartup = backfillOnStartup;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void backfillOnStartup() {
+    if (backfillOnStartup) {
+      Thread backfill = new Thread(this::backfill, "url-hash-backfill");
+      backfill.setDaemon(true);
+      backfill.start();
+    }
+  }
+
+  /** @return the number of mappings hashed. */
+  public long backfill() {
+    try {
+      Map<String, Object> range = jdbcTemplate.queryForMap(SELECT_RANGE);
+      if (range.get("first_id") == null) {
+        return 0;
+      }
+      long fromId = ((Number) range.get("first_id")).longValue();
+      long lastId = ((Number) range.get("last_id")).longValue();
+      long started = System.nanoTime();
+      long hashed = 0;
+      List<Map<String, Object>> page;
+      do {
+        page = jdbcTemplate.queryForList(SELECT_PAGE, fromId, lastId, PAGE_SIZE);
+        List<Object[]> rows = new ArrayList<>(page.size());
+        for (Map<String, Object> row : page) {
+          long id = ((Number) row.get("id")).longValue();
+          rows.add(new Object[] { urlNormalizer.hash((String) row.get("original_url")), id });
+          fromId = id + 1;
+        }
+        jdbcTemplate.batchUpdate(UPDATE_HASH, rows);
+        hashed += rows.size();
+      } while (page.size() == PAGE_SIZE);
+      log.info("Hashed the URLs of {} mappings created before url_hash in {} ms",
+          hashed, (System.nanoTime() - started) / 1_000_000);
+      return hashed;
+    } catch (RuntimeException e) {
+      log.error("Failed to backfill url_hash, mappings without one are not deduplicated until the next start", e);
+      return 0;
+    }
+  }
+}
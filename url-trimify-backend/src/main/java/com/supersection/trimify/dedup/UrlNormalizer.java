@@ -0,0 +1,150 @@
+package com.supersection.trimify.dedup;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reduces URLs that point at the same resource to one canonical form, and
+ * hashes that form into the 64-bit fingerprint stored in
+ * {@code url_mapping.url_hash}.
+ *
+ * <p>Scheme and host are lowercased, default ports and empty paths are
+ * normalized, and configured tracking parameters are removed. Path, query
+ * values and fragment are kept byte for byte otherwise, since servers may treat
+ * them case-sensitively. Input that is not a valid URI is only trimmed.
+ */
+@Component
+public class UrlNormalizer {
+
+  private final Set<String> strippedParams;
+  private final List<String> strippedParamPrefixes;
+  private final boolean stripFragment;
+  private final boolean sortQueryParams;
+
+  public UrlNormalizer(
+      @Value("${trimify.dedup.normalizer.strip-params}") List<String> strippedParams,
+      @Value("${trimify.dedup.normalizer.strip-param-prefixes}") List<String> strippedParamPrefixes,
+      @Value("${trimify.dedup.normalizer.strip-fragment}") boolean stripFragment,
+      @Value("${trimify.dedup.normalizer.sort-query-params}") boolean sortQueryParams
+  ) {
+    this.strippedParams = strippedParams.stream()
+        .map(param -> param.trim().toLowerCase(Locale.ROOT))
+        .filter(param -> !param.isEmpty())
+        .collect(Collectors.toUnmodifiableSet());
+    this.strippedParamPrefixes = strippedParamPrefixes.stream()
+        .map(prefix -> prefix.trim().toLowerCase(Locale.ROOT))
+        .filter(prefix -> !prefix.isEmpty())
+        .toList();
+    this.stripFragment = stripFragment;
+    this.sortQueryParams = sortQueryParams;
+  }
+
+  public String normalize(String url) {
+    String trimmed = url.trim();
+    URI uri;
+    try {
+      uri = new URI(trimmed);
+    } catch (URISyntaxException e) {
+      return trimmed;
+    }
+    if (uri.isOpaque() || uri.getScheme() == null || uri.getRawAuthority() == null) {
+      return trimmed;
+    }
+
+    String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+    StringBuilder normalized = new StringBuilder(trimmed.length()).append(scheme).append("://");
+    if (uri.getHost() == null) {
+      // Registry-based authority, e.g. an underscore in the host name
+      normalized.append(uri.getRawAuthority().toLowerCase(Locale.ROOT));
+    } else {
+      if (uri.getRawUserInfo() != null) {
+        normalized.append(uri.getRawUserInfo()).append('@');
+      }
+      normalized.append(uri.getHost().toLowerCase(Locale.ROOT));
+      if (uri.getPort() != -1 && uri.getPort() != defaultPort(scheme)) {
+        normalized.append(':').append(uri.getPort());
+      }
+    }
+
+    String path = uri.getRawPath();
+    normalized.append(path == null || path.isEmpty() ? "/" : path);
+
+    String query = normalizeQuery(uri.getRawQuery());
+    if (!query.isEmpty()) {
+      normalized.append('?').append(query);
+    }
+    String fragment = uri.getRawFragment();
+    if (!stripFragment && fragment != null && !fragment.isEmpty()) {
+      normalized.append('#').append(fragment);
+    }
+    return normalized.toString();
+  }
+
+  /**
+   * @return a 64-bit fingerprint of the normalized form of {@code url}.
+   */
+  public long hash(String url) {
+    byte[] digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256").digest(normalize(url).getBytes(StandardCharsets.UTF_8));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+    long hash = 0;
+    for (int i = 0; i < Long.BYTES; i++) {
+      hash = (hash << 8) | (digest[i] & 0xFF);
+    }
+    return hash;
+  }
+
+  private String normalizeQuery(String rawQuery) {
+    if (rawQuery == null || rawQuery.isEmpty()) {
+      return "";
+    }
+    List<String> kept = new ArrayList<>();
+    for (String param : rawQuery.split("&")) {
+      if (!param.isEmpty() && !isStripped(param)) {
+        kept.add(param);
+      }
+    }
+    if (sortQueryParams) {
+      Collections.sort(kept);
+    }
+    return String.join("&", kept);
+  }
+
+  private boolean isStripped(String param) {
+    int equals = param.indexOf('=');
+    String name = (equals >= 0 ? param.substring(0, equals) : param).toLowerCase(Locale.ROOT);
+    if (strippedParams.contains(name)) {
+      return true;
+    }
+    for (String prefix : strippedParamPrefixes) {
+      if (name.startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int defaultPort(String scheme) {
+    return switch (scheme) {
+      case "http", "ws" -> 80;
+      case "https", "wss" -> 443;
+      case "ftp" -> 21;
+      default -> -1;
+    };
+  }
+}
@@ -0,0 +1,32 @@
+package com.supersection.trimify.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome for one item of a batch shortening request. Exactly one of
+ * {@code shortUrl} and {@code error} is set.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchShortenResult {
+  private int index;
+  private Long id;
+  private String originalUrl;
+  private String shortUrl;
+  private String error;
+
+  public static BatchShortenResult created(int index, UrlMappingDTO urlMapping) {
+    return new BatchShortenResult(
+        index, urlMapping.getId(), urlMapping.getOriginalUrl(), urlMapping.getShortUrl(), null);
+  }
+
+  public static BatchShortenResult failed(int index, String originalUrl, String error) {
+    return new BatchShortenResult(index, null, originalUrl, null, error);
+  }
+}
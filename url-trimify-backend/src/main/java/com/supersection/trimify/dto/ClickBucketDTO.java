@@ -0,0 +1,18 @@
+package com.supersection.trimify.dto;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Clicks in one histogram bucket starting at {@code start}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClickBucketDTO {
+  private LocalDateTime start;
+  private long clicks;
+}
@@ -0,0 +1,9 @@
+package com.supersection.trimify.dto;
+
+/**
+ * Clicks in one histogram bucket, counted in the database.
+ */
+public interface ClickBucketProjection {
+  Long getBucket();
+  Long getClicks();
+}
@@ -12,4 +12,6 @@ import lombok.NoArgsConstructor;
 public class ClickEventDTO {
   private LocalDate clickDate;
   private Long count;
+  /** Estimated unique visitors that whole day; {@code null} for days before visitors were tracked. */
+  private Long uniqueVisitors;
 }
@@ -0,0 +1,11 @@
+package com.supersection.trimify.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Id and timestamp of a {@code ClickEvent}, selected without loading the entity.
+ */
+public interface ClickExportProjection {
+  Long getId();
+  LocalDateTime getClickDate();
+}
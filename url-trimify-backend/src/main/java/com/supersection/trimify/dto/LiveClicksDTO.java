@@ -0,0 +1,19 @@
+package com.supersection.trimify.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Recent clicks on one link, pushed on its live stream. Both arrays are
+ * oldest first and end with the second or minute containing
+ * {@code timestamp}, which is still being counted.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LiveClicksDTO {
+  private long timestamp;
+  private int[] perSecond;
+  private int[] perMinute;
+}
@@ -0,0 +1,17 @@
+package com.supersection.trimify.dto;
+
+import com.supersection.trimify.redirect.ClickTracking;
+
+import lombok.Data;
+
+/**
+ * Body of a redirect policy update. Omitted fields take the defaults of
+ * {@link com.supersection.trimify.redirect.RedirectPolicy#DEFAULT}.
+ */
+@Data
+public class RedirectPolicyRequest {
+
+  private Integer status;
+  private Integer maxAgeSeconds;
+  private ClickTracking tracking;
+}
@@ -0,0 +1,9 @@
+package com.supersection.trimify.dto;
+
+/**
+ * Id and short code of a {@code UrlMapping}, selected without loading the entity.
+ */
+public interface ShortUrlProjection {
+  Long getId();
+  String getShortUrl();
+}
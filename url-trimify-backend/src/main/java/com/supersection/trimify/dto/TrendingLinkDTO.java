@@ -0,0 +1,17 @@
+package com.supersection.trimify.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A trending link and its estimated clicks in the requested window.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrendingLinkDTO {
+  private String shortUrl;
+  private String originalUrl;
+  private long clicks;
+}
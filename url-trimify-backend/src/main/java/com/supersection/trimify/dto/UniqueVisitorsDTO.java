@@ -0,0 +1,20 @@
+package com.supersection.trimify.dto;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Estimated unique visitors per day, and over the whole range. The total is
+ * less than the sum of the days when visitors came back on several days.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UniqueVisitorsDTO {
+  private Map<LocalDate, Long> byDay;
+  private long total;
+}
@@ -0,0 +1,17 @@
+package com.supersection.trimify.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * One page of a user's links, with the cursor for the next page or
+ * {@code null} if this is the last one.
+ */
+@Data
+@AllArgsConstructor
+public class UrlMappingPage {
+  private List<UrlMappingDTO> urls;
+  private String nextCursor;
+}
@@ -0,0 +1,15 @@
+package com.supersection.trimify.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * The {@code UrlMapping} columns shown in a user's link list, selected without
+ * loading the entity or its relations.
+ */
+public interface UrlMappingSummary {
+  Long getId();
+  String getOriginalUrl();
+  String getShortUrl();
+  int getClickCount();
+  LocalDateTime getCreatedAt();
+}
@@ -0,0 +1,55 @@
+package com.supersection.trimify.live;
+
+/**
+ * Click counts over the last {@code slots} seconds or minutes, one counter
+ * per slot in a ring that is moved forward instead of shifted. Not
+ * thread-safe.
+ */
+final class ClickRing {
+
+  private final int[] counts;
+  /** Newest slot, numbered from the epoch. */
+  private long head;
+
+  ClickRing(int slots) {
+    this.counts = new int[slots];
+  }
+
+  /** Makes {@code slot} the newest slot, clearing the slots it skips. */
+  void advance(long slot) {
+    if (slot <= head) {
+      return;
+    }
+    long cleared = Math.min(slot - head, counts.length);
+    for (long s = slot - cleared + 1; s <= slot; s++) {
+      counts[index(s)] = 0;
+    }
+    head = slot;
+  }
+
+  /**
+   * Counts clicks in {@code slot}, first making it the newest slot if it is
+   * newer. Clicks older than the ring are ignored.
+   */
+  void add(long slot, int clicks) {
+    advance(slot);
+    if (slot > head - counts.length) {
+      counts[index(slot)] += clicks;
+    }
+  }
+
+  /**
+   * @return the counts oldest first, ending with the newest slot.
+   */
+  int[] toArray() {
+    int[] ordered = new int[counts.length];
+    for (int i = 0; i < counts.length; i++) {
+      ordered[i] = counts[index(head - counts.length + 1 + i)];
+    }
+    return ordered;
+  }
+
+  private int index(long slot) {
+    return (int) Math.floorMod(slot, counts.length);
+  }
+}
@@ -0,0 +1,260 @@
+package com.supersection.trimify.live;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.supersection.trimify.analytics.ClickIndex;
+import com.supersection.trimify.analytics.ClickTailListener;
+import com.supersection.trimify.click.ClickRecord;
+import com.supersection.trimify.dto.LiveClicksDTO;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Live per-link click counts for dashboards, pushed as server-sent events
+ * instead of polled from {@code click_event}.
+ *
+ * <p>Clicks of every node are read from the {@link ClickIndex} tail as a
+ * {@link ClickTailListener} and counted into per-second and per-minute
+ * {@link ClickRing}s at the second they happened, so they show up one index
+ * refresh late. Once per push interval a single tick, for each subscribed
+ * link that was clicked, gained a subscriber or is due a heartbeat,
+ * serializes one update that is shared by all of its subscribers. Updates are written one pending update per
+ * subscriber by a sender pool that grows with the subscribers being written
+ * to, so a client that stops reading only holds up its own thread until the
+ * container's write timeout fails the write; one stuck on a write for
+ * {@code slow-consumer-timeout} is disconnected.
+ *
+ * <p>Recent clicks are kept for at most {@code max-links} links, which are
+ * retired once idle for the whole per-minute window; subscribed links are
+ * always tracked. Counts are only kept where
+ * {@code trimify.click-index.enabled} is set.
+ */
+@Service
+public class LiveClickService implements ClickTailListener, MeterBinder {
+
+  private static final String EVENT_NAME = "clicks";
+
+  private final ObjectMapper objectMapper;
+  private final int seconds;
+  private final int minutes;
+  private final long heartbeatSeconds;
+  private final int maxLinks;
+  private final int maxSubscribers;
+  private final long slowConsumerNanos;
+  private final long streamTimeoutMillis;
+  // Platform threads: SseEmitter writes while holding its monitor, which pins virtual threads on Java 21
+  private final ExecutorService sender = Executors.newCachedThreadPool(
+      Thread.ofPlatform().name("live-sender-", 0).daemon().factory());
+
+  private final ConcurrentHashMap<Long, Link> links = new ConcurrentHashMap<>();
+  private final AtomicInteger subscribers = new AtomicInteger();
+  private final LongAdder coalesced = new LongAdder();
+  private final LongAdder evicted = new LongAdder();
+  private final LongAdder untracked = new LongAdder();
+
+  /** Recent clicks and subscribers of one link. Rings are only touched under the service's lock. */
+  private static final class Link {
+
+    final ClickRing perSecond;
+    final ClickRing perMinute;
+    final Set<LiveSubscriber> subscribers = ConcurrentHashMap.newKeySet();
+    volatile boolean joined;
+    boolean clicked;
+    long lastClickSecond;
+    long lastPushSecond;
+
+    Link(int seconds, int minutes) {
+      this.perSecond = new ClickRing(seconds);
+      this.perMinute = new ClickRing(minutes);
+    }
+  }
+
+  public LiveClickService(
+      ObjectMapper objectMapper,
+      @Value("${trimify.live.seconds}") int seconds,
+      @Value("${trimify.live.minutes}") int minutes,
+      @Value("${trimify.live.heartbeat-interval}") Duration heartbeatInterval,
+      @Value("${trimify.live.max-links}") int maxLinks,
+      @Value("${trimify.live.max-subscribers}") int maxSubscribers,
+      @Value("${trimify.live.slow-consumer-timeout}") Duration slowConsumerTimeout,
+      @Value("${trimify.live.stream-timeout}") Duration streamTimeout
+  ) {
+    this.objectMapper = objectMapper;
+    this.seconds = seconds;
+    this.minutes = minutes;
+    this.heartbeatSeconds = heartbeatInterval.toSeconds();
+    this.maxLinks = maxLinks;
+    this.maxSubscribers = maxSubscribers;
+    this.slowConsumerNanos = slowConsumerTimeout.toNanos();
+    this.streamTimeoutMillis = streamTimeout.toMillis();
+  }
+
+  @Override
+  public synchronized void onClicks(List<ClickRecord> clicks) {
+    // Older clicks are outside both rings, like the history read on startup
+    long since = System.currentTimeMillis() / 1000 - minutes * 60L;
+    for (ClickRecord click : clicks) {
+      long second = click.clickedAt() / 1000;
+      if (second <= since) {
+        continue;
+      }
+      Link link = links.get(click.urlMappingId());
+      if (link == null) {
+        if (links.size() >= maxLinks) {
+          untracked.increment();
+          continue;
+        }
+        link = links.computeIfAbsent(click.urlMappingId(), id -> new Link(seconds, minutes));
+      }
+      link.perSecond.add(second, 1);
+      link.perMinute.add(click.clickedAt() / 60_000, 1);
+      link.clicked = true;
+      link.lastClickSecond = Math.max(link.lastClickSecond, second);
+    }
+  }
+
+  /**
+   * Opens a stream of {@link LiveClicksDTO} updates for a link. The first one
+   * follows within a push interval.
+   *
+   * @return the emitter, or {@code null} if {@code max-subscribers} streams
+   *     are already open.
+   */
+  public SseEmitter subscribe(long urlMappingId) {
+    SseEmitter emitter = new SseEmitter(streamTimeoutMillis);
+    return subscribe(urlMappingId, emitter) ? emitter : null;
+  }
+
+  /** @return {@code false} if {@code max-subscribers} streams are already open. */
+  boolean subscribe(long urlMappingId, SseEmitter emitter) {
+    if (subscribers.incrementAndGet() > maxSubscribers) {
+      subscribers.decrementAndGet();
+      return false;
+    }
+    LiveSubscriber subscriber = new LiveSubscriber(emitter);
+    emitter.onTimeout(emitter::complete);
+    emitter.onCompletion(() -> unsubscribe(urlMappingId, subscriber));
+    emitter.onError(e -> unsubscribe(urlMappingId, subscriber));
+
+    // Atomic with retirement, which only removes links without subscribers
+    links.compute(urlMappingId, (id, link) -> {
+      Link current = link != null ? link : new Link(seconds, minutes);
+      current.subscribers.add(subscriber);
+      current.joined = true;
+      return current;
+    });
+    return true;
+  }
+
+  private void unsubscribe(long urlMappingId, LiveSubscriber subscriber) {
+    Link link = links.get(urlMappingId);
+    if (link != null && link.subscribers.remove(subscriber)) {
+      subscribers.decrementAndGet();
+    }
+  }
+
+  @Scheduled(fixedRateString = "${trimify.live.push-interval}")
+  public synchronized void tick() {
+    long now = System.currentTimeMillis();
+    long second = now / 1000;
+    long minute = now / 60_000;
+    long nowNanos = System.nanoTime();
+    long retireAfterSeconds = minutes * 60L;
+
+    links.forEach((id, link) -> {
+      link.perSecond.advance(second);
+      link.perMinute.advance(minute);
+      boolean clicked = link.clicked;
+      link.clicked = false;
+
+      if (!link.subscribers.isEmpty()) {
+        push(id, link, second, clicked, nowNanos);
+      } else if (second - link.lastClickSecond >= retireAfterSeconds) {
+        links.computeIfPresent(id, (key, current) -> current.subscribers.isEmpty() ? null : current);
+      }
+    });
+  }
+
+  private void push(long urlMappingId, Link link, long second, boolean clicked, long nowNanos) {
+    boolean joined = link.joined;
+    if (!clicked && !joined && second - link.lastPushSecond < heartbeatSeconds) {
+      return;
+    }
+    link.joined = false;
+    link.lastPushSecond = second;
+
+    Set<DataWithMediaType> update = event(second, link);
+    for (LiveSubscriber subscriber : link.subscribers) {
+      if (subscriber.isStalled(nowNanos, slowConsumerNanos)) {
+        if (link.subscribers.remove(subscriber)) {
+          subscribers.decrementAndGet();
+          evicted.increment();
+        }
+        subscriber.close(sender);
+      } else if (subscriber.offer(update, sender)) {
+        coalesced.increment();
+      }
+    }
+  }
+
+  private Set<DataWithMediaType> event(long second, Link link) {
+    LiveClicksDTO clicks = new LiveClicksDTO(second * 1000, link.perSecond.toArray(), link.perMinute.toArray());
+    String json;
+    try {
+      json = objectMapper.writeValueAsString(clicks);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Failed to serialize live clicks", e);
+    }
+    return SseEmitter.event()
+        .name(EVENT_NAME)
+        .id(Long.toString(second))
+        .data(json, MediaType.APPLICATION_JSON)
+        .build();
+  }
+
+  @PreDestroy
+  void shutdown() {
+    links.values().forEach(link -> link.subscribers.forEach(subscriber -> subscriber.close(sender)));
+    sender.shutdown();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("trimify.live.links", links, Map::size)
+        .description("Links with recent click counts in memory")
+        .register(registry);
+    Gauge.builder("trimify.live.subscribers", subscribers, AtomicInteger::get)
+        .description("Open live click streams")
+        .register(registry);
+    FunctionCounter.builder("trimify.live.updates.coalesced", coalesced, LongAdder::sum)
+        .description("Live updates replaced by a newer one before the client received them")
+        .register(registry);
+    FunctionCounter.builder("trimify.live.subscribers.evicted", evicted, LongAdder::sum)
+        .description("Live streams closed because the client stopped reading")
+        .register(registry);
+    FunctionCounter.builder("trimify.live.clicks.untracked", untracked, LongAdder::sum)
+        .description("Clicks not counted live because max-links links were already tracked")
+        .register(registry);
+  }
+}
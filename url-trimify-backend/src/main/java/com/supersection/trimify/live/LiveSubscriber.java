@@ -0,0 +1,88 @@
+package com.supersection.trimify.live;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * One open event stream. Holds at most one unsent update: an update offered
+ * while the previous one is still being written replaces it, since every
+ * update carries the full recent window. A slow client therefore costs one
+ * pending update, never a queue.
+ *
+ * <p>{@link SseEmitter} serializes writes and completion on its monitor, so a
+ * write blocked on a client that stopped reading also blocks completing the
+ * emitter. Both therefore happen on the executor, never on the caller.
+ */
+final class LiveSubscriber {
+
+  private final SseEmitter emitter;
+  private final AtomicReference<Set<DataWithMediaType>> pending = new AtomicReference<>();
+  private final AtomicBoolean draining = new AtomicBoolean();
+
+  private volatile boolean closed;
+  /** {@link System#nanoTime()} when the write in progress started, or 0. */
+  private volatile long sendingSince;
+
+  LiveSubscriber(SseEmitter emitter) {
+    this.emitter = emitter;
+  }
+
+  SseEmitter getEmitter() {
+    return emitter;
+  }
+
+  /**
+   * Queues {@code update} for sending on {@code executor}.
+   *
+   * @return whether it replaced an update the client had not received yet.
+   */
+  boolean offer(Set<DataWithMediaType> update, Executor executor) {
+    if (closed) {
+      return false;
+    }
+    boolean coalesced = pending.getAndSet(update) != null;
+    if (draining.compareAndSet(false, true)) {
+      executor.execute(this::drain);
+    }
+    return coalesced;
+  }
+
+  /**
+   * @return whether a single write has been blocked for longer than
+   *     {@code timeoutNanos}, i.e. the client stopped reading.
+   */
+  boolean isStalled(long nowNanos, long timeoutNanos) {
+    long since = sendingSince;
+    return since != 0 && nowNanos - since > timeoutNanos;
+  }
+
+  /** Completes the stream on {@code executor}, once any write in progress returns. */
+  void close(Executor executor) {
+    closed = true;
+    executor.execute(emitter::complete);
+  }
+
+  private void drain() {
+    do {
+      Set<DataWithMediaType> update;
+      while (!closed && (update = pending.getAndSet(null)) != null) {
+        sendingSince = System.nanoTime();
+        try {
+          emitter.send(update);
+        } catch (IOException | IllegalStateException e) {
+          // Disconnected or already completed; the emitter callbacks unsubscribe
+          closed = true;
+        } finally {
+          sendingSince = 0;
+        }
+      }
+      draining.set(false);
+    } while (!closed && pending.get() != null && draining.compareAndSet(false, true));
+  }
+}
@@ -6,14 +6,22 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
 import lombok.Data;
 
 @Entity
 @Data
+@Table(indexes = {
+    @Index(name = "idx_click_event_mapping_date", columnList = "url_mapping_id, click_date"),
+    @Index(name = "idx_click_event_date", columnList = "click_date")
+})
 public class ClickEvent {
 
+  // Rows are inserted in JDBC batches by ClickEventWriter, which leaves id
+  // assignment to AUTO_INCREMENT instead of going through Hibernate.
   @Id
   @GeneratedValue(strategy = GenerationType.IDENTITY)
   private Long id;
@@ -0,0 +1,24 @@
+package com.supersection.trimify.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Data;
+
+/**
+ * How far a node's local click log has been replayed into
+ * {@code click_event}, advanced in the same transaction as the inserts.
+ */
+@Entity
+@Data
+public class ClickLogCheckpoint {
+
+  @Id
+  private String name;
+
+  @Column(nullable = false)
+  private long segment;
+
+  @Column(nullable = false)
+  private long position;
+}
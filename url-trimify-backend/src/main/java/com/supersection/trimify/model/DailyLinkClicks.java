@@ -0,0 +1,43 @@
+package com.supersection.trimify.model;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Number of clicks on one link during one day, maintained incrementally as
+ * clicks are written.
+ */
+@Entity
+@Data
+@IdClass(DailyLinkClicks.Key.class)
+// ClickRollupService.recomputeDay deletes and rebuilds one day across every link
+@Table(indexes = @Index(name = "idx_daily_link_clicks_day", columnList = "click_day"))
+public class DailyLinkClicks {
+
+  @Id
+  private Long urlMappingId;
+
+  @Id
+  private LocalDate clickDay;
+
+  @Column(nullable = false)
+  private long clicks;
+
+  @Data
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class Key implements Serializable {
+    private Long urlMappingId;
+    private LocalDate clickDay;
+  }
+}
@@ -0,0 +1,41 @@
+package com.supersection.trimify.model;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+import com.supersection.trimify.analytics.HyperLogLog;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Serialized {@link HyperLogLog} of the visitors to one link during one
+ * day, maintained incrementally as clicks are written.
+ */
+@Entity
+@Data
+@IdClass(DailyLinkVisitors.Key.class)
+public class DailyLinkVisitors {
+
+  @Id
+  private Long urlMappingId;
+
+  @Id
+  private LocalDate clickDay;
+
+  @Column(nullable = false, length = HyperLogLog.MAX_BYTES)
+  private byte[] sketch;
+
+  @Data
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class Key implements Serializable {
+    private Long urlMappingId;
+    private LocalDate clickDay;
+  }
+}
@@ -0,0 +1,42 @@
+package com.supersection.trimify.model;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Number of clicks on all links of one user during one day, maintained
+ * incrementally as clicks are written.
+ */
+@Entity
+@Data
+@IdClass(DailyUserClicks.Key.class)
+@Table(indexes = @Index(name = "idx_daily_user_clicks_day", columnList = "click_day"))
+public class DailyUserClicks {
+
+  @Id
+  private Long userId;
+
+  @Id
+  private LocalDate clickDay;
+
+  @Column(nullable = false)
+  private long clicks;
+
+  @Data
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class Key implements Serializable {
+    private Long userId;
+    private LocalDate clickDay;
+  }
+}
@@ -0,0 +1,23 @@
+package com.supersection.trimify.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+/**
+ * High-water mark of a named id sequence, advanced in blocks by
+ * {@code JdbcIdBlockSource}.
+ */
+@Entity
+@Data
+@Table(name = "id_block")
+public class IdBlock {
+
+  @Id
+  private String name;
+
+  @Column(nullable = false)
+  private long nextValue;
+}
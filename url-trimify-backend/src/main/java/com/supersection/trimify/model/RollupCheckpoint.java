@@ -0,0 +1,21 @@
+package com.supersection.trimify.model;
+
+import java.time.LocalDate;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Data;
+
+/**
+ * Last day for which the click rollups have been recomputed from
+ * {@code click_event}.
+ */
+@Entity
+@Data
+public class RollupCheckpoint {
+
+  @Id
+  private String name;
+
+  private LocalDate completedThrough;
+}
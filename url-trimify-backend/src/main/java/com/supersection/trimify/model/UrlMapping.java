@@ -3,17 +3,35 @@ package com.supersection.trimify.model;
 import java.time.LocalDateTime;
 import java.util.List;
 
+import com.supersection.trimify.redirect.ClickTracking;
+import com.supersection.trimify.redirect.RedirectPolicy;
+
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.Table;
 import lombok.Data;
 
 @Entity
 @Data
+@Table(indexes = {
+    // Keyset pagination of a user's links, see UrlMappingRepository
+    @Index(name = "idx_url_mapping_user_created", columnList = "user_id, created_at, id"),
+    @Index(name = "idx_url_mapping_user_clicks", columnList = "user_id, click_count, id"),
+    // Deduplication lookups, per user or global, see UrlDeduplicator
+    @Index(name = "idx_url_mapping_hash", columnList = "url_hash, user_id"),
+    // Tailing policy changes, see RedirectIndex
+    @Index(name = "idx_url_mapping_updated", columnList = "updated_at")
+})
 public class UrlMapping {
 
   @Id
@@ -21,14 +39,42 @@ public class UrlMapping {
   private Long id;
 
   private String originalUrl;
+
+  @Column(unique = true)
   private String shortUrl;
+
+  /** Fingerprint of the normalized original URL; {@code null} for links created before it existed. */
+  private Long urlHash;
+
   private int clickCount = 0;
   private LocalDateTime createdAt;
 
-  @ManyToOne
+  // Redirect policy; null columns mean the defaults of RedirectPolicy.DEFAULT
+  private Integer redirectStatus;
+  private Integer redirectMaxAge;
+
+  @Enumerated(EnumType.STRING)
+  @Column(length = 16)
+  private ClickTracking clickTracking;
+
+  /** Last change to the redirect policy; {@code null} if it was never changed. */
+  private LocalDateTime updatedAt;
+
+  // Lazy: callers only need the owner's id, which the proxy holds without a query
+  @ManyToOne(fetch = FetchType.LAZY)
   @JoinColumn(name = "user_id")
   private User user;
 
   @OneToMany(mappedBy = "urlMapping")
   private List<ClickEvent> clickEvents;
+
+  public RedirectPolicy getRedirectPolicy() {
+    return RedirectPolicy.of(redirectStatus, redirectMaxAge, clickTracking);
+  }
+
+  public void setRedirectPolicy(RedirectPolicy policy) {
+    this.redirectStatus = policy.status();
+    this.redirectMaxAge = policy.maxAgeSeconds();
+    this.clickTracking = policy.tracking();
+  }
 }
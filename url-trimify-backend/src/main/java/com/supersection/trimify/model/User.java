@@ -31,4 +31,8 @@ public class User {
   private String password;
 
   private String role = "ROLE_USER";
+
+  // The column default lets ddl-auto add the column to a populated table
+  @Column(nullable = false, columnDefinition = "boolean default true")
+  private boolean enabled = true;
 }
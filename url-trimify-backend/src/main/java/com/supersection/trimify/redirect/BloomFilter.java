@@ -0,0 +1,125 @@
+package com.supersection.trimify.redirect;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe Bloom filter over strings. Bits live in an {@link AtomicLongArray},
+ * so concurrent {@link #put(String)} and {@link #mightContain(String)} calls
+ * need no locking. The {@code k} probe positions are derived from one 64-bit
+ * hash by double hashing.
+ */
+public final class BloomFilter {
+
+  private final AtomicLongArray words;
+  private final long bitCount;
+  private final int hashCount;
+  private final long expectedInsertions;
+  private final double falsePositiveRate;
+  private final LongAdder insertions = new LongAdder();
+
+  public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+    if (expectedInsertions < 1) {
+      throw new IllegalArgumentException("Expected insertions must be positive: " + expectedInsertions);
+    }
+    if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+      throw new IllegalArgumentException("False positive rate must be in (0, 1): " + falsePositiveRate);
+    }
+    long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+    int words = (int) Math.min(Integer.MAX_VALUE - 8, (bits + 63) >>> 6);
+    this.words = new AtomicLongArray(words);
+    this.bitCount = (long) words << 6;
+    this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+    this.expectedInsertions = expectedInsertions;
+    this.falsePositiveRate = falsePositiveRate;
+  }
+
+  /**
+   * @return {@code true} if any bit changed, i.e. {@code value} was definitely
+   *     not present before. Only such puts count as insertions.
+   */
+  public boolean put(String value) {
+    long hash = hash(value);
+    long h1 = mix(hash);
+    long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+    boolean changed = false;
+    for (int i = 0; i < hashCount; i++) {
+      long bit = Math.floorMod(h1 + i * h2, bitCount);
+      int word = (int) (bit >>> 6);
+      long mask = 1L << bit;
+      long current = words.get(word);
+      while ((current & mask) == 0) {
+        long witness = words.compareAndExchange(word, current, current | mask);
+        if (witness == current) {
+          changed = true;
+          break;
+        }
+        current = witness;
+      }
+    }
+    if (changed) {
+      insertions.increment();
+    }
+    return changed;
+  }
+
+  /**
+   * @return {@code false} if {@code value} was definitely never added.
+   */
+  public boolean mightContain(String value) {
+    long hash = hash(value);
+    long h1 = mix(hash);
+    long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+    for (int i = 0; i < hashCount; i++) {
+      long bit = Math.floorMod(h1 + i * h2, bitCount);
+      if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public long expectedInsertions() {
+    return expectedInsertions;
+  }
+
+  public double falsePositiveRate() {
+    return falsePositiveRate;
+  }
+
+  public long insertions() {
+    return insertions.sum();
+  }
+
+  public int hashCount() {
+    return hashCount;
+  }
+
+  public long sizeInBytes() {
+    return bitCount >>> 3;
+  }
+
+  /**
+   * False positive probability at the current number of insertions.
+   */
+  public double estimatedFalsePositiveRate() {
+    return Math.pow(1 - Math.exp(-(double) hashCount * insertions() / bitCount), hashCount);
+  }
+
+  /** 64-bit FNV-1a over the UTF-16 code units. */
+  private static long hash(String value) {
+    long hash = 0xCBF29CE484222325L;
+    for (int i = 0; i < value.length(); i++) {
+      hash ^= value.charAt(i);
+      hash *= 0x100000001B3L;
+    }
+    return hash;
+  }
+
+  /** SplitMix64 finalizer, spreads FNV's weak low bits. */
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+}
@@ -0,0 +1,13 @@
+package com.supersection.trimify.redirect;
+
+/**
+ * What a link's redirect policy optimizes for.
+ */
+public enum ClickTracking {
+
+  /** Every visit reaches us and is counted; the redirect is never cacheable. */
+  ACCURATE,
+
+  /** Browsers and shared caches may reuse the redirect, trading repeat-visit counts for load. */
+  OFFLOAD
+}
@@ -0,0 +1,130 @@
+package com.supersection.trimify.redirect;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+
+import com.sun.net.httpserver.Headers;
+
+/**
+ * Finds the client behind the proxies in front of the redirect server, like
+ * {@code server.forward-headers-strategy} does for the Spring endpoints.
+ *
+ * <p>Hops are read from {@code Forwarded}, or {@code X-Forwarded-For} without
+ * it, starting from the one nearest to the server. The first hop that is not
+ * a trusted proxy is the client, so a client cannot pose as another by sending
+ * the headers itself. Hops that are not IP literals, like {@code unknown}, are
+ * never trusted and never resolved.
+ */
+final class ClientAddress {
+
+  private final List<IpAddressMatcher> trustedProxies;
+
+  /** @param trustedProxies addresses or CIDR ranges of the proxies whose headers are honoured */
+  ClientAddress(List<String> trustedProxies) {
+    this.trustedProxies = trustedProxies.stream()
+        .map(String::trim)
+        .filter(proxy -> !proxy.isEmpty())
+        .map(IpAddressMatcher::new)
+        .toList();
+  }
+
+  /** @return the client's address, or {@code remoteAddress} if it is not a trusted proxy. */
+  String of(String remoteAddress, Headers headers) {
+    String address = remoteAddress;
+    if (trustedProxies.isEmpty() || !isTrusted(address)) {
+      return address;
+    }
+    List<String> hops = hops(headers);
+    for (int i = hops.size() - 1; i >= 0; i--) {
+      address = hops.get(i);
+      if (!isTrusted(address)) {
+        return address;
+      }
+    }
+    // Every hop is a proxy of ours, so the first is as close to the client as it gets
+    return address;
+  }
+
+  private boolean isTrusted(String address) {
+    if (!isIpLiteral(address)) {
+      return false;
+    }
+    for (IpAddressMatcher proxy : trustedProxies) {
+      if (proxy.matches(address)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** @return the forwarded-for hops, the client's first. */
+  private static List<String> hops(Headers headers) {
+    List<String> hops = new ArrayList<>();
+    List<String> forwarded = headers.get("Forwarded");
+    if (forwarded != null) {
+      for (String value : forwarded) {
+        for (String element : value.split(",")) {
+          hops.add(forwardedFor(element));
+        }
+      }
+      return hops;
+    }
+    List<String> forwardedFor = headers.get("X-Forwarded-For");
+    if (forwardedFor != null) {
+      for (String value : forwardedFor) {
+        for (String hop : value.split(",")) {
+          if (!hop.isBlank()) {
+            hops.add(node(hop));
+          }
+        }
+      }
+    }
+    return hops;
+  }
+
+  /** @return the {@code for} parameter of a {@code Forwarded} element, {@code unknown} without one. */
+  private static String forwardedFor(String element) {
+    for (String pair : element.split(";")) {
+      String parameter = pair.trim();
+      if (parameter.toLowerCase(Locale.ROOT).startsWith("for=")) {
+        return node(parameter.substring(4));
+      }
+    }
+    return "unknown";
+  }
+
+  /** Strips the quotes, IPv6 brackets and port of a node. */
+  private static String node(String value) {
+    String node = value.trim();
+    if (node.length() > 1 && node.startsWith("\"") && node.endsWith("\"")) {
+      node = node.substring(1, node.length() - 1);
+    }
+    if (node.startsWith("[")) {
+      int end = node.indexOf(']');
+      return end < 0 ? node : node.substring(1, end);
+    }
+    // One colon is an IPv4 address and port, more are a bare IPv6 address
+    int colon = node.indexOf(':');
+    return colon >= 0 && colon == node.lastIndexOf(':') ? node.substring(0, colon) : node;
+  }
+
+  /** Only literals are matched, as matching a host name would look it up. */
+  private static boolean isIpLiteral(String address) {
+    if (address.isEmpty()) {
+      return false;
+    }
+    boolean ipv6 = address.indexOf(':') >= 0;
+    for (int i = 0; i < address.length(); i++) {
+      char c = address.charAt(i);
+      boolean valid = c >= '0' && c <= '9' || c == '.'
+          || ipv6 && (c == ':' || c >= 'a' && c <= 'f' || c >= 'A' && c <= 'F');
+      if (!valid) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
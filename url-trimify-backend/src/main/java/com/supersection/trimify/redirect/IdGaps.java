@@ -0,0 +1,118 @@
+package com.supersection.trimify.redirect;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The high-water mark of a tail reading a table by id, like
+ * {@code url_mapping} here or {@code click_event} in the click index, and the
+ * ids below it that the tail has not seen yet.
+ *
+ * <p>Ids are assigned at insert but become visible at commit, so a row can
+ * show up after rows with higher ids. Instead of re-reading a window below
+ * the mark, every id the tail skips is remembered and re-read until it shows
+ * up or times out, which only happens for an insert that was rolled back.
+ * Gaps too wide to track id by id leave the tail {@linkplain #isUncertain
+ * uncertain} until they would have timed out. A tail whose ids can stay
+ * missing for long re-reads the ones missed recently on every refresh and
+ * the rest at a slower interval.
+ *
+ * <p>Not thread-safe; the owning tail serializes access.
+ */
+public final class IdGaps {
+
+  private final int maxIds;
+  private final long timeoutMillis;
+  private final long recentMillis;
+  private final long lateIntervalMillis;
+
+  /** Missing ids, with when they were first skipped. */
+  private final TreeMap<Long, Long> missing = new TreeMap<>();
+  private long highWaterId;
+  private long untrackedUntilMillis;
+  private long lateCheckedMillis;
+
+  /** Every missing id is {@linkplain #pending pending} until it times out. */
+  IdGaps(long highWaterId, int maxIds, Duration timeout) {
+    this(highWaterId, maxIds, timeout, timeout, Duration.ZERO);
+  }
+
+  /**
+   * Ids missing for less than {@code recent} are {@linkplain #pending pending}
+   * on every call, older ones once per {@code lateInterval}.
+   */
+  public IdGaps(long highWaterId, int maxIds, Duration timeout, Duration recent, Duration lateInterval) {
+    this.highWaterId = highWaterId;
+    this.maxIds = maxIds;
+    this.timeoutMillis = timeout.toMillis();
+    this.recentMillis = recent.toMillis();
+    this.lateIntervalMillis = lateInterval.toMillis();
+  }
+
+  public long highWaterId() {
+    return highWaterId;
+  }
+
+  /** Records an id read by the tail, remembering every id it skipped. */
+  public void advance(long id, long nowMillis) {
+    if (id <= highWaterId) {
+      missing.remove(id);
+      return;
+    }
+    for (long skipped = highWaterId + 1; skipped < id; skipped++) {
+      if (missing.size() >= maxIds) {
+        untrackedUntilMillis = nowMillis + timeoutMillis;
+        break;
+      }
+      missing.put(skipped, nowMillis);
+    }
+    highWaterId = id;
+  }
+
+  /**
+   * Records a missing id that has since been read.
+   *
+   * @return whether it was still missing, so a row is only taken once.
+   */
+  public boolean found(long id) {
+    return missing.remove(id) != null;
+  }
+
+  /**
+   * Drops the ids that timed out.
+   *
+   * @return up to {@code limit} ids still missing that are due to be re-read,
+   *     lowest first.
+   */
+  public List<Long> pending(int limit, long nowMillis) {
+    long expired = nowMillis - timeoutMillis;
+    missing.values().removeIf(firstSkipped -> firstSkipped < expired);
+    boolean lateDue = nowMillis - lateCheckedMillis >= lateIntervalMillis;
+    long recentSince = nowMillis - recentMillis;
+    List<Long> ids = new ArrayList<>(Math.min(limit, missing.size()));
+    for (Map.Entry<Long, Long> entry : missing.entrySet()) {
+      if (ids.size() == limit) {
+        break;
+      }
+      if (lateDue || entry.getValue() >= recentSince) {
+        ids.add(entry.getKey());
+      }
+    }
+    if (lateDue) {
+      lateCheckedMillis = nowMillis;
+    }
+    return ids;
+  }
+
+  /** @return whether a row below the high-water mark may still show up. */
+  public boolean isUncertain(long nowMillis) {
+    return !missing.isEmpty() || nowMillis < untrackedUntilMillis;
+  }
+
+  public int size() {
+    return missing.size();
+  }
+}
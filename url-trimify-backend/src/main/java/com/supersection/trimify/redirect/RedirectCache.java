@@ -0,0 +1,157 @@
+package com.supersection.trimify.redirect;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Bounded short code → {@link RedirectTarget} cache sitting in front of the
+ * database on the redirect path.
+ *
+ * <p>Eviction is Caffeine's W-TinyLFU weighted by the size of the cached
+ * strings, which keeps the heavy head of the popularity curve resident. Unknown
+ * codes are cached as well (negative caching) but with a much shorter lifetime,
+ * so a code created on another node becomes visible quickly.
+ */
+@Component
+public class RedirectCache implements MeterBinder {
+
+  /** Sentinel stored for codes that are known not to exist. */
+  private static final RedirectTarget ABSENT = new RedirectTarget(-1L, -1L, "", "", RedirectPolicy.DEFAULT);
+
+  /** Rough per-entry overhead (entry, record and string headers) in weight units. */
+  private static final int ENTRY_OVERHEAD = 64;
+
+  private final Cache<String, RedirectTarget> cache;
+  private final RedirectMetrics redirectMetrics;
+
+  public RedirectCache(
+      RedirectMetrics redirectMetrics,
+      @Value("${trimify.redirect-cache.maximum-weight}") long maximumWeight,
+      @Value("${trimify.redirect-cache.ttl}") Duration ttl,
+      @Value("${trimify.redirect-cache.negative-ttl}") Duration negativeTtl
+  ) {
+    this.cache = Caffeine.newBuilder()
+        .maximumWeight(maximumWeight)
+        .weigher((String shortUrl, RedirectTarget target) ->
+            ENTRY_OVERHEAD + shortUrl.length() + target.originalUrl().length())
+        .expireAfter(new TargetExpiry(ttl.toNanos(), negativeTtl.toNanos()))
+        .recordStats()
+        .build();
+    this.redirectMetrics = redirectMetrics;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    CaffeineCacheMetrics.monitor(registry, cache, "redirect");
+  }
+
+  /**
+   * Returns the cached target for the given code, calling {@code loader} on a
+   * miss. A {@code null} from the loader is remembered as a negative entry.
+   *
+   * @return the target, or {@code null} if the code does not exist.
+   */
+  public RedirectTarget get(String shortUrl, Function<String, RedirectTarget> loader) {
+    Load load = new Load(loader);
+    RedirectTarget target = cache.get(shortUrl, load);
+
+    if (target == ABSENT) {
+      redirectMetrics.notFound();
+      return null;
+    }
+    if (load.loaded) {
+      redirectMetrics.miss();
+    } else {
+      redirectMetrics.hit();
+    }
+    return target;
+  }
+
+  /** Publishes a freshly created or updated mapping, replacing any negative entry. */
+  public void put(RedirectTarget target) {
+    cache.put(target.shortUrl(), target);
+  }
+
+  /** Drops a mapping changed elsewhere, so the next lookup reloads it. */
+  public void invalidate(String shortUrl) {
+    cache.invalidate(shortUrl);
+  }
+
+  public CacheStats stats() {
+    return cache.stats();
+  }
+
+  public Map<String, Object> describe() {
+    CacheStats stats = cache.stats();
+    Map<String, Object> description = new LinkedHashMap<>();
+    description.put("estimatedSize", cache.estimatedSize());
+    description.put("hitCount", stats.hitCount());
+    description.put("missCount", stats.missCount());
+    description.put("hitRate", stats.hitRate());
+    description.put("evictionCount", stats.evictionCount());
+    description.put("evictionWeight", stats.evictionWeight());
+    description.put("averageLoadPenaltyNanos", stats.averageLoadPenalty());
+    return description;
+  }
+
+  /** Loader that remembers whether it ran, telling a hit from a miss without a second lookup. */
+  private static final class Load implements Function<String, RedirectTarget> {
+
+    private final Function<String, RedirectTarget> loader;
+    private boolean loaded;
+
+    private Load(Function<String, RedirectTarget> loader) {
+      this.loader = loader;
+    }
+
+    @Override
+    public RedirectTarget apply(String shortUrl) {
+      loaded = true;
+      RedirectTarget target = loader.apply(shortUrl);
+      return target != null ? target : ABSENT;
+    }
+  }
+
+  private static final class TargetExpiry implements Expiry<String, RedirectTarget> {
+
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+
+    private TargetExpiry(long ttlNanos, long negativeTtlNanos) {
+      this.ttlNanos = ttlNanos;
+      this.negativeTtlNanos = negativeTtlNanos;
+    }
+
+    @Override
+    public long expireAfterCreate(String shortUrl, RedirectTarget target, long currentTime) {
+      return target == ABSENT ? negativeTtlNanos : ttlNanos;
+    }
+
+    @Override
+    public long expireAfterUpdate(
+        String shortUrl, RedirectTarget target, long currentTime, long currentDuration
+    ) {
+      return expireAfterCreate(shortUrl, target, currentTime);
+    }
+
+    @Override
+    public long expireAfterRead(
+        String shortUrl, RedirectTarget target, long currentTime, long currentDuration
+    ) {
+      return currentDuration;
+    }
+  }
+}
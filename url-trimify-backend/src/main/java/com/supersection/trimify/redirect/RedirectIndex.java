@@ -0,0 +1,281 @@
+package com.supersection.trimify.redirect;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Every short URL held in memory for the standalone {@link RedirectServer}.
+ *
+ * <p>Loaded in id order from {@code url_mapping} before the server starts
+ * accepting connections, then tailed by id so codes created on any node show
+ * up within one refresh interval. Ids the tail skips are tracked as
+ * {@link IdGaps} and re-read until their rows commit, so each refresh only
+ * reads rows it has not seen. Policy changes are tailed by
+ * {@code updated_at}. While ids are missing, a code not in the index may
+ * still show up, so the server falls back to the regular cache and database
+ * lookup for it; otherwise the code did not exist as of the last refresh.
+ *
+ * <p>The index is periodically written to a {@link RedirectIndexSnapshot}
+ * and the in-memory map then only holds what changed since. A restarting
+ * node maps the last snapshot and replays just the mappings created or
+ * updated after it, instead of reading the whole table. A snapshot that is
+ * corrupt, older than the configured maximum age, or ahead of the table falls
+ * back to a full load.
+ */
+@Component
+@ConditionalOnProperty(name = "trimify.redirect-server.enabled", havingValue = "true")
+public class RedirectIndex implements MeterBinder {
+
+  private static final Logger log = LoggerFactory.getLogger(RedirectIndex.class);
+
+  private static final int PAGE_SIZE = 10_000;
+
+  /** Ids the snapshot skipped are unknown, so the rows just below it are re-read once on restore. */
+  private static final long RESTORE_OVERLAP = 10_000;
+  private static final int MAX_GAP_IDS = 100_000;
+  private static final int GAP_IDS_PER_REFRESH = 1_000;
+  private static final Duration GAP_TIMEOUT = Duration.ofMinutes(2);
+
+  /** Updates are stamped before commit too, so they are re-read for this long. */
+  private static final long UPDATE_OVERLAP_SECONDS = 10;
+
+  private static final String COLUMNS =
+      "id, user_id, short_url, original_url, redirect_status, redirect_max_age, click_tracking";
+
+  private static final String SELECT_PAGE =
+      "SELECT " + COLUMNS + " FROM url_mapping WHERE id > ? ORDER BY id LIMIT ?";
+
+  private static final String SELECT_IDS = "SELECT " + COLUMNS + " FROM url_mapping WHERE id IN (%s)";
+
+  // Policy changes are rare, so everything changed since the last refresh is read in one go
+  private static final String SELECT_UPDATED =
+      "SELECT " + COLUMNS + " FROM url_mapping WHERE updated_at > ?";
+
+  private static final RowMapper<RedirectTarget> ROW_MAPPER = (rs, rowNum) -> {
+    String tracking = rs.getString("click_tracking");
+    RedirectPolicy policy = RedirectPolicy.of(
+        rs.getObject("redirect_status", Integer.class),
+        rs.getObject("redirect_max_age", Integer.class),
+        tracking != null ? ClickTracking.valueOf(tracking) : null);
+    return new RedirectTarget(
+        rs.getLong("id"), rs.getLong("user_id"), rs.getString("short_url"), rs.getString("original_url"), policy);
+  };
+
+  private static final String SELECT_MAX_ID = "SELECT MAX(id) FROM url_mapping";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final boolean snapshotEnabled;
+  private final Path snapshotPath;
+  private final Duration snapshotMaxAge;
+
+  /** Changes since {@link #snapshot}, or everything when there is none. */
+  private final ConcurrentHashMap<String, RedirectTarget> targets = new ConcurrentHashMap<>();
+
+  private volatile RedirectIndexSnapshot snapshot;
+  private volatile boolean ready;
+  private volatile boolean gapsOpen;
+  private volatile long lastRefreshMillis;
+  // Guarded by this
+  private IdGaps gaps;
+  private LocalDateTime updatedSince;
+
+  public RedirectIndex(
+      JdbcTemplate jdbcTemplate,
+      @Value("${trimify.redirect-server.snapshot.enabled}") boolean snapshotEnabled,
+      @Value("${trimify.redirect-server.snapshot.path}") Path snapshotPath,
+      @Value("${trimify.redirect-server.snapshot.max-age}") Duration snapshotMaxAge
+  ) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.snapshotEnabled = snapshotEnabled;
+    this.snapshotPath = snapshotPath;
+    this.snapshotMaxAge = snapshotMaxAge;
+  }
+
+  /**
+   * @return the target, or {@code null} if the code was not in the table as of
+   *     the last refresh.
+   */
+  public RedirectTarget get(String shortUrl) {
+    RedirectTarget target = targets.get(shortUrl);
+    if (target == null) {
+      RedirectIndexSnapshot current = snapshot;
+      target = current != null ? current.get(shortUrl) : null;
+    }
+    return target;
+  }
+
+  /**
+   * @return whether a code missing from the index may have been created
+   *     before the last refresh, by an insert that had not committed then.
+   */
+  public boolean hasOpenGaps() {
+    return gapsOpen;
+  }
+
+  /** @return the number of codes, counting a code changed since the snapshot twice. */
+  public long size() {
+    RedirectIndexSnapshot current = snapshot;
+    return targets.size() + (current != null ? current.entryCount() : 0);
+  }
+
+  public synchronized void load() {
+    long started = System.nanoTime();
+    RedirectIndexSnapshot restored = snapshotEnabled ? restore() : null;
+    if (restored != null) {
+      snapshot = restored;
+      updatedSince = LocalDateTime.ofInstant(Instant.ofEpochMilli(restored.takenAtMillis()), ZoneId.systemDefault());
+      gaps = new IdGaps(Math.max(0, restored.highWaterId() - RESTORE_OVERLAP), MAX_GAP_IDS, GAP_TIMEOUT);
+      tail();
+      tailUpdates();
+      log.info("Redirect index restored from {} with {} codes and {} changes in {} ms",
+          snapshotPath, restored.entryCount(), targets.size(), (System.nanoTime() - started) / 1_000_000);
+    } else {
+      updatedSince = LocalDateTime.now();
+      gaps = new IdGaps(0, MAX_GAP_IDS, GAP_TIMEOUT);
+      tail();
+      log.info("Redirect index loaded with {} codes in {} ms",
+          targets.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+    gapsOpen = gaps.isUncertain(System.currentTimeMillis());
+    ready = true;
+  }
+
+  /**
+   * Writes the current index to the snapshot file and drops the changes it
+   * now covers from memory. Also runs at shutdown so a restart replays as
+   * little as possible.
+   */
+  @PreDestroy
+  @Scheduled(
+      initialDelayString = "${trimify.redirect-server.snapshot.interval}",
+      fixedDelayString = "${trimify.redirect-server.snapshot.interval}")
+  public synchronized void writeSnapshot() {
+    if (!ready || !snapshotEnabled || (snapshot != null && targets.isEmpty())) {
+      return;
+    }
+    long started = System.nanoTime();
+    try {
+      long takenAt = updatedSince.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+      RedirectIndexSnapshot written =
+          RedirectIndexSnapshot.write(snapshotPath, snapshot, targets, gaps.highWaterId(), takenAt);
+      // Refreshes are excluded while writing, so everything in the map is now in the file
+      snapshot = written;
+      targets.clear();
+      log.info("Redirect index snapshot of {} codes written to {} in {} ms",
+          written.entryCount(), snapshotPath, (System.nanoTime() - started) / 1_000_000);
+    } catch (IOException e) {
+      log.warn("Failed to write redirect index snapshot to {}", snapshotPath, e);
+    }
+  }
+
+  /**
+   * @return the snapshot if it is usable, otherwise {@code null} after logging
+   *     why not.
+   */
+  private RedirectIndexSnapshot restore() {
+    if (!Files.exists(snapshotPath)) {
+      return null;
+    }
+    RedirectIndexSnapshot restored;
+    try {
+      restored = RedirectIndexSnapshot.open(snapshotPath);
+    } catch (IOException e) {
+      log.warn("Ignoring unreadable redirect index snapshot {}: {}", snapshotPath, e.getMessage());
+      return null;
+    }
+
+    Duration age = Duration.ofMillis(System.currentTimeMillis() - restored.takenAtMillis());
+    if (age.compareTo(snapshotMaxAge) > 0) {
+      log.warn("Ignoring redirect index snapshot {} taken {} ago", snapshotPath, age);
+      return null;
+    }
+    // A snapshot ahead of the table was taken against a different or restored database
+    Long maxId = jdbcTemplate.queryForObject(SELECT_MAX_ID, Long.class);
+    if (restored.highWaterId() > (maxId != null ? maxId : 0)) {
+      log.warn("Ignoring redirect index snapshot {} ahead of the table at id {}", snapshotPath, restored.highWaterId());
+      return null;
+    }
+    return restored;
+  }
+
+  @Scheduled(fixedDelayString = "${trimify.redirect-server.refresh-interval}")
+  public synchronized void refresh() {
+    if (ready) {
+      tail();
+      fillGaps();
+      tailUpdates();
+      gapsOpen = gaps.isUncertain(System.currentTimeMillis());
+    }
+  }
+
+  private void tailUpdates() {
+    LocalDateTime now = LocalDateTime.now();
+    Timestamp since = Timestamp.valueOf(updatedSince.minusSeconds(UPDATE_OVERLAP_SECONDS));
+    for (RedirectTarget target : jdbcTemplate.query(SELECT_UPDATED, ROW_MAPPER, since)) {
+      targets.put(target.shortUrl(), target);
+    }
+    updatedSince = now;
+  }
+
+  /** Adds every mapping above the high-water mark. */
+  private void tail() {
+    List<RedirectTarget> page;
+    do {
+      page = jdbcTemplate.query(SELECT_PAGE, ROW_MAPPER, gaps.highWaterId(), PAGE_SIZE);
+      long now = System.currentTimeMillis();
+      for (RedirectTarget target : page) {
+        targets.put(target.shortUrl(), target);
+        gaps.advance(target.id(), now);
+      }
+    } while (page.size() == PAGE_SIZE);
+    lastRefreshMillis = System.currentTimeMillis();
+  }
+
+  /** Adds the mappings skipped by the tail that have committed since. */
+  private void fillGaps() {
+    List<Long> missing = gaps.pending(GAP_IDS_PER_REFRESH, System.currentTimeMillis());
+    if (missing.isEmpty()) {
+      return;
+    }
+    String sql = String.format(SELECT_IDS, String.join(",", Collections.nCopies(missing.size(), "?")));
+    for (RedirectTarget target : jdbcTemplate.query(sql, ROW_MAPPER, missing.toArray())) {
+      targets.put(target.shortUrl(), target);
+      gaps.found(target.id());
+    }
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("trimify.redirect.index.size", this, RedirectIndex::size)
+        .description("Short codes held by the redirect index")
+        .register(registry);
+    Gauge.builder("trimify.redirect.index.staleness", this,
+            index -> index.ready ? (System.currentTimeMillis() - index.lastRefreshMillis) / 1000.0 : 0)
+        .description("Seconds since the redirect index last caught up with the table")
+        .baseUnit("seconds")
+        .register(registry);
+  }
+}
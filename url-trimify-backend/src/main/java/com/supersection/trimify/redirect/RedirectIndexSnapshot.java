@@ -0,0 +1,269 @@
+package com.supersection.trimify.redirect;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Read-only open-addressing hash table of redirect targets in a memory-mapped
+ * file. Lookups read straight from the mapping, so a node that opens a
+ * snapshot can serve redirects without first loading every row onto the heap.
+ *
+ * <p>Layout, big-endian:
+ * <pre>
+ *   header   magic(8) version(4) slotCount(4) entryCount(8) highWaterId(8)
+ *            takenAtMillis(8) slotsOffset(8) checksum(8)
+ *   records  id(8) userId(8) status(2) maxAge(4) tracking(1) codeLength(2) urlLength(4) code url
+ *   slots    slotCount record offsets, 0 for an empty slot
+ * </pre>
+ * The checksum is a CRC32C of everything after the header. A single mapping
+ * is limited to 2 GB, which is roughly 15 million links.
+ */
+final class RedirectIndexSnapshot {
+
+  private static final long MAGIC = 0x5452494D49445831L; // "TRIMIDX1"
+  private static final int VERSION = 1;
+  private static final int HEADER_BYTES = 56;
+  private static final int RECORD_FIXED_BYTES = 29;
+
+  private final MappedByteBuffer buffer;
+  private final int slotMask;
+  private final long entryCount;
+  private final long highWaterId;
+  private final long takenAtMillis;
+  private final int slotsOffset;
+
+  private RedirectIndexSnapshot(MappedByteBuffer buffer) throws IOException {
+    if (buffer.capacity() < HEADER_BYTES || buffer.getLong(0) != MAGIC) {
+      throw new IOException("Not a redirect index snapshot");
+    }
+    if (buffer.getInt(8) != VERSION) {
+      throw new IOException("Unsupported snapshot version " + buffer.getInt(8));
+    }
+    int slotCount = buffer.getInt(12);
+    this.entryCount = buffer.getLong(16);
+    this.highWaterId = buffer.getLong(24);
+    this.takenAtMillis = buffer.getLong(32);
+    long slots = buffer.getLong(40);
+    if (Integer.bitCount(slotCount) != 1 || slots < HEADER_BYTES || slots + 8L * slotCount != buffer.capacity()) {
+      throw new IOException("Snapshot layout is inconsistent");
+    }
+
+    CRC32C crc = new CRC32C();
+    crc.update(buffer.slice(HEADER_BYTES, buffer.capacity() - HEADER_BYTES));
+    if (crc.getValue() != buffer.getLong(48)) {
+      throw new IOException("Snapshot checksum mismatch");
+    }
+
+    this.buffer = buffer;
+    this.slotMask = slotCount - 1;
+    this.slotsOffset = (int) slots;
+  }
+
+  /**
+   * Maps and validates a snapshot.
+   *
+   * @throws IOException if the file cannot be read, is too large to map, or
+   *     fails validation.
+   */
+  static RedirectIndexSnapshot open(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Snapshot of " + channel.size() + " bytes is too large to map");
+      }
+      return new RedirectIndexSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /**
+   * Writes {@code overlay} plus every entry of {@code base} it does not
+   * override to a temporary file, then atomically replaces {@code path}.
+   *
+   * @return the new snapshot, mapped.
+   */
+  static RedirectIndexSnapshot write(
+      Path path, RedirectIndexSnapshot base, Map<String, RedirectTarget> overlay,
+      long highWaterId, long takenAtMillis
+  ) throws IOException {
+    long capacity = overlay.size() + (base != null ? base.entryCount : 0);
+    // Load factor at most one half keeps linear probe sequences short
+    int slotCount = Integer.highestOneBit((int) Math.min(1 << 30, Math.max(2, capacity * 2 - 1))) << 1;
+    long[] slots = new long[slotCount];
+
+    Path parent = path.toAbsolutePath().getParent();
+    Files.createDirectories(parent);
+    Path temporary = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+      channel.position(HEADER_BYTES);
+      CRC32C crc = new CRC32C();
+      RecordWriter writer = new RecordWriter(
+          new CheckedOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), crc),
+          slots);
+
+      for (RedirectTarget target : overlay.values()) {
+        writer.write(target);
+      }
+      if (base != null) {
+        base.forEach(target -> {
+          if (!overlay.containsKey(target.shortUrl())) {
+            writer.write(target);
+          }
+        });
+      }
+      long slotsOffset = HEADER_BYTES + writer.written;
+      writer.finish();
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Snapshot of " + channel.size() + " bytes is too large to map");
+      }
+
+      ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+          .putLong(MAGIC).putInt(VERSION).putInt(slotCount).putLong(writer.entries)
+          .putLong(highWaterId).putLong(takenAtMillis).putLong(slotsOffset).putLong(crc.getValue())
+          .flip();
+      channel.write(header, 0);
+      channel.force(true);
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(temporary);
+      throw e;
+    }
+
+    Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    return open(path);
+  }
+
+  /**
+   * @return the target, or {@code null} if the code is not in the snapshot.
+   */
+  RedirectTarget get(String shortUrl) {
+    byte[] code = shortUrl.getBytes(StandardCharsets.UTF_8);
+    int slot = spread(shortUrl.hashCode()) & slotMask;
+    while (true) {
+      int offset = (int) buffer.getLong(slotsOffset + 8 * slot);
+      if (offset == 0) {
+        return null;
+      }
+      if (codeEquals(offset, code)) {
+        return read(offset);
+      }
+      slot = (slot + 1) & slotMask;
+    }
+  }
+
+  void forEach(Consumer<RedirectTarget> action) {
+    int offset = HEADER_BYTES;
+    while (offset < slotsOffset) {
+      action.accept(read(offset));
+      offset += RECORD_FIXED_BYTES + buffer.getShort(offset + 23) + buffer.getInt(offset + 25);
+    }
+  }
+
+  long entryCount() {
+    return entryCount;
+  }
+
+  long highWaterId() {
+    return highWaterId;
+  }
+
+  long takenAtMillis() {
+    return takenAtMillis;
+  }
+
+  private boolean codeEquals(int offset, byte[] code) {
+    if (buffer.getShort(offset + 23) != code.length) {
+      return false;
+    }
+    int start = offset + RECORD_FIXED_BYTES;
+    for (int i = 0; i < code.length; i++) {
+      if (buffer.get(start + i) != code[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private RedirectTarget read(int offset) {
+    int status = buffer.getShort(offset + 16);
+    int maxAge = buffer.getInt(offset + 18);
+    ClickTracking tracking = ClickTracking.values()[buffer.get(offset + 22)];
+    byte[] code = new byte[buffer.getShort(offset + 23)];
+    byte[] url = new byte[buffer.getInt(offset + 25)];
+    buffer.get(offset + RECORD_FIXED_BYTES, code);
+    buffer.get(offset + RECORD_FIXED_BYTES + code.length, url);
+
+    RedirectPolicy policy = RedirectPolicy.DEFAULT.equals(new RedirectPolicy(status, maxAge, tracking))
+        ? RedirectPolicy.DEFAULT : new RedirectPolicy(status, maxAge, tracking);
+    return new RedirectTarget(
+        buffer.getLong(offset), buffer.getLong(offset + 8),
+        new String(code, StandardCharsets.UTF_8), new String(url, StandardCharsets.UTF_8), policy);
+  }
+
+  /** Stable across JVMs because {@link String#hashCode()} is specified. */
+  private static int spread(int hash) {
+    hash *= 0x9E3779B9;
+    return hash ^ (hash >>> 16);
+  }
+
+  private static final class RecordWriter {
+
+    private final DataOutputStream out;
+    private final long[] slots;
+    private long entries;
+    private long written;
+
+    private RecordWriter(OutputStream out, long[] slots) {
+      this.out = new DataOutputStream(out);
+      this.slots = slots;
+    }
+
+    void write(RedirectTarget target) {
+      byte[] code = target.shortUrl().getBytes(StandardCharsets.UTF_8);
+      byte[] url = target.originalUrl().getBytes(StandardCharsets.UTF_8);
+      long offset = HEADER_BYTES + written;
+      try {
+        out.writeLong(target.id());
+        out.writeLong(target.userId());
+        out.writeShort(target.policy().status());
+        out.writeInt(target.policy().maxAgeSeconds());
+        out.writeByte(target.policy().tracking().ordinal());
+        out.writeShort(code.length);
+        out.writeInt(url.length);
+        out.write(code);
+        out.write(url);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+
+      int mask = slots.length - 1;
+      int slot = spread(target.shortUrl().hashCode()) & mask;
+      while (slots[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      slots[slot] = offset;
+      entries++;
+      written += RECORD_FIXED_BYTES + code.length + url.length;
+    }
+
+    void finish() throws IOException {
+      for (long slot : slots) {
+        out.writeLong(slot);
+      }
+      out.flush();
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package com.supersection.trimify.redirect;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Meters for the redirect path, registered once so recording a redirect is a
+ * couple of field reads rather than a registry lookup.
+ *
+ * <p>Latency is split into resolving the code (cache, and the database on a
+ * miss) and handing the click to the ingestion buffer, so a slow redirect can
+ * be attributed to either. Every request is counted under exactly one outcome.
+ */
+@Component
+public class RedirectMetrics {
+
+  private final Timer lookup;
+  private final Timer clickRecording;
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter notFound;
+  private final Counter filterRejected;
+
+  public RedirectMetrics(MeterRegistry meterRegistry) {
+    this.lookup = Timer.builder("trimify.redirect.lookup")
+        .description("Time to resolve a short code, including the database on a cache miss")
+        .register(meterRegistry);
+    this.clickRecording = Timer.builder("trimify.redirect.click.record")
+        .description("Time to hand a click to the ingestion buffer")
+        .register(meterRegistry);
+    this.hits = outcome(meterRegistry, "hit");
+    this.misses = outcome(meterRegistry, "miss");
+    this.notFound = outcome(meterRegistry, "not_found");
+    this.filterRejected = outcome(meterRegistry, "filter_rejected");
+  }
+
+  private static Counter outcome(MeterRegistry meterRegistry, String outcome) {
+    return Counter.builder("trimify.redirect.requests")
+        .description("Redirect requests by how the short code was resolved")
+        .tag("outcome", outcome)
+        .register(meterRegistry);
+  }
+
+  public void recordLookup(long startNanos) {
+    lookup.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+  }
+
+  public void recordClickRecording(long startNanos) {
+    clickRecording.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /** Found in the cache. */
+  public void hit() {
+    hits.increment();
+  }
+
+  /** Loaded from the database and found. */
+  public void miss() {
+    misses.increment();
+  }
+
+  /** The code does not exist, whether learned from the cache or the database. */
+  public void notFound() {
+    notFound.increment();
+  }
+
+  /** Rejected by the Bloom filter without a lookup. */
+  public void filterRejected() {
+    filterRejected.increment();
+  }
+}
@@ -0,0 +1,63 @@
+package com.supersection.trimify.redirect;
+
+import java.util.Set;
+
+/**
+ * How a link is redirected: the status code and how long clients may cache
+ * the redirect.
+ *
+ * <p>{@link ClickTracking#ACCURATE} links only use the temporary 302 and 307,
+ * which browsers do not cache without explicit headers, and are sent with
+ * {@code no-store}. {@link ClickTracking#OFFLOAD} links may also use the
+ * permanent 301 and 308 and carry a public {@code max-age}, during which repeat
+ * visits from the same browser or CDN never reach us.
+ */
+public record RedirectPolicy(int status, int maxAgeSeconds, ClickTracking tracking) {
+
+  public static final int MAX_AGE_LIMIT = 31_536_000;
+
+  private static final Set<Integer> TEMPORARY = Set.of(302, 307);
+  private static final Set<Integer> PERMANENT = Set.of(301, 308);
+
+  private static final String NO_STORE = "private, no-store";
+  private static final String NO_CACHE = "no-cache";
+
+  // Declared after the constants the constructor checks against
+  public static final RedirectPolicy DEFAULT = new RedirectPolicy(302, 0, ClickTracking.ACCURATE);
+
+  public RedirectPolicy {
+    if (tracking == null) {
+      throw new IllegalArgumentException("Click tracking is required");
+    }
+    if (!TEMPORARY.contains(status) && !PERMANENT.contains(status)) {
+      throw new IllegalArgumentException("Redirect status must be 301, 302, 307 or 308: " + status);
+    }
+    if (maxAgeSeconds < 0 || maxAgeSeconds > MAX_AGE_LIMIT) {
+      throw new IllegalArgumentException("Max age must be between 0 and " + MAX_AGE_LIMIT + ": " + maxAgeSeconds);
+    }
+    if (tracking == ClickTracking.ACCURATE && (PERMANENT.contains(status) || maxAgeSeconds > 0)) {
+      throw new IllegalArgumentException("Accurate click tracking requires an uncached 302 or 307");
+    }
+  }
+
+  /**
+   * Fills in defaults for missing values, as stored on links that never had a
+   * policy set.
+   */
+  public static RedirectPolicy of(Integer status, Integer maxAgeSeconds, ClickTracking tracking) {
+    if (status == null && maxAgeSeconds == null && tracking == null) {
+      return DEFAULT;
+    }
+    return new RedirectPolicy(
+        status != null ? status : DEFAULT.status,
+        maxAgeSeconds != null ? maxAgeSeconds : DEFAULT.maxAgeSeconds,
+        tracking != null ? tracking : DEFAULT.tracking);
+  }
+
+  public String cacheControl() {
+    if (tracking == ClickTracking.ACCURATE) {
+      return NO_STORE;
+    }
+    return maxAgeSeconds > 0 ? "public, max-age=" + maxAgeSeconds : NO_CACHE;
+  }
+}
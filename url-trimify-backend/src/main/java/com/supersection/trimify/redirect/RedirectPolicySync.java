@@ -0,0 +1,55 @@
+package com.supersection.trimify.redirect;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drops links whose redirect policy changed on any node from this node's
+ * {@link RedirectCache}, so the next redirect reloads them from the database
+ * instead of serving the old policy until the entry expires.
+ *
+ * <p>Changes are tailed by {@code updated_at} like the {@link RedirectIndex}
+ * does for the redirect server. Entries cached before startup do not exist,
+ * so the tail starts at startup.
+ */
+@Component
+public class RedirectPolicySync {
+
+  private static final Logger log = LoggerFactory.getLogger(RedirectPolicySync.class);
+
+  /** Updates are stamped before commit, so they are re-read for this long. */
+  private static final long UPDATE_OVERLAP_SECONDS = 10;
+
+  private static final String SELECT_UPDATED = "SELECT short_url FROM url_mapping WHERE updated_at > ?";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final RedirectCache redirectCache;
+
+  // Guarded by this
+  private LocalDateTime updatedSince = LocalDateTime.now();
+
+  public RedirectPolicySync(JdbcTemplate jdbcTemplate, RedirectCache redirectCache) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.redirectCache = redirectCache;
+  }
+
+  @Scheduled(fixedDelayString = "${trimify.redirect-cache.policy-sync-interval}")
+  public synchronized void sync() {
+    LocalDateTime now = LocalDateTime.now();
+    Timestamp since = Timestamp.valueOf(updatedSince.minusSeconds(UPDATE_OVERLAP_SECONDS));
+    try {
+      for (String shortUrl : jdbcTemplate.queryForList(SELECT_UPDATED, String.class, since)) {
+        redirectCache.invalidate(shortUrl);
+      }
+      updatedSince = now;
+    } catch (RuntimeException e) {
+      log.warn("Failed to read redirect policy changes since {}, retrying", since, e);
+    }
+  }
+}
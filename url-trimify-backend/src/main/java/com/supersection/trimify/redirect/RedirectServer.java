@@ -0,0 +1,167 @@
+package com.supersection.trimify.redirect;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.supersection.trimify.click.ClickIngestionService;
+import com.supersection.trimify.click.VisitorFingerprint;
+import com.supersection.trimify.service.UrlMappingService;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Redirect-only HTTP server on its own port, for running redirects as a
+ * separate tier in front of the Spring application.
+ *
+ * <p>Built on the JDK {@link HttpServer}: one selector thread accepts and
+ * parses keep-alive HTTP/1.1 connections and each exchange runs on a virtual
+ * thread. No servlet filters, security chain or MVC dispatch sit between the
+ * request and the {@link RedirectIndex} lookup. Clicks go through the same
+ * {@link ClickIngestionService} as the Spring redirect endpoint.
+ *
+ * <p>A code missing from the index is answered 404 without touching the
+ * database, unless the index has open gaps, so requests for unknown codes
+ * cost a map lookup. A code created since the last refresh is not found until
+ * the next one, one {@code refresh-interval} at most.
+ */
+@Component
+@ConditionalOnProperty(name = "trimify.redirect-server.enabled", havingValue = "true")
+public class RedirectServer {
+
+  private static final Logger log = LoggerFactory.getLogger(RedirectServer.class);
+
+  private final RedirectIndex redirectIndex;
+  private final UrlMappingService urlMappingService;
+  private final ClickIngestionService clickIngestionService;
+  private final RedirectMetrics redirectMetrics;
+  private final VisitorFingerprint visitorFingerprint;
+  private final ClientAddress clientAddress;
+  private final int port;
+  private final int backlog;
+  private final Duration shutdownGrace;
+
+  private HttpServer server;
+  private ExecutorService executor;
+
+  public RedirectServer(
+      RedirectIndex redirectIndex,
+      UrlMappingService urlMappingService,
+      ClickIngestionService clickIngestionService,
+      RedirectMetrics redirectMetrics,
+      VisitorFingerprint visitorFingerprint,
+      @Value("${trimify.redirect-server.port}") int port,
+      @Value("${trimify.redirect-server.backlog}") int backlog,
+      @Value("${trimify.redirect-server.shutdown-grace}") Duration shutdownGrace,
+      @Value("${trimify.redirect-server.trusted-proxies}") List<String> trustedProxies
+  ) {
+    this.redirectIndex = redirectIndex;
+    this.urlMappingService = urlMappingService;
+    this.clickIngestionService = clickIngestionService;
+    this.redirectMetrics = redirectMetrics;
+    this.visitorFingerprint = visitorFingerprint;
+    this.clientAddress = new ClientAddress(trustedProxies);
+    this.port = port;
+    this.backlog = backlog;
+    this.shutdownGrace = shutdownGrace;
+  }
+
+  /**
+   * Accepts connections only once the index is loaded, so a new node does not
+   * send its first requests to the database.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public synchronized void start() throws IOException {
+    redirectIndex.load();
+
+    executor = Executors.newVirtualThreadPerTaskExecutor();
+    server = HttpServer.create(new InetSocketAddress(port), backlog);
+    server.setExecutor(executor);
+    server.createContext("/", this::handle);
+    server.start();
+    log.info("Redirect server listening on port {}", server.getAddress().getPort());
+  }
+
+  @PreDestroy
+  public synchronized void stop() {
+    if (server != null) {
+      server.stop((int) shutdownGrace.toSeconds());
+      executor.close();
+      server = null;
+    }
+  }
+
+  /** @return the bound port, which differs from the configured one when that is 0. */
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      String method = exchange.getRequestMethod();
+      if (!"GET".equals(method) && !"HEAD".equals(method)) {
+        exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+        exchange.sendResponseHeaders(405, -1);
+        return;
+      }
+
+      // Short codes are a single path segment
+      String path = exchange.getRequestURI().getRawPath();
+      RedirectTarget target;
+      try {
+        target = path.length() > 1 && path.indexOf('/', 1) < 0 ? resolve(path.substring(1), exchange) : null;
+      } catch (RuntimeException e) {
+        log.error("Failed to resolve {}", path, e);
+        exchange.sendResponseHeaders(503, -1);
+        return;
+      }
+      if (target == null) {
+        exchange.sendResponseHeaders(404, -1);
+        return;
+      }
+
+      RedirectPolicy policy = target.policy();
+      exchange.getResponseHeaders().set("Location", target.originalUrl());
+      exchange.getResponseHeaders().set("Cache-Control", policy.cacheControl());
+      exchange.sendResponseHeaders(policy.status(), -1);
+    }
+  }
+
+  private RedirectTarget resolve(String shortUrl, HttpExchange exchange) {
+    String address = clientAddress.of(
+        exchange.getRemoteAddress().getAddress().getHostAddress(), exchange.getRequestHeaders());
+    long visitor = visitorFingerprint.of(address, exchange.getRequestHeaders().getFirst("User-Agent"));
+
+    long started = System.nanoTime();
+    RedirectTarget target = redirectIndex.get(shortUrl);
+    if (target == null) {
+      if (!redirectIndex.hasOpenGaps()) {
+        redirectMetrics.notFound();
+        return null;
+      }
+      // Maybe committed after the last refresh: the regular path checks the
+      // cache and database and records the click
+      return urlMappingService.getOriginalUrl(shortUrl, visitor);
+    }
+    redirectMetrics.recordLookup(started);
+    redirectMetrics.hit();
+
+    started = System.nanoTime();
+    clickIngestionService.record(target, visitor);
+    redirectMetrics.recordClickRecording(started);
+    return target;
+  }
+}
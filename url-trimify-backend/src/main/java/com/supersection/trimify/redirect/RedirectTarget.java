@@ -0,0 +1,20 @@
+package com.supersection.trimify.redirect;
+
+import com.supersection.trimify.model.UrlMapping;
+
+/**
+ * Immutable view of a short URL that carries just enough to answer a redirect
+ * and attribute the click, so hot lookups never hold on to JPA entities.
+ */
+public record RedirectTarget(long id, long userId, String shortUrl, String originalUrl, RedirectPolicy policy) {
+
+  public static RedirectTarget of(UrlMapping urlMapping) {
+    return new RedirectTarget(
+        urlMapping.getId(),
+        urlMapping.getUser().getId(),
+        urlMapping.getShortUrl(),
+        urlMapping.getOriginalUrl(),
+        urlMapping.getRedirectPolicy()
+    );
+  }
+}
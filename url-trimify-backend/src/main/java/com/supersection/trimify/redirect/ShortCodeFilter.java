@@ -0,0 +1,183 @@
+package com.supersection.trimify.redirect;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.supersection.trimify.dto.ShortUrlProjection;
+import com.supersection.trimify.repository.UrlMappingRepository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Bloom filter over every existing short code, used to reject requests for
+ * codes that definitely do not exist without touching the cache or database.
+ *
+ * <p>The filter is built once the application is ready by paging through
+ * {@code url_mapping} in id order, kept current by {@link #add(String)} on
+ * creation, and tailed periodically for codes created on other nodes. Until
+ * the first build completes every code is let through. When the number of
+ * codes outgrows the sizing, the filter is rebuilt at twice the size.
+ *
+ * <p>Ids the tail skipped are tracked as {@link IdGaps} and re-read until
+ * they show up. While any is outstanding, a code missing from the filter may
+ * just not have been read yet, so it is let through rather than rejected.
+ */
+@Component
+public class ShortCodeFilter implements MeterBinder {
+
+  private static final Logger log = LoggerFactory.getLogger(ShortCodeFilter.class);
+
+  private static final int PAGE_SIZE = 10_000;
+
+  private static final int MAX_GAP_IDS = 100_000;
+  private static final int GAP_IDS_PER_REFRESH = 1_000;
+  /** Far longer than an insert takes to commit; only rolled-back ids get this old. */
+  private static final Duration GAP_TIMEOUT = Duration.ofMinutes(2);
+
+  private final UrlMappingRepository urlMappingRepository;
+  private final boolean enabled;
+  private final long expectedInsertions;
+  private final double falsePositiveRate;
+
+  private final LongAdder rejections = new LongAdder();
+
+  private volatile BloomFilter filter;
+  private volatile boolean ready;
+  private volatile boolean gapsOpen;
+  // Guarded by this
+  private IdGaps gaps;
+
+  public ShortCodeFilter(
+      UrlMappingRepository urlMappingRepository,
+      @Value("${trimify.redirect-filter.enabled}") boolean enabled,
+      @Value("${trimify.redirect-filter.expected-insertions}") long expectedInsertions,
+      @Value("${trimify.redirect-filter.false-positive-rate}") double falsePositiveRate
+  ) {
+    this.urlMappingRepository = urlMappingRepository;
+    this.enabled = enabled;
+    this.expectedInsertions = expectedInsertions;
+    this.falsePositiveRate = falsePositiveRate;
+    // Placeholder until build(): nothing is rejected before the filter is ready
+    this.filter = new BloomFilter(1, falsePositiveRate);
+  }
+
+  /**
+   * @return {@code false} if the code definitely does not exist.
+   */
+  public boolean mightExist(String shortUrl) {
+    if (!ready || filter.mightContain(shortUrl) || gapsOpen) {
+      return true;
+    }
+    rejections.increment();
+    return false;
+  }
+
+  public void add(String shortUrl) {
+    filter.put(shortUrl);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public synchronized void build() {
+    if (!enabled) {
+      return;
+    }
+    long started = System.nanoTime();
+    long count = urlMappingRepository.count();
+    BloomFilter rebuilt = new BloomFilter(Math.max(expectedInsertions, count * 2), falsePositiveRate);
+    IdGaps rebuiltGaps = new IdGaps(0, MAX_GAP_IDS, GAP_TIMEOUT);
+    load(rebuilt, rebuiltGaps);
+
+    filter = rebuilt;
+    gaps = rebuiltGaps;
+    // Pick up anything committed while the filter was being loaded
+    catchUp();
+    ready = true;
+
+    log.info("Short code filter built with {} codes ({} KB, k={}) in {} ms",
+        rebuilt.insertions(), rebuilt.sizeInBytes() / 1024, rebuilt.hashCount(),
+        (System.nanoTime() - started) / 1_000_000);
+  }
+
+  @Scheduled(fixedDelayString = "${trimify.redirect-filter.refresh-interval}")
+  public synchronized void refresh() {
+    if (!ready) {
+      return;
+    }
+    catchUp();
+    if (filter.insertions() > filter.expectedInsertions()) {
+      build();
+    }
+  }
+
+  private void catchUp() {
+    load(filter, gaps);
+    long now = System.currentTimeMillis();
+    List<Long> missing = gaps.pending(GAP_IDS_PER_REFRESH, now);
+    if (!missing.isEmpty()) {
+      for (ShortUrlProjection row : urlMappingRepository.findByIdIn(missing)) {
+        filter.put(row.getShortUrl());
+        gaps.found(row.getId());
+      }
+    }
+    gapsOpen = gaps.isUncertain(now);
+  }
+
+  /** Adds every code above the high-water mark of {@code targetGaps}. */
+  private void load(BloomFilter target, IdGaps targetGaps) {
+    List<ShortUrlProjection> page;
+    do {
+      page = urlMappingRepository.findByIdGreaterThanOrderByIdAsc(targetGaps.highWaterId(), Limit.of(PAGE_SIZE));
+      long now = System.currentTimeMillis();
+      for (ShortUrlProjection row : page) {
+        target.put(row.getShortUrl());
+        targetGaps.advance(row.getId(), now);
+      }
+    } while (page.size() == PAGE_SIZE);
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    // Read through the field so the gauges follow the filter across rebuilds
+    Gauge.builder("trimify.redirect.filter.insertions", this, self -> self.filter.insertions())
+        .description("Short codes in the Bloom filter")
+        .register(registry);
+    Gauge.builder("trimify.redirect.filter.false.positive.rate", this,
+            self -> self.filter.estimatedFalsePositiveRate())
+        .description("Estimated false positive rate at the current fill")
+        .register(registry);
+    FunctionCounter.builder("trimify.redirect.filter.rejections", rejections, LongAdder::sum)
+        .description("Requests rejected as definitely unknown codes")
+        .register(registry);
+  }
+
+  public Map<String, Object> describe() {
+    BloomFilter current = filter;
+    Map<String, Object> description = new LinkedHashMap<>();
+    description.put("enabled", enabled);
+    description.put("ready", ready);
+    description.put("configuredFalsePositiveRate", current.falsePositiveRate());
+    description.put("estimatedFalsePositiveRate", current.estimatedFalsePositiveRate());
+    description.put("expectedInsertions", current.expectedInsertions());
+    description.put("insertions", current.insertions());
+    description.put("hashFunctions", current.hashCount());
+    description.put("memoryBytes", current.sizeInBytes());
+    description.put("gapsOpen", gapsOpen);
+    description.put("rejections", rejections.sum());
+    return description;
+  }
+}
@@ -3,9 +3,14 @@ package com.supersection.trimify.repository;
 import java.time.LocalDateTime;
 import java.util.List;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.supersection.trimify.dto.ClickBucketProjection;
+import com.supersection.trimify.dto.ClickExportProjection;
 import com.supersection.trimify.model.ClickEvent;
 import com.supersection.trimify.model.UrlMapping;
 
@@ -17,4 +22,26 @@ public interface ClickEventRepository extends JpaRepository<ClickEvent, Long> {
 
   List<ClickEvent> findByUrlMappingInAndClickDateBetween(
       List<UrlMapping> urlMappings, LocalDateTime startDate, LocalDateTime endDate);
+
+  long countByUrlMappingIdAndClickDateBetween(Long urlMappingId, LocalDateTime startDate, LocalDateTime endDate);
+
+  /** Seeks on {@code (click_date, id)}, the order of the {@code (url_mapping_id, click_date)} index. */
+  @Query("select c.id as id, c.clickDate as clickDate from ClickEvent c "
+      + "where c.urlMapping.id = :urlMappingId and c.clickDate <= :endDate "
+      + "and (c.clickDate > :clickDate or (c.clickDate = :clickDate and c.id > :id)) "
+      + "order by c.clickDate asc, c.id asc")
+  List<ClickExportProjection> findExportPage(
+      @Param("urlMappingId") Long urlMappingId, @Param("endDate") LocalDateTime endDate,
+      @Param("clickDate") LocalDateTime clickDate, @Param("id") Long id, Limit limit);
+
+  /** Clicks per bucket of {@code bucketSeconds} from {@code startDate}, only non-empty buckets. */
+  @Query(value = "SELECT FLOOR(TIMESTAMPDIFF(SECOND, :startDate, click_date) / :bucketSeconds) AS bucket, "
+      + "COUNT(*) AS clicks FROM click_event "
+      + "WHERE url_mapping_id = :urlMappingId AND click_date BETWEEN :startDate AND :endDate GROUP BY bucket",
+      nativeQuery = true)
+  List<ClickBucketProjection> countByBucket(
+      Long urlMappingId, LocalDateTime startDate, LocalDateTime endDate, long bucketSeconds);
+
+  @Query("select min(c.clickDate) from ClickEvent c")
+  LocalDateTime findEarliestClickDate();
 }
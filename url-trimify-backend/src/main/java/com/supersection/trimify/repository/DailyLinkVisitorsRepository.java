@@ -0,0 +1,16 @@
+package com.supersection.trimify.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.supersection.trimify.model.DailyLinkVisitors;
+
+@Repository
+public interface DailyLinkVisitorsRepository extends JpaRepository<DailyLinkVisitors, DailyLinkVisitors.Key> {
+
+  List<DailyLinkVisitors> findByUrlMappingIdAndClickDayBetweenOrderByClickDay(
+      Long urlMappingId, LocalDate startDay, LocalDate endDay);
+}
@@ -0,0 +1,16 @@
+package com.supersection.trimify.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.supersection.trimify.model.DailyUserClicks;
+
+@Repository
+public interface DailyUserClicksRepository extends JpaRepository<DailyUserClicks, DailyUserClicks.Key> {
+
+  List<DailyUserClicks> findByUserIdAndClickDayBetweenOrderByClickDay(
+      Long userId, LocalDate startDay, LocalDate endDay);
+}
@@ -0,0 +1,16 @@
+package com.supersection.trimify.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.supersection.trimify.model.DailyUserVisitors;
+
+@Repository
+public interface DailyUserVisitorsRepository extends JpaRepository<DailyUserVisitors, DailyUserVisitors.Key> {
+
+  List<DailyUserVisitors> findByUserIdAndClickDayBetweenOrderByClickDay(
+      Long userId, LocalDate startDay, LocalDate endDay);
+}
@@ -1,17 +1,76 @@
 package com.supersection.trimify.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.supersection.trimify.dto.ShortUrlProjection;
+import com.supersection.trimify.dto.UrlMappingSummary;
 import com.supersection.trimify.model.UrlMapping;
-import com.supersection.trimify.model.User;
+import com.supersection.trimify.redirect.ClickTracking;
 
 @Repository
-public interface UrlMappingRepository extends JpaRepository<UrlMapping, Long> {
+public interface UrlMappingRepository extends JpaRepository<UrlMapping, Long>, UrlMappingRepositoryCustom {
 
   UrlMapping findByShortUrl(String shortUrl);
 
-  List<UrlMapping> findByUser(User user);
+  // Only the policy columns, so a concurrent click count flush is never overwritten
+  @Modifying
+  @Transactional
+  @Query("update UrlMapping u set u.redirectStatus = :status, u.redirectMaxAge = :maxAge, "
+      + "u.clickTracking = :tracking, u.updatedAt = :updatedAt where u.id = :id")
+  int updateRedirectPolicy(
+      @Param("id") Long id, @Param("status") int status, @Param("maxAge") int maxAge,
+      @Param("tracking") ClickTracking tracking, @Param("updatedAt") LocalDateTime updatedAt);
+
+  // Keyset pages of a user's links. Each query seeks past the (sort key, id)
+  // of the last row seen; ids break ties between equal sort keys.
+
+  @Query("select u.id as id, u.originalUrl as originalUrl, u.shortUrl as shortUrl, "
+      + "u.clickCount as clickCount, u.createdAt as createdAt from UrlMapping u "
+      + "where u.user.id = :userId and (u.createdAt < :createdAt or (u.createdAt = :createdAt and u.id < :id)) "
+      + "order by u.createdAt desc, u.id desc")
+  List<UrlMappingSummary> findPageByCreatedAtDesc(
+      @Param("userId") Long userId, @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Limit limit);
+
+  @Query("select u.id as id, u.originalUrl as originalUrl, u.shortUrl as shortUrl, "
+      + "u.clickCount as clickCount, u.createdAt as createdAt from UrlMapping u "
+      + "where u.user.id = :userId and (u.createdAt > :createdAt or (u.createdAt = :createdAt and u.id > :id)) "
+      + "order by u.createdAt asc, u.id asc")
+  List<UrlMappingSummary> findPageByCreatedAtAsc(
+      @Param("userId") Long userId, @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Limit limit);
+
+  @Query("select u.id as id, u.originalUrl as originalUrl, u.shortUrl as shortUrl, "
+      + "u.clickCount as clickCount, u.createdAt as createdAt from UrlMapping u "
+      + "where u.user.id = :userId and (u.clickCount < :clickCount or (u.clickCount = :clickCount and u.id < :id)) "
+      + "order by u.clickCount desc, u.id desc")
+  List<UrlMappingSummary> findPageByClickCountDesc(
+      @Param("userId") Long userId, @Param("clickCount") int clickCount, @Param("id") Long id, Limit limit);
+
+  @Query("select u.id as id, u.originalUrl as originalUrl, u.shortUrl as shortUrl, "
+      + "u.clickCount as clickCount, u.createdAt as createdAt from UrlMapping u "
+      + "where u.user.id = :userId and (u.clickCount > :clickCount or (u.clickCount = :clickCount and u.id > :id)) "
+      + "order by u.clickCount asc, u.id asc")
+  List<UrlMappingSummary> findPageByClickCountAsc(
+      @Param("userId") Long userId, @Param("clickCount") int clickCount, @Param("id") Long id, Limit limit);
+
+  @Query("select u from UrlMapping u where u.user.id = :userId and u.urlHash in :urlHashes order by u.id")
+  List<UrlMapping> findByUserIdAndUrlHashIn(
+      @Param("userId") Long userId, @Param("urlHashes") Collection<Long> urlHashes);
+
+  // Owners are fetched because a global match may belong to another user
+  @Query("select u from UrlMapping u join fetch u.user where u.urlHash in :urlHashes order by u.id")
+  List<UrlMapping> findByUrlHashIn(@Param("urlHashes") Collection<Long> urlHashes);
+
+  List<ShortUrlProjection> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+  List<ShortUrlProjection> findByIdIn(Collection<Long> ids);
 }
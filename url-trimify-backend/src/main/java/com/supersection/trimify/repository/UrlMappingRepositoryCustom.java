@@ -0,0 +1,14 @@
+package com.supersection.trimify.repository;
+
+import java.util.List;
+
+import com.supersection.trimify.model.UrlMapping;
+
+public interface UrlMappingRepositoryCustom {
+
+  /**
+   * Inserts new mappings with one JDBC batch and sets their generated ids.
+   * Bypasses the persistence context, so the mappings stay detached.
+   */
+  void insertAll(List<UrlMapping> urlMappings);
+}
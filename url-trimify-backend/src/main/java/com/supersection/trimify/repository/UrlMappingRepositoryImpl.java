@@ -0,0 +1,67 @@
+package com.supersection.trimify.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.supersection.trimify.model.UrlMapping;
+
+class UrlMappingRepositoryImpl implements UrlMappingRepositoryCustom {
+
+  private static final String INSERT_URL_MAPPING =
+      "INSERT INTO url_mapping (original_url, short_url, url_hash, click_count, created_at, user_id) "
+          + "VALUES (?, ?, ?, ?, ?, ?)";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  UrlMappingRepositoryImpl(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  @Override
+  @Transactional
+  public void insertAll(List<UrlMapping> urlMappings) {
+    if (urlMappings.isEmpty()) {
+      return;
+    }
+
+    KeyHolder keyHolder = new GeneratedKeyHolder();
+    jdbcTemplate.batchUpdate(
+        connection -> connection.prepareStatement(INSERT_URL_MAPPING, Statement.RETURN_GENERATED_KEYS),
+        new BatchPreparedStatementSetter() {
+          @Override
+          public void setValues(PreparedStatement ps, int i) throws SQLException {
+            UrlMapping urlMapping = urlMappings.get(i);
+            ps.setString(1, urlMapping.getOriginalUrl());
+            ps.setString(2, urlMapping.getShortUrl());
+            ps.setObject(3, urlMapping.getUrlHash(), Types.BIGINT);
+            ps.setInt(4, urlMapping.getClickCount());
+            ps.setTimestamp(5, Timestamp.valueOf(urlMapping.getCreatedAt()));
+            ps.setLong(6, urlMapping.getUser().getId());
+          }
+
+          @Override
+          public int getBatchSize() {
+            return urlMappings.size();
+          }
+        },
+        keyHolder);
+
+    // Keys come back in insert order, one row per mapping
+    List<Map<String, Object>> keys = keyHolder.getKeyList();
+    for (int i = 0; i < urlMappings.size(); i++) {
+      Number id = (Number) keys.get(i).values().iterator().next();
+      urlMappings.get(i).setId(id.longValue());
+    }
+  }
+}
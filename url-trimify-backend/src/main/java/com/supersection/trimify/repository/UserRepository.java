@@ -3,6 +3,8 @@ package com.supersection.trimify.repository;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.supersection.trimify.model.User;
@@ -13,4 +15,7 @@ public interface UserRepository extends JpaRepository<User, Long> {
   Optional<User> findByUsername(String username);
   boolean existsByUsername(String username);
   boolean existsByEmail(String email);
+
+  @Query("select u.enabled from User u where u.id = :id")
+  Optional<Boolean> findEnabledById(@Param("id") Long id);
 }
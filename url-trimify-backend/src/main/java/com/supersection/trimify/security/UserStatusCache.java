@@ -0,0 +1,50 @@
+package com.supersection.trimify.security;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.supersection.trimify.repository.UserRepository;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Short-lived cache of whether each user account is still enabled.
+ *
+ * <p>Stateless authentication trusts the token for identity and roles but not
+ * for account status, so a disabled or deleted account is locked out within
+ * one TTL instead of at token expiry, at the cost of one lookup per user per
+ * TTL rather than one per request. The application has no way to disable an
+ * account itself; this covers accounts disabled or deleted in the database.
+ */
+@Component
+public class UserStatusCache implements MeterBinder {
+
+  private final LoadingCache<Long, Boolean> enabledByUserId;
+
+  public UserStatusCache(
+      UserRepository userRepository,
+      @Value("${trimify.security.user-status.ttl}") Duration ttl,
+      @Value("${trimify.security.user-status.maximum-size}") long maximumSize
+  ) {
+    this.enabledByUserId = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(ttl)
+        .recordStats()
+        .build(userId -> userRepository.findEnabledById(userId).orElse(false));
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    CaffeineCacheMetrics.monitor(registry, enabledByUserId, "user_status");
+  }
+
+  public boolean isEnabled(Long userId) {
+    return enabledByUserId.get(userId);
+  }
+}
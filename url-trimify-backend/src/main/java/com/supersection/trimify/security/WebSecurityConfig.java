@@ -16,6 +16,8 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 import com.supersection.trimify.security.jwt.JwtAuthenticationFilter;
 import com.supersection.trimify.service.UserDetailsServiceImpl;
 
+import jakarta.servlet.DispatcherType;
+
 
 @Configuration
 @EnableWebSecurity
@@ -52,8 +54,14 @@ public class WebSecurityConfig {
 
     http.csrf(csrf -> csrf.disable())
         .authorizeHttpRequests(auth -> auth
+            // Streamed responses complete on an async dispatch of a request already authorized
+            .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
             .requestMatchers("/api/auth/**").permitAll()
             .requestMatchers("/api/urls/**").authenticated()
+            // Probes and the Prometheus scraper carry no token; actuator only listens on
+            // management.server.port, bound to a private address
+            .requestMatchers("/actuator/health/**", "/actuator/prometheus").permitAll()
+            .requestMatchers("/actuator/**").hasRole("ADMIN")
             .requestMatchers("/{shortUrl}").permitAll()
             .anyRequest().authenticated())
         .authenticationProvider(authenticationProvider())
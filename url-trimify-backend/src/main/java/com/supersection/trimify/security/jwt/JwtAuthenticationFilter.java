@@ -2,6 +2,7 @@ package com.supersection.trimify.security.jwt;
 
 import java.io.IOException;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -11,6 +12,10 @@ import org.springframework.security.web.authentication.WebAuthenticationDetailsS
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import com.supersection.trimify.security.UserStatusCache;
+import com.supersection.trimify.service.UserDetailsImpl;
+
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -24,11 +29,18 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
   private final UserDetailsService userDetailsService;
 
+  private final UserStatusCache userStatusCache;
+
+  private final boolean statelessAuth;
+
   public JwtAuthenticationFilter(
-      JwtUtils jwtTokenProvider, UserDetailsService userDetailsService
+      JwtUtils jwtTokenProvider, UserDetailsService userDetailsService, UserStatusCache userStatusCache,
+      @Value("${trimify.security.stateless-auth}") boolean statelessAuth
   ) {
     this.jwtTokenProvider = jwtTokenProvider;
     this.userDetailsService = userDetailsService;
+    this.userStatusCache = userStatusCache;
+    this.statelessAuth = statelessAuth;
   }
 
   @Override
@@ -40,14 +52,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
       // Get JWT from the request header
       String jwtToken = jwtTokenProvider.getJwtFromHeader(request);
 
-      // Validate Token
-      if (jwtToken != null && jwtTokenProvider.validateJwtToken(jwtToken)) {
-        // If valid, extract username and set authentication
-        String username = jwtTokenProvider.getUsernameFromJwtToken(jwtToken);
-        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+      if (jwtToken != null) {
+        // Verify the token once and build the principal from its claims or the database
+        Claims claims = jwtTokenProvider.parseVerifiedClaims(jwtToken);
+        UserDetails userDetails = loadPrincipal(claims);
 
-        // If user details are found, set the authentication in the security context
-        if (userDetails != null) {
+        // If an enabled user is found, set the authentication in the security context
+        if (userDetails != null && userDetails.isEnabled()) {
           UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
               userDetails, null, userDetails.getAuthorities()
             );
@@ -63,4 +74,17 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     filterChain.doFilter(request, response);
   }
 
+  private UserDetails loadPrincipal(Claims claims) {
+    Long userId = claims.get(JwtUtils.USER_ID_CLAIM, Long.class);
+    String roles = claims.get(JwtUtils.ROLES_CLAIM, String.class);
+
+    // Tokens issued before the user id claim existed still go through the database
+    if (statelessAuth && userId != null && roles != null) {
+      UserDetailsImpl userDetails = UserDetailsImpl.fromClaims(userId, claims.getSubject(), roles);
+      userDetails.setEnabled(userStatusCache.isEnabled(userId));
+      return userDetails;
+    }
+    return userDetailsService.loadUserByUsername(claims.getSubject());
+  }
+
 }
@@ -1,7 +1,13 @@
 package com.supersection.trimify.security.jwt;
 
-import java.security.Key;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import javax.crypto.SecretKey;
@@ -11,21 +17,76 @@ import org.springframework.stereotype.Component;
 
 import com.supersection.trimify.service.UserDetailsImpl;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import jakarta.servlet.http.HttpServletRequest;
 
 
+/**
+ * Issues and verifies JWTs. The signing key and parser are built once, and
+ * tokens that have already been verified are remembered until they expire, so
+ * repeat requests with the same token skip signature verification.
+ */
 @Component
 public class JwtUtils {
 
-  @Value("${jwt.secret}")
-  private String jwtSecret;
-
-  @Value("${jwt.expiration}")
-  private int jwtExpirationMs;
+  public static final String USER_ID_CLAIM = "uid";
+  public static final String ROLES_CLAIM = "roles";
+
+  private final SecretKey secretKey;
+  private final JwtParser jwtParser;
+  private final int jwtExpirationMs;
+
+  /** SHA-256 of the token → its verified claims, each entry expiring with the token. */
+  private final Cache<String, Claims> verifiedTokens;
+
+  private final Timer verification;
+  private final Counter expiredFailures;
+  private final Counter signatureFailures;
+  private final Counter malformedFailures;
+  private final Counter emptyFailures;
+  private final Counter otherFailures;
+
+  public JwtUtils(
+      MeterRegistry meterRegistry,
+      @Value("${jwt.secret}") String jwtSecret,
+      @Value("${jwt.expiration}") int jwtExpirationMs,
+      @Value("${trimify.security.verified-token-cache.maximum-size}") long verifiedTokenCacheSize
+  ) {
+    this.secretKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+    this.jwtParser = Jwts.parser().verifyWith(secretKey).build();
+    this.jwtExpirationMs = jwtExpirationMs;
+    this.verifiedTokens = Caffeine.newBuilder()
+        .maximumSize(verifiedTokenCacheSize)
+        .expireAfter(new TokenExpiry())
+        .recordStats()
+        .build();
+
+    this.verification = Timer.builder("trimify.jwt.verification")
+        .description("Time to parse and verify a token not found in the verified-token cache")
+        .register(meterRegistry);
+    this.expiredFailures = failureCounter(meterRegistry, "expired");
+    this.signatureFailures = failureCounter(meterRegistry, "signature");
+    this.malformedFailures = failureCounter(meterRegistry, "malformed");
+    this.emptyFailures = failureCounter(meterRegistry, "empty");
+    this.otherFailures = failureCounter(meterRegistry, "other");
+    CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "verified_tokens");
+  }
 
 
   public String getJwtFromHeader(HttpServletRequest request) {
@@ -44,36 +105,109 @@ public class JwtUtils {
 
     return Jwts.builder()
         .subject(username)
-        .claim("roles", roles)
+        .claim(USER_ID_CLAIM, userDetails.getId())
+        .claim(ROLES_CLAIM, roles)
         .issuedAt(new Date())
-        .expiration(new Date(System.currentTimeMillis() + jwtExpirationMs)) // 1 day expiration
-        .signWith(getSecretKey())
+        .expiration(new Date(System.currentTimeMillis() + jwtExpirationMs))
+        .signWith(secretKey)
         .compact();
   }
 
-  public boolean validateJwtToken(String authToken) {
+  /**
+   * Verifies the token, parsing it at most once for its whole lifetime.
+   *
+   * @return the verified claims.
+   * @throws JwtException if the token is malformed, expired or not signed with our key.
+   */
+  public Claims parseVerifiedClaims(String authToken) {
+    String tokenHash = hash(authToken);
+    Claims claims = verifiedTokens.getIfPresent(tokenHash);
+    if (claims != null) {
+      return claims;
+    }
+
+    long started = System.nanoTime();
     try {
-      Jwts.parser()
-          .verifyWith((SecretKey) getSecretKey())
-          .build().parseSignedClaims(authToken);
-      return true;
+      claims = jwtParser.parseSignedClaims(authToken).getPayload();
     } catch (JwtException e) {
+      failure(e);
       throw new JwtException("Invalid JWT token: " + e.getMessage(), e);
     } catch (IllegalArgumentException e) {
+      failure(e);
       throw new JwtException("JWT token is empty: " + e.getMessage(), e);
     } catch (Exception e) {
+      failure(e);
       throw new JwtException("JWT token validation failed: " + e.getMessage(), e);
+    } finally {
+      verification.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+
+    // Tokens without an expiry are verified every time rather than cached forever
+    if (claims.getExpiration() != null) {
+      verifiedTokens.put(tokenHash, claims);
+    }
+    return claims;
+  }
+
+  public Map<String, Object> describe() {
+    CacheStats stats = verifiedTokens.stats();
+    Map<String, Object> description = new LinkedHashMap<>();
+    description.put("estimatedSize", verifiedTokens.estimatedSize());
+    description.put("hitCount", stats.hitCount());
+    description.put("missCount", stats.missCount());
+    description.put("hitRate", stats.hitRate());
+    description.put("evictionCount", stats.evictionCount());
+    return description;
+  }
+
+  private void failure(Exception e) {
+    Counter counter;
+    if (e instanceof ExpiredJwtException) {
+      counter = expiredFailures;
+    } else if (e instanceof SignatureException) {
+      counter = signatureFailures;
+    } else if (e instanceof MalformedJwtException) {
+      counter = malformedFailures;
+    } else if (e instanceof IllegalArgumentException) {
+      counter = emptyFailures;
+    } else {
+      counter = otherFailures;
     }
+    counter.increment();
   }
 
-  public String getUsernameFromJwtToken(String token) {
-    return Jwts.parser()
-        .verifyWith((SecretKey) getSecretKey())
-        .build().parseSignedClaims(token)
-        .getPayload().getSubject();
+  private static Counter failureCounter(MeterRegistry meterRegistry, String reason) {
+    return Counter.builder("trimify.jwt.failures")
+        .description("Tokens that failed verification")
+        .tag("reason", reason)
+        .register(meterRegistry);
   }
 
-  private Key getSecretKey() {
-    return Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+  private static String hash(String token) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  private static final class TokenExpiry implements Expiry<String, Claims> {
+
+    @Override
+    public long expireAfterCreate(String tokenHash, Claims claims, long currentTime) {
+      long remainingMs = claims.getExpiration().getTime() - System.currentTimeMillis();
+      return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMs));
+    }
+
+    @Override
+    public long expireAfterUpdate(String tokenHash, Claims claims, long currentTime, long currentDuration) {
+      return expireAfterCreate(tokenHash, claims, currentTime);
+    }
+
+    @Override
+    public long expireAfterRead(String tokenHash, Claims claims, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
   }
 }
@@ -0,0 +1,164 @@
+package com.supersection.trimify.service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import com.supersection.trimify.dto.BatchShortenResult;
+import com.supersection.trimify.dto.UrlMappingDTO;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Shortens a stream of URLs in chunks and streams one NDJSON result line per
+ * item back as each chunk completes.
+ *
+ * <p>Input is either a JSON array or NDJSON; each item is a URL string or an
+ * object with an {@code originalUrl} field. Invalid items are reported
+ * individually and do not affect the rest of the batch. Each valid chunk is
+ * written with one batch insert.
+ */
+@Service
+public class BulkShortenService {
+
+  private static final Logger log = LoggerFactory.getLogger(BulkShortenService.class);
+
+  /** Length of the {@code url_mapping.original_url} column. */
+  private static final int MAX_URL_LENGTH = 255;
+
+  private final UrlMappingService urlMappingService;
+  private final ObjectMapper objectMapper;
+  private final int chunkSize;
+  private final int maxItems;
+
+  public BulkShortenService(
+      UrlMappingService urlMappingService,
+      ObjectMapper objectMapper,
+      @Value("${trimify.batch.chunk-size}") int chunkSize,
+      @Value("${trimify.batch.max-items}") int maxItems
+  ) {
+    this.urlMappingService = urlMappingService;
+    this.objectMapper = objectMapper;
+    this.chunkSize = chunkSize;
+    this.maxItems = maxItems;
+  }
+
+  public void shorten(InputStream input, UserDetailsImpl user, OutputStream output) throws IOException {
+    OutputStream out = new BufferedOutputStream(output, 64 * 1024);
+    List<Integer> chunkIndexes = new ArrayList<>(chunkSize);
+    List<String> chunkUrls = new ArrayList<>(chunkSize);
+    int index = 0;
+
+    // readValues unwraps a top-level array and also reads whitespace-separated values
+    try (MappingIterator<JsonNode> items = objectMapper.readerFor(JsonNode.class).readValues(input)) {
+      while (items.hasNextValue()) {
+        JsonNode item = items.nextValue();
+        if (index == maxItems) {
+          writeResult(out, BatchShortenResult.failed(index, null, "Batch exceeds " + maxItems + " items"));
+          break;
+        }
+
+        String originalUrl = originalUrl(item);
+        String error = validate(originalUrl);
+        if (error != null) {
+          writeResult(out, BatchShortenResult.failed(index, originalUrl, error));
+        } else {
+          chunkIndexes.add(index);
+          chunkUrls.add(originalUrl);
+          if (chunkUrls.size() == chunkSize) {
+            writeChunk(out, chunkIndexes, chunkUrls, user);
+          }
+        }
+        index++;
+      }
+    } catch (JsonProcessingException e) {
+      writeResult(out, BatchShortenResult.failed(index, null, "Malformed input: " + e.getOriginalMessage()));
+    }
+
+    writeChunk(out, chunkIndexes, chunkUrls, user);
+    out.flush();
+  }
+
+  private void writeChunk(
+      OutputStream out, List<Integer> indexes, List<String> originalUrls, UserDetailsImpl user
+  ) throws IOException {
+    if (originalUrls.isEmpty()) {
+      return;
+    }
+
+    try {
+      List<UrlMappingDTO> created = urlMappingService.createShortUrls(originalUrls, user);
+      for (int i = 0; i < created.size(); i++) {
+        writeResult(out, BatchShortenResult.created(indexes.get(i), created.get(i)));
+      }
+    } catch (DataIntegrityViolationException e) {
+      // A generated code collided; retry one by one so only the unlucky item pays
+      for (int i = 0; i < originalUrls.size(); i++) {
+        writeResult(out, createOne(indexes.get(i), originalUrls.get(i), user));
+      }
+    } catch (DataAccessException e) {
+      log.warn("Failed to persist a chunk of {} short URLs", originalUrls.size(), e);
+      for (int i = 0; i < originalUrls.size(); i++) {
+        writeResult(out, BatchShortenResult.failed(indexes.get(i), originalUrls.get(i), "Could not be saved"));
+      }
+    }
+
+    indexes.clear();
+    originalUrls.clear();
+    // Hand each completed chunk to the client instead of holding results back
+    out.flush();
+  }
+
+  private BatchShortenResult createOne(int index, String originalUrl, UserDetailsImpl user) {
+    try {
+      return BatchShortenResult.created(index, urlMappingService.createShortUrl(originalUrl, user));
+    } catch (DataAccessException e) {
+      return BatchShortenResult.failed(index, originalUrl, "Could not be saved");
+    }
+  }
+
+  private void writeResult(OutputStream out, BatchShortenResult result) throws IOException {
+    out.write(objectMapper.writeValueAsBytes(result));
+    out.write('\n');
+  }
+
+  private static String originalUrl(JsonNode item) {
+    if (item.isTextual()) {
+      return item.asText();
+    }
+    JsonNode originalUrl = item.get("originalUrl");
+    return originalUrl != null && originalUrl.isTextual() ? originalUrl.asText() : null;
+  }
+
+  private static String validate(String originalUrl) {
+    if (originalUrl == null || originalUrl.isBlank()) {
+      return "originalUrl is required";
+    }
+    if (originalUrl.length() > MAX_URL_LENGTH) {
+      return "originalUrl must be at most " + MAX_URL_LENGTH + " characters";
+    }
+    try {
+      if (!new URI(originalUrl).isAbsolute()) {
+        return "originalUrl must be an absolute URL";
+      }
+    } catch (URISyntaxException e) {
+      return "originalUrl is not a valid URL";
+    }
+    return null;
+  }
+}
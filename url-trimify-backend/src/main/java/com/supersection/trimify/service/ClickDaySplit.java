@@ -0,0 +1,42 @@
+package com.supersection.trimify.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A click range split into the whole days answered by the daily rollups and
+ * the partial days at either end, which are counted from {@code click_event}.
+ *
+ * @param firstWholeDay the first whole day; after {@code lastWholeDay} if
+ *     there is none.
+ * @param partialDays   at most one range per day, in order.
+ */
+record ClickDaySplit(LocalDate firstWholeDay, LocalDate lastWholeDay, List<Range> partialDays) {
+
+  record Range(LocalDateTime from, LocalDateTime to) {
+  }
+
+  /** Splits {@code [start, end]}, both inclusive. */
+  static ClickDaySplit of(LocalDateTime start, LocalDateTime end) {
+    LocalDate startDay = start.toLocalDate();
+    LocalDate endDay = end.toLocalDate();
+    LocalDate firstWholeDay = start.equals(startDay.atStartOfDay()) ? startDay : startDay.plusDays(1);
+    // Ranges conventionally end at 23:59:59, which is treated as covering the whole day
+    LocalDate lastWholeDay = end.isBefore(endDay.atTime(23, 59, 59)) ? endDay.minusDays(1) : endDay;
+
+    List<Range> partialDays = new ArrayList<>(2);
+    if (startDay.equals(endDay) && lastWholeDay.isBefore(firstWholeDay)) {
+      partialDays.add(new Range(start, end));
+    } else {
+      if (firstWholeDay.isAfter(startDay)) {
+        partialDays.add(new Range(start, startDay.plusDays(1).atStartOfDay().minusNanos(1)));
+      }
+      if (lastWholeDay.isBefore(endDay)) {
+        partialDays.add(new Range(endDay.atStartOfDay(), end));
+      }
+    }
+    return new ClickDaySplit(firstWholeDay, lastWholeDay, partialDays);
+  }
+}
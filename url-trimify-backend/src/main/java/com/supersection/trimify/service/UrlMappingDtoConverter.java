@@ -0,0 +1,47 @@
+package com.supersection.trimify.service;
+
+import org.springframework.stereotype.Component;
+
+import com.supersection.trimify.click.ClickCounterService;
+import com.supersection.trimify.dto.UrlMappingDTO;
+import com.supersection.trimify.dto.UrlMappingSummary;
+import com.supersection.trimify.model.UrlMapping;
+
+/**
+ * Converts links to {@link UrlMappingDTO}s, adding the clicks not yet
+ * flushed to {@code click_count}.
+ */
+@Component
+public class UrlMappingDtoConverter {
+
+  private final ClickCounterService clickCounterService;
+
+  public UrlMappingDtoConverter(ClickCounterService clickCounterService) {
+    this.clickCounterService = clickCounterService;
+  }
+
+  public UrlMappingDTO convert(UrlMapping urlMapping, String username) {
+    UrlMappingDTO dto = new UrlMappingDTO();
+    dto.setId(urlMapping.getId());
+    dto.setOriginalUrl(urlMapping.getOriginalUrl());
+    dto.setShortUrl(urlMapping.getShortUrl());
+    dto.setClickCount(urlMapping.getClickCount()
+        + (int) clickCounterService.getPendingCount(urlMapping.getId()));
+    dto.setCreatedAt(urlMapping.getCreatedAt());
+    dto.setUsername(username);
+
+    return dto;
+  }
+
+  public UrlMappingDTO convert(UrlMappingSummary summary, String username) {
+    UrlMappingDTO dto = new UrlMappingDTO();
+    dto.setId(summary.getId());
+    dto.setOriginalUrl(summary.getOriginalUrl());
+    dto.setShortUrl(summary.getShortUrl());
+    dto.setClickCount(summary.getClickCount() + (int) clickCounterService.getPendingCount(summary.getId()));
+    dto.setCreatedAt(summary.getCreatedAt());
+    dto.setUsername(username);
+
+    return dto;
+  }
+}
@@ -1,21 +1,45 @@
 package com.supersection.trimify.service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Random;
-import java.util.stream.Collectors;
+import java.util.TreeMap;
 
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
+import com.supersection.trimify.analytics.AnalyticsMetrics;
+import com.supersection.trimify.analytics.ClickIndex;
+import com.supersection.trimify.analytics.ClickRollupService;
+import com.supersection.trimify.analytics.VisitorSketchService;
+import com.supersection.trimify.click.ClickIngestionService;
+import com.supersection.trimify.dedup.UrlDeduplicator;
+import com.supersection.trimify.dto.ClickBucketDTO;
+import com.supersection.trimify.dto.ClickBucketProjection;
 import com.supersection.trimify.dto.ClickEventDTO;
+import com.supersection.trimify.dto.UniqueVisitorsDTO;
 import com.supersection.trimify.dto.UrlMappingDTO;
-import com.supersection.trimify.model.ClickEvent;
+import com.supersection.trimify.dto.UrlMappingPage;
+import com.supersection.trimify.dto.UrlMappingSummary;
 import com.supersection.trimify.model.UrlMapping;
 import com.supersection.trimify.model.User;
+import com.supersection.trimify.redirect.RedirectCache;
+import com.supersection.trimify.redirect.RedirectMetrics;
+import com.supersection.trimify.redirect.RedirectPolicy;
+import com.supersection.trimify.redirect.RedirectTarget;
+import com.supersection.trimify.redirect.ShortCodeFilter;
 import com.supersection.trimify.repository.ClickEventRepository;
 import com.supersection.trimify.repository.UrlMappingRepository;
+import com.supersection.trimify.repository.UserRepository;
+import com.supersection.trimify.shortcode.ShortCodeGenerator;
 
 import lombok.RequiredArgsConstructor;
 
@@ -23,90 +47,356 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class UrlMappingService {
 
+  private static final String SORT_CREATED_AT = "createdAt";
+  private static final String SORT_CLICK_COUNT = "clickCount";
+
+  // First-page seek positions; both fit MySQL DATETIME, unlike LocalDateTime.MIN/MAX
+  private static final LocalDateTime MIN_CREATED_AT = LocalDateTime.of(1000, 1, 1, 0, 0);
+  private static final LocalDateTime MAX_CREATED_AT = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+  private static final int MAX_SHORT_CODE_ATTEMPTS = 3;
+
   private final UrlMappingRepository urlMappingRepository;
+  private final UserRepository userRepository;
   private final ClickEventRepository clickEventRepository;
+  private final RedirectCache redirectCache;
+  private final ClickIngestionService clickIngestionService;
+  private final UrlMappingDtoConverter dtoConverter;
+  private final ShortCodeGenerator shortCodeGenerator;
+  private final ShortCodeFilter shortCodeFilter;
+  private final ClickRollupService clickRollupService;
+  private final UrlDeduplicator urlDeduplicator;
+  private final RedirectMetrics redirectMetrics;
+  private final AnalyticsMetrics analyticsMetrics;
+  private final VisitorSketchService visitorSketchService;
+  private final ClickIndex clickIndex;
 
-  public UrlMappingDTO createShortUrl(String originalUrl, User user) {
-    String shortUrl = generateShortUrl();
+  public UrlMappingDTO createShortUrl(String originalUrl, UserDetailsImpl user) {
+    if (urlDeduplicator.isEnabled()) {
+      UrlMapping existing = urlDeduplicator.findExisting(List.of(originalUrl), user.getId())
+          .get(urlDeduplicator.normalize(originalUrl));
+      if (existing != null) {
+        return dtoConverter.convert(existing, ownerName(existing, user));
+      }
+    }
 
-    UrlMapping urlMapping = new UrlMapping();
-    urlMapping.setOriginalUrl(originalUrl);
-    urlMapping.setShortUrl(shortUrl);
-    urlMapping.setUser(user);
-    urlMapping.setCreatedAt(LocalDateTime.now());
+    // A reference is enough to set the foreign key; the user row is never read
+    User owner = userRepository.getReferenceById(user.getId());
+    long urlHash = urlDeduplicator.hash(originalUrl);
+    for (int attempt = 1; ; attempt++) {
+      UrlMapping urlMapping = new UrlMapping();
+      urlMapping.setOriginalUrl(originalUrl);
+      urlMapping.setShortUrl(shortCodeGenerator.nextCode());
+      urlMapping.setUrlHash(urlHash);
+      urlMapping.setUser(owner);
+      urlMapping.setCreatedAt(LocalDateTime.now());
 
-    UrlMapping savedUrlMapping = urlMappingRepository.save(urlMapping);
-    return convertToDto(savedUrlMapping);
+      try {
+        UrlMapping savedUrlMapping = urlMappingRepository.save(urlMapping);
+        shortCodeFilter.add(savedUrlMapping.getShortUrl());
+        redirectCache.put(RedirectTarget.of(savedUrlMapping));
+        return dtoConverter.convert(savedUrlMapping, user.getUsername());
+      } catch (DataIntegrityViolationException e) {
+        // Only possible with generators that do not guarantee unique codes
+        if (attempt == MAX_SHORT_CODE_ATTEMPTS) {
+          throw e;
+        }
+      }
+    }
   }
 
-  private UrlMappingDTO convertToDto(UrlMapping urlMapping) {
-    UrlMappingDTO dto = new UrlMappingDTO();
-    dto.setId(urlMapping.getId());
-    dto.setOriginalUrl(urlMapping.getOriginalUrl());
-    dto.setShortUrl(urlMapping.getShortUrl());
-    dto.setClickCount(urlMapping.getClickCount());
-    dto.setCreatedAt(urlMapping.getCreatedAt());
-    dto.setUsername(urlMapping.getUser().getUsername());
+  /**
+   * Creates short URLs for all of {@code originalUrls} with a single batch
+   * insert. All or none are created; if a generated code collides the whole
+   * call fails with {@link DataIntegrityViolationException}, and the caller can
+   * fall back to {@link #createShortUrl(String, UserDetailsImpl)}. With dedup
+   * enabled, URLs that already have a mapping, or repeat earlier in the batch,
+   * reuse it.
+   *
+   * @return the mappings, in the order of {@code originalUrls}.
+   */
+  public List<UrlMappingDTO> createShortUrls(List<String> originalUrls, UserDetailsImpl user) {
+    User owner = userRepository.getReferenceById(user.getId());
+    LocalDateTime createdAt = LocalDateTime.now();
+    boolean dedup = urlDeduplicator.isEnabled();
+    Map<String, UrlMapping> known = urlDeduplicator.findExisting(originalUrls, user.getId());
+
+    List<UrlMapping> urlMappings = new ArrayList<>(originalUrls.size());
+    List<UrlMapping> newUrlMappings = new ArrayList<>(originalUrls.size());
+    for (String originalUrl : originalUrls) {
+      String normalized = dedup ? urlDeduplicator.normalize(originalUrl) : null;
+      UrlMapping urlMapping = dedup ? known.get(normalized) : null;
+      if (urlMapping == null) {
+        urlMapping = new UrlMapping();
+        urlMapping.setOriginalUrl(originalUrl);
+        urlMapping.setShortUrl(shortCodeGenerator.nextCode());
+        urlMapping.setUrlHash(urlDeduplicator.hash(originalUrl));
+        urlMapping.setUser(owner);
+        urlMapping.setCreatedAt(createdAt);
+        newUrlMappings.add(urlMapping);
+        if (dedup) {
+          known.put(normalized, urlMapping);
+        }
+      }
+      urlMappings.add(urlMapping);
+    }
+
+    urlMappingRepository.insertAll(newUrlMappings);
+    for (UrlMapping urlMapping : newUrlMappings) {
+      shortCodeFilter.add(urlMapping.getShortUrl());
+      redirectCache.put(RedirectTarget.of(urlMapping));
+    }
 
-    return dto;
+    List<UrlMappingDTO> result = new ArrayList<>(urlMappings.size());
+    for (UrlMapping urlMapping : urlMappings) {
+      result.add(dtoConverter.convert(urlMapping, ownerName(urlMapping, user)));
+    }
+    return result;
   }
 
-  private String generateShortUrl() {
-    String characters = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+  /** Existing mappings found by global dedup may belong to someone else. */
+  private static String ownerName(UrlMapping urlMapping, UserDetailsImpl user) {
+    return urlMapping.getUser().getId().equals(user.getId())
+        ? user.getUsername()
+        : urlMapping.getUser().getUsername();
+  }
 
-    Random random = new Random();
-    StringBuilder shortUrl = new StringBuilder(8);
+  /**
+   * Returns one keyset page of the user's links.
+   *
+   * @param cursor    The cursor returned with the previous page, or {@code null} for the first page.
+   * @param sort      {@code createdAt} or {@code clickCount}.
+   * @param direction {@code asc} or {@code desc}.
+   * @throws IllegalArgumentException if the sort, direction or cursor is invalid.
+   */
+  public UrlMappingPage getUrlsByUser(
+      UserDetailsImpl user, String cursor, int limit, String sort, String direction
+  ) {
+    boolean descending = switch (direction.toLowerCase(Locale.ROOT)) {
+      case "desc" -> true;
+      case "asc" -> false;
+      default -> throw new IllegalArgumentException("Unsupported direction: " + direction);
+    };
+    String[] position = cursor != null ? decodeCursor(cursor, sort, direction) : null;
+    // Fetch one extra row to learn whether another page follows
+    Limit fetchLimit = Limit.of(limit + 1);
+    Long userId = user.getId();
 
-    for (int i = 0; i < 8; i++) {
-      shortUrl.append(characters.charAt(random.nextInt(characters.length())));
+    List<UrlMappingSummary> rows;
+    try {
+      if (SORT_CREATED_AT.equals(sort)) {
+        LocalDateTime createdAt = position != null ? LocalDateTime.parse(position[0])
+            : descending ? MAX_CREATED_AT : MIN_CREATED_AT;
+        long id = position != null ? Long.parseLong(position[1]) : descending ? Long.MAX_VALUE : 0;
+        rows = descending
+            ? urlMappingRepository.findPageByCreatedAtDesc(userId, createdAt, id, fetchLimit)
+            : urlMappingRepository.findPageByCreatedAtAsc(userId, createdAt, id, fetchLimit);
+      } else if (SORT_CLICK_COUNT.equals(sort)) {
+        int clickCount = position != null ? Integer.parseInt(position[0])
+            : descending ? Integer.MAX_VALUE : Integer.MIN_VALUE;
+        long id = position != null ? Long.parseLong(position[1]) : descending ? Long.MAX_VALUE : 0;
+        rows = descending
+            ? urlMappingRepository.findPageByClickCountDesc(userId, clickCount, id, fetchLimit)
+            : urlMappingRepository.findPageByClickCountAsc(userId, clickCount, id, fetchLimit);
+      } else {
+        throw new IllegalArgumentException("Unsupported sort: " + sort);
+      }
+    } catch (DateTimeParseException | NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid cursor", e);
     }
 
-    return shortUrl.toString();
-  }
+    List<UrlMappingSummary> page = rows.size() > limit ? rows.subList(0, limit) : rows;
+    String nextCursor = null;
+    if (rows.size() > limit) {
+      UrlMappingSummary last = page.get(page.size() - 1);
+      Object sortValue = SORT_CREATED_AT.equals(sort) ? last.getCreatedAt() : last.getClickCount();
+      nextCursor = encodeCursor(sort, direction, sortValue, last.getId());
+    }
 
-  public List<UrlMappingDTO> getUrlsByUser(User user) {
-    return urlMappingRepository.findByUser(user)
-        .stream()
-        .map(this::convertToDto)
+    List<UrlMappingDTO> urls = page.stream()
+        .map(summary -> dtoConverter.convert(summary, user.getUsername()))
         .toList();
+    return new UrlMappingPage(urls, nextCursor);
+  }
+
+  /**
+   * Cursors are opaque to clients: the sort, direction and last row's
+   * (sort key, id), so a cursor cannot be replayed against another ordering.
+   */
+  private static String encodeCursor(String sort, String direction, Object sortValue, Long id) {
+    String position = sort + "," + direction + "," + sortValue + "," + id;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String[] decodeCursor(String cursor, String sort, String direction) {
+    String[] parts;
+    try {
+      parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(",");
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid cursor", e);
+    }
+    if (parts.length != 4 || !parts[0].equals(sort) || !parts[1].equalsIgnoreCase(direction)) {
+      throw new IllegalArgumentException("Cursor does not match the requested sort");
+    }
+    return new String[] { parts[2], parts[3] };
+  }
+
+  /**
+   * @return the mapping for {@code shortUrl}, or {@code null} if it does not
+   *     exist or belongs to another user.
+   */
+  public UrlMapping getOwnedUrlMapping(String shortUrl, Long userId) {
+    UrlMapping urlMapping = urlMappingRepository.findByShortUrl(shortUrl);
+    if (urlMapping == null || !urlMapping.getUser().getId().equals(userId)) {
+      return null;
+    }
+    return urlMapping;
   }
 
+  /**
+   * Replaces the redirect policy of one of the user's links and publishes it
+   * to this node's redirect cache. Other nodes drop their cached entry within
+   * {@code trimify.redirect-cache.policy-sync-interval}, and redirect servers
+   * pick it up on their next refresh.
+   *
+   * @return the new policy, or {@code null} if the user owns no such link.
+   */
+  public RedirectPolicy updateRedirectPolicy(String shortUrl, Long userId, RedirectPolicy policy) {
+    UrlMapping urlMapping = getOwnedUrlMapping(shortUrl, userId);
+    if (urlMapping == null) {
+      return null;
+    }
+    LocalDateTime updatedAt = LocalDateTime.now();
+    urlMappingRepository.updateRedirectPolicy(
+        urlMapping.getId(), policy.status(), policy.maxAgeSeconds(), policy.tracking(), updatedAt);
+    urlMapping.setRedirectPolicy(policy);
+    urlMapping.setUpdatedAt(updatedAt);
+    redirectCache.put(RedirectTarget.of(urlMapping));
+    return policy;
+  }
+
+  /**
+   * Clicks per day on one link between {@code start} and {@code end}
+   * (inclusive). Whole days come from the daily rollups; only the partial days
+   * at either end of the range are counted from {@code click_event}.
+   */
   public List<ClickEventDTO> getClickEventsByDate(String shortUrl, LocalDateTime start, LocalDateTime end) {
     UrlMapping urlMapping = urlMappingRepository.findByShortUrl(shortUrl);
-    if (urlMapping != null) {
-      return clickEventRepository.findByUrlMappingAndClickDateBetween(urlMapping, start, end)
-          .stream()
-          .collect(Collectors.groupingBy(click -> click.getClickDate().toLocalDate(), Collectors.counting()))
-          .entrySet().stream()
-          .map(entry -> new ClickEventDTO(entry.getKey(), entry.getValue()))
-          .collect(Collectors.toList());
+    if (urlMapping == null) {
+      return null;
+    }
+
+    long started = System.nanoTime();
+    Long urlMappingId = urlMapping.getId();
+    ClickDaySplit split = ClickDaySplit.of(start, end);
+
+    Map<LocalDate, Long> clicksByDay = new TreeMap<>(
+        clickRollupService.getLinkClicksByDay(urlMappingId, split.firstWholeDay(), split.lastWholeDay()));
+    long rowsScanned = clicksByDay.size();
+    for (ClickDaySplit.Range partialDay : split.partialDays()) {
+      rowsScanned += countPartialDay(clicksByDay, urlMappingId, partialDay.from(), partialDay.to());
+    }
+    // Visitors are only known per whole day, including for partially covered days
+    Map<LocalDate, Long> visitorsByDay =
+        visitorSketchService.getLinkVisitors(urlMappingId, start.toLocalDate(), end.toLocalDate()).getByDay();
+    rowsScanned += visitorsByDay.size();
+    analyticsMetrics.record(AnalyticsMetrics.LINK_CLICKS, started, rowsScanned);
+
+    return clicksByDay.entrySet().stream()
+        .map(entry -> new ClickEventDTO(entry.getKey(), entry.getValue(), visitorsByDay.get(entry.getKey())))
+        .toList();
+  }
+
+  /**
+   * @return the {@code click_event} rows scanned, none if the click index
+   *     answered.
+   */
+  private long countPartialDay(
+      Map<LocalDate, Long> clicksByDay, Long urlMappingId, LocalDateTime from, LocalDateTime to
+  ) {
+    Long indexed = clickIndex.count(urlMappingId, from, to);
+    long count = indexed != null
+        ? indexed
+        : clickEventRepository.countByUrlMappingIdAndClickDateBetween(urlMappingId, from, to);
+    if (count > 0) {
+      clicksByDay.put(from.toLocalDate(), count);
+    }
+    return indexed != null ? 0 : count;
+  }
+
+  /**
+   * Clicks on a link per {@code bucket} from {@code start} through
+   * {@code end}, empty buckets included, from the click index or else a
+   * grouped count in the database.
+   */
+  public List<ClickBucketDTO> getClickHistogram(
+      UrlMapping urlMapping, LocalDateTime start, LocalDateTime end, Duration bucket
+  ) {
+    long started = System.nanoTime();
+    long rowsScanned = 0;
+    long[] counts = clickIndex.histogram(urlMapping.getId(), start, end, bucket);
+    if (counts == null) {
+      counts = new long[Math.toIntExact(Duration.between(start, end).toSeconds() / bucket.toSeconds() + 1)];
+      for (ClickBucketProjection row : clickEventRepository.countByBucket(
+          urlMapping.getId(), start, end, bucket.toSeconds())) {
+        counts[Math.toIntExact(row.getBucket())] = row.getClicks();
+        rowsScanned += row.getClicks();
+      }
+    }
+    analyticsMetrics.record(AnalyticsMetrics.LINK_HISTOGRAM, started, rowsScanned);
+
+    List<ClickBucketDTO> buckets = new ArrayList<>(counts.length);
+    for (int i = 0; i < counts.length; i++) {
+      buckets.add(new ClickBucketDTO(start.plus(bucket.multipliedBy(i)), counts[i]));
     }
-    return null;
+    return buckets;
   }
 
-  public Map<LocalDate, Long> getTotalClicksByUserAndDate(User user, LocalDate start, LocalDate end) {
-    List<UrlMapping> urlMappings = urlMappingRepository.findByUser(user);
-    List<ClickEvent> clickEvents = clickEventRepository.findByUrlMappingInAndClickDateBetween(
-        urlMappings, start.atStartOfDay(), end.plusDays(1).atStartOfDay());
+  public Map<LocalDate, Long> getTotalClicksByUserAndDate(Long userId, LocalDate start, LocalDate end) {
+    long started = System.nanoTime();
+    Map<LocalDate, Long> clicksByDay = clickRollupService.getUserClicksByDay(userId, start, end);
+    analyticsMetrics.record(AnalyticsMetrics.USER_CLICKS, started, clicksByDay.size());
+    return clicksByDay;
+  }
 
-    return clickEvents.stream()
-        .collect(Collectors.groupingBy(click -> click.getClickDate().toLocalDate(), Collectors.counting()));
+  public UniqueVisitorsDTO getUniqueVisitors(UrlMapping urlMapping, LocalDate start, LocalDate end) {
+    long started = System.nanoTime();
+    UniqueVisitorsDTO visitors = visitorSketchService.getLinkVisitors(urlMapping.getId(), start, end);
+    analyticsMetrics.record(AnalyticsMetrics.LINK_VISITORS, started, visitors.getByDay().size());
+    return visitors;
   }
 
-  public UrlMapping getOriginalUrl(String shortUrl) {
-    UrlMapping urlMapping = urlMappingRepository.findByShortUrl(shortUrl);
+  public UniqueVisitorsDTO getUniqueVisitorsByUser(Long userId, LocalDate start, LocalDate end) {
+    long started = System.nanoTime();
+    UniqueVisitorsDTO visitors = visitorSketchService.getUserVisitors(userId, start, end);
+    analyticsMetrics.record(AnalyticsMetrics.USER_VISITORS, started, visitors.getByDay().size());
+    return visitors;
+  }
 
-    if (urlMapping != null) {
-      urlMapping.setClickCount(urlMapping.getClickCount() + 1);
-      urlMappingRepository.save(urlMapping);
+  /**
+   * Resolves a short URL for redirection and records the click.
+   *
+   * @param shortUrl The short code from the request path.
+   * @param visitor  The visitor's fingerprint, from {@code VisitorFingerprint}.
+   * @return The redirect target, or {@code null} if the code is unknown.
+   */
+  public RedirectTarget getOriginalUrl(String shortUrl, long visitor) {
+    long started = System.nanoTime();
+    RedirectTarget target = redirectCache.get(shortUrl, this::loadRedirectTarget);
+    redirectMetrics.recordLookup(started);
 
-      // Record Click Event
-      ClickEvent clickEvent = new ClickEvent();
-      clickEvent.setClickDate(LocalDateTime.now());
-      clickEvent.setUrlMapping(urlMapping);
-      clickEventRepository.save(clickEvent);
+    if (target != null) {
+      // Record Click Event, persisted asynchronously in batches
+      started = System.nanoTime();
+      clickIngestionService.record(target, visitor);
+      redirectMetrics.recordClickRecording(started);
     }
-    
-    return urlMapping;
+
+    return target;
+  }
+
+  private RedirectTarget loadRedirectTarget(String shortUrl) {
+    UrlMapping urlMapping = urlMappingRepository.findByShortUrl(shortUrl);
+    return urlMapping != null ? RedirectTarget.of(urlMapping) : null;
   }
 }
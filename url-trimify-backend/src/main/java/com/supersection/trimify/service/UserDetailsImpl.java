@@ -1,7 +1,9 @@
 package com.supersection.trimify.service;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -26,6 +28,8 @@ public class UserDetailsImpl implements UserDetails {
 
   private Collection<? extends GrantedAuthority> authorities;
 
+  private boolean enabled = true;
+
   public UserDetailsImpl(
       Long id, String username, String email, String password, Collection<? extends GrantedAuthority> authorities
   ) {
@@ -39,13 +43,27 @@ public class UserDetailsImpl implements UserDetails {
 
   public static UserDetailsImpl build(User user) {
     GrantedAuthority authority = new SimpleGrantedAuthority(user.getRole());
-    return new UserDetailsImpl(
+    UserDetailsImpl details = new UserDetailsImpl(
         user.getId(),
         user.getUsername(),
         user.getEmail(),
         user.getPassword(),
         Collections.singletonList(authority)
     );
+    details.setEnabled(user.isEnabled());
+    return details;
+  }
+
+  /**
+   * Builds a principal from verified token claims alone. Email and password
+   * are not part of the token and are left {@code null}.
+   */
+  public static UserDetailsImpl fromClaims(Long id, String username, String roles) {
+    List<GrantedAuthority> authorities = Arrays.stream(roles.split(","))
+        .filter(role -> !role.isBlank())
+        .map(role -> (GrantedAuthority) new SimpleGrantedAuthority(role))
+        .toList();
+    return new UserDetailsImpl(id, username, null, null, authorities);
   }
 
   @Override
@@ -63,4 +81,9 @@ public class UserDetailsImpl implements UserDetails {
     return username;
   }
 
+  @Override
+  public boolean isEnabled() {
+    return enabled;
+  }
+
 }
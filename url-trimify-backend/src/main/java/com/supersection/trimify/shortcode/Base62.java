@@ -0,0 +1,82 @@
+package com.supersection.trimify.shortcode;
+
+/**
+ * Base62 encoding of non-negative numbers using {@code [a-zA-Z0-9]}.
+ */
+public final class Base62 {
+
+  static final String ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+  static final int RADIX = ALPHABET.length();
+
+  /** Longest fixed length whose full code space still fits in a {@code long}. */
+  static final int MAX_LENGTH = 10;
+
+  private Base62() {
+  }
+
+  /**
+   * Encodes {@code value} using as few characters as needed.
+   */
+  public static String encode(long value) {
+    checkNonNegative(value);
+    if (value == 0) {
+      return String.valueOf(ALPHABET.charAt(0));
+    }
+    char[] buffer = new char[11];
+    int position = buffer.length;
+    while (value > 0) {
+      buffer[--position] = ALPHABET.charAt((int) (value % RADIX));
+      value /= RADIX;
+    }
+    return new String(buffer, position, buffer.length - position);
+  }
+
+  /**
+   * Encodes {@code value} left-padded to exactly {@code length} characters.
+   */
+  public static String encode(long value, int length) {
+    checkNonNegative(value);
+    if (value >= space(length)) {
+      throw new IllegalArgumentException(value + " does not fit in " + length + " base62 characters");
+    }
+    char[] buffer = new char[length];
+    for (int position = length - 1; position >= 0; position--) {
+      buffer[position] = ALPHABET.charAt((int) (value % RADIX));
+      value /= RADIX;
+    }
+    return new String(buffer);
+  }
+
+  public static long decode(String code) {
+    long value = 0;
+    for (int i = 0; i < code.length(); i++) {
+      int digit = ALPHABET.indexOf(code.charAt(i));
+      if (digit < 0) {
+        throw new IllegalArgumentException("Not a base62 code: " + code);
+      }
+      value = value * RADIX + digit;
+    }
+    return value;
+  }
+
+  /**
+   * Number of distinct codes of the given fixed length, i.e. {@code 62^length}.
+   */
+  public static long space(int length) {
+    if (length < 1 || length > MAX_LENGTH) {
+      throw new IllegalArgumentException("Length must be between 1 and " + MAX_LENGTH + ": " + length);
+    }
+    long space = 1;
+    for (int i = 0; i < length; i++) {
+      space *= RADIX;
+    }
+    return space;
+  }
+
+  private static void checkNonNegative(long value) {
+    if (value < 0) {
+      throw new IllegalArgumentException("Cannot encode negative value: " + value);
+    }
+  }
+}
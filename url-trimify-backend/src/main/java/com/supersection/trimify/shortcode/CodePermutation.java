@@ -0,0 +1,90 @@
+package com.supersection.trimify.shortcode;
+
+/**
+ * Keyed, reversible permutation of {@code [0, domain)}.
+ *
+ * <p>A balanced Feistel network scrambles values over the smallest even number
+ * of bits covering the domain, and cycle-walking re-applies it until the result
+ * lands back inside the domain. Sequential ids therefore map to codes that look
+ * random, yet every id still maps to a distinct code.
+ */
+public final class CodePermutation {
+
+  private static final int ROUNDS = 4;
+
+  private final long domain;
+  private final int halfBits;
+  private final long halfMask;
+  private final long[] roundKeys = new long[ROUNDS];
+
+  public CodePermutation(long domain, long key) {
+    if (domain < 2) {
+      throw new IllegalArgumentException("Domain must contain at least two values: " + domain);
+    }
+    int bits = 64 - Long.numberOfLeadingZeros(domain - 1);
+    this.domain = domain;
+    this.halfBits = (bits + 1) / 2;
+    this.halfMask = (1L << halfBits) - 1;
+
+    long state = key;
+    for (int round = 0; round < ROUNDS; round++) {
+      state += 0x9E3779B97F4A7C15L;
+      roundKeys[round] = mix(state);
+    }
+  }
+
+  public long permute(long value) {
+    checkInDomain(value);
+    do {
+      value = encrypt(value);
+    } while (value >= domain);
+    return value;
+  }
+
+  public long invert(long value) {
+    checkInDomain(value);
+    do {
+      value = decrypt(value);
+    } while (value >= domain);
+    return value;
+  }
+
+  private long encrypt(long value) {
+    long left = value >>> halfBits;
+    long right = value & halfMask;
+    for (int round = 0; round < ROUNDS; round++) {
+      long next = left ^ round(right, round);
+      left = right;
+      right = next;
+    }
+    return (left << halfBits) | right;
+  }
+
+  private long decrypt(long value) {
+    long left = value >>> halfBits;
+    long right = value & halfMask;
+    for (int round = ROUNDS - 1; round >= 0; round--) {
+      long previous = right ^ round(left, round);
+      right = left;
+      left = previous;
+    }
+    return (left << halfBits) | right;
+  }
+
+  private long round(long half, int round) {
+    return mix(half ^ roundKeys[round]) & halfMask;
+  }
+
+  private void checkInDomain(long value) {
+    if (value < 0 || value >= domain) {
+      throw new IllegalArgumentException(value + " is outside [0, " + domain + ")");
+    }
+  }
+
+  /** SplitMix64 finalizer. */
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+}
@@ -0,0 +1,15 @@
+package com.supersection.trimify.shortcode;
+
+/**
+ * Hands out disjoint ranges of ids that are guaranteed not to be handed out
+ * again, to this or any other node.
+ */
+public interface IdBlockSource {
+
+  /**
+   * Reserves {@code size} consecutive ids of the named sequence.
+   *
+   * @return the first id of the reserved range.
+   */
+  long lease(String sequence, int size);
+}
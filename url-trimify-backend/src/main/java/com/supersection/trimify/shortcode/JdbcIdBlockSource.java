@@ -0,0 +1,57 @@
+package com.supersection.trimify.shortcode;
+
+import java.util.List;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Leases id blocks from the {@code id_block} table. The row of the sequence is
+ * locked for the duration of a short, independent transaction, so concurrent
+ * nodes always receive disjoint ranges.
+ */
+@Component
+public class JdbcIdBlockSource implements IdBlockSource {
+
+  private static final long FIRST_ID = 1;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+
+  public JdbcIdBlockSource(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+  }
+
+  @Override
+  public long lease(String sequence, int size) {
+    while (true) {
+      Long start = transactionTemplate.execute(status -> {
+        List<Long> nextValue = jdbcTemplate.queryForList(
+            "SELECT next_value FROM id_block WHERE name = ? FOR UPDATE", Long.class, sequence);
+        if (nextValue.isEmpty()) {
+          return null;
+        }
+        jdbcTemplate.update("UPDATE id_block SET next_value = ? WHERE name = ?", nextValue.get(0) + size, sequence);
+        return nextValue.get(0);
+      });
+      if (start != null) {
+        return start;
+      }
+      createSequence(sequence);
+    }
+  }
+
+  private void createSequence(String sequence) {
+    try {
+      jdbcTemplate.update("INSERT INTO id_block (name, next_value) VALUES (?, ?)", sequence, FIRST_ID);
+    } catch (DuplicateKeyException e) {
+      // Another node created it first
+    }
+  }
+}
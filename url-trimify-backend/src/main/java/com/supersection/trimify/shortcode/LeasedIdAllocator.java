@@ -0,0 +1,56 @@
+package com.supersection.trimify.shortcode;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Allocates ids from blocks leased through an {@link IdBlockSource}.
+ *
+ * <p>Allocation within a block is a single {@code getAndIncrement}; only the
+ * thread that exhausts a block takes the lock to lease the next one, so the
+ * database is consulted once every {@code leaseSize} ids.
+ */
+public class LeasedIdAllocator {
+
+  private final IdBlockSource idBlockSource;
+  private final String sequence;
+  private final int leaseSize;
+  private final Object leaseLock = new Object();
+
+  private volatile Block current = new Block(0, 0);
+
+  public LeasedIdAllocator(IdBlockSource idBlockSource, String sequence, int leaseSize) {
+    if (leaseSize < 1) {
+      throw new IllegalArgumentException("Lease size must be positive: " + leaseSize);
+    }
+    this.idBlockSource = idBlockSource;
+    this.sequence = sequence;
+    this.leaseSize = leaseSize;
+  }
+
+  public long nextId() {
+    while (true) {
+      Block block = current;
+      long id = block.next.getAndIncrement();
+      if (id < block.end) {
+        return id;
+      }
+      synchronized (leaseLock) {
+        if (current == block) {
+          long start = idBlockSource.lease(sequence, leaseSize);
+          current = new Block(start, start + leaseSize);
+        }
+      }
+    }
+  }
+
+  private static final class Block {
+
+    private final AtomicLong next;
+    private final long end;
+
+    private Block(long start, long end) {
+      this.next = new AtomicLong(start);
+      this.end = end;
+    }
+  }
+}
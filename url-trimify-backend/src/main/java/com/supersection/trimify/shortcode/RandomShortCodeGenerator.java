@@ -0,0 +1,29 @@
+package com.supersection.trimify.shortcode;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Draws fixed-length random base62 codes. Uniqueness is not guaranteed and
+ * relies on the unique constraint on {@code url_mapping.short_url}.
+ */
+public class RandomShortCodeGenerator implements ShortCodeGenerator {
+
+  private final int length;
+
+  public RandomShortCodeGenerator(int length) {
+    if (length < 1) {
+      throw new IllegalArgumentException("Random codes need a fixed length: " + length);
+    }
+    this.length = length;
+  }
+
+  @Override
+  public String nextCode() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    char[] code = new char[length];
+    for (int i = 0; i < length; i++) {
+      code[i] = Base62.ALPHABET.charAt(random.nextInt(Base62.RADIX));
+    }
+    return new String(code);
+  }
+}
@@ -0,0 +1,35 @@
+package com.supersection.trimify.shortcode;
+
+/**
+ * Derives codes from ids handed out by a {@link LeasedIdAllocator}, so every
+ * code is unique without asking the database.
+ *
+ * <p>With a positive {@code length} codes are exactly that long and, if a
+ * {@link CodePermutation} is given, scrambled so consecutive links do not get
+ * guessable neighbouring codes. With length {@code 0} codes grow with the id
+ * and are never scrambled.
+ */
+public class SequenceShortCodeGenerator implements ShortCodeGenerator {
+
+  private final LeasedIdAllocator allocator;
+  private final int length;
+  private final CodePermutation permutation;
+
+  public SequenceShortCodeGenerator(LeasedIdAllocator allocator, int length, CodePermutation permutation) {
+    if (length == 0 && permutation != null) {
+      throw new IllegalArgumentException("Scrambling requires a fixed code length");
+    }
+    this.allocator = allocator;
+    this.length = length;
+    this.permutation = permutation;
+  }
+
+  @Override
+  public String nextCode() {
+    long id = allocator.nextId();
+    if (length == 0) {
+      return Base62.encode(id);
+    }
+    return Base62.encode(permutation != null ? permutation.permute(id) : id, length);
+  }
+}
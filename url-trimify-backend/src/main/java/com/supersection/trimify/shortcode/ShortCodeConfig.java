@@ -0,0 +1,41 @@
+package com.supersection.trimify.shortcode;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+
+@Configuration
+public class ShortCodeConfig {
+
+  static final String SEQUENCE_NAME = "short_code";
+
+  @Bean
+  @ConditionalOnProperty(name = "trimify.shortcode.strategy", havingValue = "sequence", matchIfMissing = true)
+  public ShortCodeGenerator sequenceShortCodeGenerator(
+      IdBlockSource idBlockSource,
+      @Value("${trimify.shortcode.length}") int length,
+      @Value("${trimify.shortcode.lease-size}") int leaseSize,
+      @Value("${trimify.shortcode.scramble}") boolean scramble,
+      @Value("${trimify.shortcode.scramble-key}") Long scrambleKey
+  ) {
+    if (scramble && length == 0) {
+      throw new IllegalStateException("trimify.shortcode.scramble requires a fixed trimify.shortcode.length");
+    }
+    // A key everyone can read lets anyone unscramble codes back into the sequence
+    if (scramble && scrambleKey == null) {
+      throw new IllegalStateException(
+          "trimify.shortcode.scramble requires a secret trimify.shortcode.scramble-key, e.g. from TRIMIFY_SHORTCODE_SCRAMBLE_KEY");
+    }
+    LeasedIdAllocator allocator = new LeasedIdAllocator(idBlockSource, SEQUENCE_NAME, leaseSize);
+    CodePermutation permutation = scramble ? new CodePermutation(Base62.space(length), scrambleKey) : null;
+    return new SequenceShortCodeGenerator(allocator, length, permutation);
+  }
+
+  @Bean
+  @ConditionalOnProperty(name = "trimify.shortcode.strategy", havingValue = "random")
+  public ShortCodeGenerator randomShortCodeGenerator(@Value("${trimify.shortcode.length}") int length) {
+    return new RandomShortCodeGenerator(length);
+  }
+}
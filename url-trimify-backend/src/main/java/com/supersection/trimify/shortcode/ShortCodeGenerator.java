@@ -0,0 +1,9 @@
+package com.supersection.trimify.shortcode;
+
+/**
+ * Produces the short codes used in {@code /{shortUrl}} links.
+ */
+public interface ShortCodeGenerator {
+
+  String nextCode();
+}
@@ -0,0 +1,71 @@
+package com.supersection.trimify.trending;
+
+/**
+ * Count-Min sketch of per-link click counts: {@code depth} rows of
+ * {@code width} counters, each link hashed to one counter per row. The
+ * estimate is the smallest of its counters, which never undercounts.
+ *
+ * <p>Updates are conservative, raising each counter only as far as the new
+ * estimate, which keeps collisions from inflating counts on skewed traffic.
+ * Not thread-safe.
+ */
+final class CountMinSketch {
+
+  private final int depth;
+  private final int width;
+  private final int[] counters;
+
+  CountMinSketch(int depth, int width) {
+    if (Integer.bitCount(width) != 1) {
+      throw new IllegalArgumentException("Sketch width must be a power of two: " + width);
+    }
+    this.depth = depth;
+    this.width = width;
+    this.counters = new int[depth * width];
+  }
+
+  int estimate(long key) {
+    int estimate = Integer.MAX_VALUE;
+    for (int row = 0; row < depth; row++) {
+      estimate = Math.min(estimate, counters[cell(key, row)]);
+    }
+    return estimate;
+  }
+
+  /**
+   * Counts one occurrence of {@code key}, mirroring every counter change
+   * into {@code total} so it stays the element-wise sum of its buckets.
+   */
+  void add(long key, CountMinSketch total) {
+    int target = estimate(key) + 1;
+    for (int row = 0; row < depth; row++) {
+      int cell = cell(key, row);
+      int delta = target - counters[cell];
+      if (delta > 0) {
+        counters[cell] = target;
+        total.counters[cell] += delta;
+      }
+    }
+  }
+
+  /** Removes an expired bucket from a window total and clears the bucket. */
+  void expireFrom(CountMinSketch total) {
+    for (int i = 0; i < counters.length; i++) {
+      total.counters[i] -= counters[i];
+      counters[i] = 0;
+    }
+  }
+
+  long sizeInBytes() {
+    return 4L * counters.length;
+  }
+
+  private int cell(long key, int row) {
+    // SplitMix64 finalizer over a per-row offset of the key
+    long z = key + (row + 1) * 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    z ^= z >>> 31;
+    return row * width + ((int) z & (width - 1));
+  }
+}
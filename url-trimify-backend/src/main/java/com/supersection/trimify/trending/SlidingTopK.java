@@ -0,0 +1,103 @@
+package com.supersection.trimify.trending;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Heavy hitters over one {@link TrendingWindow}: a ring of Count-Min sketches,
+ * one per bucket, a running total of them, and top-K candidates overall and
+ * per user.
+ *
+ * <p>Moving into a new bucket subtracts the expired buckets from the total,
+ * so a window estimate is a single sketch lookup however long the window.
+ * Candidates are re-estimated at every bucket change so links that stopped
+ * receiving clicks fall off. Per-user candidates are kept for at most
+ * {@code maxUsers} users; others are picked up once inactive users age out.
+ * Not thread-safe.
+ */
+final class SlidingTopK {
+
+  private final TrendingWindow window;
+  private final long bucketMillis;
+  private final CountMinSketch[] buckets;
+  private final CountMinSketch total;
+  private final TopCandidates candidates;
+  private final Map<Long, TopCandidates> userCandidates = new HashMap<>();
+  private final int userCapacity;
+  private final int maxUsers;
+
+  private long currentBucket;
+
+  SlidingTopK(TrendingWindow window, int depth, int width, int capacity, int userCapacity, int maxUsers) {
+    this.window = window;
+    this.bucketMillis = window.getBucketMillis();
+    this.buckets = new CountMinSketch[window.getBuckets()];
+    for (int i = 0; i < buckets.length; i++) {
+      buckets[i] = new CountMinSketch(depth, width);
+    }
+    this.total = new CountMinSketch(depth, width);
+    this.candidates = new TopCandidates(capacity);
+    this.userCapacity = userCapacity;
+    this.maxUsers = maxUsers;
+  }
+
+  void add(long urlMappingId, long userId, long clickedAt) {
+    long bucket = clickedAt / bucketMillis;
+    advance(bucket);
+    if (bucket <= currentBucket - buckets.length) {
+      // Older than the window, from a click delayed across a bucket change
+      return;
+    }
+
+    buckets[(int) Math.floorMod(bucket, buckets.length)].add(urlMappingId, total);
+    int count = total.estimate(urlMappingId);
+    candidates.offer(urlMappingId, userId, count);
+
+    TopCandidates forUser = userCandidates.get(userId);
+    if (forUser == null && userCandidates.size() < maxUsers) {
+      forUser = new TopCandidates(userCapacity);
+      userCandidates.put(userId, forUser);
+    }
+    if (forUser != null) {
+      forUser.offer(urlMappingId, userId, count);
+    }
+  }
+
+  List<TrendingLink> top(long now, int limit) {
+    advance(now / bucketMillis);
+    return candidates.top(limit);
+  }
+
+  List<TrendingLink> topForUser(long now, long userId, int limit) {
+    advance(now / bucketMillis);
+    TopCandidates forUser = userCandidates.get(userId);
+    return forUser != null ? forUser.top(limit) : List.of();
+  }
+
+  TrendingWindow getWindow() {
+    return window;
+  }
+
+  int getTrackedUsers() {
+    return userCandidates.size();
+  }
+
+  long sizeInBytes() {
+    return total.sizeInBytes() * (buckets.length + 1);
+  }
+
+  private void advance(long bucket) {
+    if (bucket <= currentBucket) {
+      return;
+    }
+    long expired = Math.min(bucket - currentBucket, buckets.length);
+    for (long b = bucket - expired + 1; b <= bucket; b++) {
+      buckets[(int) Math.floorMod(b, buckets.length)].expireFrom(total);
+    }
+    currentBucket = bucket;
+
+    candidates.refresh(total);
+    userCandidates.values().removeIf(forUser -> forUser.refresh(total));
+  }
+}
@@ -0,0 +1,97 @@
+package com.supersection.trimify.trending;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * At most {@code capacity} links with the highest estimated counts seen so
+ * far. A link with a higher estimate than the smallest candidate replaces it.
+ * Not thread-safe.
+ */
+final class TopCandidates {
+
+  private static final Comparator<TrendingLink> BY_CLICKS =
+      Comparator.comparingLong(TrendingLink::clicks).reversed().thenComparingLong(TrendingLink::urlMappingId);
+
+  private static final class Candidate {
+    final long userId;
+    int count;
+
+    Candidate(long userId, int count) {
+      this.userId = userId;
+      this.count = count;
+    }
+  }
+
+  private final int capacity;
+  private final Map<Long, Candidate> candidates;
+
+  /** No candidate has a smaller count; the smallest is only searched for above it. */
+  private int floor;
+
+  TopCandidates(int capacity) {
+    this.capacity = capacity;
+    this.candidates = new HashMap<>(capacity * 2);
+  }
+
+  void offer(long urlMappingId, long userId, int count) {
+    Candidate candidate = candidates.get(urlMappingId);
+    if (candidate != null) {
+      candidate.count = count;
+      return;
+    }
+    if (candidates.size() < capacity) {
+      candidates.put(urlMappingId, new Candidate(userId, count));
+      return;
+    }
+    if (count <= floor) {
+      return;
+    }
+
+    Map.Entry<Long, Candidate> smallest = null;
+    for (Map.Entry<Long, Candidate> entry : candidates.entrySet()) {
+      if (smallest == null || entry.getValue().count < smallest.getValue().count) {
+        smallest = entry;
+      }
+    }
+    floor = smallest.getValue().count;
+    if (count > floor) {
+      candidates.remove(smallest.getKey());
+      candidates.put(urlMappingId, new Candidate(userId, count));
+    }
+  }
+
+  /**
+   * Re-reads every count after the window slid, dropping links whose clicks
+   * all aged out.
+   *
+   * @return whether no candidates are left.
+   */
+  boolean refresh(CountMinSketch total) {
+    Iterator<Map.Entry<Long, Candidate>> entries = candidates.entrySet().iterator();
+    while (entries.hasNext()) {
+      Map.Entry<Long, Candidate> entry = entries.next();
+      entry.getValue().count = total.estimate(entry.getKey());
+      if (entry.getValue().count == 0) {
+        entries.remove();
+      }
+    }
+    floor = 0;
+    return candidates.isEmpty();
+  }
+
+  List<TrendingLink> top(int limit) {
+    List<TrendingLink> links = new ArrayList<>(candidates.size());
+    candidates.forEach((id, candidate) -> links.add(new TrendingLink(id, candidate.userId, candidate.count)));
+    links.sort(BY_CLICKS);
+    return links.size() > limit ? links.subList(0, limit) : links;
+  }
+
+  int size() {
+    return candidates.size();
+  }
+}
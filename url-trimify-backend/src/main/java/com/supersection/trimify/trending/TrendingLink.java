@@ -0,0 +1,8 @@
+package com.supersection.trimify.trending;
+
+/**
+ * A link and its estimated clicks within a {@link TrendingWindow}. The
+ * estimate may exceed the true count, never undercut it.
+ */
+public record TrendingLink(long urlMappingId, long userId, long clicks) {
+}
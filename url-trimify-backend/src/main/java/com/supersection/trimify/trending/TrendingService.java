@@ -0,0 +1,119 @@
+package com.supersection.trimify.trending;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.supersection.trimify.analytics.ClickIndex;
+import com.supersection.trimify.analytics.ClickTailListener;
+import com.supersection.trimify.click.ClickRecord;
+import com.supersection.trimify.dto.TrendingLinkDTO;
+import com.supersection.trimify.model.UrlMapping;
+import com.supersection.trimify.repository.UrlMappingRepository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Streaming "trending now" rankings, fed with the clicks of every node by the
+ * {@link ClickIndex} tail as a {@link ClickTailListener}, so they are only
+ * kept where {@code trimify.click-index.enabled} is set.
+ *
+ * <p>Each {@link TrendingWindow} has its own {@link SlidingTopK} behind its
+ * own lock, so a click costs a handful of counter updates per window and a
+ * ranking is read from memory. Memory is fixed by the sketch size and the
+ * candidate limits, however many links exist. Only resolving the ranked ids
+ * to short URLs touches the database.
+ */
+@Service
+public class TrendingService implements ClickTailListener, MeterBinder {
+
+  private final UrlMappingRepository urlMappingRepository;
+  private final Map<TrendingWindow, SlidingTopK> windows = new EnumMap<>(TrendingWindow.class);
+  private final int maxLimit;
+
+  public TrendingService(
+      UrlMappingRepository urlMappingRepository,
+      @Value("${trimify.trending.sketch-depth}") int depth,
+      @Value("${trimify.trending.sketch-width}") int width,
+      @Value("${trimify.trending.candidates}") int candidates,
+      @Value("${trimify.trending.user-candidates}") int userCandidates,
+      @Value("${trimify.trending.max-users}") int maxUsers
+  ) {
+    this.urlMappingRepository = urlMappingRepository;
+    for (TrendingWindow window : TrendingWindow.values()) {
+      windows.put(window, new SlidingTopK(window, depth, width, candidates, userCandidates, maxUsers));
+    }
+    this.maxLimit = candidates;
+  }
+
+  @Override
+  public void onClicks(List<ClickRecord> clicks) {
+    long now = System.currentTimeMillis();
+    windows.forEach((window, topK) -> {
+      // Skipped before they reach the sketch, which would step through every bucket of the history read on startup
+      long since = now - window.getLength().toMillis();
+      synchronized (topK) {
+        for (ClickRecord click : clicks) {
+          if (click.clickedAt() > since) {
+            topK.add(click.urlMappingId(), click.userId(), click.clickedAt());
+          }
+        }
+      }
+    });
+  }
+
+  /** @return the most clicked links of all users, at most {@code limit}. */
+  public List<TrendingLink> top(TrendingWindow window, int limit) {
+    SlidingTopK topK = windows.get(window);
+    synchronized (topK) {
+      return topK.top(System.currentTimeMillis(), Math.min(limit, maxLimit));
+    }
+  }
+
+  /** @return the most clicked links of one user, at most {@code limit}. */
+  public List<TrendingLink> topForUser(TrendingWindow window, long userId, int limit) {
+    SlidingTopK topK = windows.get(window);
+    synchronized (topK) {
+      return topK.topForUser(System.currentTimeMillis(), userId, Math.min(limit, maxLimit));
+    }
+  }
+
+  /**
+   * Looks up the short and original URLs of ranked links, keeping the order
+   * and skipping links deleted since.
+   */
+  public List<TrendingLinkDTO> resolve(List<TrendingLink> links) {
+    List<Long> ids = links.stream().map(TrendingLink::urlMappingId).toList();
+    Map<Long, UrlMapping> mappings = urlMappingRepository.findAllById(ids).stream()
+        .collect(Collectors.toMap(UrlMapping::getId, Function.identity()));
+    return links.stream()
+        .filter(link -> mappings.containsKey(link.urlMappingId()))
+        .map(link -> {
+          UrlMapping mapping = mappings.get(link.urlMappingId());
+          return new TrendingLinkDTO(mapping.getShortUrl(), mapping.getOriginalUrl(), link.clicks());
+        })
+        .toList();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    windows.forEach((window, topK) -> {
+      Gauge.builder("trimify.trending.users", topK, SlidingTopK::getTrackedUsers)
+          .description("Users with per-user trending candidates")
+          .tag("window", window.getLabel())
+          .register(registry);
+      Gauge.builder("trimify.trending.sketch.size", topK, SlidingTopK::sizeInBytes)
+          .description("Memory held by the window's Count-Min sketches")
+          .baseUnit("bytes")
+          .tag("window", window.getLabel())
+          .register(registry);
+    });
+  }
+}
@@ -0,0 +1,50 @@
+package com.supersection.trimify.trending;
+
+import java.time.Duration;
+
+/**
+ * Periods trending links are ranked over. Each slides in {@code buckets}
+ * steps, so the oldest step ages out at once: the 5-minute window covers
+ * between 4.5 and 5 minutes.
+ */
+public enum TrendingWindow {
+
+  FIVE_MINUTES("5m", Duration.ofMinutes(5), 10),
+  ONE_HOUR("1h", Duration.ofHours(1), 12),
+  ONE_DAY("24h", Duration.ofHours(24), 24);
+
+  private final String label;
+  private final Duration length;
+  private final int buckets;
+
+  TrendingWindow(String label, Duration length, int buckets) {
+    this.label = label;
+    this.length = length;
+    this.buckets = buckets;
+  }
+
+  public String getLabel() {
+    return label;
+  }
+
+  public Duration getLength() {
+    return length;
+  }
+
+  public int getBuckets() {
+    return buckets;
+  }
+
+  public long getBucketMillis() {
+    return length.toMillis() / buckets;
+  }
+
+  public static TrendingWindow from(String value) {
+    for (TrendingWindow window : values()) {
+      if (window.label.equalsIgnoreCase(value)) {
+        return window;
+      }
+    }
+    throw new IllegalArgumentException("Unsupported trending window: " + value);
+  }
+}
@@ -0,0 +1,29 @@
+package com.supersection.trimify.analytics;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class ClickExportServiceTest {
+
+  @Test
+  void gzipsOnlyWhenGzipIsAccepted() {
+    assertTrue(ClickExportService.acceptsGzip("gzip"));
+    assertTrue(ClickExportService.acceptsGzip("gzip, deflate, br"));
+    assertTrue(ClickExportService.acceptsGzip("br;q=1.0, GZIP;q=0.5"));
+    assertTrue(ClickExportService.acceptsGzip("x-gzip"));
+    assertTrue(ClickExportService.acceptsGzip("*"));
+    assertTrue(ClickExportService.acceptsGzip("gzip;q=0, gzip;q=0.2"));
+
+    assertFalse(ClickExportService.acceptsGzip(null));
+    assertFalse(ClickExportService.acceptsGzip(""));
+    assertFalse(ClickExportService.acceptsGzip("identity"));
+    assertFalse(ClickExportService.acceptsGzip("gzip;q=0"));
+    assertFalse(ClickExportService.acceptsGzip("gzip; q=0.000, deflate"));
+    assertFalse(ClickExportService.acceptsGzip("gzipped, br"));
+    assertFalse(ClickExportService.acceptsGzip("*;q=0"));
+    assertFalse(ClickExportService.acceptsGzip("gzip;q=0, *"));
+    assertFalse(ClickExportService.acceptsGzip("gzip;q=high"));
+  }
+}
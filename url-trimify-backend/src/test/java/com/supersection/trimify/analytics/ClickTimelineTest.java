@@ -0,0 +1,96 @@
+package com.supersection.trimify.analytics;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class ClickTimelineTest {
+
+  private static final long START = 1_750_000_000L;
+
+  private static long count(List<Long> seconds, long from, long to) {
+    return seconds.stream().filter(second -> second >= from && second <= to).count();
+  }
+
+  @Test
+  void countsAndBucketsLikeAScan() {
+    SplittableRandom random = new SplittableRandom(11);
+    ClickTimeline timeline = new ClickTimeline();
+    List<Long> seconds = new ArrayList<>();
+    long now = START;
+    for (int i = 0; i < 5 * ClickTimeline.CHUNK_SIZE; i++) {
+      now += random.nextInt(30);
+      // Mostly in order, some late by up to a day, across sealed chunks
+      long second = random.nextInt(20) == 0 ? now - random.nextInt(86_400) : now;
+      timeline.add(second);
+      seconds.add(second);
+    }
+    assertEquals(seconds.size(), timeline.size());
+
+    for (int i = 0; i < 200; i++) {
+      long from = START - 86_400 + random.nextLong(now - START + 2 * 86_400);
+      long to = from + random.nextLong(200_000);
+      assertEquals(count(seconds, from, to), timeline.count(from, to), "[" + from + ", " + to + "]");
+    }
+
+    long bucket = 3_600;
+    long from = START + 1_234;
+    long to = now;
+    long[] expected = new long[(int) ((to - from) / bucket + 1)];
+    for (long second : seconds) {
+      if (second >= from && second <= to) {
+        expected[(int) ((second - from) / bucket)]++;
+      }
+    }
+    long[] counts = new long[expected.length];
+    timeline.histogram(from, to, bucket, counts);
+    assertArrayEquals(expected, counts);
+  }
+
+  @Test
+  void sealsDenseChunksToTwoBytesPerClick() {
+    ClickTimeline timeline = new ClickTimeline();
+    int clicks = 10 * ClickTimeline.CHUNK_SIZE;
+    for (int i = 0; i < clicks; i++) {
+      timeline.add(START + i / 10);
+    }
+    assertEquals(clicks, timeline.count(START, START + clicks));
+    assertEquals(10, timeline.count(START + 7, START + 7));
+    // Sealed chunks take 2 bytes per click, the open last one 4
+    long sealed = clicks - ClickTimeline.CHUNK_SIZE;
+    assertTrue(timeline.sizeInBytes() < 2.1 * sealed + 4.1 * ClickTimeline.CHUNK_SIZE, "bytes " + timeline.sizeInBytes());
+  }
+
+  @Test
+  void removesClicksBeforeASecondAndKeepsAdding() {
+    ClickTimeline timeline = new ClickTimeline();
+    List<Long> seconds = new ArrayList<>();
+    for (int i = 0; i < 5 * ClickTimeline.CHUNK_SIZE; i++) {
+      timeline.add(START + i);
+      seconds.add(START + i);
+    }
+    long bytes = timeline.sizeInBytes();
+    // Through two whole chunks and into the third
+    long cut = START + 2 * ClickTimeline.CHUNK_SIZE + 100;
+    assertEquals(cut - START, timeline.removeBefore(cut));
+    seconds.removeIf(second -> second < cut);
+
+    assertEquals(seconds.size(), timeline.size());
+    assertTrue(timeline.sizeInBytes() < bytes, "bytes " + timeline.sizeInBytes());
+    assertEquals(0, timeline.count(START, cut - 1));
+    assertEquals(seconds.size(), timeline.count(START, START + 10 * ClickTimeline.CHUNK_SIZE));
+
+    long next = START + 5 * ClickTimeline.CHUNK_SIZE;
+    timeline.add(next);
+    seconds.add(next);
+    assertEquals(count(seconds, cut + 50, next), timeline.count(cut + 50, next));
+    assertEquals(seconds.size(), timeline.removeBefore(next + 1));
+    assertEquals(0, timeline.size());
+  }
+}
@@ -0,0 +1,69 @@
+package com.supersection.trimify.analytics;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class HyperLogLogTest {
+
+  private static HyperLogLog sketchOf(long seed, int distinct) {
+    SplittableRandom random = new SplittableRandom(seed);
+    HyperLogLog sketch = new HyperLogLog();
+    for (int i = 0; i < distinct; i++) {
+      sketch.add(random.nextLong());
+    }
+    return sketch;
+  }
+
+  @Test
+  void estimatesSmallAndLargeCardinalities() {
+    assertEquals(0, new HyperLogLog().estimate());
+    assertEquals(100, sketchOf(1, 100).estimate(), 2);
+    for (int distinct : new int[] { 10_000, 50_000, 1_000_000 }) {
+      assertEquals(distinct, sketchOf(distinct, distinct).estimate(), distinct * 0.03);
+    }
+  }
+
+  @Test
+  void repeatedHashesDoNotChangeTheSketch() {
+    HyperLogLog sketch = new HyperLogLog();
+    assertTrue(sketch.add(42));
+    assertFalse(sketch.add(42));
+    assertEquals(1, sketch.estimate());
+  }
+
+  @Test
+  void mergeEstimatesTheUnion() {
+    // Seeds 7 and 8 give disjoint hashes, seed 7 twice gives the same ones
+    HyperLogLog union = sketchOf(7, 20_000);
+    union.merge(sketchOf(8, 20_000));
+    union.merge(sketchOf(7, 20_000));
+    assertEquals(40_000, union.estimate(), 40_000 * 0.03);
+  }
+
+  @Test
+  void roundTripsSparseAndDenseForms() {
+    HyperLogLog sparse = sketchOf(3, 200);
+    byte[] sparseBytes = sparse.toBytes();
+    assertEquals(2 + 3 * 200, sparseBytes.length, 3 * 2);
+    assertArrayEquals(sparseBytes, HyperLogLog.fromBytes(sparseBytes).toBytes());
+
+    HyperLogLog dense = sketchOf(4, 100_000);
+    byte[] denseBytes = dense.toBytes();
+    assertEquals(HyperLogLog.MAX_BYTES, denseBytes.length);
+    assertEquals(dense.estimate(), HyperLogLog.fromBytes(denseBytes).estimate());
+    assertArrayEquals(denseBytes, HyperLogLog.fromBytes(denseBytes).toBytes());
+  }
+
+  @Test
+  void rejectsMalformedBytes() {
+    assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[] { 1 }));
+    assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[] { 2, 14, 0 }));
+  }
+}
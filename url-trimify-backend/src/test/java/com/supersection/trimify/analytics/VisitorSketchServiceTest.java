@@ -0,0 +1,53 @@
+package com.supersection.trimify.analytics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.supersection.trimify.click.ClickRecord;
+
+class VisitorSketchServiceTest {
+
+  /** Inserts every sketch as a new row, failing the statements it is told to. */
+  private static final class FakeDatabase extends JdbcTemplate {
+
+    final List<String> inserted = new ArrayList<>();
+    int failures;
+
+    @Override
+    public int update(String sql, Object... args) {
+      String table = sql.substring("INSERT IGNORE INTO ".length(), sql.indexOf(' ', "INSERT IGNORE INTO ".length()));
+      if (table.equals("daily_user_visitors") && failures > 0) {
+        failures--;
+        throw new DataAccessResourceFailureException("database down");
+      }
+      inserted.add(table + " " + args[0]);
+      return 1;
+    }
+  }
+
+  private final FakeDatabase database = new FakeDatabase();
+  private final VisitorSketchService service = new VisitorSketchService(database, null, null, null);
+
+  @Test
+  void retriesTheSketchesOfAFailedFlush() {
+    long now = System.currentTimeMillis();
+    service.add(List.of(new ClickRecord(1, 10, now, 100), new ClickRecord(2, 10, now, 200)));
+    database.failures = 1;
+    service.flush();
+    assertEquals(List.of("daily_link_visitors 1", "daily_link_visitors 2"), database.inserted);
+
+    // Only the user sketches failed, so only they are written again
+    service.flush();
+    assertEquals(List.of("daily_link_visitors 1", "daily_link_visitors 2", "daily_user_visitors 10"),
+        database.inserted);
+
+    service.flush();
+    assertEquals(3, database.inserted.size());
+  }
+}
@@ -0,0 +1,131 @@
+package com.supersection.trimify.bulkhead;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+class BulkheadFilterTest {
+
+  private final Bulkhead redirect = new Bulkhead("redirect", 1, Duration.ZERO);
+  private final Bulkhead crud = new Bulkhead("crud", 1, Duration.ZERO);
+  private final Bulkhead analytics = new Bulkhead("analytics", 1, Duration.ZERO);
+  private final BulkheadFilter filter = new BulkheadFilter(redirect, crud, analytics, Duration.ofMillis(2_500));
+
+  private Bulkhead route(String method, String path) {
+    return filter.route(new MockHttpServletRequest(method, path));
+  }
+
+  @Test
+  void routesEachKindOfTrafficToItsBulkhead() {
+    assertSame(redirect, route("GET", "/aZ3kQ9x"));
+
+    assertSame(crud, route("POST", "/api/urls/trimify"));
+    assertSame(crud, route("GET", "/api/urls/myurls"));
+    assertSame(crud, route("GET", "/api/urls/trending"));
+    assertSame(crud, route("PUT", "/api/urls/redirect-policy/aZ3kQ9x"));
+
+    assertSame(analytics, route("GET", "/api/urls/analytics/aZ3kQ9x"));
+    assertSame(analytics, route("GET", "/api/urls/analytics/aZ3kQ9x/histogram"));
+    assertSame(analytics, route("GET", "/api/urls/analytics/aZ3kQ9x/visitors"));
+    assertSame(analytics, route("GET", "/api/urls/analytics/aZ3kQ9x/export"));
+    assertSame(analytics, route("GET", "/api/urls/totalClicks"));
+    assertSame(analytics, route("GET", "/api/urls/uniqueVisitors"));
+  }
+
+  @Test
+  void leavesOtherTrafficUnbounded() {
+    assertNull(route("GET", "/api/urls/analytics/aZ3kQ9x/live"));
+    assertNull(route("POST", "/api/auth/public/login"));
+    assertNull(route("GET", "/api/stats/bulkheads"));
+    assertNull(route("GET", "/actuator/health"));
+    assertNull(route("GET", "/"));
+    assertNull(route("POST", "/aZ3kQ9x"));
+  }
+
+  @Test
+  void routesBelowTheContextPath() {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/trimify/aZ3kQ9x");
+    request.setContextPath("/trimify");
+    assertSame(redirect, filter.route(request));
+
+    request = new MockHttpServletRequest("GET", "/trimify/api/urls/totalClicks");
+    request.setContextPath("/trimify");
+    assertSame(analytics, filter.route(request));
+  }
+
+  @Test
+  void answers503WithRetryAfterWhenSaturated() throws ServletException, IOException {
+    assertTrue(analytics.tryAcquire());
+    AtomicBoolean reached = new AtomicBoolean();
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    filter.doFilter(new MockHttpServletRequest("GET", "/api/urls/totalClicks"), response,
+        new MockFilterChain(new HttpServlet() {
+          @Override
+          protected void service(HttpServletRequest req, HttpServletResponse resp) {
+            reached.set(true);
+          }
+        }));
+
+    assertFalse(reached.get());
+    assertEquals(503, response.getStatus());
+    assertEquals("3", response.getHeader(HttpHeaders.RETRY_AFTER));
+    // Other kinds of traffic are unaffected
+    MockHttpServletResponse redirected = new MockHttpServletResponse();
+    filter.doFilter(new MockHttpServletRequest("GET", "/aZ3kQ9x"), redirected, new MockFilterChain());
+    assertEquals(200, redirected.getStatus());
+    assertEquals(0, redirect.getActive());
+  }
+
+  @Test
+  void releasesOnceTheRequestCompletes() throws ServletException, IOException {
+    filter.doFilter(new MockHttpServletRequest("GET", "/api/urls/myurls"), new MockHttpServletResponse(),
+        new MockFilterChain());
+    assertEquals(0, crud.getActive());
+
+    // A failing request releases too
+    try {
+      filter.doFilter(new MockHttpServletRequest("GET", "/api/urls/myurls"), new MockHttpServletResponse(),
+          (req, resp) -> {
+            throw new ServletException("boom");
+          });
+    } catch (ServletException expected) {
+      // Propagated unchanged
+    }
+    assertEquals(0, crud.getActive());
+  }
+
+  @Test
+  void holdsThePermitOfAnAsyncRequestUntilItCompletes() throws ServletException, IOException {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/urls/analytics/aZ3kQ9x/export");
+    request.setAsyncSupported(true);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    filter.doFilter(request, response, (req, resp) -> req.startAsync());
+
+    assertTrue(request.isAsyncStarted());
+    assertEquals(1, analytics.getActive());
+    assertFalse(analytics.tryAcquire());
+
+    request.getAsyncContext().complete();
+    assertEquals(0, analytics.getActive());
+    assertTrue(analytics.tryAcquire());
+  }
+}
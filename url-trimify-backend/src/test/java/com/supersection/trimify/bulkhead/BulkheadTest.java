@@ -0,0 +1,69 @@
+package com.supersection.trimify.bulkhead;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class BulkheadTest {
+
+  @Test
+  void shedsRequestsBeyondItsPermitsUntilOneIsReleased() {
+    Bulkhead bulkhead = new Bulkhead("crud", 2, Duration.ZERO);
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    bulkhead.bindTo(registry);
+
+    assertTrue(bulkhead.tryAcquire());
+    assertTrue(bulkhead.tryAcquire());
+    assertFalse(bulkhead.tryAcquire());
+    assertFalse(bulkhead.tryAcquire());
+    assertEquals(2, bulkhead.getActive());
+    assertEquals(2, registry.get("trimify.bulkhead.rejected").tag("bulkhead", "crud").functionCounter().count());
+
+    bulkhead.release();
+    assertEquals(1, bulkhead.getActive());
+    assertTrue(bulkhead.tryAcquire());
+    bulkhead.release();
+    bulkhead.release();
+    assertEquals(0, bulkhead.getActive());
+    assertEquals(2L, bulkhead.describe().get("rejected"));
+  }
+
+  @Test
+  void waitsUpToMaxWaitForAPermit() throws Exception {
+    Bulkhead bulkhead = new Bulkhead("analytics", 1, Duration.ofSeconds(10));
+    assertTrue(bulkhead.tryAcquire());
+
+    CompletableFuture<Boolean> waiting = CompletableFuture.supplyAsync(bulkhead::tryAcquire);
+    Thread.sleep(50);
+    assertFalse(waiting.isDone());
+    // Released from another thread, as an async request completing does
+    CompletableFuture.runAsync(bulkhead::release).get(5, TimeUnit.SECONDS);
+    assertTrue(waiting.get(5, TimeUnit.SECONDS));
+    assertEquals(1, bulkhead.getActive());
+  }
+
+  @Test
+  void givesUpAfterMaxWait() {
+    Bulkhead bulkhead = new Bulkhead("analytics", 1, Duration.ofMillis(30));
+    assertTrue(bulkhead.tryAcquire());
+
+    long started = System.nanoTime();
+    assertFalse(bulkhead.tryAcquire());
+    assertTrue(System.nanoTime() - started >= TimeUnit.MILLISECONDS.toNanos(30));
+    assertEquals(1L, bulkhead.describe().get("rejected"));
+  }
+
+  @Test
+  void needsAtLeastOnePermit() {
+    assertThrows(IllegalArgumentException.class, () -> new Bulkhead("redirect", 0, Duration.ZERO));
+  }
+}
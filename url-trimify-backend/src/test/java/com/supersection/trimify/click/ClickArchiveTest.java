@@ -0,0 +1,85 @@
+package com.supersection.trimify.click;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ClickArchiveTest {
+
+  private record Row(long id, long urlMappingId, LocalDateTime clickDate) {
+  }
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void roundTripsRowsAcrossBlocks() throws IOException {
+    SplittableRandom random = new SplittableRandom(5);
+    List<Row> rows = new ArrayList<>();
+    long id = 1_000;
+    LocalDateTime clickDate = LocalDateTime.of(2025, 1, 1, 0, 0);
+    for (int i = 0; i < 150_000; i++) {
+      id += 1 + random.nextInt(3);
+      // Near-sorted times with microseconds, sometimes a little out of order
+      clickDate = clickDate.plusNanos(random.nextLong(20_000_000_000L) / 1_000 * 1_000);
+      rows.add(new Row(id, random.nextLong(1, 50_000), clickDate.minusSeconds(random.nextInt(10) == 0 ? 30 : 0)));
+    }
+
+    Path path = directory.resolve("click_event-p202501.bin.gz");
+    try (ClickArchive.Writer writer = new ClickArchive.Writer(path, "p202501")) {
+      for (Row row : rows) {
+        writer.append(row.id(), row.urlMappingId(), row.clickDate());
+      }
+      writer.commit();
+      assertEquals(rows.size(), writer.getRows());
+    }
+    // Random link ids and microseconds dominate; fixed-width rows would take 28 bytes
+    assertTrue(Files.size(path) < rows.size() * 8L, "archive of " + Files.size(path) + " bytes");
+
+    List<Row> read = new ArrayList<>();
+    String partition = ClickArchive.read(path,
+        (rowId, urlMappingId, date) -> read.add(new Row(rowId, urlMappingId, date)));
+    assertEquals("p202501", partition);
+    assertEquals(rows, read);
+  }
+
+  @Test
+  void leavesNothingBehindUnlessCommitted() throws IOException {
+    Path path = directory.resolve("click_event-p202502.bin.gz");
+    try (ClickArchive.Writer writer = new ClickArchive.Writer(path, "p202502")) {
+      writer.append(1, 2, LocalDateTime.of(2025, 2, 1, 12, 0));
+    }
+    assertFalse(Files.exists(path));
+    try (var files = Files.list(directory)) {
+      assertEquals(0, files.count());
+    }
+  }
+
+  @Test
+  void rejectsTruncatedArchives() throws IOException {
+    Path path = directory.resolve("click_event-p202503.bin.gz");
+    try (ClickArchive.Writer writer = new ClickArchive.Writer(path, "p202503")) {
+      for (int i = 1; i <= 1_000; i++) {
+        writer.append(i, i % 7, LocalDateTime.of(2025, 3, 1, 0, 0).plusMinutes(i));
+      }
+      writer.commit();
+    }
+    try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+      file.setLength(file.length() / 2);
+    }
+    assertThrows(IOException.class, () -> ClickArchive.read(path, (id, urlMappingId, clickDate) -> { }));
+  }
+}
@@ -0,0 +1,89 @@
+package com.supersection.trimify.click;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class ClickCounterServiceTest {
+
+  /** Click counts, updated only when the surrounding transaction commits. */
+  private final class FakeDatabase extends JdbcTemplate {
+
+    final Map<Long, Long> clickCounts = new HashMap<>();
+    Map<Long, Long> uncommitted;
+    /** Rows applied before the batch fails, if set. */
+    int failAfter = -1;
+    long pendingSeenInFlight;
+
+    @Override
+    public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+      pendingSeenInFlight = service.getPendingCount(1);
+      for (int i = 0; i < batchArgs.size(); i++) {
+        if (i == failAfter) {
+          throw new DataAccessResourceFailureException("connection lost");
+        }
+        uncommitted.merge((Long) batchArgs.get(i)[1], (Long) batchArgs.get(i)[0], Long::sum);
+      }
+      return new int[batchArgs.size()];
+    }
+  }
+
+  private final class FakeTransactions extends TransactionTemplate {
+
+    @Override
+    public <T> T execute(TransactionCallback<T> action) throws TransactionException {
+      database.uncommitted = new HashMap<>();
+      T result = action.doInTransaction(null);
+      database.uncommitted.forEach((id, delta) -> database.clickCounts.merge(id, delta, Long::sum));
+      return result;
+    }
+  }
+
+  private final FakeDatabase database = new FakeDatabase();
+  private final ClickCounterService service = new ClickCounterService(database, new FakeTransactions());
+
+  private void click(long urlMappingId, int times) {
+    for (int i = 0; i < times; i++) {
+      service.onClick(new ClickRecord(urlMappingId, 1, System.currentTimeMillis(), i));
+    }
+  }
+
+  @Test
+  void flushesDeltasAndCountsThemOnceMeanwhile() {
+    click(1, 3);
+    click(2, 2);
+    assertEquals(3, service.getPendingCount(1));
+
+    service.flush();
+    assertEquals(3, database.pendingSeenInFlight);
+    assertEquals(Map.of(1L, 3L, 2L, 2L), database.clickCounts);
+    assertEquals(0, service.getPendingCount(1));
+    assertEquals(0, service.getPendingCount(2));
+  }
+
+  @Test
+  void retriesAPartlyAppliedBatchWithoutCountingTwice() {
+    click(1, 3);
+    click(2, 2);
+    database.failAfter = 1;
+    service.flush();
+    assertEquals(Map.of(), database.clickCounts);
+    assertEquals(3, service.getPendingCount(1));
+    assertEquals(2, service.getPendingCount(2));
+
+    database.failAfter = -1;
+    click(1, 1);
+    service.flush();
+    assertEquals(Map.of(1L, 4L, 2L, 2L), database.clickCounts);
+    assertEquals(0, service.getPendingCount(1));
+  }
+}
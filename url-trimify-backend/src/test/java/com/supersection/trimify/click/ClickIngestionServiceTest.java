@@ -0,0 +1,105 @@
+package com.supersection.trimify.click;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.util.unit.DataSize;
+
+import com.supersection.trimify.redirect.RedirectPolicy;
+import com.supersection.trimify.redirect.RedirectTarget;
+
+class ClickIngestionServiceTest {
+
+  private static final long POISONED_LINK = 13;
+
+  /** Stores clicks in memory and rejects any batch holding a poisoned link. */
+  private static final class FakeWriter extends ClickEventWriter {
+
+    final List<ClickRecord> stored = new ArrayList<>();
+    final AtomicInteger calls = new AtomicInteger();
+
+    FakeWriter() {
+      super(null, null, null, null);
+    }
+
+    @Override
+    public synchronized void write(List<ClickRecord> clicks) {
+      calls.incrementAndGet();
+      if (clicks.stream().anyMatch(click -> click.urlMappingId() == POISONED_LINK)) {
+        throw new DataIntegrityViolationException("poisoned link");
+      }
+      stored.addAll(clicks);
+    }
+
+    synchronized int storedCount() {
+      return stored.size();
+    }
+  }
+
+  private final FakeWriter writer = new FakeWriter();
+  private ClickIngestionService service;
+
+  @AfterEach
+  void stop() throws InterruptedException {
+    if (service != null) {
+      service.stop();
+    }
+  }
+
+  private void start(int batchSize) {
+    ClickLog disabledLog = new ClickLog(false, Path.of("unused"), DataSize.ofMegabytes(1));
+    service = new ClickIngestionService(writer, List.of(), disabledLog, 1024, batchSize,
+        Duration.ofMillis(5), OverflowPolicy.BLOCK, Duration.ofSeconds(1), Duration.ofSeconds(10));
+    service.start();
+  }
+
+  private static RedirectTarget target(long id) {
+    return new RedirectTarget(id, 1L, "code" + id, "https://example.com/" + id, RedirectPolicy.DEFAULT);
+  }
+
+  @Test
+  void writesEveryClickInBatches() throws InterruptedException {
+    start(50);
+    for (int i = 0; i < 1_000; i++) {
+      service.record(target(i % 10), i);
+    }
+    service.stop();
+    service = null;
+
+    assertEquals(1_000, writer.storedCount());
+    assertTrue(writer.calls.get() <= 1_000 / 2, "batched into " + writer.calls.get() + " writes");
+  }
+
+  @Test
+  void deadLettersAPoisonedClickAndKeepsTheRest() throws InterruptedException {
+    start(64);
+    for (int i = 0; i < 64; i++) {
+      service.record(target(i == 20 ? POISONED_LINK : 1), i);
+    }
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (writer.storedCount() < 63 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(20);
+    }
+
+    Map<String, Object> description = service.describe();
+    assertEquals(63, writer.storedCount());
+    assertEquals(1L, description.get("deadLettered"));
+    assertEquals(63L, description.get("written"));
+
+    // The writer is not wedged: later clicks still go through
+    service.record(target(2), 0);
+    service.stop();
+    service = null;
+    assertEquals(64, writer.storedCount());
+  }
+}
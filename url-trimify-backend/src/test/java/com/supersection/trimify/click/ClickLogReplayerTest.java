@@ -0,0 +1,177 @@
+package com.supersection.trimify.click;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+class ClickLogReplayerTest {
+
+  private static final String NAME = "node-1";
+  private static final int BATCH_SIZE = 4;
+
+  /** The checkpoint table, updated only when the surrounding transaction commits. */
+  private static final class FakeDatabase extends JdbcTemplate {
+
+    final Map<String, Object> checkpoint = new HashMap<>();
+    Map<String, Object> uncommitted;
+
+    @Override
+    public List<Map<String, Object>> queryForList(String sql, Object... args) {
+      return checkpoint.isEmpty() ? List.of() : List.of(Map.copyOf(checkpoint));
+    }
+
+    @Override
+    public int update(String sql, Object... args) {
+      if (sql.startsWith("INSERT")) {
+        uncommitted.put("segment", args[1]);
+        uncommitted.put("position", args[2]);
+      } else if (checkpoint.isEmpty() && uncommitted.isEmpty()) {
+        return 0;
+      } else {
+        uncommitted.put("segment", args[0]);
+        uncommitted.put("position", args[1]);
+      }
+      return 1;
+    }
+  }
+
+  /** Runs each callback as a transaction over the fake database and writer. */
+  private final class FakeTransactions extends TransactionTemplate {
+
+    @Override
+    public <T> T execute(TransactionCallback<T> action) throws TransactionException {
+      database.uncommitted = new HashMap<>();
+      writer.uncommitted.clear();
+      T result = action.doInTransaction(null);
+      database.checkpoint.putAll(database.uncommitted);
+      writer.stored.addAll(writer.uncommitted);
+      return result;
+    }
+  }
+
+  /** Stores clicks once their transaction commits, failing the batches it is told to. */
+  private static final class FakeWriter extends ClickEventWriter {
+
+    final List<ClickRecord> stored = new ArrayList<>();
+    final List<ClickRecord> uncommitted = new ArrayList<>();
+    int failures;
+
+    FakeWriter() {
+      super(null, null, null, null);
+    }
+
+    @Override
+    public void write(List<ClickRecord> clicks) {
+      if (failures > 0) {
+        failures--;
+        throw new DataAccessResourceFailureException("database down");
+      }
+      uncommitted.addAll(clicks);
+    }
+  }
+
+  @TempDir
+  Path directory;
+
+  private final FakeDatabase database = new FakeDatabase();
+  private final FakeWriter writer = new FakeWriter();
+  private ClickLog clickLog;
+
+  @AfterEach
+  void close() throws IOException {
+    clickLog.close();
+  }
+
+  private ClickLogReplayer start() throws IOException {
+    clickLog = new ClickLog(
+        true, directory, DataSize.ofBytes(ClickLog.HEADER_BYTES + 10L * ClickLog.RECORD_BYTES));
+    ClickLogReplayer replayer =
+        new ClickLogReplayer(clickLog, writer, database, new FakeTransactions(), NAME, BATCH_SIZE);
+    replayer.start();
+    return replayer;
+  }
+
+  private void append(int from, int to) {
+    for (int i = from; i < to; i++) {
+      clickLog.append(new ClickRecord(i, 1, 1_750_000_000_000L + i, i));
+    }
+  }
+
+  private void assertStoredOnce(int clicks) {
+    assertEquals(clicks, writer.stored.size());
+    assertEquals(clicks, new HashSet<>(writer.stored).size());
+  }
+
+  @Test
+  void replaysAcrossSegmentsAndDeletesSealedOnes() throws IOException {
+    ClickLogReplayer replayer = start();
+    append(0, 25);
+    replayer.replay();
+
+    assertStoredOnce(25);
+    assertEquals(List.of(3L), clickLog.segments());
+    assertEquals(3L, database.checkpoint.get("segment"));
+
+    append(25, 30);
+    replayer.replay();
+    assertStoredOnce(30);
+  }
+
+  @Test
+  void retriesAFailedBatchWithoutDuplicates() throws IOException {
+    ClickLogReplayer replayer = start();
+    append(0, 12);
+    writer.failures = 1;
+    replayer.replay();
+    assertStoredOnce(0);
+
+    replayer.replay();
+    assertStoredOnce(12);
+  }
+
+  @Test
+  void resumesFromTheCheckpointAfterACrash() throws IOException {
+    ClickLogReplayer replayer = start();
+    append(0, 25);
+    // Crash after committing the checkpoint but before deleting the sealed segments
+    Map<Path, byte[]> files = new HashMap<>();
+    try (var segments = Files.list(directory)) {
+      for (Path segment : segments.toList()) {
+        files.put(segment, Files.readAllBytes(segment));
+      }
+    }
+    replayer.replay();
+    assertStoredOnce(25);
+    // Logged but never replayed
+    append(25, 30);
+    clickLog.close();
+    for (Map.Entry<Path, byte[]> file : files.entrySet()) {
+      if (!Files.exists(file.getKey())) {
+        Files.write(file.getKey(), file.getValue());
+      }
+    }
+
+    replayer = start();
+    replayer.replay();
+    assertStoredOnce(30);
+    // The segment the log rolled to before the crash is empty and deleted too
+    assertEquals(List.of(5L), clickLog.segments());
+  }
+}
@@ -0,0 +1,155 @@
+package com.supersection.trimify.click;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ClickLogTest {
+
+  @TempDir
+  Path directory;
+
+  private ClickLog clickLog;
+
+  @AfterEach
+  void close() throws IOException {
+    if (clickLog != null) {
+      clickLog.close();
+    }
+  }
+
+  private ClickLog open(int recordsPerSegment) throws IOException {
+    clickLog = new ClickLog(
+        true, directory, DataSize.ofBytes(ClickLog.HEADER_BYTES + (long) recordsPerSegment * ClickLog.RECORD_BYTES));
+    clickLog.open(0);
+    return clickLog;
+  }
+
+  private static ClickRecord click(long id) {
+    return new ClickRecord(id, id % 7, 1_750_000_000_000L + id, id * 31);
+  }
+
+  /** @return every click in the log, segment by segment. */
+  private List<ClickRecord> readAll() throws IOException {
+    ClickLog.Position durable = clickLog.durablePosition();
+    List<ClickRecord> clicks = new ArrayList<>();
+    for (long segment : clickLog.segments()) {
+      long end = segment < durable.segment() ? clickLog.sealedLength(segment) : durable.bytes();
+      clickLog.read(segment, ClickLog.HEADER_BYTES, end, clicks, Integer.MAX_VALUE);
+    }
+    return clicks;
+  }
+
+  @Test
+  void groupCommitsConcurrentAppendsExactlyOnce() throws Exception {
+    open(1_000_000);
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    clickLog.bindTo(registry);
+
+    int threads = 8;
+    int perThread = 500;
+    List<Thread> appenders = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      int first = t * perThread;
+      appenders.add(Thread.ofPlatform().start(() -> {
+        for (int i = 0; i < perThread; i++) {
+          clickLog.append(click(first + i));
+        }
+      }));
+    }
+    for (Thread appender : appenders) {
+      appender.join();
+    }
+
+    List<ClickRecord> clicks = readAll();
+    assertEquals(threads * perThread, clicks.size());
+    assertEquals(threads * perThread, new HashSet<>(clicks).size());
+    double appended = registry.get("trimify.clicks.log.appended").functionCounter().count();
+    double commits = registry.get("trimify.clicks.log.commits").functionCounter().count();
+    assertEquals(threads * perThread, appended);
+    assertTrue(commits >= 1 && commits <= appended, "commits " + commits);
+  }
+
+  @Test
+  void rollsSegmentsOnceFull() throws IOException {
+    open(4);
+    for (int i = 0; i < 10; i++) {
+      clickLog.append(click(i));
+    }
+    // Every append is its own commit, so segments roll after exactly 4 clicks
+    assertEquals(List.of(1L, 2L, 3L), clickLog.segments());
+    assertEquals(new ClickLog.Position(3, ClickLog.HEADER_BYTES + 2L * ClickLog.RECORD_BYTES),
+        clickLog.durablePosition());
+    assertEquals(ClickLog.HEADER_BYTES + 4L * ClickLog.RECORD_BYTES, clickLog.sealedLength(1));
+
+    List<ClickRecord> expected = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      expected.add(click(i));
+    }
+    assertEquals(expected, readAll());
+  }
+
+  @Test
+  void ignoresTornRecordsAndSegments() throws IOException {
+    open(4);
+    for (int i = 0; i < 5; i++) {
+      clickLog.append(click(i));
+    }
+    Path first = directory.resolve(String.format("clicks-%020d.log", 1));
+    try (RandomAccessFile file = new RandomAccessFile(first.toFile(), "rw")) {
+      file.setLength(file.length() - 5);
+    }
+    assertEquals(ClickLog.HEADER_BYTES + 3L * ClickLog.RECORD_BYTES, clickLog.sealedLength(1));
+
+    Path torn = directory.resolve(String.format("clicks-%020d.log", 9));
+    Files.write(torn, new byte[] { 0x54, 0x43 });
+    assertEquals(ClickLog.HEADER_BYTES, clickLog.sealedLength(9));
+  }
+
+  @Test
+  void rejectsSegmentsOfAnotherFormat() throws IOException {
+    open(4);
+    clickLog.append(click(1));
+    clickLog.append(click(2));
+    Path segment = directory.resolve(String.format("clicks-%020d.log", 1));
+    try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+      // Version
+      file.seek(4);
+      file.writeShort(2);
+    }
+    assertThrows(IOException.class, () -> clickLog.sealedLength(1));
+    assertThrows(IOException.class, () -> clickLog.read(1, ClickLog.HEADER_BYTES,
+        ClickLog.HEADER_BYTES + 2L * ClickLog.RECORD_BYTES, new ArrayList<>(), 10));
+
+    // A log written before segments had headers
+    Path headerless = directory.resolve(String.format("clicks-%020d.log", 8));
+    Files.write(headerless, new byte[2 * ClickLog.RECORD_BYTES]);
+    IOException error = assertThrows(IOException.class, () -> clickLog.sealedLength(8));
+    assertTrue(error.getMessage().contains("not a click log segment"), error.getMessage());
+  }
+
+  @Test
+  void numbersNewSegmentsAfterTheCheckpoint() throws IOException {
+    clickLog = new ClickLog(true, directory, DataSize.ofKilobytes(1));
+    clickLog.open(41);
+    clickLog.append(click(1));
+    Set<Long> segments = new HashSet<>(clickLog.segments());
+    assertEquals(Set.of(42L), segments);
+  }
+}
@@ -0,0 +1,109 @@
+package com.supersection.trimify.click;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class RingBufferTest {
+
+  @Test
+  void roundsCapacityUpToAPowerOfTwo() {
+    assertEquals(2, new RingBuffer<Integer>(2).capacity());
+    assertEquals(8, new RingBuffer<Integer>(5).capacity());
+    assertEquals(1024, new RingBuffer<Integer>(1024).capacity());
+  }
+
+  @Test
+  void keepsOrderAndRejectsOffersWhenFull() {
+    RingBuffer<Integer> buffer = new RingBuffer<>(4);
+    for (int round = 0; round < 3; round++) {
+      for (int i = 0; i < 4; i++) {
+        assertTrue(buffer.offer(round * 4 + i));
+      }
+      assertFalse(buffer.offer(-1));
+      assertEquals(4, buffer.size());
+
+      List<Integer> drained = new ArrayList<>();
+      assertEquals(3, buffer.drainTo(drained, 3));
+      assertEquals(round * 4 + 3, buffer.poll());
+      assertEquals(List.of(round * 4, round * 4 + 1, round * 4 + 2), drained);
+      assertNull(buffer.poll());
+      assertEquals(0, buffer.size());
+    }
+  }
+
+  @Test
+  void deliversEveryElementExactlyOnceAcrossProducersAndConsumers() throws Exception {
+    int producers = 4;
+    int consumers = 3;
+    int perProducer = 20_000;
+    RingBuffer<Integer> buffer = new RingBuffer<>(256);
+    BitSet[] seen = new BitSet[consumers];
+    AtomicInteger remaining = new AtomicInteger(producers * perProducer);
+    CountDownLatch start = new CountDownLatch(1);
+
+    ExecutorService executor = Executors.newFixedThreadPool(producers + consumers);
+    try {
+      List<Future<?>> tasks = new ArrayList<>();
+      for (int p = 0; p < producers; p++) {
+        int first = p * perProducer;
+        tasks.add(executor.submit(() -> {
+          start.await();
+          for (int value = first; value < first + perProducer; value++) {
+            while (!buffer.offer(value)) {
+              Thread.yield();
+            }
+          }
+          return null;
+        }));
+      }
+      for (int c = 0; c < consumers; c++) {
+        BitSet mine = seen[c] = new BitSet();
+        tasks.add(executor.submit(() -> {
+          start.await();
+          List<Integer> batch = new ArrayList<>();
+          while (remaining.get() > 0) {
+            batch.clear();
+            int drained = buffer.drainTo(batch, 64);
+            for (int value : batch) {
+              assertFalse(mine.get(value), "duplicate " + value);
+              mine.set(value);
+            }
+            if (drained == 0) {
+              Thread.yield();
+            }
+            remaining.addAndGet(-drained);
+          }
+          return null;
+        }));
+      }
+      start.countDown();
+      for (Future<?> task : tasks) {
+        task.get(60, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    BitSet all = new BitSet();
+    for (BitSet mine : seen) {
+      assertFalse(all.intersects(mine), "element consumed twice");
+      all.or(mine);
+    }
+    assertEquals(producers * perProducer, all.cardinality());
+    assertEquals(0, buffer.size());
+  }
+}
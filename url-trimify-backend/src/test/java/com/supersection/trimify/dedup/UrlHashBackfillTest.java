@@ -0,0 +1,103 @@
+package com.supersection.trimify.dedup;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+class UrlHashBackfillTest {
+
+  /** url_mapping as id → {original_url, url_hash}, answering the backfill's queries. */
+  private static final class FakeTable extends JdbcTemplate {
+
+    final TreeMap<Long, String> urls = new TreeMap<>();
+    final Map<Long, Long> hashes = new HashMap<>();
+    int pages;
+
+    @Override
+    public Map<String, Object> queryForMap(String sql) {
+      Map<String, Object> range = new HashMap<>();
+      urls.keySet().stream().filter(id -> !hashes.containsKey(id)).min(Long::compare)
+          .ifPresent(id -> range.put("first_id", id));
+      urls.keySet().stream().filter(id -> !hashes.containsKey(id)).max(Long::compare)
+          .ifPresent(id -> range.put("last_id", id));
+      return range;
+    }
+
+    @Override
+    public List<Map<String, Object>> queryForList(String sql, Object... args) {
+      pages++;
+      long fromId = (Long) args[0];
+      long toId = (Long) args[1];
+      int limit = (Integer) args[2];
+      List<Map<String, Object>> page = new ArrayList<>();
+      for (Map.Entry<Long, String> row : urls.subMap(fromId, true, toId, true).entrySet()) {
+        if (page.size() == limit) {
+          break;
+        }
+        if (!hashes.containsKey(row.getKey())) {
+          page.add(Map.of("id", row.getKey(), "original_url", row.getValue()));
+        }
+      }
+      return page;
+    }
+
+    @Override
+    public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+      for (Object[] args : batchArgs) {
+        hashes.putIfAbsent((Long) args[1], (Long) args[0]);
+      }
+      return new int[batchArgs.size()];
+    }
+  }
+
+  private final UrlNormalizer normalizer = new UrlNormalizer(List.of(), List.of("utm_"), false, false);
+  private final FakeTable table = new FakeTable();
+  private final UrlHashBackfill backfill = new UrlHashBackfill(table, normalizer, false);
+
+  @Test
+  void hashesOnlyTheMappingsWithoutOne() {
+    for (long id = 1; id <= 2_500; id++) {
+      table.urls.put(id, "https://example.com/" + id);
+      if (id <= 1_000 || id % 2 == 0) {
+        table.hashes.put(id, normalizer.hash("https://example.com/" + id));
+      }
+    }
+
+    assertEquals(750, backfill.backfill());
+    for (long id = 1; id <= 2_500; id++) {
+      assertEquals(normalizer.hash("https://example.com/" + id), table.hashes.get(id));
+    }
+    assertEquals(1, table.pages);
+  }
+
+  @Test
+  void pagesThroughLargeRanges() {
+    table.urls.put(5L, "https://example.com/?utm_source=mail");
+    for (long id = 10; id < 2_010; id++) {
+      table.urls.put(id, "https://example.com/" + id);
+    }
+
+    assertEquals(2_001, backfill.backfill());
+    assertEquals(normalizer.hash("https://example.com/"), table.hashes.get(5L));
+    assertNotNull(table.hashes.get(2_009L));
+    assertEquals(3, table.pages);
+  }
+
+  @Test
+  void stopsAtOneQueryOnceDone() {
+    table.urls.put(1L, "https://example.com/");
+    table.hashes.put(1L, 42L);
+    assertEquals(0, backfill.backfill());
+    assertEquals(0, table.pages);
+    assertNull(table.hashes.get(2L));
+  }
+}
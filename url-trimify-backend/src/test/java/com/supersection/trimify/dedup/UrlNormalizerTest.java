@@ -0,0 +1,53 @@
+package com.supersection.trimify.dedup;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class UrlNormalizerTest {
+
+  private final UrlNormalizer normalizer = new UrlNormalizer(
+      List.of("gclid", "fbclid"), List.of("utm_"), true, false);
+
+  @Test
+  void lowercasesSchemeAndHostButNotPath() {
+    assertEquals("https://example.com/Docs/Page",
+        normalizer.normalize("  HTTPS://Example.COM/Docs/Page "));
+  }
+
+  @Test
+  void dropsDefaultPortsAndAddsEmptyPath() {
+    assertEquals("https://example.com/", normalizer.normalize("https://example.com:443"));
+    assertEquals("http://example.com/", normalizer.normalize("http://example.com:80/"));
+    assertEquals("http://example.com:8080/", normalizer.normalize("http://example.com:8080"));
+  }
+
+  @Test
+  void stripsTrackingParamsAndFragment() {
+    assertEquals("https://example.com/a?id=7&q=x",
+        normalizer.normalize("https://example.com/a?utm_source=mail&id=7&GCLID=abc&q=x&utm_Medium=y#top"));
+    assertEquals("https://example.com/a", normalizer.normalize("https://example.com/a?utm_source=mail"));
+  }
+
+  @Test
+  void keepsParamOrderUnlessSortingIsEnabled() {
+    UrlNormalizer sorting = new UrlNormalizer(List.of(), List.of(), false, true);
+    assertEquals("https://example.com/?b=2&a=1", normalizer.normalize("https://example.com/?b=2&a=1"));
+    assertEquals("https://example.com/?a=1&b=2#x", sorting.normalize("https://example.com/?b=2&a=1#x"));
+    assertEquals("https://example.com/", sorting.normalize("https://example.com/#"));
+  }
+
+  @Test
+  void hashesEquivalentUrlsAlike() {
+    assertEquals(normalizer.hash("https://Example.com:443/?utm_campaign=z"), normalizer.hash("https://example.com/"));
+    assertNotEquals(normalizer.hash("https://example.com/a"), normalizer.hash("https://example.com/A"));
+  }
+
+  @Test
+  void leavesInvalidUrisTrimmedOnly() {
+    assertEquals("not a url", normalizer.normalize(" not a url "));
+  }
+}
@@ -0,0 +1,43 @@
+package com.supersection.trimify.live;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import org.junit.jupiter.api.Test;
+
+class ClickRingTest {
+
+  @Test
+  void keepsTheLastSlotsOldestFirst() {
+    ClickRing ring = new ClickRing(4);
+    ring.add(100, 1);
+    ring.add(101, 2);
+    ring.add(101, 3);
+    ring.add(103, 4);
+    assertArrayEquals(new int[] { 1, 5, 0, 4 }, ring.toArray());
+
+    ring.advance(105);
+    assertArrayEquals(new int[] { 0, 4, 0, 0 }, ring.toArray());
+  }
+
+  @Test
+  void clearsEverythingAfterALongGap() {
+    ClickRing ring = new ClickRing(3);
+    ring.add(10, 7);
+    ring.add(1_000, 1);
+    assertArrayEquals(new int[] { 0, 0, 1 }, ring.toArray());
+
+    // Slots older than the newest are ignored
+    ring.advance(999);
+    assertArrayEquals(new int[] { 0, 0, 1 }, ring.toArray());
+  }
+
+  @Test
+  void countsLateClicksInTheirOwnSlot() {
+    ClickRing ring = new ClickRing(3);
+    ring.add(20, 1);
+    ring.add(19, 2);
+    // Older than the ring
+    ring.add(17, 5);
+    assertArrayEquals(new int[] { 0, 2, 1 }, ring.toArray());
+  }
+}
@@ -0,0 +1,141 @@
+package com.supersection.trimify.live;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.supersection.trimify.click.ClickRecord;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class LiveClickServiceTest {
+
+  private static final long LINK = 7;
+
+  /** Counts the updates written to it. */
+  private static class RecordingEmitter extends SseEmitter {
+
+    final AtomicInteger sent = new AtomicInteger();
+
+    @Override
+    public void send(Set<DataWithMediaType> items) throws IOException {
+      sent.incrementAndGet();
+    }
+  }
+
+  /** A client that stopped reading: every write blocks until released. */
+  private static final class StalledEmitter extends RecordingEmitter {
+
+    final CountDownLatch release = new CountDownLatch(1);
+    volatile boolean completed;
+
+    @Override
+    public synchronized void send(Set<DataWithMediaType> items) throws IOException {
+      sent.incrementAndGet();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      throw new IOException("Broken pipe");
+    }
+
+    @Override
+    public synchronized void complete() {
+      completed = true;
+    }
+  }
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final LiveClickService service = new LiveClickService(new ObjectMapper(), 60, 60,
+      Duration.ofSeconds(15), 100, 100, Duration.ofMillis(200), Duration.ofMinutes(30));
+
+  {
+    service.bindTo(registry);
+  }
+
+  @AfterEach
+  void shutdown() {
+    service.shutdown();
+  }
+
+  private void clickAndTick() {
+    service.onClicks(List.of(new ClickRecord(LINK, 1, System.currentTimeMillis(), 0)));
+    service.tick();
+  }
+
+  private double counter(String name) {
+    return registry.get(name).functionCounter().count();
+  }
+
+  private static void awaitSent(RecordingEmitter emitter, int updates) throws InterruptedException {
+    long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+    while (emitter.sent.get() < updates && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+    assertEquals(updates, emitter.sent.get());
+  }
+
+  @Test
+  void coalescesUpdatesWhileAWriteIsInProgress() throws InterruptedException {
+    StalledEmitter slow = new StalledEmitter();
+    assertTrue(service.subscribe(LINK, slow));
+
+    clickAndTick();
+    awaitSent(slow, 1);
+    // The first update is being written, so each later one replaces the pending one
+    for (int i = 0; i < 5; i++) {
+      clickAndTick();
+    }
+    assertEquals(4, counter("trimify.live.updates.coalesced"));
+
+    slow.release.countDown();
+    Thread.sleep(100);
+    // The write failed, so the pending update is dropped with the stream
+    assertEquals(1, slow.sent.get());
+  }
+
+  @Test
+  void evictsStalledSubscribersWithoutHoldingUpOthers() throws InterruptedException {
+    StalledEmitter[] stalled = new StalledEmitter[8];
+    for (int i = 0; i < stalled.length; i++) {
+      stalled[i] = new StalledEmitter();
+      assertTrue(service.subscribe(LINK, stalled[i]));
+    }
+    RecordingEmitter healthy = new RecordingEmitter();
+    assertTrue(service.subscribe(LINK, healthy));
+
+    clickAndTick();
+    awaitSent(healthy, 1);
+    // Stalled clients only hold up their own sender: the healthy one still gets every update
+    clickAndTick();
+    awaitSent(healthy, 2);
+
+    Thread.sleep(300);
+    clickAndTick();
+    awaitSent(healthy, 3);
+    assertEquals(stalled.length, counter("trimify.live.subscribers.evicted"));
+    assertEquals(1, registry.get("trimify.live.subscribers").gauge().value());
+
+    // Completion waits for the blocked write, and runs once it fails
+    for (StalledEmitter emitter : stalled) {
+      emitter.release.countDown();
+    }
+    Thread.sleep(100);
+    for (StalledEmitter emitter : stalled) {
+      assertTrue(emitter.completed);
+    }
+  }
+}
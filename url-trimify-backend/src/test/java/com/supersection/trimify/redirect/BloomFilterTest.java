@@ -0,0 +1,45 @@
+package com.supersection.trimify.redirect;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class BloomFilterTest {
+
+  @Test
+  void neverReportsAnAddedValueAsMissing() {
+    BloomFilter filter = new BloomFilter(100_000, 0.01);
+    for (int i = 0; i < 100_000; i++) {
+      filter.put("code" + i);
+    }
+    for (int i = 0; i < 100_000; i++) {
+      assertTrue(filter.mightContain("code" + i), "code" + i);
+    }
+  }
+
+  @Test
+  void staysNearTheConfiguredFalsePositiveRate() {
+    BloomFilter filter = new BloomFilter(100_000, 0.01);
+    for (int i = 0; i < 100_000; i++) {
+      filter.put("code" + i);
+    }
+    int falsePositives = 0;
+    for (int i = 0; i < 100_000; i++) {
+      if (filter.mightContain("other" + i)) {
+        falsePositives++;
+      }
+    }
+    assertTrue(falsePositives < 1_500, falsePositives + " false positives");
+    assertEquals(0.01, filter.estimatedFalsePositiveRate(), 0.005);
+  }
+
+  @Test
+  void countsOnlyNewValuesAsInsertions() {
+    BloomFilter filter = new BloomFilter(1_000, 0.01);
+    assertTrue(filter.put("a"));
+    assertFalse(filter.put("a"));
+    assertEquals(1, filter.insertions());
+  }
+}
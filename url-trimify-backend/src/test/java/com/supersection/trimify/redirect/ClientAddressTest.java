@@ -0,0 +1,59 @@
+package com.supersection.trimify.redirect;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.Headers;
+
+class ClientAddressTest {
+
+  private final ClientAddress clientAddress = new ClientAddress(List.of("10.0.0.0/8", "::1"));
+
+  private static Headers headers(String name, String... values) {
+    Headers headers = new Headers();
+    for (String value : values) {
+      headers.add(name, value);
+    }
+    return headers;
+  }
+
+  @Test
+  void ignoresTheHeadersOfUntrustedPeers() {
+    Headers headers = headers("X-Forwarded-For", "198.51.100.7");
+    assertEquals("203.0.113.9", clientAddress.of("203.0.113.9", headers));
+  }
+
+  @Test
+  void takesTheNearestHopThatIsNotAProxy() {
+    // The client made up the first hop, the load balancers appended the rest
+    Headers headers = headers("X-Forwarded-For", "192.0.2.1, 198.51.100.7", "10.1.2.3");
+    assertEquals("198.51.100.7", clientAddress.of("10.0.0.5", headers));
+    assertEquals("10.1.2.3", clientAddress.of("10.0.0.5", headers("X-Forwarded-For", "10.1.2.3")));
+  }
+
+  @Test
+  void prefersForwardedOverXForwardedFor() {
+    Headers headers = headers("Forwarded", "for=192.0.2.60;proto=https, for=\"[2001:db8:cafe::17]:4711\"");
+    headers.add("X-Forwarded-For", "198.51.100.7");
+    assertEquals("2001:db8:cafe::17", clientAddress.of("::1", headers));
+
+    headers = headers("Forwarded", "For=\"198.51.100.7:443\";by=10.0.0.1, for=10.0.0.2");
+    assertEquals("198.51.100.7", clientAddress.of("10.0.0.5", headers));
+  }
+
+  @Test
+  void neverTrustsHopsThatAreNotAddresses() {
+    assertEquals("unknown", clientAddress.of("10.0.0.5", headers("Forwarded", "for=192.0.2.1, for=unknown")));
+    assertEquals("unknown", clientAddress.of("10.0.0.5", headers("Forwarded", "proto=https")));
+    assertEquals("localhost", clientAddress.of("10.0.0.5", headers("X-Forwarded-For", "localhost")));
+  }
+
+  @Test
+  void keepsThePeerWithoutProxiesConfigured() {
+    ClientAddress direct = new ClientAddress(List.of(""));
+    assertEquals("10.0.0.5", direct.of("10.0.0.5", headers("X-Forwarded-For", "198.51.100.7")));
+  }
+}
@@ -0,0 +1,64 @@
+package com.supersection.trimify.redirect;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class IdGapsTest {
+
+  private static final long MINUTE = 60_000;
+
+  @Test
+  void rereadsSkippedIdsUntilFound() {
+    IdGaps gaps = new IdGaps(10, 100, Duration.ofMinutes(5));
+    gaps.advance(11, 0);
+    gaps.advance(14, 0);
+    assertEquals(List.of(12L, 13L), gaps.pending(10, 0));
+    assertTrue(gaps.isUncertain(0));
+
+    assertTrue(gaps.found(12));
+    assertFalse(gaps.found(12));
+    gaps.advance(13, 0);
+    assertEquals(List.of(), gaps.pending(10, 1));
+    assertFalse(gaps.isUncertain(1));
+  }
+
+  @Test
+  void rereadsLateIdsOnlyOncePerInterval() {
+    IdGaps gaps = new IdGaps(0, 100, Duration.ofHours(1), Duration.ofMinutes(1), Duration.ofMinutes(1));
+    gaps.advance(2, 0);
+    gaps.advance(4, 2 * MINUTE);
+    assertEquals(List.of(1L, 3L), gaps.pending(10, 2 * MINUTE));
+
+    // 1 is late and was just re-read, 3 is still recent
+    assertEquals(List.of(3L), gaps.pending(10, 2 * MINUTE + 30_000));
+    assertEquals(List.of(1L, 3L), gaps.pending(10, 3 * MINUTE));
+    assertEquals(List.of(), gaps.pending(10, 3 * MINUTE + 1));
+  }
+
+  @Test
+  void dropsIdsThatTimedOut() {
+    IdGaps gaps = new IdGaps(0, 100, Duration.ofHours(1), Duration.ofMinutes(1), Duration.ofMinutes(1));
+    gaps.advance(2, 0);
+    assertEquals(List.of(1L), gaps.pending(10, 60 * MINUTE - 1));
+    assertEquals(List.of(), gaps.pending(10, 61 * MINUTE));
+    assertEquals(0, gaps.size());
+  }
+
+  @Test
+  void staysUncertainOverGapsTooWideToTrack() {
+    IdGaps gaps = new IdGaps(0, 10, Duration.ofMinutes(5));
+    gaps.advance(1_000, 0);
+    assertEquals(10, gaps.size());
+    for (long id = 1; id <= 10; id++) {
+      gaps.found(id);
+    }
+    assertTrue(gaps.isUncertain(5 * MINUTE - 1));
+    assertFalse(gaps.isUncertain(5 * MINUTE));
+  }
+}
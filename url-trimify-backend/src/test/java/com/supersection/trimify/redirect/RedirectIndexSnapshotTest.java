@@ -0,0 +1,75 @@
+package com.supersection.trimify.redirect;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RedirectIndexSnapshotTest {
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void findsEveryWrittenTarget() throws IOException {
+    Map<String, RedirectTarget> targets = new TreeMap<>();
+    for (int i = 1; i <= 1000; i++) {
+      targets.put("c" + i, new RedirectTarget(i, i % 7, "c" + i, "https://example.com/" + i, RedirectPolicy.DEFAULT));
+    }
+    RedirectPolicy offload = new RedirectPolicy(301, 3600, ClickTracking.OFFLOAD);
+    targets.put("ünï", new RedirectTarget(1001, 3, "ünï", "https://example.com/ü", offload));
+
+    RedirectIndexSnapshot snapshot =
+        RedirectIndexSnapshot.write(directory.resolve("index"), null, targets, 1001, 42);
+
+    assertEquals(1001, snapshot.entryCount());
+    assertEquals(1001, snapshot.highWaterId());
+    assertEquals(42, snapshot.takenAtMillis());
+    for (RedirectTarget target : targets.values()) {
+      assertEquals(target, snapshot.get(target.shortUrl()));
+    }
+    assertNull(snapshot.get("missing"));
+  }
+
+  @Test
+  void overlayReplacesBaseEntries() throws IOException {
+    Path path = directory.resolve("index");
+    RedirectTarget first = new RedirectTarget(1, 1, "a", "https://example.com/old", RedirectPolicy.DEFAULT);
+    RedirectTarget second = new RedirectTarget(2, 1, "b", "https://example.com/b", RedirectPolicy.DEFAULT);
+    RedirectIndexSnapshot base = RedirectIndexSnapshot.write(path, null, Map.of("a", first, "b", second), 2, 1);
+
+    RedirectTarget updated = new RedirectTarget(1, 1, "a", "https://example.com/new", RedirectPolicy.DEFAULT);
+    RedirectTarget third = new RedirectTarget(3, 1, "c", "https://example.com/c", RedirectPolicy.DEFAULT);
+    RedirectIndexSnapshot merged = RedirectIndexSnapshot.write(path, base, Map.of("a", updated, "c", third), 3, 2);
+
+    assertEquals(3, merged.entryCount());
+    assertEquals(updated, merged.get("a"));
+    assertEquals(second, merged.get("b"));
+    assertEquals(third, merged.get("c"));
+    assertEquals(merged.entryCount(), RedirectIndexSnapshot.open(path).entryCount());
+  }
+
+  @Test
+  void rejectsCorruptedFile() throws IOException {
+    Path path = directory.resolve("index");
+    RedirectTarget target = new RedirectTarget(1, 1, "a", "https://example.com/", RedirectPolicy.DEFAULT);
+    RedirectIndexSnapshot.write(path, null, Map.of("a", target), 1, 1);
+
+    try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+      file.seek(90);
+      int b = file.read();
+      file.seek(90);
+      file.write(b ^ 1);
+    }
+    IOException e = assertThrows(IOException.class, () -> RedirectIndexSnapshot.open(path));
+    assertEquals("Snapshot checksum mismatch", e.getMessage());
+  }
+}
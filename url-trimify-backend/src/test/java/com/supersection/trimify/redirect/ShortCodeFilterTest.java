@@ -0,0 +1,84 @@
+package com.supersection.trimify.redirect;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import com.supersection.trimify.dto.ShortUrlProjection;
+import com.supersection.trimify.repository.UrlMappingRepository;
+
+class ShortCodeFilterTest {
+
+  private record Row(Long getId, String getShortUrl) implements ShortUrlProjection {
+  }
+
+  /** Committed rows, in id order. */
+  private final TreeMap<Long, Row> table = new TreeMap<>();
+  private ShortCodeFilter filter;
+
+  @BeforeEach
+  void setUp() {
+    UrlMappingRepository repository = mock(UrlMappingRepository.class);
+    when(repository.count()).thenAnswer(invocation -> (long) table.size());
+    when(repository.findByIdGreaterThanOrderByIdAsc(anyLong(), any(Limit.class))).thenAnswer(invocation -> {
+      long afterId = invocation.getArgument(0);
+      Limit limit = invocation.getArgument(1);
+      return table.tailMap(afterId, false).values().stream().limit(limit.max()).toList();
+    });
+    when(repository.findByIdIn(anyCollection())).thenAnswer(invocation -> {
+      Collection<Long> ids = invocation.getArgument(0);
+      return ids.stream().map(table::get).filter(row -> row != null).toList();
+    });
+    filter = new ShortCodeFilter(repository, true, 1_000, 0.001);
+  }
+
+  private void commit(long id) {
+    table.put(id, new Row(id, "code" + id));
+  }
+
+  @Test
+  void rejectsUnknownCodesOnceEveryIdIsAccountedFor() {
+    for (long id = 1; id <= 100; id++) {
+      commit(id);
+    }
+    filter.build();
+
+    assertTrue(filter.mightExist("code50"));
+    assertFalse(filter.mightExist("missing"));
+  }
+
+  @Test
+  void findsARowCommittingLongAfterHigherIds() {
+    commit(1);
+    commit(2);
+    filter.build();
+    // Id 3 is taken by a transaction still in flight while many later ids commit
+    for (long id = 4; id <= 25_000; id++) {
+      commit(id);
+    }
+    filter.refresh();
+    // The code of id 3 is unknown, so nothing can be rejected yet
+    assertTrue(filter.mightExist("code3"));
+    assertTrue(filter.mightExist("missing"));
+
+    commit(3);
+    filter.refresh();
+    assertTrue(filter.mightExist("code3"));
+    assertFalse(filter.mightExist("missing"));
+    for (long id = 1; id <= 25_000; id++) {
+      assertTrue(filter.mightExist("code" + id), "code" + id);
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package com.supersection.trimify.security.jwt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.security.SecureRandom;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import com.supersection.trimify.service.UserDetailsImpl;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.io.Encoders;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class JwtUtilsTest {
+
+  private final String secret = newSecret();
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final JwtUtils jwtUtils = new JwtUtils(registry, secret, 3_600_000, 100);
+
+  private static String newSecret() {
+    byte[] key = new byte[64];
+    new SecureRandom().nextBytes(key);
+    return Encoders.BASE64.encode(key);
+  }
+
+  private static UserDetailsImpl user(long id, String username) {
+    return new UserDetailsImpl(
+        id, username, username + "@example.com", "", List.of(new SimpleGrantedAuthority("ROLE_USER")));
+  }
+
+  private static String token(String secret, String username, Date expiration) {
+    return Jwts.builder()
+        .subject(username)
+        .expiration(expiration)
+        .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret)))
+        .compact();
+  }
+
+  private long verifications() {
+    return registry.get("trimify.jwt.verification").timer().count();
+  }
+
+  private double failures(String reason) {
+    return registry.get("trimify.jwt.failures").tag("reason", reason).counter().count();
+  }
+
+  @Test
+  void verifiesEachTokenOnceWithTheKeyItSignsWith() {
+    String alice = jwtUtils.generateJwtToken(user(1, "alice"));
+    String bob = jwtUtils.generateJwtToken(user(2, "bob"));
+
+    Claims claims = jwtUtils.parseVerifiedClaims(alice);
+    assertEquals("alice", claims.getSubject());
+    assertEquals(1, claims.get(JwtUtils.USER_ID_CLAIM, Long.class));
+    assertEquals("ROLE_USER", claims.get(JwtUtils.ROLES_CLAIM, String.class));
+    for (int i = 0; i < 10; i++) {
+      assertSame(claims, jwtUtils.parseVerifiedClaims(alice));
+    }
+    assertEquals("bob", jwtUtils.parseVerifiedClaims(bob).getSubject());
+    assertEquals(2, verifications());
+    assertEquals(10L, jwtUtils.describe().get("hitCount"));
+
+    // A token signed by another instance with the same secret is accepted too
+    JwtUtils otherNode = new JwtUtils(new SimpleMeterRegistry(), secret, 3_600_000, 100);
+    assertEquals("alice", otherNode.parseVerifiedClaims(alice).getSubject());
+    assertEquals("bob", jwtUtils.parseVerifiedClaims(otherNode.generateJwtToken(user(2, "bob"))).getSubject());
+  }
+
+  @Test
+  void stopsAcceptingACachedTokenAtItsExpiry() throws InterruptedException {
+    // exp is kept to the second, so the token lives one to two seconds
+    Date expiration = new Date((System.currentTimeMillis() / 1_000 + 2) * 1_000);
+    String token = token(secret, "alice", expiration);
+    Claims claims = jwtUtils.parseVerifiedClaims(token);
+    assertSame(claims, jwtUtils.parseVerifiedClaims(token));
+    assertEquals(1, verifications());
+
+    Thread.sleep(expiration.getTime() - System.currentTimeMillis() + 100);
+    JwtException e = assertThrows(JwtException.class, () -> jwtUtils.parseVerifiedClaims(token));
+    assertInstanceOf(ExpiredJwtException.class, e.getCause());
+    assertEquals(2, verifications());
+    assertEquals(1, failures("expired"));
+  }
+
+  @Test
+  void neverServesATamperedTokenFromTheCache() {
+    String alice = jwtUtils.generateJwtToken(user(1, "alice"));
+    String bob = jwtUtils.generateJwtToken(user(2, "bob"));
+    jwtUtils.parseVerifiedClaims(alice);
+    jwtUtils.parseVerifiedClaims(bob);
+
+    // Bob's claims under Alice's signature
+    String[] aliceParts = alice.split("\\.");
+    String[] bobParts = bob.split("\\.");
+    String spliced = aliceParts[0] + "." + bobParts[1] + "." + aliceParts[2];
+    JwtException e = assertThrows(JwtException.class, () -> jwtUtils.parseVerifiedClaims(spliced));
+    assertInstanceOf(SignatureException.class, e.getCause());
+
+    // A flipped signature character
+    String signature = aliceParts[2];
+    char flipped = signature.charAt(10) == 'A' ? 'B' : 'A';
+    String resigned = aliceParts[0] + "." + aliceParts[1] + "."
+        + signature.substring(0, 10) + flipped + signature.substring(11);
+    assertThrows(JwtException.class, () -> jwtUtils.parseVerifiedClaims(resigned));
+
+    // The same claims signed with another key
+    Date expiration = new Date(System.currentTimeMillis() + 3_600_000);
+    String forged = token(newSecret(), "alice", expiration);
+    assertThrows(JwtException.class, () -> jwtUtils.parseVerifiedClaims(forged));
+    assertThrows(JwtException.class, () -> jwtUtils.parseVerifiedClaims(forged));
+
+    // Failures are never cached, and the genuine tokens still are
+    assertEquals(4, failures("signature"));
+    assertEquals("alice", jwtUtils.parseVerifiedClaims(alice).getSubject());
+    assertEquals("bob", jwtUtils.parseVerifiedClaims(bob).getSubject());
+    assertEquals(6, verifications());
+  }
+}
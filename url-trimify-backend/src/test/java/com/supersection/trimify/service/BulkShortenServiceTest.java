@@ -0,0 +1,173 @@
+package com.supersection.trimify.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import com.supersection.trimify.dto.BatchShortenResult;
+import com.supersection.trimify.dto.UrlMappingDTO;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class BulkShortenServiceTest {
+
+  /** Creates mappings in memory, recording each call and failing the URLs it is told to. */
+  private static final class FakeUrlMappingService extends UrlMappingService {
+
+    final List<Integer> batches = new ArrayList<>();
+    final List<String> single = new ArrayList<>();
+    final Set<String> colliding = new HashSet<>();
+    boolean databaseDown;
+    long nextId = 1;
+
+    FakeUrlMappingService() {
+      super(null, null, null, null, null, null, null, null, null, null, null, null, null, null);
+    }
+
+    @Override
+    public List<UrlMappingDTO> createShortUrls(List<String> originalUrls, UserDetailsImpl user) {
+      batches.add(originalUrls.size());
+      if (databaseDown) {
+        throw new DataAccessResourceFailureException("database down");
+      }
+      if (originalUrls.stream().anyMatch(colliding::contains)) {
+        throw new DataIntegrityViolationException("Duplicate entry for key 'short_url'");
+      }
+      List<UrlMappingDTO> created = new ArrayList<>();
+      for (String originalUrl : originalUrls) {
+        created.add(mapping(originalUrl));
+      }
+      return created;
+    }
+
+    @Override
+    public UrlMappingDTO createShortUrl(String originalUrl, UserDetailsImpl user) {
+      single.add(originalUrl);
+      if (colliding.contains(originalUrl)) {
+        throw new DataIntegrityViolationException("Duplicate entry for key 'short_url'");
+      }
+      return mapping(originalUrl);
+    }
+
+    private UrlMappingDTO mapping(String originalUrl) {
+      UrlMappingDTO mapping = new UrlMappingDTO();
+      mapping.setId(nextId);
+      mapping.setOriginalUrl(originalUrl);
+      mapping.setShortUrl("code" + nextId++);
+      return mapping;
+    }
+  }
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final FakeUrlMappingService urlMappingService = new FakeUrlMappingService();
+  private final BulkShortenService service = new BulkShortenService(urlMappingService, objectMapper, 3, 10);
+
+  private List<BatchShortenResult> shorten(String input) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    service.shorten(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), new UserDetailsImpl(), output);
+    List<BatchShortenResult> results = new ArrayList<>();
+    for (String line : output.toString(StandardCharsets.UTF_8).split("\n")) {
+      results.add(objectMapper.readValue(line, BatchShortenResult.class));
+    }
+    return results;
+  }
+
+  private static String urls(int count) {
+    List<String> urls = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      urls.add("\"https://example.com/" + i + "\"");
+    }
+    return "[" + String.join(",", urls) + "]";
+  }
+
+  @Test
+  void insertsInChunksAndKeepsTheInputOrder() throws IOException {
+    List<BatchShortenResult> results = shorten(urls(7));
+
+    assertEquals(List.of(3, 3, 1), urlMappingService.batches);
+    assertEquals(7, results.size());
+    for (int i = 0; i < 7; i++) {
+      assertEquals(i, results.get(i).getIndex());
+      assertEquals("https://example.com/" + i, results.get(i).getOriginalUrl());
+      assertEquals("code" + (i + 1), results.get(i).getShortUrl());
+      assertNull(results.get(i).getError());
+    }
+  }
+
+  @Test
+  void reportsInvalidItemsWithoutFailingTheOthers() throws IOException {
+    String input = """
+        "https://example.com/a"
+        {"originalUrl": "https://example.com/b"}
+        {"url": "https://example.com/c"}
+        "example.com/x"
+        "https://example.com/%zz"
+        "https://example.com/d"
+        """;
+    List<BatchShortenResult> results = shorten(input);
+
+    assertEquals(List.of(3), urlMappingService.batches);
+    assertEquals(6, results.size());
+    // Failures are written as they are found, each chunk once it is saved
+    assertEquals("originalUrl is required", results.get(0).getError());
+    assertEquals(2, results.get(0).getIndex());
+    assertEquals("originalUrl must be an absolute URL", results.get(1).getError());
+    assertEquals(3, results.get(1).getIndex());
+    assertEquals("originalUrl is not a valid URL", results.get(2).getError());
+    assertEquals(4, results.get(2).getIndex());
+    assertEquals(List.of(0, 1, 5), results.subList(3, 6).stream().map(BatchShortenResult::getIndex).toList());
+    assertEquals("https://example.com/b", results.get(4).getOriginalUrl());
+  }
+
+  @Test
+  void retriesACollidingChunkOneByOne() throws IOException {
+    urlMappingService.colliding.add("https://example.com/4");
+    List<BatchShortenResult> results = shorten(urls(6));
+
+    assertEquals(List.of(3, 3), urlMappingService.batches);
+    assertEquals(List.of("https://example.com/3", "https://example.com/4", "https://example.com/5"),
+        urlMappingService.single);
+    assertEquals(6, results.size());
+    for (int i = 0; i < 6; i++) {
+      assertEquals(i, results.get(i).getIndex());
+      assertEquals(i == 4 ? "Could not be saved" : null, results.get(i).getError());
+    }
+  }
+
+  @Test
+  void failsTheWholeChunkWhenTheDatabaseIsDown() throws IOException {
+    urlMappingService.databaseDown = true;
+    List<BatchShortenResult> results = shorten(urls(2));
+
+    assertEquals(List.of(), urlMappingService.single);
+    assertEquals(2, results.size());
+    assertEquals("Could not be saved", results.get(0).getError());
+    assertEquals("Could not be saved", results.get(1).getError());
+  }
+
+  @Test
+  void stopsAtTheItemLimitAndOnMalformedInput() throws IOException {
+    List<BatchShortenResult> results = shorten(urls(12));
+    assertEquals(11, results.size());
+    assertEquals("Batch exceeds 10 items", results.get(9).getError());
+    assertEquals(10, results.get(9).getIndex());
+    assertEquals(9, results.get(10).getIndex());
+
+    results = shorten("[\"https://example.com/a\", {");
+    assertEquals(2, results.size());
+    assertEquals(1, results.get(0).getIndex());
+    assertEquals("https://example.com/a", results.get(1).getOriginalUrl());
+  }
+}
@@ -0,0 +1,78 @@
+package com.supersection.trimify.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class ClickDaySplitTest {
+
+  private static final LocalDate DAY = LocalDate.of(2026, 10, 1);
+
+  @Test
+  void countsASameDayRangeFromMidnightAsOnePartialDay() {
+    LocalDateTime end = DAY.atTime(15, 0);
+    ClickDaySplit split = ClickDaySplit.of(DAY.atStartOfDay(), end);
+
+    assertTrue(split.lastWholeDay().isBefore(split.firstWholeDay()));
+    assertEquals(List.of(new ClickDaySplit.Range(DAY.atStartOfDay(), end)), split.partialDays());
+  }
+
+  @Test
+  void countsASameDayRangeWithinTheDayAsOnePartialDay() {
+    ClickDaySplit split = ClickDaySplit.of(DAY.atTime(9, 30), DAY.atTime(15, 0));
+
+    assertTrue(split.lastWholeDay().isBefore(split.firstWholeDay()));
+    assertEquals(List.of(new ClickDaySplit.Range(DAY.atTime(9, 30), DAY.atTime(15, 0))), split.partialDays());
+  }
+
+  @Test
+  void treatsMidnightToEndOfDayAsAWholeDay() {
+    ClickDaySplit split = ClickDaySplit.of(DAY.atStartOfDay(), DAY.atTime(23, 59, 59));
+
+    assertEquals(DAY, split.firstWholeDay());
+    assertEquals(DAY, split.lastWholeDay());
+    assertEquals(List.of(), split.partialDays());
+  }
+
+  @Test
+  void splitsPartialDaysAtBothEnds() {
+    LocalDateTime start = DAY.atTime(18, 0);
+    LocalDateTime end = DAY.plusDays(3).atTime(6, 0);
+    ClickDaySplit split = ClickDaySplit.of(start, end);
+
+    assertEquals(DAY.plusDays(1), split.firstWholeDay());
+    assertEquals(DAY.plusDays(2), split.lastWholeDay());
+    assertEquals(List.of(
+        new ClickDaySplit.Range(start, DAY.plusDays(1).atStartOfDay().minusNanos(1)),
+        new ClickDaySplit.Range(DAY.plusDays(3).atStartOfDay(), end)
+    ), split.partialDays());
+  }
+
+  @Test
+  void splitsAdjacentPartialDaysWithoutWholeDays() {
+    LocalDateTime start = DAY.atTime(18, 0);
+    LocalDateTime end = DAY.plusDays(1).atTime(6, 0);
+    ClickDaySplit split = ClickDaySplit.of(start, end);
+
+    assertTrue(split.lastWholeDay().isBefore(split.firstWholeDay()));
+    assertEquals(List.of(
+        new ClickDaySplit.Range(start, DAY.plusDays(1).atStartOfDay().minusNanos(1)),
+        new ClickDaySplit.Range(DAY.plusDays(1).atStartOfDay(), end)
+    ), split.partialDays());
+  }
+
+  @Test
+  void keepsTheEndDayPartialWhenTheRangeStartsAtMidnight() {
+    LocalDateTime end = DAY.plusDays(1).atTime(12, 0);
+    ClickDaySplit split = ClickDaySplit.of(DAY.atStartOfDay(), end);
+
+    assertEquals(DAY, split.firstWholeDay());
+    assertEquals(DAY, split.lastWholeDay());
+    assertEquals(List.of(new ClickDaySplit.Range(DAY.plusDays(1).atStartOfDay(), end)), split.partialDays());
+  }
+}
@@ -0,0 +1,134 @@
+package com.supersection.trimify.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.data.domain.Limit;
+
+import com.supersection.trimify.click.ClickCounterService;
+import com.supersection.trimify.dto.UrlMappingDTO;
+import com.supersection.trimify.dto.UrlMappingPage;
+import com.supersection.trimify.dto.UrlMappingSummary;
+import com.supersection.trimify.repository.UrlMappingRepository;
+
+class UrlMappingServiceTest {
+
+  private record Row(Long getId, String getOriginalUrl, String getShortUrl, int getClickCount,
+      LocalDateTime getCreatedAt) implements UrlMappingSummary {
+  }
+
+  private static final Comparator<Row> BY_CREATED_AT =
+      Comparator.comparing(Row::getCreatedAt).thenComparing(Row::getId);
+  private static final Comparator<Row> BY_CLICK_COUNT =
+      Comparator.comparingInt(Row::getClickCount).thenComparing(Row::getId);
+
+  private static final LocalDateTime START = LocalDateTime.of(2026, 10, 1, 9, 30, 15, 123_456_000);
+
+  /** The user's links, in id order. */
+  private final List<Row> table = new ArrayList<>();
+  private UrlMappingService service;
+
+  @BeforeEach
+  void setUp() {
+    UrlMappingRepository repository = mock(UrlMappingRepository.class);
+    when(repository.findPageByCreatedAtAsc(anyLong(), any(LocalDateTime.class), anyLong(), any(Limit.class)))
+        .thenAnswer(invocation -> seek(invocation, BY_CREATED_AT));
+    when(repository.findPageByCreatedAtDesc(anyLong(), any(LocalDateTime.class), anyLong(), any(Limit.class)))
+        .thenAnswer(invocation -> seek(invocation, BY_CREATED_AT.reversed()));
+    when(repository.findPageByClickCountAsc(anyLong(), anyInt(), anyLong(), any(Limit.class)))
+        .thenAnswer(invocation -> seek(invocation, BY_CLICK_COUNT));
+    when(repository.findPageByClickCountDesc(anyLong(), anyInt(), anyLong(), any(Limit.class)))
+        .thenAnswer(invocation -> seek(invocation, BY_CLICK_COUNT.reversed()));
+    UrlMappingDtoConverter converter = new UrlMappingDtoConverter(new ClickCounterService(null, null));
+    service = new UrlMappingService(
+        repository, null, null, null, null, converter, null, null, null, null, null, null, null, null);
+
+    // Links created three at a time, with click counts repeating every four
+    for (long id = 1; id <= 25; id++) {
+      table.add(new Row(id, "https://example.com/" + id, "code" + id, (int) (id % 4),
+          START.plusSeconds((id - 1) / 3)));
+    }
+  }
+
+  /** Rows after the (sort key, id) position in the query's order, like the database would return. */
+  private List<Row> seek(InvocationOnMock invocation, Comparator<Row> order) {
+    Object sortValue = invocation.getArgument(1);
+    Row position = sortValue instanceof LocalDateTime createdAt
+        ? new Row(invocation.getArgument(2), null, null, 0, createdAt)
+        : new Row(invocation.getArgument(2), null, null, (Integer) sortValue, null);
+    Limit limit = invocation.getArgument(3);
+    return table.stream()
+        .filter(row -> order.compare(row, position) > 0)
+        .sorted(order)
+        .limit(limit.max())
+        .toList();
+  }
+
+  private List<Long> pageThrough(int limit, String sort, String direction) {
+    List<Long> ids = new ArrayList<>();
+    UserDetailsImpl user = new UserDetailsImpl(1L, "alice", "alice@example.com", "", List.of());
+    String cursor = null;
+    do {
+      UrlMappingPage page = service.getUrlsByUser(user, cursor, limit, sort, direction);
+      assertEquals(page.getNextCursor() != null ? limit : page.getUrls().size(), page.getUrls().size());
+      page.getUrls().stream().map(UrlMappingDTO::getId).forEach(ids::add);
+      cursor = page.getNextCursor();
+    } while (cursor != null);
+    return ids;
+  }
+
+  private List<Long> expected(Comparator<Row> order) {
+    return table.stream().sorted(order).map(Row::getId).toList();
+  }
+
+  @Test
+  void visitsEveryLinkOnceAcrossTiedSortKeys() {
+    assertEquals(expected(BY_CREATED_AT), pageThrough(4, "createdAt", "asc"));
+    assertEquals(expected(BY_CREATED_AT.reversed()), pageThrough(4, "createdAt", "desc"));
+    assertEquals(expected(BY_CLICK_COUNT), pageThrough(4, "clickCount", "asc"));
+    assertEquals(expected(BY_CLICK_COUNT.reversed()), pageThrough(4, "clickCount", "desc"));
+  }
+
+  @Test
+  void endsWithoutAnEmptyPageWhenTheLastOneIsFull() {
+    assertEquals(expected(BY_CLICK_COUNT), pageThrough(5, "clickCount", "asc"));
+    assertEquals(expected(BY_CREATED_AT.reversed()), pageThrough(25, "createdAt", "DESC"));
+    assertEquals(expected(BY_CREATED_AT), pageThrough(100, "createdAt", "asc"));
+  }
+
+  @Test
+  void rejectsCursorsOfAnotherOrderingOrNotIssuedHere() {
+    UserDetailsImpl user = new UserDetailsImpl(1L, "alice", "alice@example.com", "", List.of());
+    String cursor = service.getUrlsByUser(user, null, 4, "createdAt", "asc").getNextCursor();
+    assertNotNull(cursor);
+    assertNull(service.getUrlsByUser(user, cursor, 100, "createdAt", "asc").getNextCursor());
+
+    assertThrows(IllegalArgumentException.class,
+        () -> service.getUrlsByUser(user, cursor, 4, "createdAt", "desc"));
+    assertThrows(IllegalArgumentException.class,
+        () -> service.getUrlsByUser(user, cursor, 4, "clickCount", "asc"));
+    assertThrows(IllegalArgumentException.class,
+        () -> service.getUrlsByUser(user, "not base64!", 4, "createdAt", "asc"));
+    // Well-formed but with a sort key that does not parse
+    String forged = Base64.getUrlEncoder().encodeToString("createdAt,asc,yesterday,1".getBytes(StandardCharsets.UTF_8));
+    assertThrows(IllegalArgumentException.class,
+        () -> service.getUrlsByUser(user, forged, 4, "createdAt", "asc"));
+  }
+}
@@ -0,0 +1,51 @@
+package com.supersection.trimify.shortcode;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class ShortCodeGeneratorTest {
+
+  @Test
+  void base62RoundTrips() {
+    for (long value : new long[] { 0, 1, 61, 62, 3843, 3844, Base62.space(7) - 1 }) {
+      assertEquals(value, Base62.decode(Base62.encode(value)));
+      assertEquals(value, Base62.decode(Base62.encode(value, 7)));
+    }
+    assertEquals("aaaaaab", Base62.encode(1, 7));
+  }
+
+  @Test
+  void permutationIsABijectionOnItsDomain() {
+    long domain = Base62.space(2);
+    CodePermutation permutation = new CodePermutation(domain, 42L);
+    Set<Long> seen = new HashSet<>();
+    for (long value = 0; value < domain; value++) {
+      long permuted = permutation.permute(value);
+      assertTrue(permuted >= 0 && permuted < domain);
+      assertTrue(seen.add(permuted));
+      assertEquals(value, permutation.invert(permuted));
+    }
+  }
+
+  @Test
+  void sequenceCodesAreUniqueAcrossLeases() {
+    AtomicLong nextValue = new AtomicLong(1);
+    IdBlockSource source = (sequence, size) -> nextValue.getAndAdd(size);
+    LeasedIdAllocator allocator = new LeasedIdAllocator(source, "test", 100);
+    ShortCodeGenerator generator = new SequenceShortCodeGenerator(
+        allocator, 7, new CodePermutation(Base62.space(7), 7L));
+
+    Set<String> codes = new HashSet<>();
+    for (int i = 0; i < 10_000; i++) {
+      String code = generator.nextCode();
+      assertEquals(7, code.length());
+      assertTrue(codes.add(code));
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package com.supersection.trimify.trending;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class SlidingTopKTest {
+
+  private static final long MINUTE = 60_000;
+
+  private static void click(SlidingTopK topK, long link, long user, long at, int times) {
+    for (int i = 0; i < times; i++) {
+      topK.add(link, user, at);
+    }
+  }
+
+  @Test
+  void ranksLinksOverallAndPerUser() {
+    SlidingTopK topK = new SlidingTopK(TrendingWindow.ONE_HOUR, 4, 1024, 16, 4, 100);
+    long now = 1_000 * MINUTE;
+    click(topK, 1, 10, now, 5);
+    click(topK, 2, 20, now, 9);
+    click(topK, 3, 10, now, 7);
+
+    assertEquals(List.of(new TrendingLink(2, 20, 9), new TrendingLink(3, 10, 7)), topK.top(now, 2));
+    assertEquals(List.of(new TrendingLink(3, 10, 7), new TrendingLink(1, 10, 5)), topK.topForUser(now, 10, 10));
+    assertTrue(topK.topForUser(now, 30, 10).isEmpty());
+  }
+
+  @Test
+  void expiresClicksOlderThanTheWindow() {
+    SlidingTopK topK = new SlidingTopK(TrendingWindow.FIVE_MINUTES, 4, 1024, 16, 4, 100);
+    long start = 1_000 * MINUTE;
+    click(topK, 1, 10, start, 8);
+    click(topK, 2, 10, start + 3 * MINUTE, 3);
+
+    assertEquals(List.of(new TrendingLink(1, 10, 8), new TrendingLink(2, 10, 3)), topK.top(start + 4 * MINUTE, 10));
+    assertEquals(List.of(new TrendingLink(2, 10, 3)), topK.top(start + 6 * MINUTE, 10));
+    assertTrue(topK.top(start + 9 * MINUTE, 10).isEmpty());
+    assertEquals(0, topK.getTrackedUsers());
+  }
+}